@@ -2,6 +2,7 @@ plugins {
     java
     alias(libs.plugins.spring.boot)
     alias(libs.plugins.spring.dependency.management)
+    alias(libs.plugins.jmh)
     id("jacoco")
 }
 
@@ -23,6 +24,9 @@ dependencyManagement {
 
 dependencies {
     implementation(libs.spring.boot.starter.web)
+    implementation(libs.spring.boot.starter.webflux)
+    implementation(libs.spring.boot.starter.actuator)
+    implementation(libs.micrometer.registry.prometheus)
     compileOnly(libs.lombok)
     annotationProcessor(libs.lombok)
     annotationProcessor(libs.spring.boot.configuration.processor)
@@ -38,6 +42,31 @@ with(extensions.getByType(JacocoPluginExtension::class.java)) {
     toolVersion = "0.8.7"
 }
 
+// benchmark (src/jmh/java) : ./gradlew jmh -Pjmh.includes=PointServiceBenchmark -Pjmh.threads=16
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+    resultFormat = "JSON"
+    findProperty("jmh.includes")?.let { includes = listOf(it.toString()) }
+    findProperty("jmh.threads")?.let { threads = it.toString().toInt() }
+}
+
+// load test against a running server : ./gradlew loadTest -PloadArgs="--concurrency=2000 --duration=30"
+tasks.register<JavaExec>("loadTest") {
+    group = "verification"
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass = "io.hhplus.tdd.load.PointApiLoadTest"
+    args = (findProperty("loadArgs") as String?)?.split(" ") ?: emptyList()
+}
+
+// heap bytes per history row by store : ./gradlew historyFootprint -PfootprintArgs="5000000 100000"
+tasks.register<JavaExec>("historyFootprint") {
+    group = "verification"
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass = "io.hhplus.tdd.point.HistoryFootprintReport"
+    jvmArgs("-Xmx4g")
+    args = (findProperty("footprintArgs") as String?)?.split(" ") ?: emptyList()
+}
+
 // bundling tasks
 tasks.getByName("bootJar") {
     enabled = true
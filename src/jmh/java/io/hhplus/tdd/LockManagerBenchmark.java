@@ -0,0 +1,75 @@
+package io.hhplus.tdd;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 기존 static LockManager 와 stripe 레지스트리 비교
+ * - keySpace 1 : 한 유저에 몰리는 hot-key 경합
+ * - keySpace 1_000_000 : 유저가 넓게 퍼진 경우 (기존 구현은 map 이 계속 커진다)
+ * ./gradlew jmh -Pjmh.includes=LockManagerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class LockManagerBenchmark {
+
+    @Param({"legacy", "striped"})
+    public String impl;
+
+    @Param({"1", "1000000"})
+    public int keySpace;
+
+    private LockManager lockManager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        lockManager = new LockManager();
+        LegacyLockManager.reset();
+    }
+
+    @Benchmark
+    public void lockUnlock() {
+        Long key = (long) ThreadLocalRandom.current().nextInt(keySpace);
+        if ("legacy".equals(impl)) {
+            LegacyLockManager.lock(key);
+            LegacyLockManager.unLock(key);
+        } else {
+            lockManager.lock(key);
+            lockManager.unLock(key);
+        }
+    }
+
+    /**
+     * 비교용 기존 구현 (key 별 락을 지우지 않는 static map)
+     * - 원본 그대로의 공유 lock 필드는 멀티 스레드에서 IllegalMonitorStateException 이 나서,
+     *   원본에 주석으로 남아있던 computeIfAbsent 버전으로 측정한다.
+     */
+    static class LegacyLockManager {
+        private static ConcurrentMap<Object, ReentrantLock> lockMap = new ConcurrentHashMap<>();
+
+        static void reset() {
+            lockMap = new ConcurrentHashMap<>();
+        }
+
+        static void lock(Object object) {
+            Lock lock = lockMap.computeIfAbsent(object, k -> new ReentrantLock());
+            lock.lock();
+        }
+
+        static void unLock(Object object) {
+            Lock lock = lockMap.get(object);
+            if (lock != null) lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package io.hhplus.tdd.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 실행 중인 서버에 동시 요청을 유지하며 부하를 건다.
+ * concurrency 개의 요청을 항상 떠 있게 하고, 처리량/지연/실패와 서버가 동시에 처리한 요청 수를 출력한다.
+ * 서버가 동시에 처리한 요청 수는 처리량 × 최소 지연(= 대기 없이 처리될 때 걸리는 시간)으로 추정한다.
+ * 서버의 /actuator/metrics 에서 heap 사용량과 live thread 수를 1초마다 읽어, 부하 전 대비 늘어난 양을 동시 연결 하나당 값으로 나눠 출력한다.
+ * (platform thread 의 stack 은 heap 밖이라 thread 수로 따로 본다)
+ *
+ * 비교 방법
+ * 1. ./gradlew bootRun                                                         (MVC, platform thread, Tomcat 기본 200)
+ * 2. ./gradlew bootRun --args='--spring.threads.virtual.enabled=true'          (MVC, Java 21 이상)
+ * 3. ./gradlew bootRun --args='--spring.main.web-application-type=reactive'    (WebFlux, starter-web 도 있어 Tomcat 의 non-blocking 모드)
+ * 각각 ./gradlew loadTest -PloadArgs="--concurrency=2000 --duration=30" 후 p99 와 per connection 값을 비교한다.
+ * per connection 값은 부하 전 값을 기준으로 하므로, 동시 요청 수를 바꿀 때마다 서버를 새로 띄운다.
+ */
+public class PointApiLoadTest {
+
+    // 1ms 단위 지연 히스토그램, 마지막 칸은 그 이상
+    private static final int MAX_LATENCY_MILLIS = 60_000;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String baseUrl = options.getOrDefault("base-url", "http://localhost:8080");
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "1000"));
+        int durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int users = Integer.parseInt(options.getOrDefault("users", "10000"));
+        double writeRatio = Double.parseDouble(options.getOrDefault("write-ratio", "0.2"));
+        int timeoutSeconds = Integer.parseInt(options.getOrDefault("timeout", "30"));
+
+        ExecutorService clientExecutor = Executors.newCachedThreadPool();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(timeoutSeconds))
+                .executor(clientExecutor)
+                .build();
+
+        Semaphore permits = new Semaphore(concurrency);
+        AtomicLongArray histogram = new AtomicLongArray(MAX_LATENCY_MILLIS + 1);
+        AtomicLong completed = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        System.out.printf("target=%s concurrency=%d duration=%ds users=%d write-ratio=%.2f%n",
+                baseUrl, concurrency, durationSeconds, users, writeRatio);
+
+        ServerSampler sampler = new ServerSampler(client, baseUrl);
+        sampler.start();
+
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + TimeUnit.SECONDS.toNanos(durationSeconds);
+        while (System.nanoTime() < endNanos) {
+            if (!permits.tryAcquire(100, TimeUnit.MILLISECONDS)) continue;
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+
+            HttpRequest request = nextRequest(baseUrl, users, writeRatio, timeoutSeconds);
+            long sentNanos = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sentNanos);
+                        if (error == null && response.statusCode() < 400) {
+                            completed.incrementAndGet();
+                            histogram.incrementAndGet((int) Math.min(millis, MAX_LATENCY_MILLIS));
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                        inFlight.decrementAndGet();
+                        permits.release();
+                    });
+        }
+        // 떠 있는 요청이 끝날 때까지 기다린다.
+        permits.tryAcquire(concurrency, timeoutSeconds, TimeUnit.SECONDS);
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        sampler.stop();
+        clientExecutor.shutdownNow();
+
+        long total = completed.get();
+        double throughput = total / elapsedSeconds;
+        long minMillis = percentile(histogram, total, 0.0);
+        System.out.printf("completed=%d failed=%d elapsed=%.1fs throughput=%.0f req/s%n",
+                total, failed.get(), elapsedSeconds, throughput);
+        System.out.printf("latency(ms) min=%d p50=%d p90=%d p99=%d max=%d%n",
+                minMillis,
+                percentile(histogram, total, 0.50),
+                percentile(histogram, total, 0.90),
+                percentile(histogram, total, 0.99),
+                percentile(histogram, total, 1.0));
+        System.out.printf("client in-flight max=%d, server concurrent (throughput x min latency) ~ %.0f%n",
+                maxInFlight.get(), throughput * Math.max(minMillis, 1) / 1000.0);
+        sampler.print(concurrency);
+    }
+
+    /**
+     * 서버의 heap 사용량과 live thread 수를 부하 전에 한 번, 부하 중에 1초마다 읽어 최대값을 남긴다.
+     */
+    private static final class ServerSampler {
+        private static final Pattern VALUE = Pattern.compile("\"value\"\\s*:\\s*([-0-9.Ee+]+)");
+
+        private final HttpClient client;
+        private final String baseUrl;
+        private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "server-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        private double baseHeap = -1;
+        private double baseThreads = -1;
+        private volatile double peakHeap;
+        private volatile double peakThreads;
+
+        private ServerSampler(HttpClient client, String baseUrl) {
+            this.client = client;
+            this.baseUrl = baseUrl;
+        }
+
+        void start() {
+            baseHeap = read("jvm.memory.used?tag=area:heap");
+            baseThreads = read("jvm.threads.live");
+            if (baseHeap < 0 || baseThreads < 0) return;
+            peakHeap = baseHeap;
+            peakThreads = baseThreads;
+            scheduler.scheduleAtFixedRate(() -> {
+                peakHeap = Math.max(peakHeap, read("jvm.memory.used?tag=area:heap"));
+                peakThreads = Math.max(peakThreads, read("jvm.threads.live"));
+            }, 1, 1, TimeUnit.SECONDS);
+        }
+
+        void stop() {
+            scheduler.shutdownNow();
+        }
+
+        void print(int concurrency) {
+            if (baseHeap < 0 || baseThreads < 0) {
+                System.out.println("server metrics unavailable (management.endpoints.web.exposure.include 에 metrics 가 필요)");
+                return;
+            }
+            System.out.printf("server heap used base=%.1fMB peak=%.1fMB (+%.1fKB per connection), live threads base=%.0f peak=%.0f (+%.3f per connection)%n",
+                    baseHeap / (1 << 20), peakHeap / (1 << 20), (peakHeap - baseHeap) / 1024 / concurrency,
+                    baseThreads, peakThreads, (peakThreads - baseThreads) / concurrency);
+        }
+
+        private double read(String metric) {
+            try {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/" + metric))
+                        .timeout(Duration.ofSeconds(5)).GET().build();
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                Matcher matcher = VALUE.matcher(response.body());
+                return response.statusCode() == 200 && matcher.find() ? Double.parseDouble(matcher.group(1)) : -1;
+            } catch (Exception e) {
+                return -1;
+            }
+        }
+    }
+
+    private static HttpRequest nextRequest(String baseUrl, int users, double writeRatio, int timeoutSeconds) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long userId = random.nextInt(users) + 1;
+        HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(Duration.ofSeconds(timeoutSeconds));
+        if (random.nextDouble() < writeRatio) {
+            return builder.uri(URI.create(baseUrl + "/point/" + userId + "/charge"))
+                    .header("Content-Type", "application/json")
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString("1"))
+                    .build();
+        }
+        return builder.uri(URI.create(baseUrl + "/point/" + userId)).GET().build();
+    }
+
+    private static long percentile(AtomicLongArray histogram, long total, double ratio) {
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(total * ratio));
+        long seen = 0;
+        for (int millis = 0; millis < histogram.length(); millis++) {
+            seen += histogram.get(millis);
+            if (seen >= rank) return millis;
+        }
+        return MAX_LATENCY_MILLIS;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        Arrays.stream(args)
+                .filter(arg -> arg.startsWith("--") && arg.contains("="))
+                .forEach(arg -> options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1)));
+        return options;
+    }
+}
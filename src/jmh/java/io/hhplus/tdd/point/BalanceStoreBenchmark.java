@@ -0,0 +1,71 @@
+package io.hhplus.tdd.point;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 잔액 저장소만의 충전/사용 처리량 (조회 → 잔액 검사 → CAS 루프)
+ * - boxed : ConcurrentHashMap<Long, AtomicLong>
+ * - atomic : AtomicPointRepository (long → long open addressing)
+ * ./gradlew jmh -Pjmh.includes=BalanceStoreBenchmark -Pjmh.threads=8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class BalanceStoreBenchmark {
+
+    private static final long INITIAL_POINT = 1_000_000;
+
+    @Param({"boxed", "atomic"})
+    public String impl;
+
+    @Param({"1", "1000000"})
+    public int keySpace;
+
+    private ConcurrentMap<Long, AtomicLong> boxed;
+    private AtomicPointRepository atomic;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        boxed = new ConcurrentHashMap<>();
+        atomic = new AtomicPointRepository(keySpace);
+        for (long userId = 0; userId < keySpace; userId++) {
+            boxed.put(userId, new AtomicLong(INITIAL_POINT));
+            atomic.save(userId, INITIAL_POINT);
+        }
+    }
+
+    @Benchmark
+    public boolean chargeOrUse() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long userId = random.nextInt(keySpace);
+        long delta = random.nextBoolean() ? 1 : -1;
+        return "boxed".equals(impl) ? boxed(userId, delta) : atomic(userId, delta);
+    }
+
+    private boolean boxed(long userId, long delta) {
+        AtomicLong balance = boxed.computeIfAbsent(userId, k -> new AtomicLong());
+        while (true) {
+            long current = balance.get();
+            if (current + delta < 0) return false;
+            if (balance.compareAndSet(current, current + delta)) return true;
+        }
+    }
+
+    private boolean atomic(long userId, long delta) {
+        while (true) {
+            UserPoint current = atomic.findById(userId);
+            if (current.point() + delta < 0) return false;
+            if (atomic.compareAndSave(userId, current.version(), current.point() + delta) != null) return true;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package io.hhplus.tdd.point;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 디스크에 내려간 뒤 돌아오는 insert 의 처리량
+ * - always : insert 마다 fsync
+ * - group : GroupCommitJournal 로 동시에 들어온 insert 를 한 번의 fsync 로 묶는다.
+ * 스레드 수를 늘려가며 비교한다. (always 는 fsync 지연에 묶이고, group 은 스레드 수에 따라 늘어난다)
+ * ./gradlew jmh -Pjmh.includes=GroupCommitBenchmark -Pjmh.threads=64
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class GroupCommitBenchmark {
+
+    @Param({"always", "group"})
+    public String fsync;
+
+    @Param({"256"})
+    public int batchSize;
+
+    @Param({"0", "1000"})
+    public long maxWaitMicros;
+
+    private Path dir;
+    private MappedPointHistoryRepository pointHistoryRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("group-commit");
+        pointHistoryRepository = new MappedPointHistoryRepository(dir.resolve("history.log"), 64L << 20,
+                MappedPointHistoryRepository.FsyncPolicy.valueOf(fsync.toUpperCase()), 10, batchSize, maxWaitMicros, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        System.out.printf("%n[%s] average group size = %.1f%n", fsync, pointHistoryRepository.averageGroupSize());
+        pointHistoryRepository.close();
+        try (var files = Files.walk(dir)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public PointHistory insert() {
+        long userId = ThreadLocalRandom.current().nextInt(100_000);
+        return pointHistoryRepository.insert(userId, 100, TransactionType.CHARGE, System.currentTimeMillis(), 100);
+    }
+}
@@ -0,0 +1,61 @@
+package io.hhplus.tdd.point;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 내역 한 건당 heap 사용량 비교
+ * - list : PointHistoryTable 과 같은 ArrayList<PointHistory>
+ * - indexed : IndexedPointHistoryRepository
+ * - columnar : ColumnarPointHistoryRepository
+ * 저장소마다 GC 후 heap 사용량 차이를 내역 수로 나눈다.
+ * ./gradlew historyFootprint -PfootprintArgs="5000000 100000"   (내역 수, 유저 수)
+ */
+public class HistoryFootprintReport {
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        int users = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        System.out.printf("rows=%d users=%d%n", rows, users);
+
+        report("list", rows, () -> {
+            List<PointHistory> table = new ArrayList<>();
+            for (int i = 0; i < rows; i++) {
+                table.add(new PointHistory(i + 1, i % users, 100, TransactionType.values()[i & 1], i, i));
+            }
+            return table;
+        });
+        report("indexed", rows, () -> fill(new IndexedPointHistoryRepository(), rows, users));
+        report("columnar", rows, () -> fill(new ColumnarPointHistoryRepository(), rows, users));
+    }
+
+    private static PointHistoryRepository fill(PointHistoryRepository repository, int rows, int users) {
+        for (int i = 0; i < rows; i++) {
+            repository.insert(i % users, 100, TransactionType.values()[i & 1], i, i);
+        }
+        return repository;
+    }
+
+    private static void report(String name, int rows, Supplier<Object> store) {
+        long before = usedHeap();
+        Object retained = store.get();
+        long after = usedHeap();
+        System.out.printf("%-9s %,d bytes (%.1f bytes/row)%n", name, after - before, (after - before) / (double) rows);
+        // 측정이 끝날 때까지 저장소가 GC 되지 않게 잡아둔다.
+        if (retained.hashCode() == 42) System.out.print("");
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,59 @@
+package io.hhplus.tdd.point;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 유저 한 명의 내역 조회 시간 비교 (전체 내역 수 10k ~ 10M)
+ * - scan : PointHistoryTable.selectAllByUserId 와 같은 전체 리스트 filter
+ * - indexed : IndexedPointHistoryRepository
+ * 조회 대상 유저의 내역 수(rowsPerUser)는 고정하고 전체 내역 수만 늘린다.
+ * ./gradlew jmh -Pjmh.includes=HistoryLookupBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class HistoryLookupBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    public int totalRows;
+
+    @Param({"100"})
+    public int rowsPerUser;
+
+    private List<PointHistory> table;
+    private IndexedPointHistoryRepository indexed;
+    private long targetUserId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        table = new ArrayList<>(totalRows);
+        indexed = new IndexedPointHistoryRepository();
+        long users = Math.max(1, totalRows / rowsPerUser);
+        targetUserId = users / 2;
+
+        for (int i = 0; i < totalRows; i++) {
+            long userId = i % users;
+            table.add(new PointHistory(i + 1, userId, 100, TransactionType.CHARGE, i, i));
+            indexed.insert(userId, 100, TransactionType.CHARGE, i, i);
+        }
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        blackhole.consume(table.stream().filter(pointHistory -> pointHistory.userId() == targetUserId).toList());
+    }
+
+    @Benchmark
+    public void indexed(Blackhole blackhole) {
+        List<PointHistory> histories = indexed.findAllByUserId(targetUserId);
+        for (PointHistory pointHistory : histories) blackhole.consume(pointHistory);
+    }
+}
@@ -0,0 +1,125 @@
+package io.hhplus.tdd.point;
+
+import io.hhplus.tdd.LockManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PointService charge / use / search / readHistories 처리량
+ * - keySpace 1 : 한 유저에 몰리는 hot-key 경합, 10000 : 유저가 넓게 퍼진 균등 부하
+ * - store memory : sleep 없는 ConcurrentHashMap 저장소로 바꿔 서비스/락 비용만 잰다.
+ *   store atomic : AtomicPointRepository (락 없는 long → long 테이블)
+ *   store ledger : PointLedger (잔액 저장 + 내역 저장 대신 이벤트 append 한 번)
+ *   UserPointTable / PointHistoryTable 은 시드만으로 keySpace 10000 에서 수십 분이 걸려 TablePointServiceBenchmark 에서 따로 잰다.
+ * - mode pessimistic : 유저 락, optimistic : compareAndSave + 재시도
+ * 스레드 수는 -Pjmh.threads 로 바꾼다. (기본 8)
+ * ./gradlew jmh -Pjmh.includes=PointServiceBenchmark -Pjmh.threads=16
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class PointServiceBenchmark {
+
+    // 사용이 실패하지 않도록 넉넉히 충전해둔다.
+    private static final long INITIAL_POINT = Long.MAX_VALUE / 4;
+    private static final int HISTORIES_PER_USER = 100;
+
+    @Param({"1", "10000"})
+    public int keySpace;
+
+    @Param({"memory", "atomic", "ledger"})
+    public String store;
+
+    @Param({"pessimistic", "optimistic"})
+    public String mode;
+
+    private PointService pointService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PointRepository pointRepository;
+        PointHistoryRepository pointHistoryRepository;
+        if ("ledger".equals(store)) {
+            PointLedger ledger = new PointLedger();
+            pointRepository = new LedgerPointRepository(ledger);
+            pointHistoryRepository = new LedgerPointHistoryRepository(ledger);
+        } else {
+            pointRepository = "atomic".equals(store) ? new AtomicPointRepository() : new MemoryPointRepository();
+            pointHistoryRepository = new IndexedPointHistoryRepository();
+        }
+        PointConcurrencyPolicy concurrencyPolicy = "optimistic".equals(mode)
+                ? PointConcurrencyPolicy.optimistic(1000, 0)
+                : PointConcurrencyPolicy.pessimistic();
+        pointService = new PointService(pointRepository, pointHistoryRepository, new LockManager(), Runnable::run, concurrencyPolicy, null, null, null);
+
+        // 서비스를 거치면 시드에도 락과 지표 비용이 붙어서 저장소에 직접 넣는다.
+        for (long userId = 0; userId < keySpace; userId++) {
+            pointRepository.save(userId, INITIAL_POINT);
+            for (int i = 0; i < HISTORIES_PER_USER; i++) {
+                pointHistoryRepository.insert(userId, 1, TransactionType.CHARGE, i, INITIAL_POINT);
+            }
+        }
+    }
+
+    @Benchmark
+    public UserPoint charge() throws Exception {
+        return pointService.charge(nextUserId(), 1L);
+    }
+
+    @Benchmark
+    public UserPoint use() throws Exception {
+        return pointService.use(nextUserId(), 1L);
+    }
+
+    @Benchmark
+    public UserPoint search() {
+        return pointService.search(nextUserId());
+    }
+
+    @Benchmark
+    public List<PointHistory> readHistories() throws Exception {
+        return pointService.readHistories(nextUserId());
+    }
+
+    private long nextUserId() {
+        return keySpace == 1 ? 0 : ThreadLocalRandom.current().nextInt(keySpace);
+    }
+
+    /**
+     * sleep 없는 비교용 잔액 저장소
+     */
+    static class MemoryPointRepository implements PointRepository {
+        private final ConcurrentMap<Long, UserPoint> table = new ConcurrentHashMap<>();
+
+        @Override
+        public UserPoint findById(long id) {
+            return table.getOrDefault(id, UserPoint.empty(id));
+        }
+
+        @Override
+        public UserPoint save(long id, long amount) {
+            return table.merge(id, new UserPoint(id, amount, System.currentTimeMillis(), 1),
+                    (prev, next) -> new UserPoint(id, amount, next.updateMillis(), prev.version() + 1));
+        }
+
+        @Override
+        public UserPoint compareAndSave(long id, long expectedVersion, long amount) {
+            UserPoint[] saved = new UserPoint[1];
+            table.compute(id, (k, prev) -> {
+                long version = prev == null ? 0 : prev.version();
+                if (version != expectedVersion) return prev;
+                return saved[0] = new UserPoint(id, amount, System.currentTimeMillis(), version + 1);
+            });
+            return saved[0];
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package io.hhplus.tdd.point;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PointServiceRouter 의 shard 수에 따른 충전/사용 처리량
+ * - shard 1 은 저장소/락/내역 시퀀스를 모든 유저가 같이 쓰는 단일 서비스와 같다.
+ * - 스레드 수를 코어 수에 맞추고 shard 수를 1 → 32 로 늘려, 코어 수까지 거의 선형으로 느는지 본다.
+ * - store atomic : AtomicPointRepository + IndexedPointHistoryRepository (sleep 없이 경합 비용만 잰다)
+ * ./gradlew jmh -Pjmh.includes=ShardScalingBenchmark -Pjmh.threads=32
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class ShardScalingBenchmark {
+
+    private static final long INITIAL_POINT = Long.MAX_VALUE / 4;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    public int shards;
+
+    @Param({"100000"})
+    public int keySpace;
+
+    @Param({"pessimistic", "optimistic"})
+    public String mode;
+
+    private PointServiceRouter pointServiceRouter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        PointConcurrencyPolicy concurrencyPolicy = "optimistic".equals(mode)
+                ? PointConcurrencyPolicy.optimistic(1000, 0)
+                : PointConcurrencyPolicy.pessimistic();
+        pointServiceRouter = new PointServiceRouter(shards, 1, "atomic", concurrencyPolicy);
+        for (long userId = 0; userId < keySpace; userId++) {
+            pointServiceRouter.route(userId).charge(userId, INITIAL_POINT);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pointServiceRouter.close();
+    }
+
+    @Benchmark
+    public UserPoint charge() throws Exception {
+        long userId = nextUserId();
+        return pointServiceRouter.route(userId).charge(userId, 1L);
+    }
+
+    @Benchmark
+    public UserPoint use() throws Exception {
+        long userId = nextUserId();
+        return pointServiceRouter.route(userId).use(userId, 1L);
+    }
+
+    private long nextUserId() {
+        return ThreadLocalRandom.current().nextInt(keySpace);
+    }
+}
@@ -0,0 +1,75 @@
+package io.hhplus.tdd.point;
+
+import io.hhplus.tdd.LockManager;
+import io.hhplus.tdd.database.PointHistoryTable;
+import io.hhplus.tdd.database.UserPointTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserPointTable / PointHistoryTable (조회/저장마다 sleep) 위의 PointService 처리량
+ * - table 에는 sleep 없이 넣는 API 가 없어 시드도 insertOrUpdate 를 거친다. (유저당 평균 150ms)
+ *   그래서 PointServiceBenchmark 의 keySpace 10000 대신 100 까지만 잰다.
+ * - 내역은 시드하지 않는다. (PointHistoryTable 도 insert 마다 sleep)
+ * ./gradlew jmh -Pjmh.includes=TablePointServiceBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class TablePointServiceBenchmark {
+
+    private static final long INITIAL_POINT = Long.MAX_VALUE / 4;
+
+    @Param({"1", "100"})
+    public int keySpace;
+
+    @Param({"pessimistic", "optimistic"})
+    public String mode;
+
+    private PointService pointService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PointRepository pointRepository = new PointImplRepository(new UserPointTable());
+        PointHistoryRepository pointHistoryRepository = new PointHistoryImplRepository(new PointHistoryTable());
+        PointConcurrencyPolicy concurrencyPolicy = "optimistic".equals(mode)
+                ? PointConcurrencyPolicy.optimistic(1000, 1)
+                : PointConcurrencyPolicy.pessimistic();
+        pointService = new PointService(pointRepository, pointHistoryRepository, new LockManager(), Runnable::run, concurrencyPolicy, null, null, null);
+
+        for (long userId = 0; userId < keySpace; userId++) {
+            pointRepository.save(userId, INITIAL_POINT);
+        }
+    }
+
+    @Benchmark
+    public UserPoint charge() throws Exception {
+        return pointService.charge(nextUserId(), 1L);
+    }
+
+    @Benchmark
+    public UserPoint use() throws Exception {
+        return pointService.use(nextUserId(), 1L);
+    }
+
+    @Benchmark
+    public UserPoint search() {
+        return pointService.search(nextUserId());
+    }
+
+    @Benchmark
+    public List<PointHistory> readHistories() throws Exception {
+        return pointService.readHistories(nextUserId());
+    }
+
+    private long nextUserId() {
+        return keySpace == 1 ? 0 : ThreadLocalRandom.current().nextInt(keySpace);
+    }
+}
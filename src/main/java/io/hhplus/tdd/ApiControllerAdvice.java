@@ -1,12 +1,22 @@
 package io.hhplus.tdd;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import java.util.concurrent.RejectedExecutionException;
+
 @RestControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 class ApiControllerAdvice extends ResponseEntityExceptionHandler {
+    // 유저별 mailbox 가 가득 차 거절된 충전/사용
+    @ExceptionHandler(value = RejectedExecutionException.class)
+    public ResponseEntity<ErrorResponse> handleRejected(RejectedExecutionException e) {
+        return ResponseEntity.status(503).body(new ErrorResponse("503", "처리 대기중인 요청이 너무 많습니다."));
+    }
+
     @ExceptionHandler(value = Exception.class)
     public ResponseEntity<ErrorResponse> handleException(Exception e) {
         return ResponseEntity.status(500).body(new ErrorResponse("500", "에러가 발생했습니다."));
@@ -0,0 +1,100 @@
+package io.hhplus.tdd;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * 노드 이름(주소)을 가상 노드 여러 개로 고리 위에 뿌려두고, key 를 시계 방향으로 처음 만나는 노드에 맡기는 consistent hash
+ * - 노드 하나가 들어오거나 빠지면 그 노드 몫의 key (약 1/N) 만 주인이 바뀐다.
+ * - 만든 뒤에는 바뀌지 않는다. 구성원이 바뀌면 새 고리를 만들어 통째로 바꿔 끼운다.
+ * - 조회는 정렬된 long 배열의 이진 탐색이라 객체를 만들지 않는다.
+ */
+public final class ConsistentHashRing {
+
+    private final List<String> nodes;
+    private final long[] points;
+    private final String[] owners;
+
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) throw new IllegalArgumentException("노드가 하나 이상 있어야 합니다.");
+        if (virtualNodes <= 0) throw new IllegalArgumentException("가상 노드 수는 1 이상이어야 합니다.");
+        this.nodes = List.copyOf(new LinkedHashSet<>(nodes));
+
+        int size = this.nodes.size() * virtualNodes;
+        long[] hashes = new long[size];
+        String[] names = new String[size];
+        int i = 0;
+        for (String node : this.nodes) {
+            for (int v = 0; v < virtualNodes; v++, i++) {
+                hashes[i] = hash(node + "#" + v);
+                names[i] = node;
+            }
+        }
+
+        // 해시 순서로 (point, owner) 를 같이 정렬한다.
+        Integer[] order = new Integer[size];
+        for (int k = 0; k < size; k++) order[k] = k;
+        Arrays.sort(order, (a, b) -> Long.compare(hashes[a], hashes[b]));
+        this.points = new long[size];
+        this.owners = new String[size];
+        for (int k = 0; k < size; k++) {
+            points[k] = hashes[order[k]];
+            owners[k] = names[order[k]];
+        }
+    }
+
+    /**
+     * key 를 맡은 노드
+     */
+    public String ownerOf(long key) {
+        int index = Arrays.binarySearch(points, mix(key));
+        if (index < 0) index = -index - 1;
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    /**
+     * 같은 가상 노드 수로 구성원만 바꾼 새 고리
+     */
+    public ConsistentHashRing withNodes(Collection<String> nodes) {
+        return new ConsistentHashRing(nodes, points.length / this.nodes.size());
+    }
+
+    /**
+     * 이 고리와 other 사이에서 주인이 바뀌는 key 를 고른다.
+     */
+    public long[] moved(ConsistentHashRing other, long[] keys) {
+        List<Long> moved = new ArrayList<>();
+        for (long key : keys) {
+            if (!ownerOf(key).equals(other.ownerOf(key))) moved.add(key);
+        }
+        return moved.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    // FNV-1a 뒤에 섞어서, 비슷한 이름("node#1", "node#2")도 고리 위에 고르게 퍼지게 한다.
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    // MurmurHash3 fmix64
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -1,31 +1,167 @@
 package io.hhplus.tdd;
 
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.locks.Lock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * key(유저 id) 단위 락 레지스트리
+ * - key 의 hash 로 stripe 를 고르고, stripe 안에서 key 별 ReentrantLock 을 참조 카운트로 관리한다.
+ * - 마지막으로 락을 잡고 있던 쪽이 unLock 하면 엔트리를 지우므로, 유저 수만큼 map 이 커지지 않는다.
+ * - stripe 모니터는 참조 카운트를 바꾸는 동안만 잡고, 실제 대기는 key 의 ReentrantLock 에서 한다.
+ *   (모니터를 잡은 채로 기다리지 않으므로 virtual thread 가 carrier thread 를 붙잡지 않는다)
+ * - MeterRegistry 가 있으면 락을 기다린 시간(point.lock.wait)과 잡고 있던 시간(point.lock.hold)을 따로 남긴다.
+ *   point.metrics.enabled=false 면 PointMetrics 처럼 아무 것도 등록하지 않고 nanoTime 도 읽지 않는다.
+ *   잡은 시각은 락 엔트리에 두고 락을 가진 스레드만 읽고 쓰므로, 기록할 때 객체를 만들지 않는다.
+ */
 @Component
 public class LockManager {
-    private static ConcurrentMap<Object, ReentrantLock> lockMap = new ConcurrentHashMap<>();
-    private static Lock lock;
-
-    public static void lock(Object object) {
-        lock = lockMap.get(object);
-        if (lock == null) {
-            lock = new ReentrantLock();
-            lockMap.put(object, (ReentrantLock) lock);
+
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final Timer waitTimer;
+    private final Timer holdTimer;
+
+    public LockManager() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public LockManager(int stripeCount) {
+        this(stripeCount, null);
+    }
+
+    @Autowired
+    public LockManager(@Value("${point.lock.stripes:64}") int stripeCount, MeterRegistry meterRegistry,
+                       @Value("${point.metrics.enabled:true}") boolean metricsEnabled) {
+        this(stripeCount, metricsEnabled ? meterRegistry : null);
+    }
+
+    public LockManager(int stripeCount, MeterRegistry meterRegistry) {
+        if (stripeCount <= 0) throw new IllegalArgumentException("stripe 수는 1 이상이어야 합니다.");
+        int size = 1;
+        while (size < stripeCount) size <<= 1;
+
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) stripes[i] = new Stripe();
+        this.mask = size - 1;
+        this.waitTimer = meterRegistry == null ? null : timer("point.lock.wait", "유저 락을 얻기까지 기다린 시간", meterRegistry);
+        this.holdTimer = meterRegistry == null ? null : timer("point.lock.hold", "유저 락을 잡고 있던 시간", meterRegistry);
+    }
+
+    public void lock(Object key) {
+        LockEntry entry = acquire(key);
+        long started = waitTimer == null ? 0 : System.nanoTime();
+        entry.lock.lock();
+        locked(entry, started);
+    }
+
+    /**
+     * timeout 안에 락을 얻지 못하면 false 를 리턴하고, 참조 카운트는 원래대로 돌려놓는다.
+     */
+    public boolean tryLock(Object key, long timeout, TimeUnit unit) throws InterruptedException {
+        LockEntry entry = acquire(key);
+        boolean locked = false;
+        try {
+            long started = waitTimer == null ? 0 : System.nanoTime();
+            locked = entry.lock.tryLock(timeout, unit);
+            if (locked) locked(entry, started);
+        } finally {
+            if (!locked) release(key, entry);
+        }
+        return locked;
+    }
+
+    public void unLock(Object key) {
+        Stripe stripe = stripeOf(key);
+        LockEntry entry;
+        synchronized (stripe) {
+            entry = stripe.entries.get(key);
+        }
+        if (entry == null) return;
+
+        // 잡고 있지 않은 스레드가 호출하면 IllegalMonitorStateException 이 나고 카운트는 건드리지 않는다.
+        if (holdTimer != null && entry.lock.getHoldCount() == 1) {
+            holdTimer.record(System.nanoTime() - entry.lockedAtNanos, TimeUnit.NANOSECONDS);
         }
-        lock.lock();
-//        lock = lockMap.computeIfAbsent(object, k -> new ReentrantLock());
-//        lock.lock();
+        entry.lock.unlock();
+        release(key, entry);
+    }
+
+    /**
+     * 현재 레지스트리에 살아있는(누군가 잡고 있거나 기다리는) key 수
+     */
+    public int activeKeys() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.entries.size();
+            }
+        }
+        return count;
+    }
+
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    // 락을 얻은 직후 호출한다. 재진입은 처음 잡은 시각을 그대로 둔다.
+    private void locked(LockEntry entry, long started) {
+        if (waitTimer == null) return;
+        long now = System.nanoTime();
+        waitTimer.record(now - started, TimeUnit.NANOSECONDS);
+        if (entry.lock.getHoldCount() == 1) entry.lockedAtNanos = now;
+    }
+
+    private static Timer timer(String name, String description, MeterRegistry meterRegistry) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(100))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry);
+    }
+
+    private LockEntry acquire(Object key) {
+        Stripe stripe = stripeOf(key);
+        synchronized (stripe) {
+            LockEntry entry = stripe.entries.computeIfAbsent(key, k -> new LockEntry());
+            entry.refs++;
+            return entry;
+        }
+    }
+
+    private void release(Object key, LockEntry entry) {
+        Stripe stripe = stripeOf(key);
+        synchronized (stripe) {
+            if (--entry.refs == 0) stripe.entries.remove(key, entry);
+        }
+    }
+
+    private Stripe stripeOf(Object key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+
+    private static final class Stripe {
+        private final Map<Object, LockEntry> entries = new HashMap<>();
     }
 
-    public static void unLock(Object object) {
-       lock = lockMap.get(object);
-       if(lock != null) lock.unlock();
+    private static final class LockEntry {
+        private final ReentrantLock lock = new ReentrantLock();
+        // stripe 모니터 안에서만 읽고 쓴다.
+        private int refs;
+        // 락을 가진 스레드만 읽고 쓴다.
+        private long lockedAtNanos;
     }
 }
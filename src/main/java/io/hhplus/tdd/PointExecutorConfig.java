@@ -0,0 +1,66 @@
+package io.hhplus.tdd;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PointService 가 유저별 작업을 병렬로 돌릴 때 쓰는 executor
+ * - spring.threads.virtual.enabled=true 이고 Java 21 이상에서 실행되면 virtual thread 로 만든다.
+ *   (Tomcat 요청 처리도 같은 설정으로 virtual thread 로 바뀐다)
+ * - 빌드는 Java 17 기준이라 virtual thread API 는 리플렉션으로 찾고, 없으면 platform thread pool 로 대신한다.
+ */
+@Configuration
+public class PointExecutorConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(PointExecutorConfig.class);
+
+    @Bean(name = "pointExecutor", destroyMethod = "shutdown")
+    public ExecutorService pointExecutor(@Value("${point.executor.threads:0}") int threads,
+                                         @Value("${spring.threads.virtual.enabled:false}") boolean virtual) {
+        return newExecutor("point-worker-", threads > 0 ? threads : Runtime.getRuntime().availableProcessors() * 2, virtual);
+    }
+
+    /**
+     * virtual 이 켜져 있으면 작업마다 virtual thread 를, 아니면 threads 크기의 daemon thread pool 을 만든다.
+     */
+    public static ExecutorService newExecutor(String prefix, int threads, boolean virtual) {
+        if (virtual) {
+            ExecutorService executor = virtualThreadPerTaskExecutor();
+            if (executor != null) return executor;
+            log.warn("virtual thread 를 지원하지 않는 런타임(Java {})이라 platform thread pool 로 실행합니다.", Runtime.version().feature());
+        }
+        return Executors.newFixedThreadPool(threads, daemonThreads(prefix));
+    }
+
+    public static boolean isVirtualThreadSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    private static ExecutorService virtualThreadPerTaskExecutor() {
+        if (!isVirtualThreadSupported()) return null;
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
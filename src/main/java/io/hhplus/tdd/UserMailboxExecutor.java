@@ -0,0 +1,165 @@
+package io.hhplus.tdd;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 유저 id 별 mailbox 실행기 (single-writer)
+ * - 같은 유저의 메시지는 한 번에 하나의 drain 에서만 순서대로 처리되고, 다른 유저는 executor 에서 병렬로 처리된다.
+ * - mailbox 는 capacity 까지만 쌓이고, 넘치면 RejectedExecutionException 으로 바로 실패시킨다.
+ * - 비어있는 mailbox 는 drain 이 끝날 때 map 에서 제거한다.
+ */
+public class UserMailboxExecutor<T, R> {
+
+    /**
+     * drain 한 번에 꺼낸 메시지 묶음을 처리한다. 처리하지 못한 future 는 실행기가 예외로 완료시킨다.
+     */
+    @FunctionalInterface
+    public interface Handler<T, R> {
+        void handle(long userId, List<Envelope<T, R>> batch) throws Exception;
+    }
+
+    public record Envelope<T, R>(T message, CompletableFuture<R> future) {
+    }
+
+    private final ConcurrentMap<Long, Mailbox<T, R>> mailboxes = new ConcurrentHashMap<>();
+    private final Executor executor;
+    private final Handler<T, R> handler;
+    private final int capacity;
+    private final int batchSize;
+
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public UserMailboxExecutor(Executor executor, int capacity, int batchSize, Handler<T, R> handler) {
+        if (capacity <= 0) throw new IllegalArgumentException("mailbox 크기는 1 이상이어야 합니다.");
+        if (batchSize <= 0) throw new IllegalArgumentException("batch 크기는 1 이상이어야 합니다.");
+        this.executor = executor;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.handler = handler;
+    }
+
+    public CompletableFuture<R> submit(long userId, T message) {
+        boolean[] accepted = new boolean[1];
+        // 크기 증가를 compute 안에서 해야 drain 쪽의 빈 mailbox 제거와 엇갈리지 않는다.
+        Mailbox<T, R> mailbox = mailboxes.compute(userId, (k, mb) -> {
+            if (mb == null) mb = new Mailbox<>();
+            if (mb.size.get() < capacity) {
+                mb.size.incrementAndGet();
+                accepted[0] = true;
+            }
+            return mb;
+        });
+
+        if (!accepted[0]) {
+            rejected.incrementAndGet();
+            return CompletableFuture.failedFuture(new RejectedExecutionException("처리 대기중인 요청이 너무 많습니다."));
+        }
+
+        CompletableFuture<R> future = new CompletableFuture<>();
+        mailbox.queue.offer(new Envelope<>(message, future));
+        maxDepth.accumulateAndGet(depth.incrementAndGet(), Math::max);
+        schedule(userId, mailbox);
+        return future;
+    }
+
+    /**
+     * 모든 mailbox 에 쌓여 있는 메시지 수
+     */
+    public int queueDepth() {
+        return depth.get();
+    }
+
+    public int queueDepth(long userId) {
+        Mailbox<T, R> mailbox = mailboxes.get(userId);
+        return mailbox == null ? 0 : mailbox.size.get();
+    }
+
+    public int maxQueueDepth() {
+        return maxDepth.get();
+    }
+
+    public long rejectedCount() {
+        return rejected.get();
+    }
+
+    public int activeMailboxes() {
+        return mailboxes.size();
+    }
+
+    private void schedule(long userId, Mailbox<T, R> mailbox) {
+        if (!mailbox.scheduled.compareAndSet(false, true)) return;
+        try {
+            executor.execute(() -> drain(userId, mailbox));
+        } catch (RejectedExecutionException e) {
+            mailbox.scheduled.set(false);
+            failAll(mailbox, e);
+        }
+    }
+
+    private void drain(long userId, Mailbox<T, R> mailbox) {
+        List<Envelope<T, R>> batch = new ArrayList<>(Math.min(batchSize, mailbox.size.get()));
+        Envelope<T, R> envelope;
+        while (batch.size() < batchSize && (envelope = mailbox.queue.poll()) != null) {
+            batch.add(envelope);
+        }
+
+        if (!batch.isEmpty()) {
+            try {
+                handler.handle(userId, batch);
+            } catch (Throwable e) {
+                for (Envelope<T, R> each : batch) each.future().completeExceptionally(e);
+            } finally {
+                for (Envelope<T, R> each : batch) {
+                    if (!each.future().isDone()) each.future().completeExceptionally(new IllegalStateException("처리되지 않은 요청입니다."));
+                }
+                mailbox.size.addAndGet(-batch.size());
+                depth.addAndGet(-batch.size());
+            }
+        }
+
+        // 남은 메시지가 있으면 다른 유저에게 양보하고 다시 줄을 선다.
+        if (!mailbox.queue.isEmpty()) {
+            try {
+                executor.execute(() -> drain(userId, mailbox));
+            } catch (RejectedExecutionException e) {
+                mailbox.scheduled.set(false);
+                failAll(mailbox, e);
+            }
+            return;
+        }
+
+        mailbox.scheduled.set(false);
+        if (!mailbox.queue.isEmpty()) {
+            schedule(userId, mailbox);
+            return;
+        }
+        mailboxes.computeIfPresent(userId, (k, mb) -> mb == mailbox && mb.size.get() == 0 && !mb.scheduled.get() ? null : mb);
+    }
+
+    private void failAll(Mailbox<T, R> mailbox, Throwable cause) {
+        Envelope<T, R> envelope;
+        while ((envelope = mailbox.queue.poll()) != null) {
+            envelope.future().completeExceptionally(cause);
+            mailbox.size.decrementAndGet();
+            depth.decrementAndGet();
+        }
+    }
+
+    private static final class Mailbox<T, R> {
+        private final ConcurrentLinkedQueue<Envelope<T, R>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+    }
+}
@@ -0,0 +1,58 @@
+package io.hhplus.tdd;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * 유저 id 별로 Mono 작업을 하나씩 순서대로 실행한다. (LockManager 의 non-blocking 버전)
+ * - 스레드를 잡고 기다리지 않는다. 앞 작업이 끝나면 뒤 작업을 구독한다.
+ * - 앞 작업이 끝나기를 기다린 작업은 scheduler 로 옮겨 시작한다.
+ *   (같은 유저의 작업이 줄지어 있을 때 앞 작업을 끝낸 스레드에서 연달아 실행되며 stack 이 깊어지지 않도록)
+ * - 작업은 응답 쪽 구독이 취소되어도 끝까지 실행하고, 작업이 끝나야(성공이든 실패든) 다음 작업에 차례를 넘긴다.
+ *   blocking 저장소 호출은 취소해도 멈추지 않으므로(UserPointTable 의 sleep 은 interrupt 를 무시한다),
+ *   취소 시점에 차례를 넘기면 다음 작업이 저장 전 잔액을 읽고 덮어쓰거나 잔액만 저장되고 내역이 빠진다.
+ *   그래서 작업은 toFuture() 로 따로 구독하고, 돌려주는 Mono 는 그 결과만 기다린다. (취소는 기다림만 끊는다)
+ * - 기다리는 작업이 없는 유저는 map 에서 제거한다.
+ */
+public class UserSequencer {
+
+    private final ConcurrentMap<Long, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+    private final Scheduler scheduler;
+
+    public UserSequencer(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public <T> Mono<T> run(long userId, Supplier<? extends Mono<T>> work) {
+        return Mono.defer(() -> {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            CompletableFuture<Void> previous = tails.put(userId, done);
+            Runnable release = () -> {
+                tails.remove(userId, done);
+                done.complete(null);
+            };
+
+            Mono<Void> turn = previous == null || previous.isDone()
+                    ? Mono.empty()
+                    : Mono.fromFuture(previous, true).publishOn(scheduler);
+            // 아무도 취소하지 않는 구독이라 doFinally 는 성공/실패로만 온다.
+            CompletableFuture<T> result = turn.then(Mono.defer(work)).doFinally(signal -> {
+                if (previous == null) release.run();
+                else previous.whenComplete((v, e) -> release.run());
+            }).toFuture();
+            return Mono.fromFuture(result, true);
+        });
+    }
+
+    /**
+     * 실행 중이거나 차례를 기다리는 작업이 있는 유저 수
+     */
+    public int activeUsers() {
+        return tails.size();
+    }
+}
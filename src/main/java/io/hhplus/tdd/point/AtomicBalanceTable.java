@@ -0,0 +1,238 @@
+package io.hhplus.tdd.point;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * long(유저 id) → (잔액, version, 갱신 시각) open addressing 해시 테이블. 락 객체 없이 CAS 로만 갱신한다.
+ * - segment 마다 key / stamp / 잔액 / 갱신 시각을 AtomicLongArray 에 나눠 담는다. (boxing 없음)
+ * - stamp 는 version * 2 다. 쓰는 쪽은 stamp 를 홀수로 CAS 한 뒤 잔액과 시각을 쓰고 다음 짝수로 올린다. (seqlock)
+ *   읽는 쪽은 stamp 가 짝수이고 읽기 전후로 같을 때의 값만 돌려주므로 잔액과 version 이 항상 짝이 맞는다.
+ *   version 은 저장마다 1씩 오르고 내려가지 않는다. (잔액이 줄어도)
+ * - key 는 한번 들어가면 지우지 않고, 없는 key 는 잔액 0, version 0 이다.
+ * - 확장 : 한 스레드가 기존 slot 의 stamp 를 MOVED 로 얼리면서 두 배 크기 table 로 옮긴 뒤 교체한다.
+ *   MOVED 를 만난 스레드는 새 table 이 공개될 때까지 기다렸다가 다시 시도한다.
+ */
+final class AtomicBalanceTable {
+
+    static final long EMPTY_KEY = Long.MIN_VALUE;
+    static final long MOVED_KEY = Long.MIN_VALUE + 1;
+    // stamp 는 음수가 될 수 없으므로 음수는 sentinel 로 쓴다.
+    static final long MOVED = Long.MIN_VALUE;
+    // write 의 expectVersion 으로 넘기면 version 과 상관없이 쓴다.
+    static final long ANY_VERSION = -1;
+
+    private static final int SEGMENTS = 64;
+    private static final int MIN_CAPACITY = 16;
+
+    private static final int ABSENT = -1;
+    private static final int MOVED_SLOT = -2;
+    private static final int FULL = -3;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    AtomicBalanceTable(int initialCapacity) {
+        int perSegment = MIN_CAPACITY;
+        while (perSegment / 4 * 3 < initialCapacity / SEGMENTS) perSegment <<= 1;
+        for (int i = 0; i < SEGMENTS; i++) segments[i] = new Segment(new Table(perSegment));
+    }
+
+    /**
+     * 잔액, version, 갱신 시각을 한 시점의 값으로 읽는다. 없는 key 는 모두 0
+     */
+    UserPoint get(long key) {
+        long hash = hash(key);
+        Segment segment = segmentOf(hash);
+        while (true) {
+            Table table = segment.table;
+            int index = slotOf(table, key, hash, false);
+            if (index == ABSENT) return new UserPoint(key, 0, 0, 0);
+            if (index == MOVED_SLOT) {
+                awaitMoved(segment, table);
+                continue;
+            }
+
+            long stamp = table.stamps.get(index);
+            if (stamp == MOVED) {
+                awaitMoved(segment, table);
+                continue;
+            }
+            if ((stamp & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long balance = table.balances.get(index);
+            long updateMillis = table.millis.get(index);
+            if (table.stamps.get(index) == stamp) return new UserPoint(key, balance, updateMillis, stamp >>> 1);
+        }
+    }
+
+    /**
+     * version 이 expectVersion 일 때만 (ANY_VERSION 이면 항상) 잔액을 바꾸고 새 version 을 돌려준다. 바꾸지 못하면 -1
+     */
+    long write(long key, long expectVersion, long balance, long updateMillis) {
+        checkValue(balance);
+        long hash = hash(key);
+        Segment segment = segmentOf(hash);
+        while (true) {
+            Table table = segment.table;
+            // 없는 key 의 version 은 0 이므로, 0 이 아닌 version 을 기대하면 새로 넣을 필요가 없다.
+            int index = slotOf(table, key, hash, expectVersion <= 0);
+            if (index == ABSENT) return -1;
+            if (index == FULL) {
+                resize(segment, table);
+                continue;
+            }
+            if (index == MOVED_SLOT) {
+                awaitMoved(segment, table);
+                continue;
+            }
+
+            long stamp = table.stamps.get(index);
+            if (stamp == MOVED) {
+                awaitMoved(segment, table);
+                continue;
+            }
+            if ((stamp & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (expectVersion != ANY_VERSION && stamp >>> 1 != expectVersion) return -1;
+            if (!table.stamps.compareAndSet(index, stamp, stamp + 1)) continue;
+
+            table.balances.set(index, balance);
+            table.millis.set(index, updateMillis);
+            table.stamps.set(index, stamp + 2);
+            if (table.size.get() > table.threshold) resize(segment, table);
+            return (stamp >>> 1) + 1;
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) size += segment.table.size.get();
+        return size;
+    }
+
+    /**
+     * key 가 있는 slot 을 찾는다. insert 면 빈 slot 에 key 를 넣는다.
+     * 확장 중인 table 이면 MOVED_SLOT, 빈 slot 이 없으면 FULL (insert 가 아니면 ABSENT)
+     */
+    private int slotOf(Table table, long key, long hash, boolean insert) {
+        int mask = table.mask;
+        int index = (int) hash & mask;
+        for (int probe = 0; probe <= mask; probe++, index = (index + 1) & mask) {
+            long current = table.keys.get(index);
+            if (current == EMPTY_KEY) {
+                if (!insert) return ABSENT;
+                if (table.keys.compareAndSet(index, EMPTY_KEY, key)) {
+                    table.size.incrementAndGet();
+                    return index;
+                }
+                current = table.keys.get(index);
+            }
+            if (current == key) return index;
+            if (current == MOVED_KEY) return MOVED_SLOT;
+        }
+        return insert ? FULL : ABSENT;
+    }
+
+    private void resize(Segment segment, Table old) {
+        if (!segment.resizing.compareAndSet(false, true)) {
+            awaitMoved(segment, old);
+            return;
+        }
+        try {
+            if (segment.table != old) return;
+            Table next = new Table((old.mask + 1) << 1);
+            for (int i = 0; i <= old.mask; i++) {
+                long key = old.keys.get(i);
+                if (key == EMPTY_KEY) {
+                    if (old.keys.compareAndSet(i, EMPTY_KEY, MOVED_KEY)) continue;
+                    key = old.keys.get(i);
+                }
+                long stamp = freeze(old, i);
+                next.put(key, hash(key), stamp, old.balances.get(i), old.millis.get(i));
+            }
+            segment.table = next;
+        } finally {
+            segment.resizing.set(false);
+        }
+    }
+
+    /**
+     * 쓰는 중인 slot 은 끝날 때까지 기다렸다가 MOVED 로 얼리고, 얼리기 전의 stamp 를 돌려준다.
+     */
+    private static long freeze(Table table, int index) {
+        while (true) {
+            long stamp = table.stamps.get(index);
+            if ((stamp & 1) == 0 && table.stamps.compareAndSet(index, stamp, MOVED)) return stamp;
+            Thread.onSpinWait();
+        }
+    }
+
+    private void awaitMoved(Segment segment, Table table) {
+        while (segment.table == table) Thread.onSpinWait();
+    }
+
+    private Segment segmentOf(long hash) {
+        return segments[(int) (hash >>> 58) & (SEGMENTS - 1)];
+    }
+
+    private static void checkValue(long value) {
+        if (value < 0) throw new IllegalArgumentException("잔액은 0 이상이어야 합니다.");
+    }
+
+    private static long hash(long key) {
+        if (key == EMPTY_KEY || key == MOVED_KEY) throw new IllegalArgumentException("사용할 수 없는 id 입니다. : " + key);
+        // murmur3 fmix64
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Segment {
+        private volatile Table table;
+        private final AtomicBoolean resizing = new AtomicBoolean();
+
+        Segment(Table table) {
+            this.table = table;
+        }
+    }
+
+    private static final class Table {
+        private final AtomicLongArray keys;
+        private final AtomicLongArray stamps;
+        private final AtomicLongArray balances;
+        private final AtomicLongArray millis;
+        private final AtomicInteger size = new AtomicInteger();
+        private final int mask;
+        private final int threshold;
+
+        Table(int capacity) {
+            this.keys = new AtomicLongArray(capacity);
+            this.stamps = new AtomicLongArray(capacity);
+            this.balances = new AtomicLongArray(capacity);
+            this.millis = new AtomicLongArray(capacity);
+            this.mask = capacity - 1;
+            this.threshold = capacity / 4 * 3;
+            for (int i = 0; i < capacity; i++) keys.set(i, EMPTY_KEY);
+        }
+
+        // 공개 전 table 에 확장하는 스레드 혼자 넣는다.
+        void put(long key, long hash, long stamp, long balance, long updateMillis) {
+            int index = (int) hash & mask;
+            while (keys.get(index) != EMPTY_KEY) index = (index + 1) & mask;
+            keys.set(index, key);
+            stamps.set(index, stamp);
+            balances.set(index, balance);
+            millis.set(index, updateMillis);
+            size.incrementAndGet();
+        }
+    }
+}
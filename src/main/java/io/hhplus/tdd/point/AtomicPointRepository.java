@@ -0,0 +1,55 @@
+package io.hhplus.tdd.point;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+/**
+ * 락 없는 메모리 잔액 저장소 (point.store=atomic)
+ * - 잔액을 AtomicBalanceTable 에 두고 CAS 로만 바꾼다. 락도, Long boxing 도 없다.
+ * - version 은 잔액과 같은 slot 에서 저장마다 1씩 오른다. (CachingPointRepository 가 version 으로 새 값을 가린다)
+ *   point.concurrency.mode=optimistic 과 함께 쓰면 charge/use 가 "조회 → 잔액 검사 → CAS" 재시도 루프가 된다.
+ * - 메모리에만 있으므로 재시작하면 잔액은 내역으로부터 다시 만들어야 한다.
+ */
+@Repository("pointStore")
+@ConditionalOnProperty(name = "point.store", havingValue = "atomic")
+public class AtomicPointRepository implements PointRepository {
+
+    private final AtomicBalanceTable table;
+
+    public AtomicPointRepository() {
+        this(1 << 16);
+    }
+
+    @Autowired
+    public AtomicPointRepository(@Value("${point.atomic.initial-capacity:65536}") int initialCapacity) {
+        this.table = new AtomicBalanceTable(initialCapacity);
+    }
+
+    @Override
+    public UserPoint findById(long id) {
+        UserPoint userPoint = table.get(id);
+        if (userPoint.updateMillis() != 0) return userPoint;
+        return new UserPoint(id, userPoint.point(), System.currentTimeMillis(), userPoint.version());
+    }
+
+    @Override
+    public UserPoint save(long id, long amount) {
+        long updateMillis = System.currentTimeMillis();
+        long version = table.write(id, AtomicBalanceTable.ANY_VERSION, amount, updateMillis);
+        return new UserPoint(id, amount, updateMillis, version);
+    }
+
+    @Override
+    public UserPoint compareAndSave(long id, long expectedVersion, long amount) {
+        long updateMillis = System.currentTimeMillis();
+        long version = table.write(id, expectedVersion, amount, updateMillis);
+        if (version < 0) return null;
+        return new UserPoint(id, amount, updateMillis, version);
+    }
+
+    public int size() {
+        return table.size();
+    }
+}
@@ -0,0 +1,159 @@
+package io.hhplus.tdd.point;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 잔액 read-through / write-through 캐시 (point.cache.enabled=true)
+ * - 잔액은 charge/use 의 save / compareAndSave 로만 바뀌므로, 저장 결과를 캐시에 덮어쓴다.
+ *   낙관적 모드에서는 유저 락 없이 저장이 엇갈릴 수 있어, 캐시보다 version 이 낮은 결과는 덮어쓰지 않는다.
+ * - compareAndSave 가 충돌하면 캐시 값이 오래된 것이므로 지워서 다음 조회가 저장소에서 읽게 한다.
+ * - 조회 miss 는 저장소에서 읽어 채우되, 그 사이 같은 segment 에 save 가 있었다면 채우지 않는다. (오래된 값 방지)
+ * - segment 별 LRU 로 최대 크기를 넘지 않게 한다.
+ * - hit / miss / evict 횟수는 point.cache.hits / misses / evictions 로 내보낸다.
+ * - ledger 모드(point.store=ledger)에서는 잔액이 save 를 거치지 않고 ledger 에 바로 쌓이므로 만들지 않는다.
+ */
+@Primary
+@Repository
+@ConditionalOnExpression("${point.cache.enabled:false} and '${point.store:table}' != 'ledger'")
+public class CachingPointRepository implements PointRepository {
+
+    private static final int SEGMENTS = 16;
+
+    private PointRepository delegate;
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public CachingPointRepository(@Qualifier("pointStore") PointRepository delegate,
+                                  @Value("${point.cache.max-size:100000}") int maxSize,
+                                  MeterRegistry meterRegistry) {
+        this(delegate, maxSize);
+        FunctionCounter.builder("point.cache.hits", this, CachingPointRepository::hitCount)
+                .description("캐시에서 찾은 잔액 조회 수")
+                .register(meterRegistry);
+        FunctionCounter.builder("point.cache.misses", this, CachingPointRepository::missCount)
+                .description("캐시에 없어 저장소에서 읽은 잔액 조회 수")
+                .register(meterRegistry);
+        FunctionCounter.builder("point.cache.evictions", this, CachingPointRepository::evictionCount)
+                .description("최대 크기를 넘어 캐시에서 밀려난 잔액 수")
+                .register(meterRegistry);
+    }
+
+    public CachingPointRepository(PointRepository delegate, int maxSize) {
+        if (maxSize < SEGMENTS) throw new IllegalArgumentException("캐시 크기는 " + SEGMENTS + " 이상이어야 합니다.");
+        this.delegate = delegate;
+        for (int i = 0; i < SEGMENTS; i++) segments[i] = new Segment(maxSize / SEGMENTS);
+    }
+
+    @Override
+    public UserPoint findById(long id) {
+        Segment segment = segmentOf(id);
+        long observedWrites;
+        synchronized (segment) {
+            UserPoint cached = segment.entries.get(id);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+            observedWrites = segment.writes;
+        }
+
+        misses.increment();
+        UserPoint loaded = delegate.findById(id);
+        if (loaded == null) return null;
+
+        synchronized (segment) {
+            if (segment.writes == observedWrites) segment.entries.putIfAbsent(id, loaded);
+        }
+        return loaded;
+    }
+
+    @Override
+    public UserPoint save(long id, long amount) {
+        UserPoint saved = delegate.save(id, amount);
+        putSaved(id, saved);
+        return saved;
+    }
+
+    @Override
+    public UserPoint compareAndSave(long id, long expectedVersion, long amount) {
+        UserPoint saved = delegate.compareAndSave(id, expectedVersion, amount);
+        if (saved != null) {
+            putSaved(id, saved);
+            return saved;
+        }
+        Segment segment = segmentOf(id);
+        synchronized (segment) {
+            segment.writes++;
+            segment.entries.remove(id);
+        }
+        return null;
+    }
+
+    private void putSaved(long id, UserPoint saved) {
+        Segment segment = segmentOf(id);
+        synchronized (segment) {
+            segment.writes++;
+            UserPoint cached = segment.entries.get(id);
+            if (cached == null || cached.version() <= saved.version()) segment.entries.put(id, saved);
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment segmentOf(long id) {
+        int h = Long.hashCode(id);
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private final class Segment {
+        private final Map<Long, UserPoint> entries;
+        // 이 segment 에 반영된 save 횟수 (miss 로 읽어온 값이 오래됐는지 판단용)
+        private long writes;
+
+        Segment(int capacity) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, UserPoint> eldest) {
+                    if (size() <= capacity) return false;
+                    evictions.increment();
+                    return true;
+                }
+            };
+        }
+    }
+}
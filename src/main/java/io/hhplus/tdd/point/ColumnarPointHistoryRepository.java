@@ -0,0 +1,243 @@
+package io.hhplus.tdd.point;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 내역을 컬럼별 primitive 배열에 보관하는 구현체 (point.history.store=columnar)
+ * - 전체 내역을 userId / amount / balance / updateMillis 는 long[], type 은 byte[] 컬럼으로 나눠 chunk 단위로 쌓는다.
+ *   id 는 (행 번호 + 1) 이라 따로 담지 않는다.
+ * - 유저별 조회를 위해 행마다 같은 유저의 이전 행 번호(int)를 담고, 유저별로 마지막 행과 건수만 들고 있는다.
+ *   한 건에 37 byte 이고 PointHistory 객체는 없다.
+ * - PointHistory 는 조회한 list 에서 get 할 때 만든다. (API 응답 직렬화 시점)
+ */
+@Repository("pointHistoryStore")
+@ConditionalOnProperty(name = "point.history.store", havingValue = "columnar")
+public class ColumnarPointHistoryRepository implements PointHistoryRepository {
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private static final int CHUNK_SHIFT = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int NO_ROW = -1;
+
+    private volatile Chunk[] chunks = new Chunk[16];
+    private final AtomicInteger rows = new AtomicInteger();
+    private final ConcurrentMap<Long, UserRows> users = new ConcurrentHashMap<>();
+
+    @Override
+    public PointHistory insert(long userId, long amount, TransactionType type, long updateMillis, long balance) {
+        UserRows userRows = users.computeIfAbsent(userId, k -> new UserRows());
+        int row;
+        // 같은 유저의 append 만 직렬화한다. 행 번호(id) 발급도 이 안에서 해야 유저별 id 가 증가 순서를 지킨다.
+        synchronized (userRows) {
+            row = rows.getAndIncrement();
+            if (row < 0) throw new IllegalStateException("내역 저장 한도를 넘었습니다.");
+            Chunk chunk = chunkFor(row);
+            int offset = row & CHUNK_MASK;
+            chunk.userIds[offset] = userId;
+            chunk.amounts[offset] = amount;
+            chunk.balances[offset] = balance;
+            chunk.updateMillis[offset] = updateMillis;
+            chunk.types[offset] = (byte) type.ordinal();
+            chunk.prevRows[offset] = userRows.last();
+            // 컬럼을 다 쓴 뒤에 공개해야 읽는 쪽이 채워진 행만 본다.
+            userRows.append(row);
+        }
+        return new PointHistory(row + 1L, userId, amount, type, updateMillis, balance);
+    }
+
+    @Override
+    public List<PointHistory> insertAll(long userId, List<PointCommand> commands, long[] balances, long updateMillis) {
+        int n = commands.size();
+        // type 을 먼저 byte 로 바꿔 둔다. 중간에 실패해서 일부 행만 남는 일이 없게 한다.
+        byte[] types = new byte[n];
+        for (int i = 0; i < n; i++) types[i] = (byte) commands.get(i).type().ordinal();
+
+        UserRows userRows = users.computeIfAbsent(userId, k -> new UserRows());
+        PointHistory[] pointHistories = new PointHistory[n];
+        synchronized (userRows) {
+            int first = rows.getAndAdd(n);
+            if (first < 0 || first + n < 0) throw new IllegalStateException("내역 저장 한도를 넘었습니다.");
+            int prevRow = userRows.last();
+            for (int i = 0; i < n; i++) {
+                int row = first + i;
+                Chunk chunk = chunkFor(row);
+                int offset = row & CHUNK_MASK;
+                PointCommand command = commands.get(i);
+                chunk.userIds[offset] = userId;
+                chunk.amounts[offset] = command.amount();
+                chunk.balances[offset] = balances[i];
+                chunk.updateMillis[offset] = updateMillis;
+                chunk.types[offset] = types[i];
+                chunk.prevRows[offset] = prevRow;
+                prevRow = row;
+                pointHistories[i] = new PointHistory(row + 1L, userId, command.amount(), command.type(), updateMillis, balances[i]);
+            }
+            // n 건을 다 쓴 뒤에 한 번만 공개한다.
+            userRows.appendAll(first + n - 1, n);
+        }
+        return List.of(pointHistories);
+    }
+
+    @Override
+    public List<PointHistory> findAllByUserId(long userId) {
+        UserRows userRows = users.get(userId);
+        if (userRows == null) return List.of();
+        return view(userRows);
+    }
+
+    @Override
+    public List<PointHistory> findAllByUserIdDesc(long userId) {
+        UserRows userRows = users.get(userId);
+        if (userRows == null) return List.of();
+        return new ReversedListView<>(view(userRows));
+    }
+
+    /**
+     * 유저의 전체 행을 모으지 않고, cursor 행(beforeId - 1)부터 이전 행을 따라가며 limit 건만 읽는다.
+     */
+    @Override
+    public List<PointHistory> findPageByUserIdDesc(long userId, Long beforeId, int limit) {
+        UserRows userRows = users.get(userId);
+        if (userRows == null) return List.of();
+        int row = userRows.last();
+        Chunk[] snapshot = chunks;
+        if (beforeId != null) {
+            if (beforeId <= 1) return List.of();
+            long cursor = beforeId - 1;
+            if (cursor <= row && snapshot[(int) cursor >>> CHUNK_SHIFT].userIds[(int) cursor & CHUNK_MASK] == userId) {
+                // 보통은 이전 페이지 마지막 내역이 이 유저의 행이라 바로 이어서 읽는다.
+                row = prevRow(snapshot, (int) cursor);
+            } else {
+                while (row != NO_ROW && row >= cursor) row = prevRow(snapshot, row);
+            }
+        }
+
+        int[] pageRows = new int[limit];
+        int count = 0;
+        for (; row != NO_ROW && count < limit; row = prevRow(snapshot, row)) pageRows[count++] = row;
+        return new View(snapshot, count == limit ? pageRows : Arrays.copyOf(pageRows, count));
+    }
+
+    @Override
+    public long[] userIds() {
+        return users.keySet().stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * 보관 중인 전체 내역 수
+     */
+    public int rowCount() {
+        return rows.get();
+    }
+
+    /**
+     * 유저의 행 번호를 마지막 행부터 이전 행을 따라가며 모은다. (오래된 순)
+     */
+    private List<PointHistory> view(UserRows userRows) {
+        long state = userRows.state;
+        int count = UserRows.count(state);
+        int[] userRowNumbers = new int[count];
+        Chunk[] snapshot = chunks;
+        int row = UserRows.last(state);
+        for (int i = count - 1; i >= 0; i--) {
+            userRowNumbers[i] = row;
+            row = snapshot[row >>> CHUNK_SHIFT].prevRows[row & CHUNK_MASK];
+        }
+        return new View(snapshot, userRowNumbers);
+    }
+
+    private static int prevRow(Chunk[] snapshot, int row) {
+        return snapshot[row >>> CHUNK_SHIFT].prevRows[row & CHUNK_MASK];
+    }
+
+    private Chunk chunkFor(int row) {
+        int index = row >>> CHUNK_SHIFT;
+        Chunk[] current = chunks;
+        if (index < current.length && current[index] != null) return current[index];
+        synchronized (this) {
+            current = chunks;
+            if (index >= current.length) {
+                Chunk[] grown = new Chunk[Math.max(current.length << 1, index + 1)];
+                System.arraycopy(current, 0, grown, 0, current.length);
+                current = grown;
+            }
+            if (current[index] == null) current[index] = new Chunk();
+            chunks = current;
+            return current[index];
+        }
+    }
+
+    private static final class Chunk {
+        private final long[] userIds = new long[CHUNK_SIZE];
+        private final long[] amounts = new long[CHUNK_SIZE];
+        private final long[] balances = new long[CHUNK_SIZE];
+        private final long[] updateMillis = new long[CHUNK_SIZE];
+        private final byte[] types = new byte[CHUNK_SIZE];
+        // 같은 유저의 바로 이전 행 (없으면 NO_ROW)
+        private final int[] prevRows = new int[CHUNK_SIZE];
+    }
+
+    /**
+     * 유저의 (건수, 마지막 행) 을 long 하나에 담아 한 번에 읽고 쓴다.
+     */
+    private static final class UserRows {
+        private volatile long state = NO_ROW & 0xffffffffL;
+
+        int last() {
+            return last(state);
+        }
+
+        // synchronized(this) 안에서만 부른다.
+        void append(int row) {
+            state = ((long) (count(state) + 1) << 32) | (row & 0xffffffffL);
+        }
+
+        // synchronized(this) 안에서만 부른다. lastRow 까지 n 건을 한 번에 공개한다.
+        void appendAll(int lastRow, int n) {
+            state = ((long) (count(state) + n) << 32) | (lastRow & 0xffffffffL);
+        }
+
+        static int count(long state) {
+            return (int) (state >>> 32);
+        }
+
+        static int last(long state) {
+            return (int) state;
+        }
+    }
+
+    private static final class View extends AbstractList<PointHistory> implements RandomAccess {
+        private final Chunk[] chunks;
+        private final int[] rows;
+
+        View(Chunk[] chunks, int[] rows) {
+            this.chunks = chunks;
+            this.rows = rows;
+        }
+
+        @Override
+        public PointHistory get(int index) {
+            int row = rows[index];
+            Chunk chunk = chunks[row >>> CHUNK_SHIFT];
+            int offset = row & CHUNK_MASK;
+            return new PointHistory(row + 1L, chunk.userIds[offset], chunk.amounts[offset], TYPES[chunk.types[offset]], chunk.updateMillis[offset],
+                    chunk.balances[offset]);
+        }
+
+        @Override
+        public int size() {
+            return rows.length;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package io.hhplus.tdd.point;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 날짜별 충전/사용 합계 read model (point.store=ledger)
+ * 날짜는 이벤트의 updateMillis 를 zone 기준으로 자른다.
+ */
+@Component
+@ConditionalOnProperty(name = "point.store", havingValue = "ledger")
+public class DailyTotalsProjection implements PointProjection {
+
+    private final ConcurrentMap<LocalDate, Counters> totals = new ConcurrentHashMap<>();
+    private final ZoneId zone;
+
+    public DailyTotalsProjection() {
+        this(ZoneId.systemDefault());
+    }
+
+    public DailyTotalsProjection(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    @Override
+    public void apply(PointEvent event) {
+        LocalDate date = LocalDate.ofInstant(Instant.ofEpochMilli(event.updateMillis()), zone);
+        Counters counters = totals.computeIfAbsent(date, k -> new Counters());
+        (event.type() == TransactionType.CHARGE ? counters.charged : counters.used).add(event.amount());
+    }
+
+    public DailyTotal totalOf(LocalDate date) {
+        Counters counters = totals.get(date);
+        if (counters == null) return new DailyTotal(date, 0, 0);
+        return new DailyTotal(date, counters.charged.sum(), counters.used.sum());
+    }
+
+    public record DailyTotal(LocalDate date, long charged, long used) {
+    }
+
+    private static final class Counters {
+        private final LongAdder charged = new LongAdder();
+        private final LongAdder used = new LongAdder();
+    }
+}
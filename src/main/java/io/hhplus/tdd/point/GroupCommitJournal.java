@@ -0,0 +1,128 @@
+package io.hhplus.tdd.point;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 여러 요청의 fsync 를 한 번으로 묶는 group commit
+ * - 기록을 다 쓴 쪽이 commit(row) 를 부르면 future 를 받고, 그 future 는 기록이 디스크에 내려간 뒤에 완료된다.
+ * - committer 스레드는 첫 요청이 온 뒤 batchSize 가 차거나 maxWait 이 지나면 모인 요청을 한 번의 flush 로 내린다.
+ *   maxWait 이 0 이면 기다리지 않고, flush 하는 동안 쌓인 요청이 다음 묶음이 된다.
+ *   요청이 몰릴수록 한 번의 fsync 가 더 많은 요청을 덮으므로 처리량이 fsync 지연에 묶이지 않는다.
+ */
+final class GroupCommitJournal {
+
+    interface Flusher {
+        // minRow ~ maxRow 를 포함하는 영역을 디스크에 내린다.
+        void flush(long minRow, long maxRow) throws Exception;
+    }
+
+    private final int batchSize;
+    private final long maxWaitNanos;
+    private final Flusher flusher;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread committer;
+
+    // close 이후에 들어온 요청이 큐에 남지 않도록 enqueue 와 종료를 직렬화한다.
+    private final ReentrantLock enqueueLock = new ReentrantLock();
+    private volatile boolean running = true;
+
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong committedCount = new AtomicLong();
+
+    GroupCommitJournal(String name, int batchSize, long maxWaitMicros, Flusher flusher) {
+        if (batchSize < 1 || maxWaitMicros < 0) throw new IllegalArgumentException("batch 크기는 1 이상, 대기 시간은 0 이상이어야 합니다.");
+        this.batchSize = batchSize;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        this.flusher = flusher;
+        this.committer = new Thread(this::commitLoop, name);
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    CompletableFuture<Void> commit(long row) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        enqueueLock.lock();
+        try {
+            if (!running) throw new IllegalStateException("내역 저장소가 종료되었습니다.");
+            queue.add(new Pending(row, future));
+        } finally {
+            enqueueLock.unlock();
+        }
+        return future;
+    }
+
+    /**
+     * 남은 요청을 모두 내린 뒤 멈춘다.
+     */
+    void close() throws InterruptedException {
+        enqueueLock.lock();
+        try {
+            running = false;
+        } finally {
+            enqueueLock.unlock();
+        }
+        committer.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    long flushCount() {
+        return flushCount.get();
+    }
+
+    long committedCount() {
+        return committedCount.get();
+    }
+
+    private void commitLoop() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) break;
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        long minRow = Long.MAX_VALUE;
+        long maxRow = Long.MIN_VALUE;
+        for (Pending pending : batch) {
+            minRow = Math.min(minRow, pending.row());
+            maxRow = Math.max(maxRow, pending.row());
+        }
+        try {
+            flusher.flush(minRow, maxRow);
+        } catch (Exception e) {
+            for (Pending pending : batch) pending.future().completeExceptionally(e);
+            return;
+        }
+        flushCount.incrementAndGet();
+        committedCount.addAndGet(batch.size());
+        for (Pending pending : batch) pending.future().complete(null);
+    }
+
+    private record Pending(long row, CompletableFuture<Void> future) {
+    }
+}
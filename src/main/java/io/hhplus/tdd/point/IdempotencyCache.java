@@ -0,0 +1,200 @@
+package io.hhplus.tdd.point;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 충전/사용 요청의 Idempotency-Key 중복 제거 캐시
+ * - (userId, key) 로 처음 들어온 요청만 실행하고 결과(UserPoint)를 ttl 동안 보관한다.
+ *   같은 키로 다시 오면 저장소를 거치지 않고 보관한 결과를 그대로 돌려준다.
+ * - 처음 요청이 아직 실행 중이면 그 결과를 기다린다. (timeout 후 바로 재시도해도 두 번 반영되지 않는다)
+ * - 실패한 요청은 보관하지 않는다. 같은 키로 다시 보내면 다시 실행한다.
+ * - 같은 키로 종류나 금액이 다른 요청을 보내면 실패시킨다.
+ * - segment 별로 넣은 순서대로 보관해서, 크기를 넘거나 ttl 이 지난 키는 오래된 것부터 지운다.
+ */
+@Component
+public class IdempotencyCache {
+
+    public static final int MAX_KEY_LENGTH = 255;
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long ttlNanos;
+
+    private final LongAdder replays = new LongAdder();
+
+    @Autowired
+    public IdempotencyCache(@Value("${point.idempotency.max-size:100000}") int maxSize,
+                            @Value("${point.idempotency.ttl-seconds:3600}") long ttlSeconds) {
+        this(maxSize, Duration.ofSeconds(ttlSeconds));
+    }
+
+    public IdempotencyCache(int maxSize, Duration ttl) {
+        if (maxSize < SEGMENTS) throw new IllegalArgumentException("캐시 크기는 " + SEGMENTS + " 이상이어야 합니다.");
+        this.ttlNanos = ttl.toNanos();
+        for (int i = 0; i < SEGMENTS; i++) segments[i] = new Segment(maxSize / SEGMENTS);
+    }
+
+    /**
+     * 같은 (userId, key) 로 처음 온 요청이면 action 을 실행하고, 아니면 처음 요청의 결과를 돌려준다.
+     */
+    public UserPoint execute(long userId, String key, TransactionType type, long amount, Callable<UserPoint> action) throws Exception {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) throw new Exception("Idempotency-Key 는 1자 이상 " + MAX_KEY_LENGTH + "자 이하여야 합니다.");
+
+        Key cacheKey = new Key(userId, key);
+        Segment segment = segmentOf(cacheKey);
+        Entry entry = new Entry(type, amount, System.nanoTime() + ttlNanos);
+        Entry existing;
+        synchronized (segment) {
+            existing = segment.get(cacheKey);
+            if (existing == null) segment.entries.put(cacheKey, entry);
+        }
+
+        if (existing != null) {
+            if (existing.type != type || existing.amount != amount) throw new Exception("같은 Idempotency-Key 로 다른 요청을 보낼 수 없습니다.");
+            replays.increment();
+            return await(existing);
+        }
+
+        try {
+            UserPoint userPoint = action.call();
+            // 서비스는 실패를 null 로 돌려주기도 하므로 결과가 있을 때만 보관한다.
+            if (userPoint == null) remove(segment, cacheKey, entry);
+            entry.result.complete(userPoint);
+            return userPoint;
+        } catch (Exception e) {
+            remove(segment, cacheKey, entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * execute 의 non-blocking 버전. 처음 요청의 결과를 스레드를 잡고 기다리지 않고 future 로 돌려준다. (ReactivePointService 가 쓴다)
+     * 돌려주는 future 를 취소해도 action 과 보관한 결과에는 영향이 없다.
+     */
+    public CompletableFuture<UserPoint> executeAsync(long userId, String key, TransactionType type, long amount,
+                                                     Supplier<CompletableFuture<UserPoint>> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return CompletableFuture.failedFuture(new Exception("Idempotency-Key 는 1자 이상 " + MAX_KEY_LENGTH + "자 이하여야 합니다."));
+        }
+
+        Key cacheKey = new Key(userId, key);
+        Segment segment = segmentOf(cacheKey);
+        Entry entry = new Entry(type, amount, System.nanoTime() + ttlNanos);
+        Entry existing;
+        synchronized (segment) {
+            existing = segment.get(cacheKey);
+            if (existing == null) segment.entries.put(cacheKey, entry);
+        }
+
+        if (existing != null) {
+            if (existing.type != type || existing.amount != amount) {
+                return CompletableFuture.failedFuture(new Exception("같은 Idempotency-Key 로 다른 요청을 보낼 수 없습니다."));
+            }
+            replays.increment();
+            return existing.result.copy();
+        }
+
+        CompletableFuture<UserPoint> result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((userPoint, e) -> {
+            if (e != null || userPoint == null) remove(segment, cacheKey, entry);
+            if (e != null) entry.result.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            else entry.result.complete(userPoint);
+        });
+        return entry.result.copy();
+    }
+
+    /**
+     * 보관한 결과를 돌려준 횟수
+     */
+    public long replayCount() {
+        return replays.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    private UserPoint await(Entry entry) throws Exception {
+        try {
+            return entry.result.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) throw cause;
+            throw e;
+        }
+    }
+
+    private void remove(Segment segment, Key key, Entry entry) {
+        synchronized (segment) {
+            segment.entries.remove(key, entry);
+        }
+    }
+
+    private Segment segmentOf(Key key) {
+        return segments[(key.hashCode() & 0x7fffffff) % SEGMENTS];
+    }
+
+    private record Key(long userId, String key) {
+    }
+
+    private static final class Entry {
+        private final TransactionType type;
+        private final long amount;
+        private final long expiresAtNanos;
+        private final CompletableFuture<UserPoint> result = new CompletableFuture<>();
+
+        Entry(TransactionType type, long amount, long expiresAtNanos) {
+            this.type = type;
+            this.amount = amount;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    private static final class Segment {
+        private final LinkedHashMap<Key, Entry> entries;
+
+        Segment(int capacity) {
+            // ttl 이 모두 같으므로 넣은 순서 = 만료 순서
+            this.entries = new LinkedHashMap<>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        // synchronized(this) 안에서만 부른다. 만료된 키는 앞에서부터 지운다.
+        Entry get(Key key) {
+            long now = System.nanoTime();
+            var iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().expiresAtNanos - now > 0) break;
+                iterator.remove();
+            }
+            return entries.get(key);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package io.hhplus.tdd.point;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 유저별 append-only 세그먼트로 내역을 보관하는 구현체 (point.history.store=indexed)
+ * - 조회는 해당 유저의 내역 수에만 비례하고, 전체 내역 수와는 무관하다.
+ * - id 는 전역 AtomicLong 으로 발급하고, 다른 유저끼리의 append 는 서로 막지 않는다. (같은 유저끼리만 segment monitor)
+ * - 조회는 락 없이 append 가 공개한 size 까지만 읽는다.
+ * - 유저별 세그먼트는 시간 순서로만 쌓이므로, 최신순 조회는 정렬 없이 뒤에서부터 읽는다.
+ */
+@Repository("pointHistoryStore")
+@ConditionalOnProperty(name = "point.history.store", havingValue = "indexed")
+public class IndexedPointHistoryRepository implements PointHistoryRepository {
+
+    private final ConcurrentMap<Long, Segment> segments = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong(1);
+
+    @Override
+    public PointHistory insert(long userId, long amount, TransactionType type, long updateMillis, long balance) {
+        return segments.computeIfAbsent(userId, k -> new Segment()).append(sequence, userId, amount, type, updateMillis, balance);
+    }
+
+    @Override
+    public List<PointHistory> insertAll(long userId, List<PointCommand> commands, long[] balances, long updateMillis) {
+        return segments.computeIfAbsent(userId, k -> new Segment()).appendAll(sequence, userId, commands, balances, updateMillis);
+    }
+
+    @Override
+    public List<PointHistory> findAllByUserId(long userId) {
+        Segment segment = segments.get(userId);
+        if (segment == null) return List.of();
+        return segment.view();
+    }
+
+    @Override
+    public List<PointHistory> findAllByUserIdDesc(long userId) {
+        Segment segment = segments.get(userId);
+        if (segment == null) return List.of();
+        return new ReversedListView<>(segment.view());
+    }
+
+    @Override
+    public List<PointHistory> findPageByUserIdDesc(long userId, Long beforeId, int limit) {
+        Segment segment = segments.get(userId);
+        if (segment == null) return List.of();
+        return PointHistoryPages.pageDesc(segment.view(), beforeId, limit);
+    }
+
+    @Override
+    public long[] userIds() {
+        return segments.keySet().stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * 한 유저의 내역. 고정 크기 chunk 를 이어붙여서 늘어날 때 기존 원소를 복사하지 않는다.
+     */
+    static final class Segment {
+        private static final int CHUNK_SHIFT = 6;
+        private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+        private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+        private volatile PointHistory[][] chunks = new PointHistory[1][];
+        private volatile int size;
+
+        /**
+         * 같은 유저의 append 만 segment monitor 로 직렬화한다. (다른 유저끼리, 조회와는 막지 않는다)
+         * - 자리만 CAS 로 잡으면 id 발급 순서와 자리 순서가 엇갈려 유저별 id 가 증가 순서를 잃고,
+         *   앞 자리가 채워질 때까지 size 를 올리지 못해 결국 기다려야 한다. id 발급까지 한 번에 묶으려면 monitor 가 맞다.
+         * - 같은 유저의 쓰기는 PointService 가 유저 락(비관적)이나 compareAndSave(낙관적)로 이미 한 줄로 세우므로
+         *   이 monitor 는 거의 경합하지 않고, 경합이 없으면 CAS 한 번이라 lock-free 예약과 비용이 같다.
+         */
+        synchronized PointHistory append(AtomicLong sequence, long userId, long amount, TransactionType type, long updateMillis, long balance) {
+            int index = size;
+            int chunk = index >>> CHUNK_SHIFT;
+            PointHistory[][] current = chunks;
+            if (chunk == current.length) {
+                PointHistory[][] grown = new PointHistory[current.length << 1][];
+                System.arraycopy(current, 0, grown, 0, current.length);
+                chunks = current = grown;
+            }
+            if (current[chunk] == null) current[chunk] = new PointHistory[CHUNK_SIZE];
+
+            PointHistory pointHistory = new PointHistory(sequence.getAndIncrement(), userId, amount, type, updateMillis, balance);
+            current[chunk][index & CHUNK_MASK] = pointHistory;
+            // size 를 마지막에 써야 읽는 쪽이 채워진 원소만 본다.
+            size = index + 1;
+            return pointHistory;
+        }
+
+        /**
+         * 여러 건을 이어서 채우고 size 는 한 번만 올린다. 읽는 쪽은 n 건을 전부 보거나 하나도 보지 않는다.
+         */
+        synchronized List<PointHistory> appendAll(AtomicLong sequence, long userId, List<PointCommand> commands, long[] balances, long updateMillis) {
+            int n = commands.size();
+            PointHistory[] pointHistories = new PointHistory[n];
+            int index = size;
+            for (int i = 0; i < n; i++) {
+                int chunk = (index + i) >>> CHUNK_SHIFT;
+                PointHistory[][] current = chunks;
+                if (chunk == current.length) {
+                    PointHistory[][] grown = new PointHistory[current.length << 1][];
+                    System.arraycopy(current, 0, grown, 0, current.length);
+                    chunks = current = grown;
+                }
+                if (current[chunk] == null) current[chunk] = new PointHistory[CHUNK_SIZE];
+
+                PointCommand command = commands.get(i);
+                pointHistories[i] = new PointHistory(sequence.getAndIncrement(), userId, command.amount(), command.type(), updateMillis, balances[i]);
+                current[chunk][(index + i) & CHUNK_MASK] = pointHistories[i];
+            }
+            size = index + n;
+            return List.of(pointHistories);
+        }
+
+        List<PointHistory> view() {
+            // size 를 먼저 읽어야 chunks 가 그 size 만큼의 원소를 모두 담고 있다.
+            int n = size;
+            PointHistory[][] snapshot = chunks;
+            return new AbstractList<>() {
+                @Override
+                public PointHistory get(int index) {
+                    if (index < 0 || index >= n) throw new IndexOutOfBoundsException(index);
+                    return snapshot[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+                }
+
+                @Override
+                public int size() {
+                    return n;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package io.hhplus.tdd.point;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * PointLedger 의 내역 projection (point.store=ledger, point.history.store 는 쓰지 않는다)
+ * - 유저의 이벤트 목록을 그대로 내역으로 보여준다. 내역 id 는 이벤트의 sequence 다.
+ * - insert 는 이벤트 한 건 append 다. (PointService 는 충전/사용 때 부르지 않는다)
+ */
+@Primary
+@Repository("pointLedgerHistory")
+@ConditionalOnProperty(name = "point.store", havingValue = "ledger")
+public class LedgerPointHistoryRepository implements PointHistoryRepository {
+
+    private final PointLedger ledger;
+
+    public LedgerPointHistoryRepository(PointLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    @Override
+    public PointHistory insert(long userId, long amount, TransactionType type, long updateMillis, long balance) {
+        return ledger.append(userId, PointLedger.ANY_VERSION, type, amount, balance, updateMillis).toHistory();
+    }
+
+    @Override
+    public List<PointHistory> insertAll(long userId, List<PointCommand> commands, long[] balances, long updateMillis) {
+        return histories(ledger.appendAll(userId, PointLedger.ANY_VERSION, commands, balances, updateMillis));
+    }
+
+    @Override
+    public List<PointHistory> findAllByUserId(long userId) {
+        return histories(ledger.events(userId));
+    }
+
+    @Override
+    public List<PointHistory> findAllByUserIdDesc(long userId) {
+        return new ReversedListView<>(findAllByUserId(userId));
+    }
+
+    @Override
+    public List<PointHistory> findPageByUserIdDesc(long userId, Long beforeId, int limit) {
+        return PointHistoryPages.pageDesc(findAllByUserId(userId), beforeId, limit);
+    }
+
+    @Override
+    public long[] userIds() {
+        return ledger.userIds();
+    }
+
+    private static List<PointHistory> histories(List<PointEvent> events) {
+        return new AbstractList<>() {
+            @Override
+            public PointHistory get(int index) {
+                return events.get(index).toHistory();
+            }
+
+            @Override
+            public int size() {
+                return events.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,41 @@
+package io.hhplus.tdd.point;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+/**
+ * PointLedger 의 잔액 projection (point.store=ledger)
+ * - 잔액은 유저의 마지막 이벤트, version 은 유저의 이벤트 수다.
+ * - PointService 는 충전/사용을 ledger 에 바로 append 하고 save 를 부르지 않는다.
+ *   save/compareAndSave 는 그 밖에서 잔액을 맞출 때 쓰며, 차이만큼의 충전/사용 이벤트로 쌓인다.
+ */
+@Repository("pointStore")
+@ConditionalOnProperty(name = "point.store", havingValue = "ledger")
+public class LedgerPointRepository implements PointRepository {
+
+    private final PointLedger ledger;
+
+    public LedgerPointRepository(PointLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    public PointLedger ledger() {
+        return ledger;
+    }
+
+    @Override
+    public UserPoint findById(long id) {
+        return ledger.balanceOf(id);
+    }
+
+    @Override
+    public UserPoint save(long id, long amount) {
+        return ledger.adjust(id, PointLedger.ANY_VERSION, amount, System.currentTimeMillis()).toUserPoint();
+    }
+
+    @Override
+    public UserPoint compareAndSave(long id, long expectedVersion, long amount) {
+        PointEvent event = ledger.adjust(id, expectedVersion, amount, System.currentTimeMillis());
+        return event == null ? null : event.toUserPoint();
+    }
+}
@@ -0,0 +1,633 @@
+package io.hhplus.tdd.point;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.VarHandle;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * 메모리 맵 파일에 고정 크기 기록으로 내역을 쌓는 구현체 (point.history.store=mapped)
+ * - 기록은 파일 안에만 있고 heap 에는 유저별 마지막 행 번호만 둔다. 내역 수가 늘어도 GC 대상이 늘지 않는다.
+ * - 기록마다 같은 유저의 이전 행 번호를 담아, 유저별 조회는 마지막 행부터 거슬러 올라간다.
+ * - 파일 맨 앞에는 형식 version 을 담은 header 가 있다. 형식이 다른 파일이면 시작하지 않는다. (덮어쓰지 않도록)
+ * - 기록의 마지막 4 byte 는 checksum 이다. 시작할 때 파일 전체를 훑어 checksum 이 맞는 기록만 살리고,
+ *   쓰다 만 기록은 건너뛴 뒤 유저별 이전 행 번호를 다시 잇는다.
+ * - fsync : always (insert 마다), interval (fsync-interval-millis 마다 백그라운드), os (OS 에 맡김, 종료 시에만)
+ *   group (GroupCommitJournal 로 여러 insert 를 한 번에 내리고, 내려간 뒤에 insert 가 돌아온다)
+ *   interval 은 지난번 이후 새로 쓴 기록이 있는 범위만 내린다.
+ * - fsync 나 파일 map 처럼 오래 걸리는 호출을 감싸는 락은 ReentrantLock 이다. (virtual thread 가 carrier 를 붙잡지 않도록)
+ * - snapshot 이 있으면 유저별 마지막 행 번호를 snapshot 에서 읽고, snapshot 이후에 쓰인 기록만 훑는다.
+ */
+@Repository("pointHistoryStore")
+@ConditionalOnProperty(name = "point.history.store", havingValue = "mapped")
+public class MappedPointHistoryRepository implements PointHistoryRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedPointHistoryRepository.class);
+
+    public enum FsyncPolicy {
+        ALWAYS, INTERVAL, OS, GROUP
+    }
+
+    // userId(8) amount(8) balance(8) updateMillis(8) prevRow(8) type(1) 빈칸(3) checksum(4)
+    static final int RECORD_SIZE = 48;
+    private static final int USER_ID = 0;
+    private static final int AMOUNT = 8;
+    private static final int BALANCE = 16;
+    private static final int UPDATE_MILLIS = 24;
+    private static final int PREV_ROW = 32;
+    private static final int TYPE = 40;
+    private static final int CHECKSUM = 44;
+    private static final long NO_ROW = -1;
+
+    // 파일 맨 앞 RECORD_SIZE byte 는 header : magic(8) 형식 버전(4) 기록 크기(4). 기록 형식이 바뀌면 FORMAT_VERSION 을 올린다.
+    // (1 : header 없는 40 byte 기록, 2 : 잔액을 담은 48 byte 기록)
+    static final int HEADER_SIZE = RECORD_SIZE;
+    static final long MAGIC = 0x5054_4849_5354_4C47L; // "PTHISTLG"
+    static final int FORMAT_VERSION = 2;
+    private static final int HEADER_VERSION = 8;
+    private static final int HEADER_RECORD_SIZE = 12;
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long rowsPerRegion;
+    private final long regionBytes;
+    private final FsyncPolicy fsyncPolicy;
+    private volatile MappedByteBuffer[] regions;
+
+    private final AtomicLong nextRow = new AtomicLong();
+    private final ConcurrentMap<Long, UserTail> users = new ConcurrentHashMap<>();
+
+    private final Thread flusher;
+    private final GroupCommitJournal journal;
+    private final PointSnapshotStore snapshots;
+    private volatile boolean running = true;
+    private volatile long skippedRows;
+    private volatile long snapshotRows;
+    // 이 행 앞의 기록은 모두 다 쓰여 있다. (stableRowCount 만 올린다)
+    private long stableRows;
+    private final ReentrantLock stableLock = new ReentrantLock();
+    // region 을 늘리는 쪽끼리만 잡는다.
+    private final ReentrantLock growLock = new ReentrantLock();
+    // interval flusher 가 이 행 앞까지는 디스크에 내렸다.
+    private long flushedRows;
+
+    @Autowired
+    public MappedPointHistoryRepository(@Value("${point.history.mapped.path:./data/point-history.log}") String path,
+                                        @Value("${point.history.mapped.region-size-mb:64}") int regionSizeMb,
+                                        @Value("${point.history.mapped.fsync:interval}") String fsync,
+                                        @Value("${point.history.mapped.fsync-interval-millis:10}") long fsyncIntervalMillis,
+                                        @Value("${point.history.mapped.group.batch-size:256}") int groupBatchSize,
+                                        @Value("${point.history.mapped.group.max-wait-micros:0}") long groupMaxWaitMicros,
+                                        PointSnapshotStore snapshots) {
+        this(Path.of(path), (long) regionSizeMb << 20, FsyncPolicy.valueOf(fsync.toUpperCase(Locale.ROOT)), fsyncIntervalMillis,
+                groupBatchSize, groupMaxWaitMicros, snapshots);
+    }
+
+    public MappedPointHistoryRepository(Path path, long regionSize, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) {
+        this(path, regionSize, fsyncPolicy, fsyncIntervalMillis, 256, 0, null);
+    }
+
+    public MappedPointHistoryRepository(Path path, long regionSize, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis,
+                                        int groupBatchSize, long groupMaxWaitMicros, PointSnapshotStore snapshots) {
+        if (regionSize < HEADER_SIZE + RECORD_SIZE || regionSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("region 크기는 " + (HEADER_SIZE + RECORD_SIZE) + " byte 이상 2GB 미만이어야 합니다.");
+        }
+        this.path = path;
+        this.rowsPerRegion = regionSize / RECORD_SIZE;
+        this.regionBytes = rowsPerRegion * RECORD_SIZE;
+        this.fsyncPolicy = fsyncPolicy;
+        this.snapshots = snapshots;
+        try {
+            if (path.getParent() != null) Files.createDirectories(path.getParent());
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            int existing = (int) ((channel.size() + regionBytes - 1) / regionBytes);
+            MappedByteBuffer[] mapped = new MappedByteBuffer[Math.max(existing, 1)];
+            for (int i = 0; i < mapped.length; i++) mapped[i] = map(i);
+            this.regions = mapped;
+            checkHeader(mapped[0]);
+        } catch (IOException e) {
+            throw new UncheckedIOException("내역 파일을 열 수 없습니다. : " + path, e);
+        }
+        recover();
+        this.flushedRows = nextRow.get();
+
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            this.flusher = new Thread(() -> flushLoop(fsyncIntervalMillis), "point-history-flusher");
+            this.flusher.setDaemon(true);
+            this.flusher.start();
+        } else {
+            this.flusher = null;
+        }
+        this.journal = fsyncPolicy == FsyncPolicy.GROUP
+                ? new GroupCommitJournal("point-history-group-commit", groupBatchSize, groupMaxWaitMicros, this::flush)
+                : null;
+    }
+
+    @Override
+    public PointHistory insert(long userId, long amount, TransactionType type, long updateMillis, long balance) {
+        UserTail tail = users.computeIfAbsent(userId, k -> new UserTail());
+        long row;
+        // 같은 유저의 append 만 직렬화한다. 행 번호(id) 발급도 이 안에서 해야 유저별 id 가 증가 순서를 지킨다.
+        tail.lock.lock();
+        try {
+            if (!running) throw new IllegalStateException("내역 저장소가 종료되었습니다.");
+            row = nextRow.getAndIncrement();
+            MappedByteBuffer region = regionFor(row);
+            int offset = offsetOf(row);
+            region.putLong(offset + USER_ID, userId);
+            region.putLong(offset + AMOUNT, amount);
+            region.putLong(offset + BALANCE, balance);
+            region.putLong(offset + UPDATE_MILLIS, updateMillis);
+            region.putLong(offset + PREV_ROW, tail.lastRow);
+            region.put(offset + TYPE, (byte) type.ordinal());
+            // checksum 을 마지막에 써야 쓰다 만 기록이 살아나지 않는다. (다른 스레드에도 checksum 이 마지막에 보이도록 fence)
+            VarHandle.releaseFence();
+            region.putInt(offset + CHECKSUM, checksum(row, userId, amount, balance, updateMillis, type.ordinal()));
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) region.force(offset, RECORD_SIZE);
+            tail.lastRow = row;
+        } finally {
+            tail.lock.unlock();
+        }
+        // 유저 락을 놓은 뒤에 기다려야 다른 유저의 기록과 같은 fsync 로 묶인다.
+        if (journal != null) awaitDurable(row);
+        return new PointHistory(row + 1, userId, amount, type, updateMillis, balance);
+    }
+
+    /**
+     * n 건을 이어진 행에 쓰고 유저의 마지막 행은 한 번만 옮긴다. 조회는 n 건을 전부 보거나 하나도 보지 않는다.
+     * 기록마다 checksum 이 따로라 쓰는 도중에 죽으면 앞쪽 일부만 살아남을 수 있다.
+     * 그래도 기록마다 반영 직후 잔액을 담고 있어 복구한 잔액은 살아남은 마지막 기록과 맞는다.
+     */
+    @Override
+    public List<PointHistory> insertAll(long userId, List<PointCommand> commands, long[] balances, long updateMillis) {
+        int n = commands.size();
+        int[] types = new int[n];
+        for (int i = 0; i < n; i++) types[i] = commands.get(i).type().ordinal();
+
+        UserTail tail = users.computeIfAbsent(userId, k -> new UserTail());
+        long first;
+        tail.lock.lock();
+        try {
+            if (!running) throw new IllegalStateException("내역 저장소가 종료되었습니다.");
+            first = nextRow.getAndAdd(n);
+            // 마지막 행의 region 까지 먼저 잡아 둬야 파일을 늘리다 실패해도 쓰다 만 기록이 남지 않는다.
+            regionFor(first + n - 1);
+            long prevRow = tail.lastRow;
+            for (int i = 0; i < n; i++) {
+                long row = first + i;
+                MappedByteBuffer region = regionFor(row);
+                int offset = offsetOf(row);
+                long amount = commands.get(i).amount();
+                region.putLong(offset + USER_ID, userId);
+                region.putLong(offset + AMOUNT, amount);
+                region.putLong(offset + BALANCE, balances[i]);
+                region.putLong(offset + UPDATE_MILLIS, updateMillis);
+                region.putLong(offset + PREV_ROW, prevRow);
+                region.put(offset + TYPE, (byte) types[i]);
+                VarHandle.releaseFence();
+                region.putInt(offset + CHECKSUM, checksum(row, userId, amount, balances[i], updateMillis, types[i]));
+                prevRow = row;
+            }
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) flush(first, first + n - 1);
+            tail.lastRow = first + n - 1;
+        } finally {
+            tail.lock.unlock();
+        }
+        if (journal != null) awaitDurable(first, first + n - 1);
+
+        PointHistory[] pointHistories = new PointHistory[n];
+        for (int i = 0; i < n; i++) {
+            PointCommand command = commands.get(i);
+            pointHistories[i] = new PointHistory(first + i + 1, userId, command.amount(), command.type(), updateMillis, balances[i]);
+        }
+        return List.of(pointHistories);
+    }
+
+    @Override
+    public List<PointHistory> findAllByUserId(long userId) {
+        UserTail tail = users.get(userId);
+        if (tail == null) return List.of();
+        return view(tail.lastRow);
+    }
+
+    @Override
+    public List<PointHistory> findAllByUserIdDesc(long userId) {
+        return new ReversedListView<>(findAllByUserId(userId));
+    }
+
+    /**
+     * 유저의 전체 행을 모으지 않고, cursor 행(beforeId - 1)부터 이전 행을 따라가며 limit 건만 읽는다.
+     */
+    @Override
+    public List<PointHistory> findPageByUserIdDesc(long userId, Long beforeId, int limit) {
+        UserTail tail = users.get(userId);
+        if (tail == null) return List.of();
+        long row = tail.lastRow;
+        MappedByteBuffer[] snapshot = regions;
+        if (beforeId != null) {
+            if (beforeId <= 1) return List.of();
+            long cursor = beforeId - 1;
+            if (cursor <= row && isUserRow(snapshot, cursor, userId)) {
+                // 보통은 이전 페이지 마지막 내역이 이 유저의 행이라 바로 이어서 읽는다.
+                row = prevRow(snapshot, cursor);
+            } else {
+                while (row != NO_ROW && row >= cursor) row = prevRow(snapshot, row);
+            }
+        }
+
+        long[] pageRows = new long[limit];
+        int count = 0;
+        for (; row != NO_ROW && count < limit; row = prevRow(snapshot, row)) pageRows[count++] = row;
+        return new ReversedListView<>(new View(snapshot, pageRows, count));
+    }
+
+    @Override
+    public long[] userIds() {
+        return users.keySet().stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * 파일에 남아있는 모든 내역을 쓰인 순서대로 넘긴다. (시작 시 잔액 복구용)
+     */
+    public void replay(Consumer<PointHistory> consumer) {
+        replay(0, consumer);
+    }
+
+    /**
+     * fromRow 번째 행부터 남아있는 내역을 쓰인 순서대로 넘긴다.
+     */
+    public void replay(long fromRow, Consumer<PointHistory> consumer) {
+        MappedByteBuffer[] snapshot = regions;
+        long rows = nextRow.get();
+        for (long row = fromRow; row < rows; row++) {
+            MappedByteBuffer region = snapshot[regionOf(row)];
+            int offset = offsetOf(row);
+            if (isValid(region, offset, row)) consumer.accept(read(snapshot, row));
+        }
+    }
+
+    /**
+     * 앞에서부터 빈틈없이 다 쓰인 기록 수. 이 앞의 기록은 더 바뀌지 않으므로 snapshot 에 담을 수 있다.
+     */
+    long stableRowCount() {
+        stableLock.lock();
+        try {
+            MappedByteBuffer[] snapshot = regions;
+            long rows = nextRow.get();
+            long row = stableRows;
+            while (row < rows) {
+                int index = regionOf(row);
+                if (index >= snapshot.length) break;
+                int offset = offsetOf(row);
+                // 번호만 받고 아직 쓰는 중인 기록에서 멈춘다.
+                if (snapshot[index].getInt(offset + CHECKSUM) == 0) break;
+                VarHandle.acquireFence();
+                if (!isValid(snapshot[index], offset, row)) break;
+                row++;
+            }
+            return stableRows = row;
+        } finally {
+            stableLock.unlock();
+        }
+    }
+
+    /**
+     * rows 개의 기록까지 반영한 유저별 (잔액, 마지막 행 번호) 를 넘긴다.
+     * 기록마다 반영 직후 잔액을 담고 있으므로 rows 앞의 마지막 기록이 곧 그 시점 잔액이다.
+     */
+    void forEachUserAt(long rows, PointSnapshotStore.EntryConsumer consumer) {
+        MappedByteBuffer[] snapshot = regions;
+        for (var entry : users.entrySet()) {
+            long row = entry.getValue().lastRow;
+            // snapshot 이후에 쓴 기록은 건너뛴다. 보통 0 ~ 1 번이다.
+            while (row >= rows) row = snapshot[regionOf(row)].getLong(offsetOf(row) + PREV_ROW);
+            if (row == NO_ROW) continue;
+            consumer.accept(entry.getKey(), snapshot[regionOf(row)].getLong(offsetOf(row) + BALANCE), row);
+        }
+    }
+
+    /**
+     * 지금까지 쓴 기록을 디스크에 내린다.
+     */
+    public void flush() {
+        for (MappedByteBuffer region : regions) region.force();
+    }
+
+    /**
+     * minRow ~ maxRow 기록이 있는 범위만 디스크에 내린다.
+     */
+    void flush(long minRow, long maxRow) {
+        MappedByteBuffer[] snapshot = regions;
+        long firstRegion = regionOf(minRow);
+        long lastRegion = regionOf(maxRow);
+        for (long index = firstRegion; index <= lastRegion; index++) {
+            int start = index == firstRegion ? offsetOf(minRow) : 0;
+            int end = index == lastRegion ? offsetOf(maxRow) + RECORD_SIZE : (int) regionBytes;
+            snapshot[(int) index].force(start, end - start);
+        }
+    }
+
+    /**
+     * group commit 한 번에 내린 평균 기록 수 (group 정책이 아니면 0)
+     */
+    public double averageGroupSize() {
+        if (journal == null || journal.flushCount() == 0) return 0;
+        return (double) journal.committedCount() / journal.flushCount();
+    }
+
+    public long rowCount() {
+        return nextRow.get();
+    }
+
+    /**
+     * 내역이 한 건이라도 있는 유저 수
+     */
+    public int userCount() {
+        return users.size();
+    }
+
+    /**
+     * 시작할 때 checksum 이 맞지 않아 건너뛴 기록 수
+     */
+    public long skippedRows() {
+        return skippedRows;
+    }
+
+    /**
+     * 시작할 때 읽은 snapshot 이 반영한 기록 수 (snapshot 없이 전부 훑었으면 0)
+     */
+    public long snapshotRows() {
+        return snapshotRows;
+    }
+
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        running = false;
+        if (flusher != null) flusher.join(TimeUnit.SECONDS.toMillis(10));
+        // 진행 중인 append 가 끝나도록 모든 유저 락을 한 번씩 거친다. 그 뒤의 append 는 running 을 보고 실패한다.
+        for (UserTail tail : users.values()) {
+            // 들어와 있던 append 가 빠져나가기만 기다린다.
+            tail.lock.lock();
+            tail.lock.unlock();
+        }
+        if (journal != null) journal.close();
+        flush();
+        channel.close();
+    }
+
+    private void awaitDurable(long row) {
+        awaitDurable(row, row);
+    }
+
+    // 행마다 commit 해야 서로 다른 group 으로 나뉘어도 사이의 행까지 모두 내려간다.
+    private void awaitDurable(long firstRow, long lastRow) {
+        List<CompletableFuture<Void>> commits = new ArrayList<>();
+        for (long row = firstRow; row <= lastRow; row++) commits.add(journal.commit(row));
+        try {
+            for (CompletableFuture<Void> commit : commits) commit.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("내역을 디스크에 내리지 못했습니다.", e.getCause());
+        }
+    }
+
+    /**
+     * 새 파일(header 칸이 모두 0)이면 header 를 쓰고, 아니면 형식이 같은지 확인한다.
+     * 형식이 다른 파일을 열면 모든 기록이 checksum 에서 걸러져 빈 파일로 보이고 새 기록이 덮어쓰므로, 시작하지 않는다.
+     */
+    private void checkHeader(MappedByteBuffer region) {
+        boolean blank = true;
+        for (int i = 0; i < HEADER_SIZE && blank; i += Long.BYTES) blank = region.getLong(i) == 0;
+        if (blank) {
+            region.putLong(0, MAGIC);
+            region.putInt(HEADER_VERSION, FORMAT_VERSION);
+            region.putInt(HEADER_RECORD_SIZE, RECORD_SIZE);
+            region.force(0, HEADER_SIZE);
+            return;
+        }
+        long magic = region.getLong(0);
+        int version = region.getInt(HEADER_VERSION);
+        int recordSize = region.getInt(HEADER_RECORD_SIZE);
+        if (magic != MAGIC || version != FORMAT_VERSION || recordSize != RECORD_SIZE) {
+            String found = magic == MAGIC ? "version " + version + ", 기록 " + recordSize + " byte" : "header 없음 (version 1 이거나 내역 파일이 아님)";
+            throw new IllegalStateException("내역 파일 형식이 다릅니다. " + found + ", 지원하는 형식 version " + FORMAT_VERSION
+                    + ". 기존 파일을 옮기거나 변환한 뒤 시작해주세요. : " + path);
+        }
+    }
+
+    private void recover() {
+        MappedByteBuffer[] snapshot = regions;
+        long capacity = capacityOf(snapshot);
+        long fromRow = loadSnapshot(capacity);
+        long lastValid = fromRow - 1;
+        long skipped = 0;
+        for (long row = fromRow; row < capacity; row++) {
+            MappedByteBuffer region = snapshot[regionOf(row)];
+            int offset = offsetOf(row);
+            if (region.getInt(offset + CHECKSUM) == 0) continue;
+            if (!isValid(region, offset, row)) {
+                skipped++;
+                continue;
+            }
+            // 중간 기록이 빠졌을 수 있으므로 유저별 이전 행 번호는 살아남은 기록끼리 다시 잇는다.
+            UserTail tail = users.computeIfAbsent(region.getLong(offset + USER_ID), k -> new UserTail());
+            if (region.getLong(offset + PREV_ROW) != tail.lastRow) region.putLong(offset + PREV_ROW, tail.lastRow);
+            tail.lastRow = row;
+            lastValid = row;
+        }
+        // 마지막 기록 뒤에 남은 쓰다 만 기록은 새 기록으로 덮어쓴다.
+        nextRow.set(lastValid + 1);
+        stableRows = lastValid + 1;
+        skippedRows = skipped;
+        snapshotRows = fromRow;
+        flush();
+        log.info("내역 파일 복구 {} : rows={}, users={}, skipped={}, snapshot={}", path, lastValid + 1, users.size(), skipped, fromRow);
+    }
+
+    /**
+     * snapshot 에서 유저별 마지막 행 번호를 읽는다.
+     * @return 훑기 시작할 행 번호 (snapshot 이 없거나 쓸 수 없으면 0)
+     */
+    private long loadSnapshot(long capacity) {
+        if (snapshots == null) return 0;
+        long rows = snapshots.load((userId, point, lastRow) -> users.computeIfAbsent(userId, k -> new UserTail()).lastRow = lastRow);
+        // snapshot 이 담은 마지막 기록이 파일에 없으면 (파일을 바꿨거나 잃었으면) snapshot 을 믿을 수 없다.
+        if (rows < 0 || rows > capacity || (rows > 0 && !isValid(regions[regionOf(rows - 1)], offsetOf(rows - 1), rows - 1))) {
+            users.clear();
+            return 0;
+        }
+        return rows;
+    }
+
+    private boolean isValid(MappedByteBuffer region, int offset, long row) {
+        int type = region.get(offset + TYPE);
+        if (type < 0 || type >= TYPES.length) return false;
+        return region.getInt(offset + CHECKSUM) == checksum(row, region.getLong(offset + USER_ID),
+                region.getLong(offset + AMOUNT), region.getLong(offset + BALANCE), region.getLong(offset + UPDATE_MILLIS), type);
+    }
+
+    private List<PointHistory> view(long lastRow) {
+        MappedByteBuffer[] snapshot = regions;
+        long[] rows = new long[16];
+        int count = 0;
+        for (long row = lastRow; row != NO_ROW; row = prevRow(snapshot, row)) {
+            if (count == rows.length) rows = Arrays.copyOf(rows, count << 1);
+            rows[count++] = row;
+        }
+        return new View(snapshot, rows, count);
+    }
+
+    private long prevRow(MappedByteBuffer[] snapshot, long row) {
+        return snapshot[regionOf(row)].getLong(offsetOf(row) + PREV_ROW);
+    }
+
+    // 시작할 때 건너뛴(깨진) 기록은 이전 행이 이어져 있지 않으므로 checksum 까지 본다.
+    private boolean isUserRow(MappedByteBuffer[] snapshot, long row, long userId) {
+        MappedByteBuffer region = snapshot[regionOf(row)];
+        int offset = offsetOf(row);
+        return region.getLong(offset + USER_ID) == userId && isValid(region, offset, row);
+    }
+
+    private PointHistory read(MappedByteBuffer[] snapshot, long row) {
+        MappedByteBuffer region = snapshot[regionOf(row)];
+        int offset = offsetOf(row);
+        return new PointHistory(row + 1, region.getLong(offset + USER_ID), region.getLong(offset + AMOUNT),
+                TYPES[region.get(offset + TYPE)], region.getLong(offset + UPDATE_MILLIS), region.getLong(offset + BALANCE));
+    }
+
+    private MappedByteBuffer regionFor(long row) {
+        int index = regionOf(row);
+        MappedByteBuffer[] current = regions;
+        if (index < current.length) return current[index];
+        growLock.lock();
+        try {
+            current = regions;
+            if (index >= current.length) {
+                MappedByteBuffer[] grown = Arrays.copyOf(current, index + 1);
+                try {
+                    for (int i = current.length; i < grown.length; i++) grown[i] = map(i);
+                    // 파일 크기가 바뀌었으므로 metadata 까지 내린다.
+                    if (fsyncPolicy == FsyncPolicy.ALWAYS) channel.force(true);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("내역 파일을 늘릴 수 없습니다. : " + path, e);
+                }
+                regions = current = grown;
+            }
+            return current[index];
+        } finally {
+            growLock.unlock();
+        }
+    }
+
+    private MappedByteBuffer map(int index) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_WRITE, index * regionBytes, regionBytes);
+    }
+
+    // 파일 맨 앞 한 칸은 header 라 행 번호보다 한 칸 뒤에 쓴다.
+    private int regionOf(long row) {
+        return (int) ((row + 1) / rowsPerRegion);
+    }
+
+    private int offsetOf(long row) {
+        return (int) ((row + 1) % rowsPerRegion) * RECORD_SIZE;
+    }
+
+    // regions 에 담을 수 있는 기록 수 (header 칸 제외)
+    private long capacityOf(MappedByteBuffer[] snapshot) {
+        return snapshot.length * rowsPerRegion - 1;
+    }
+
+    private void flushLoop(long intervalMillis) {
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(intervalMillis);
+                flushDirty();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("내역 파일 fsync 실패 {}", path, e);
+            }
+        }
+    }
+
+    /**
+     * 지난번 이후 새로 쓴 기록이 있는 범위만 내린다. (interval flusher 만 부른다)
+     * 번호만 받고 아직 쓰는 중인 기록이 있을 수 있으므로, 내리기 전에 다 쓰여 있던 기록까지만 내렸다고 본다.
+     */
+    private void flushDirty() {
+        long stable = stableRowCount();
+        // 번호를 받았지만 아직 region 이 없는 기록은 다음 번에 내린다.
+        long rows = Math.min(nextRow.get(), capacityOf(regions));
+        if (rows <= flushedRows) return;
+        flush(flushedRows, rows - 1);
+        flushedRows = Math.min(stable, rows);
+    }
+
+    // 0 이 나오지 않게 해서, 한 번도 쓰지 않은 기록(전부 0)과 구분한다.
+    static int checksum(long row, long userId, long amount, long balance, long updateMillis, int type) {
+        long h = row * 0x9E3779B97F4A7C15L;
+        h = (h ^ userId) * 0xff51afd7ed558ccdL;
+        h = (h ^ amount) * 0xc4ceb9fe1a85ec53L;
+        h = (h ^ balance) * 0x9E3779B97F4A7C15L;
+        h = (h ^ updateMillis) * 0xff51afd7ed558ccdL;
+        h = (h ^ type) * 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h | 1;
+    }
+
+    private static final class UserTail {
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long lastRow = NO_ROW;
+    }
+
+    private final class View extends AbstractList<PointHistory> implements RandomAccess {
+        private final MappedByteBuffer[] snapshot;
+        private final long[] descendingRows;
+        private final int size;
+
+        View(MappedByteBuffer[] snapshot, long[] descendingRows, int size) {
+            this.snapshot = snapshot;
+            this.descendingRows = descendingRows;
+            this.size = size;
+        }
+
+        @Override
+        public PointHistory get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+            return read(snapshot, descendingRows[size - 1 - index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
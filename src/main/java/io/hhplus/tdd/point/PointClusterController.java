@@ -0,0 +1,65 @@
+package io.hhplus.tdd.point;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * 노드 구성 관리와 노드 사이 유저 이동용 API (point.cluster.enabled=true)
+ * - /point 아래가 아니므로 PointForwardingFilter 를 거치지 않는다.
+ */
+@RestController
+@RequestMapping("/cluster")
+@ConditionalOnProperty(name = "point.cluster.enabled", havingValue = "true")
+public class PointClusterController {
+
+    private PointClusterRouter pointClusterRouter;
+    private PointService pointService;
+
+    public PointClusterController(PointClusterRouter pointClusterRouter, PointService pointService) {
+        this.pointClusterRouter = pointClusterRouter;
+        this.pointService = pointService;
+    }
+
+    @GetMapping("members")
+    public List<String> members() {
+        return pointClusterRouter.members();
+    }
+
+    /**
+     * 구성원을 바꾼다. 모든 노드에 같은 목록을 보내야 한다.
+     * @return 이 노드에서 다른 노드로 옮겨 갈 유저 수
+     */
+    @PutMapping("members")
+    public int updateMembers(
+            @RequestBody List<String> nodes
+    ) {
+        return pointClusterRouter.updateMembers(nodes);
+    }
+
+    /**
+     * 새 주인 노드가 이전 주인에게서 유저 상태를 받아간다. (pull)
+     */
+    @GetMapping("handoff/{id}")
+    public PointHandoff export(
+            @PathVariable long id
+    ) {
+        return pointService.export(id);
+    }
+
+    /**
+     * 이전 주인 노드가 유저 상태를 보낸다. (push)
+     * 이 노드가 지금 주인이 아니면 409 로 돌려보내, 보낸 노드가 지금 주인에게 다시 보내게 한다.
+     */
+    @PostMapping("handoff/{id}")
+    public ResponseEntity<Void> accept(
+            @PathVariable long id,
+            @RequestHeader(value = PointClusterRouter.FORWARDED_HEADER, required = false) String sender,
+            @RequestBody PointHandoff handoff
+    ) throws Exception {
+        if (handoff.userId() != id) throw new Exception("경로의 유저 id 와 본문의 유저 id 가 다릅니다.");
+        return ResponseEntity.status(pointClusterRouter.accept(handoff, sender) ? 200 : 409).build();
+    }
+}
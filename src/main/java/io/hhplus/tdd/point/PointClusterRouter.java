@@ -0,0 +1,271 @@
+package io.hhplus.tdd.point;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.hhplus.tdd.ConsistentHashRing;
+import io.hhplus.tdd.LockManager;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 여러 노드에 유저를 나눠 맡기는 consistent hash 라우터 (point.cluster.enabled=true)
+ * - 유저 id 로 고리에서 주인 노드를 찾고, 주인이 아니면 PointForwardingFilter 가 요청을 주인에게 HTTP 로 넘긴다.
+ *   유저의 잔액과 내역은 주인 노드 한 곳에만 쌓인다.
+ * - 구성원이 바뀌면(updateMembers) 새 고리로 바꾸고, 주인이 바뀐 유저를 옮긴다.
+ *   - 새 주인은 옮겨지지 않은 유저의 요청을 처음 받을 때 이전 주인에게서 상태를 받아온 뒤 처리한다. (pull)
+ *   - 이전 주인은 맡던 유저 중 주인이 바뀐 유저를 백그라운드에서 새 주인에게 보낸다. (push)
+ *   둘 다 새 주인의 유저 락 안에서 한 번만 반영되므로, 어느 쪽이 먼저 와도 상태가 겹치지 않는다.
+ * - 구성이 연달아 바뀌면 바로 전 주인도 아직 상태를 받지 못했을 수 있다. (A→C 로 옮기기 전에 C→D)
+ *   그래서 지난 모든 구성의 주인에게서 받아와 내역이 가장 긴 것을 쓴다.
+ *   내역은 주인이 바뀔 때마다 앞부분을 그대로 넘겨받아 이어 쌓으므로, 가장 긴 내역이 마지막으로 유저를 맡았던 노드의 것이다.
+ * - 지금 주인이 아닌 노드는 push 를 거절(409)하고, 보낸 노드는 자기 고리의 지금 주인에게 다시 보낸다.
+ * - 구성원 변경은 모든 노드에 같은 목록으로 알려야 한다. (PUT /cluster/members)
+ *   노드끼리 고리가 잠깐 다를 때 넘겨받은 요청의 주인이 자기가 아니면 다시 넘기지 않고 503 으로 돌려보낸다.
+ */
+@Component
+@ConditionalOnProperty(name = "point.cluster.enabled", havingValue = "true")
+public class PointClusterRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(PointClusterRouter.class);
+
+    // 다른 노드에서 넘겨받은 요청 표시 (값은 보낸 노드)
+    public static final String FORWARDED_HEADER = "X-Point-Forwarded";
+
+    private final String self;
+    private final PointService pointService;
+    private final PointHistoryRepository pointHistoryRepository;
+    private final LockManager lockManager;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+    private final Duration timeout;
+    private final ExecutorService handoffExecutor;
+
+    private volatile ConsistentHashRing ring;
+    // 지금까지 거쳐 온 고리 (오래된 것부터). 구성 변경은 드문 운영 작업이라 모두 남겨 둔다.
+    private final List<ConsistentHashRing> previousRings = new CopyOnWriteArrayList<>();
+    // 이 노드가 마지막 상태를 가지고 있다고 확인한 유저 (지난 주인들에게서 받아왔거나 받을 것이 없다고 확인)
+    private final Set<Long> settled = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public PointClusterRouter(@Value("${point.cluster.self}") String self,
+                              @Value("${point.cluster.nodes}") List<String> nodes,
+                              @Value("${point.cluster.virtual-nodes:128}") int virtualNodes,
+                              @Value("${point.cluster.forward-timeout-millis:2000}") long timeoutMillis,
+                              PointService pointService, PointHistoryRepository pointHistoryRepository,
+                              LockManager lockManager, ObjectMapper objectMapper) {
+        this.self = normalize(self);
+        this.ring = new ConsistentHashRing(nodes.stream().map(PointClusterRouter::normalize).toList(), virtualNodes);
+        this.pointService = pointService;
+        this.pointHistoryRepository = pointHistoryRepository;
+        this.lockManager = lockManager;
+        this.objectMapper = objectMapper;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(timeout).build();
+        this.handoffExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "point-handoff");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!ring.nodes().contains(this.self)) log.warn("이 노드({})가 구성원 {} 에 없습니다.", this.self, ring.nodes());
+    }
+
+    public String self() {
+        return self;
+    }
+
+    public List<String> members() {
+        return ring.nodes();
+    }
+
+    public String ownerOf(long userId) {
+        return ring.ownerOf(userId);
+    }
+
+    public boolean isLocal(long userId) {
+        return self.equals(ring.ownerOf(userId));
+    }
+
+    /**
+     * 구성원을 바꾸고, 이 노드가 맡던 유저 중 주인이 바뀐 유저를 백그라운드에서 새 주인에게 보낸다.
+     * @return 이 노드에서 다른 노드로 옮겨 갈 유저 수
+     */
+    public synchronized int updateMembers(List<String> nodes) {
+        ConsistentHashRing current = ring;
+        ConsistentHashRing next = current.withNodes(nodes.stream().map(PointClusterRouter::normalize).toList());
+        long[] movedOut = Arrays.stream(current.moved(next, pointHistoryRepository.userIds()))
+                .filter(userId -> self.equals(current.ownerOf(userId)))
+                .toArray();
+
+        // 계속 이 노드가 맡는 유저는 마지막 상태를 그대로 가지고 있다.
+        settled.removeIf(userId -> !self.equals(next.ownerOf(userId)));
+        previousRings.add(current);
+        ring = next;
+        log.info("구성원 변경 {} -> {} : 옮겨 갈 유저 {}명", current.nodes(), next.nodes(), movedOut.length);
+
+        handoffExecutor.execute(() -> {
+            for (long userId : movedOut) handOff(userId);
+        });
+        return movedOut.length;
+    }
+
+    /**
+     * 이 노드가 맡은 유저의 요청을 처리하기 전에 부른다.
+     * 구성이 바뀐 뒤 처음이면, 지난 구성의 주인들에게서 상태를 받아와 가장 최근 것을 반영한다.
+     */
+    public void settle(long userId) throws IOException {
+        if (settled.contains(userId)) return;
+        Set<String> previousOwners = previousOwners(userId);
+        if (previousOwners.isEmpty()) {
+            settled.add(userId);
+            return;
+        }
+
+        lockManager.lock(userId);
+        try {
+            if (settled.contains(userId)) return;
+            adopt(userId, null, previousOwners);
+            settled.add(userId);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("유저 " + userId + " 를 " + previousOwners + " 에서 받아오지 못했습니다.", e);
+        } finally {
+            lockManager.unLock(userId);
+        }
+    }
+
+    /**
+     * 이전 주인이 push 로 보낸 상태를 반영한다. 이미 받아왔으면 무시한다.
+     * 보낸 노드 말고도 지난 구성의 주인이 더 있으면 그 노드들의 상태와 비교해 가장 최근 것을 쓴다.
+     * @return 이 노드가 지금 주인이 아니면 false (보낸 노드가 지금 주인에게 다시 보내야 한다)
+     */
+    public boolean accept(PointHandoff handoff, String sender) throws Exception {
+        long userId = handoff.userId();
+        lockManager.lock(userId);
+        try {
+            if (!isLocal(userId)) return false;
+            if (settled.contains(userId)) return true;
+            Set<String> previousOwners = previousOwners(userId);
+            if (sender != null) previousOwners.remove(normalize(sender));
+            adopt(userId, handoff, previousOwners);
+            settled.add(userId);
+            return true;
+        } finally {
+            lockManager.unLock(userId);
+        }
+    }
+
+    /**
+     * 요청을 node 로 그대로 넘긴다. (응답 본문은 스트림으로 돌려준다)
+     */
+    public HttpResponse<InputStream> forward(String node, String method, String pathAndQuery,
+                                             Map<String, String> headers, byte[] body) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(node + pathAndQuery))
+                .timeout(timeout)
+                .header(FORWARDED_HEADER, self)
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body));
+        headers.forEach(request::header);
+        try {
+            return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("요청을 " + node + " 로 넘기는 중 중단되었습니다.", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        handoffExecutor.shutdown();
+    }
+
+    /**
+     * 유저를 지금 주인에게 보낸다. 그 사이 구성이 또 바뀌어 거절되면 이 노드 고리의 새 주인에게 다시 보낸다.
+     * 끝내 못 보내도 새 주인이 요청을 받을 때 지난 주인들에게서 받아가므로 남기기만 한다.
+     */
+    private void handOff(long userId) {
+        String owner = ring.ownerOf(userId);
+        while (!self.equals(owner)) {
+            try {
+                send("POST", owner, "/cluster/handoff/" + userId, objectMapper.writeValueAsBytes(pointService.export(userId)));
+                return;
+            } catch (Exception e) {
+                String current = ring.ownerOf(userId);
+                if (current.equals(owner)) {
+                    log.warn("유저 {} 를 {} 로 보내지 못했습니다.", userId, owner, e);
+                    return;
+                }
+                owner = current;
+            }
+        }
+    }
+
+    /**
+     * 지난 구성들에서 유저를 맡았던 노드 (최근 구성부터, 이 노드 제외)
+     */
+    private Set<String> previousOwners(long userId) {
+        Set<String> owners = new LinkedHashSet<>();
+        for (int i = previousRings.size() - 1; i >= 0; i--) owners.add(previousRings.get(i).ownerOf(userId));
+        owners.remove(self);
+        return owners;
+    }
+
+    /**
+     * received 와 지난 주인들에게서 받아온 상태 중 내역이 가장 긴 것을 반영한다.
+     * 이 노드의 내역이 더 길면 restore 가 그대로 둔다. 유저 락 안에서 부른다.
+     */
+    private void adopt(long userId, PointHandoff received, Set<String> previousOwners) throws Exception {
+        PointHandoff latest = received;
+        for (String previousOwner : previousOwners) {
+            PointHandoff handoff = pull(previousOwner, userId);
+            if (handoff != null && (latest == null || handoff.histories().size() > latest.histories().size())) latest = handoff;
+        }
+        if (latest != null) pointService.restore(latest);
+    }
+
+    private PointHandoff pull(String previousOwner, long userId) throws IOException {
+        try {
+            return objectMapper.readValue(send("GET", previousOwner, "/cluster/handoff/" + userId, null), PointHandoff.class);
+        } catch (IOException e) {
+            // 구성에서 빠진 노드가 응답하지 않으면 넘겨받을 상태가 없는 것으로 본다. (메모리 저장소라 이미 사라졌다)
+            if (ring.nodes().contains(previousOwner)) throw e;
+            log.warn("빠진 노드 {} 에서 유저 {} 를 받아오지 못해 빈 상태로 시작합니다.", previousOwner, userId, e);
+            return null;
+        }
+    }
+
+    private byte[] send(String method, String node, String path, byte[] body) throws IOException {
+        Map<String, String> headers = body == null ? Map.of() : Map.of("Content-Type", "application/json");
+        HttpResponse<InputStream> response = forward(node, method, path, headers, body);
+        try (InputStream in = response.body()) {
+            byte[] bytes = in.readAllBytes();
+            if (response.statusCode() != 200) throw new IOException(node + path + " 응답 " + response.statusCode());
+            return bytes;
+        }
+    }
+
+    private static String normalize(String node) {
+        String trimmed = node.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+}
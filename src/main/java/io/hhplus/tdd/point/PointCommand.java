@@ -0,0 +1,19 @@
+package io.hhplus.tdd.point;
+
+/**
+ * 포인트 충전/사용 요청 한 건
+ */
+public record PointCommand(
+        long userId,
+        long amount,
+        TransactionType type
+) {
+
+    public static PointCommand charge(long userId, long amount) {
+        return new PointCommand(userId, amount, TransactionType.CHARGE);
+    }
+
+    public static PointCommand use(long userId, long amount) {
+        return new PointCommand(userId, amount, TransactionType.USE);
+    }
+}
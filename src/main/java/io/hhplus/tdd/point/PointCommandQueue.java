@@ -0,0 +1,125 @@
+package io.hhplus.tdd.point;
+
+import io.hhplus.tdd.PointExecutorConfig;
+import io.hhplus.tdd.UserMailboxExecutor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 충전/사용 요청을 유저별 mailbox 에 넣고 비동기로 처리한다. (point.mailbox.enabled=true)
+ * - PointController 의 PATCH /point/{id}/charge, /use 가 여기에 넣고 CompletableFuture 를 바로 돌려준다.
+ *   요청 스레드는 줄을 서는 동안 막히지 않고, 처리가 끝나면 결과가 응답으로 나간다.
+ * - 같은 유저의 요청은 들어온 순서대로 하나씩, 다른 유저의 요청은 병렬로 처리된다.
+ * - coalesce 모드에서는 drain 한 번에 꺼낸 요청들을 PointService.applyCoalesced 로 한 번에 반영한다.
+ * - 대기 요청 수는 point.mailbox.depth / point.mailbox.depth.max / point.mailbox.rejected 지표로 노출한다.
+ */
+@Component
+@ConditionalOnProperty(name = "point.mailbox.enabled", havingValue = "true")
+public class PointCommandQueue {
+
+    private PointService pointService;
+    // point.shard.enabled=true 일 때만 있다. 있으면 유저의 shard 로 보낸다.
+    private PointServiceRouter pointServiceRouter;
+    private ExecutorService executor;
+    private UserMailboxExecutor<PointCommand, UserPoint> mailbox;
+    private boolean coalesce;
+
+    @Autowired
+    public PointCommandQueue(PointService pointService,
+                             ObjectProvider<PointServiceRouter> pointServiceRouter,
+                             @Value("${point.mailbox.threads:0}") int threads,
+                             @Value("${point.mailbox.capacity:1000}") int capacity,
+                             @Value("${point.mailbox.batch-size:64}") int batchSize,
+                             @Value("${point.mailbox.coalesce:false}") boolean coalesce,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtual,
+                             MeterRegistry meterRegistry) {
+        this(pointService, pointServiceRouter.getIfAvailable(), threads, capacity, batchSize, coalesce, virtual);
+        Gauge.builder("point.mailbox.depth", mailbox, UserMailboxExecutor::queueDepth)
+                .description("mailbox 에 쌓여 있는 충전/사용 요청 수")
+                .register(meterRegistry);
+        Gauge.builder("point.mailbox.depth.max", mailbox, UserMailboxExecutor::maxQueueDepth)
+                .description("시작 후 가장 많이 쌓였던 요청 수")
+                .register(meterRegistry);
+        Gauge.builder("point.mailbox.active", mailbox, UserMailboxExecutor::activeMailboxes)
+                .description("요청이 쌓여 있는 유저 수")
+                .register(meterRegistry);
+        FunctionCounter.builder("point.mailbox.rejected", mailbox, UserMailboxExecutor::rejectedCount)
+                .description("유저별 대기 상한을 넘어 거절한 요청 수")
+                .register(meterRegistry);
+    }
+
+    public PointCommandQueue(PointService pointService, PointServiceRouter pointServiceRouter,
+                             int threads, int capacity, int batchSize, boolean coalesce, boolean virtual) {
+        this.pointService = pointService;
+        this.pointServiceRouter = pointServiceRouter;
+        this.coalesce = coalesce;
+        this.executor = PointExecutorConfig.newExecutor("point-mailbox-",
+                threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), virtual);
+        this.mailbox = new UserMailboxExecutor<>(executor, capacity, batchSize, this::handle);
+    }
+
+    public CompletableFuture<UserPoint> charge(long id, long amount) {
+        return submit(PointCommand.charge(id, amount));
+    }
+
+    public CompletableFuture<UserPoint> use(long id, long amount) {
+        return submit(PointCommand.use(id, amount));
+    }
+
+    public CompletableFuture<UserPoint> submit(PointCommand command) {
+        return mailbox.submit(command.userId(), command);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // mailbox 가 유저별로 직렬화해 주므로 PointService 의 락은 경합 없이 바로 잡힌다.
+    private void handle(long id, List<UserMailboxExecutor.Envelope<PointCommand, UserPoint>> batch) {
+        if (coalesce) {
+            handleCoalesced(id, batch);
+            return;
+        }
+        PointService service = serviceOf(id);
+        for (UserMailboxExecutor.Envelope<PointCommand, UserPoint> envelope : batch) {
+            PointCommand command = envelope.message();
+            try {
+                UserPoint userPoint = command.type() == TransactionType.CHARGE
+                        ? service.charge(id, command.amount())
+                        : service.use(id, command.amount());
+                envelope.future().complete(userPoint);
+            } catch (Exception e) {
+                envelope.future().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void handleCoalesced(long id, List<UserMailboxExecutor.Envelope<PointCommand, UserPoint>> batch) {
+        List<PointCommand> commands = new ArrayList<>(batch.size());
+        for (UserMailboxExecutor.Envelope<PointCommand, UserPoint> envelope : batch) commands.add(envelope.message());
+
+        List<PointCommandResult> results = serviceOf(id).applyCoalesced(id, commands);
+        for (int i = 0; i < batch.size(); i++) {
+            PointCommandResult result = results.get(i);
+            if (result.isSuccess()) batch.get(i).future().complete(result.userPoint());
+            else batch.get(i).future().completeExceptionally(new Exception(result.message()));
+        }
+    }
+
+    private PointService serviceOf(long id) {
+        return pointServiceRouter != null ? pointServiceRouter.route(id) : pointService;
+    }
+}
@@ -0,0 +1,29 @@
+package io.hhplus.tdd.point;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * 요청 한 건의 처리 결과
+ * - 성공 : 해당 요청 직후의 잔액 (userPoint)
+ * - 실패 : 실패 사유 (message)
+ * 응답에는 success 도 같이 나간다. 클러스터에서 다른 노드의 응답을 다시 읽을 때는 userPoint 로 판단하므로 무시한다.
+ */
+@JsonIgnoreProperties(value = "success", allowGetters = true)
+public record PointCommandResult(
+        PointCommand command,
+        UserPoint userPoint,
+        String message
+) {
+
+    public static PointCommandResult success(PointCommand command, UserPoint userPoint) {
+        return new PointCommandResult(command, userPoint, null);
+    }
+
+    public static PointCommandResult fail(PointCommand command, String message) {
+        return new PointCommandResult(command, null, message);
+    }
+
+    public boolean isSuccess() {
+        return userPoint != null;
+    }
+}
@@ -0,0 +1,61 @@
+package io.hhplus.tdd.point;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 잔액 갱신 동시성 제어 방식 (point.concurrency.mode)
+ * - pessimistic : 유저 락을 잡고 조회/저장 (기본)
+ * - optimistic : 락 없이 조회/계산 후 compareAndSave, 충돌하면 backoff 후 다시 조회
+ *   compareAndSave 와 내역 저장만 유저 락 안에서 해서 내역이 version 순서대로 쌓이게 한다.
+ *   backoff 는 backoff-millis 부터 두 배씩 늘리되 MAX_BACKOFF_MILLIS 를 넘지 않고, 그 안에서 무작위로 쉰다.
+ */
+@Component
+public class PointConcurrencyPolicy {
+
+    public static final long MAX_BACKOFF_MILLIS = 100;
+
+    private final boolean optimistic;
+    private final int maxRetries;
+    private final long backoffMillis;
+
+    @Autowired
+    public PointConcurrencyPolicy(@Value("${point.concurrency.mode:pessimistic}") String mode,
+                                  @Value("${point.concurrency.max-retries:10}") int maxRetries,
+                                  @Value("${point.concurrency.backoff-millis:1}") long backoffMillis) {
+        if (!"pessimistic".equalsIgnoreCase(mode) && !"optimistic".equalsIgnoreCase(mode)) {
+            throw new IllegalArgumentException("point.concurrency.mode 는 pessimistic 또는 optimistic 이어야 합니다. : " + mode);
+        }
+        if (maxRetries < 0 || backoffMillis < 0) throw new IllegalArgumentException("재시도 횟수와 backoff 는 0 이상이어야 합니다.");
+        this.optimistic = "optimistic".equalsIgnoreCase(mode);
+        this.maxRetries = maxRetries;
+        this.backoffMillis = backoffMillis;
+    }
+
+    public static PointConcurrencyPolicy pessimistic() {
+        return new PointConcurrencyPolicy("pessimistic", 0, 0);
+    }
+
+    public static PointConcurrencyPolicy optimistic(int maxRetries, long backoffMillis) {
+        return new PointConcurrencyPolicy("optimistic", maxRetries, backoffMillis);
+    }
+
+    public boolean isOptimistic() {
+        return optimistic;
+    }
+
+    /**
+     * attempt 번째 충돌 후 쉬고, 재시도 횟수를 다 썼으면 예외를 던진다.
+     */
+    public void backoff(int attempt) throws Exception {
+        if (attempt >= maxRetries) throw new Exception("다른 요청과 충돌하여 반영하지 못했습니다. 잠시 후 다시 시도해 주세요.");
+        long maxMillis = Math.min(backoffMillis << Math.min(attempt, 16), MAX_BACKOFF_MILLIS);
+        if (maxMillis == 0) return;
+        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(TimeUnit.MILLISECONDS.toNanos(maxMillis) + 1));
+    }
+}
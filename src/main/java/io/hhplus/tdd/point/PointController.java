@@ -1,26 +1,55 @@
 package io.hhplus.tdd.point;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.nio.channels.Pipe;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+// reactive 모드에서는 ReactivePointRouter 가 같은 경로를 맡는다.
 @RestController
 @RequestMapping("/point")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class PointController {
 
 
     private static final Logger log = LoggerFactory.getLogger(PointController.class);
 
 
+    //스트리밍 시 한 번에 읽어오는 내역 수
+    private static final int STREAM_PAGE_SIZE = 500;
+    //before 만 있고 limit 이 없을 때의 페이지 크기
+    static final int DEFAULT_PAGE_SIZE = 100;
+
     private PointService pointService;
+    private ObjectMapper objectMapper;
+    // point.shard.enabled=true 일 때만 있다. 없으면 모든 요청을 pointService 로 보낸다.
+    private PointServiceRouter pointServiceRouter;
+    // point.mailbox.enabled=true 일 때만 있다. 있으면 충전/사용을 유저별 mailbox 에 넣고 요청 스레드를 바로 돌려준다.
+    private PointCommandQueue pointCommandQueue;
 
-    public PointController(PointService pointService) {
+    public PointController(PointService pointService, ObjectMapper objectMapper) {
         this.pointService = pointService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Autowired
+    public PointController(PointService pointService, ObjectMapper objectMapper, ObjectProvider<PointServiceRouter> pointServiceRouter,
+                           ObjectProvider<PointCommandQueue> pointCommandQueue) {
+        this(pointService, objectMapper);
+        this.pointServiceRouter = pointServiceRouter.getIfAvailable();
+        this.pointCommandQueue = pointCommandQueue.getIfAvailable();
     }
 
     /**
@@ -30,7 +59,7 @@ public class PointController {
     public UserPoint point(
             @PathVariable long id
     ) {
-        return pointService.search(id);
+        return serviceOf(id).search(id);
     }
 
     /**
@@ -42,7 +71,7 @@ public class PointController {
     ) throws Exception {
 
         try {
-            return pointService.readHistories(id);
+            return serviceOf(id).readHistories(id);
         } catch (Exception e) {
             e.printStackTrace();
             throw new Exception("내역 조회 에러");
@@ -50,25 +79,138 @@ public class PointController {
 
     }
 
+    /**
+     * 특정 유저의 누적 충전/사용 합계, 건수, 처음/마지막 이용 시각 (내역을 훑지 않는다)
+     */
+    @GetMapping("{id}/summary")
+    public PointSummary summary(
+            @PathVariable long id
+    ) {
+        return serviceOf(id).summary(id);
+    }
+
+    /**
+     * 특정 유저의 포인트 내역을 최신순 keyset 페이지로 조회 (?before=<historyId>&limit=N)
+     * - 다음 페이지는 이번 페이지 마지막 내역의 id 를 before 로 넘긴다.
+     * - limit 없이 before 만 오면 DEFAULT_PAGE_SIZE 건을 돌려준다. (전체 내역 조회로 넘어가지 않는다)
+     */
+    @GetMapping(value = "{id}/histories", params = {"before", "!limit"})
+    public List<PointHistory> historyPage(
+            @PathVariable long id,
+            @RequestParam Long before
+    ) throws Exception {
+        return historyPage(id, before, DEFAULT_PAGE_SIZE);
+    }
+
+    @GetMapping(value = "{id}/histories", params = "limit")
+    public List<PointHistory> historyPage(
+            @PathVariable long id,
+            @RequestParam(required = false) Long before,
+            @RequestParam int limit
+    ) throws Exception {
+        return serviceOf(id).readHistories(id, before, limit);
+    }
+
+    /**
+     * 특정 유저의 포인트 내역을 NDJSON(한 줄에 한 건, 최신순)으로 스트리밍
+     * - 페이지 단위로 읽어서 바로 쓰므로 요청당 메모리는 내역 수와 무관하다.
+     */
+    @GetMapping(value = "{id}/histories/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody historyStream(
+            @PathVariable long id
+    ) {
+        return out -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            Long before = null;
+            List<PointHistory> page;
+            do {
+                page = readPage(id, before);
+                for (PointHistory pointHistory : page) {
+                    generator.writeObject(pointHistory);
+                    generator.writeRaw('\n');
+                }
+                generator.flush();
+                if (!page.isEmpty()) before = page.get(page.size() - 1).id();
+            } while (page.size() == STREAM_PAGE_SIZE);
+            generator.close();
+        };
+    }
+
+    private List<PointHistory> readPage(long id, Long before) throws IOException {
+        try {
+            return serviceOf(id).readHistories(id, before, STREAM_PAGE_SIZE);
+        } catch (Exception e) {
+            throw new IOException("내역 조회 에러", e);
+        }
+    }
+
     /**
      * TODO - 특정 유저의 포인트를 충전하는 기능을 작성해주세요.
      */
     @PatchMapping("{id}/charge")
+    public CompletableFuture<UserPoint> charge(
+            @PathVariable long id,
+            @RequestBody long amount
+    ) throws Exception {
+        // mailbox 에 넣기 전에 막아, 처리하지 못할 요청이 유저의 대기열을 차지하지 않게 한다. (메시지는 PointService 와 같다)
+        if (amount < 0) throw new Exception("0이하의 수는 충전할 수 없습니다.");
+        if (pointCommandQueue != null) return pointCommandQueue.charge(id, amount);
+        return CompletableFuture.completedFuture(serviceOf(id).charge(id, amount));
+    }
+
+    /**
+     * Idempotency-Key 헤더가 있는 충전. 재시도로 같은 키가 다시 오면 처음 결과를 그대로 돌려준다.
+     */
+    @PatchMapping(value = "{id}/charge", headers = "Idempotency-Key")
     public UserPoint charge(
             @PathVariable long id,
+            @RequestHeader("Idempotency-Key") String idempotencyKey,
             @RequestBody long amount
     ) throws Exception {
-        return pointService.charge(id, amount);
+        return serviceOf(id).charge(id, amount, idempotencyKey);
     }
 
     /**
      * TODO - 특정 유저의 포인트를 사용하는 기능을 작성해주세요.
      */
     @PatchMapping("{id}/use")
+    public CompletableFuture<UserPoint> use(
+            @PathVariable long id,
+            @RequestBody long amount
+    ) throws Exception {
+        if (amount < 0) throw new Exception("0이하의 수는 사용할 수 없습니다.");
+        if (pointCommandQueue != null) return pointCommandQueue.use(id, amount);
+        return CompletableFuture.completedFuture(serviceOf(id).use(id, amount));
+    }
+
+    /**
+     * Idempotency-Key 헤더가 있는 사용. 재시도로 같은 키가 다시 오면 처음 결과를 그대로 돌려준다.
+     */
+    @PatchMapping(value = "{id}/use", headers = "Idempotency-Key")
     public UserPoint use(
             @PathVariable long id,
+            @RequestHeader("Idempotency-Key") String idempotencyKey,
             @RequestBody long amount
     ) throws Exception {
-        return pointService.use(id, amount);
+        return serviceOf(id).use(id, amount, idempotencyKey);
+    }
+
+    /**
+     * 여러 유저의 충전/사용 요청을 한 번에 처리하고, 요청 순서대로 건별 결과를 돌려준다.
+     * - 같은 유저의 요청은 전부 반영되거나 전부 반영되지 않는다.
+     */
+    @PostMapping("batch")
+    public List<PointCommandResult> batch(
+            @RequestBody List<PointCommand> commands
+    ) throws Exception {
+        if (pointServiceRouter != null) return pointServiceRouter.applyBatch(commands);
+        return pointService.applyBatch(commands);
+    }
+
+    private PointService serviceOf(long id) {
+        return pointServiceRouter != null ? pointServiceRouter.route(id) : pointService;
     }
 }
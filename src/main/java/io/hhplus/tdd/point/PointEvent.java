@@ -0,0 +1,51 @@
+package io.hhplus.tdd.point;
+
+/**
+ * PointLedger 에 쌓이는 이벤트 (point.store=ledger)
+ * sequence : ledger 전체에서 증가하는 번호 (내역 id), version : 유저별로 1 부터 증가하는 번호 (잔액의 version)
+ * amount : 충전/사용한 포인트, balance : 반영 직후 잔액
+ */
+public sealed interface PointEvent permits PointEvent.PointCharged, PointEvent.PointUsed {
+
+    long sequence();
+
+    long userId();
+
+    long version();
+
+    long amount();
+
+    long balance();
+
+    long updateMillis();
+
+    TransactionType type();
+
+    static PointEvent of(TransactionType type, long sequence, long userId, long version, long amount, long balance, long updateMillis) {
+        return type == TransactionType.CHARGE
+                ? new PointCharged(sequence, userId, version, amount, balance, updateMillis)
+                : new PointUsed(sequence, userId, version, amount, balance, updateMillis);
+    }
+
+    default UserPoint toUserPoint() {
+        return new UserPoint(userId(), balance(), updateMillis(), version());
+    }
+
+    default PointHistory toHistory() {
+        return new PointHistory(sequence(), userId(), amount(), type(), updateMillis(), balance());
+    }
+
+    record PointCharged(long sequence, long userId, long version, long amount, long balance, long updateMillis) implements PointEvent {
+        @Override
+        public TransactionType type() {
+            return TransactionType.CHARGE;
+        }
+    }
+
+    record PointUsed(long sequence, long userId, long version, long amount, long balance, long updateMillis) implements PointEvent {
+        @Override
+        public TransactionType type() {
+            return TransactionType.USE;
+        }
+    }
+}
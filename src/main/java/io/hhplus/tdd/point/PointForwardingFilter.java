@@ -0,0 +1,300 @@
+package io.hhplus.tdd.point;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.hhplus.tdd.ErrorResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PointController 앞에서 /point/{id}/** 요청을 유저의 주인 노드로 보낸다. (point.cluster.enabled=true)
+ * - 주인이 이 노드면 구성 변경 뒤 넘겨받을 상태가 있는지 확인(settle)하고 그대로 컨트롤러로 보낸다.
+ * - 주인이 다른 노드면 method, 경로, 본문, 필요한 헤더를 그대로 넘기고 응답을 그대로 돌려준다. (스트리밍 응답도 흘려보낸다)
+ * - /point/batch 는 요청을 주인 노드별로 나눠 각각 처리한 뒤 요청 순서대로 합친다.
+ *   한 노드가 처리하지 못한 몫(연결 실패, 에러 응답)은 그 요청들만 실패로 채운다. 다른 노드 몫은 이미 반영되었을 수 있으므로
+ *   전체를 에러로 돌려주지 않는다.
+ * - 다른 노드에서 넘겨받은 요청인데 주인이 이 노드가 아니면(고리가 노드끼리 잠깐 다를 때) 다시 넘기지 않고 503 으로 돌려보낸다.
+ */
+@Component
+@ConditionalOnProperty(name = "point.cluster.enabled", havingValue = "true")
+public class PointForwardingFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(PointForwardingFilter.class);
+
+    private static final String PREFIX = "/point/";
+    // 주인 노드로 같이 넘기는 요청 헤더
+    private static final List<String> FORWARDED_HEADERS = List.of("Content-Type", "Accept", "Idempotency-Key");
+
+    private PointClusterRouter pointClusterRouter;
+    private ObjectMapper objectMapper;
+
+    public PointForwardingFilter(PointClusterRouter pointClusterRouter, ObjectMapper objectMapper) {
+        this.pointClusterRouter = pointClusterRouter;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !path(request).startsWith(PREFIX);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        String path = path(request);
+        int end = path.indexOf('/', PREFIX.length());
+        String segment = path.substring(PREFIX.length(), end < 0 ? path.length() : end);
+        if ("batch".equals(segment)) {
+            batch(request, response, chain);
+            return;
+        }
+
+        long userId;
+        try {
+            userId = Long.parseLong(segment);
+        } catch (NumberFormatException e) {
+            // id 형식이 틀린 요청은 컨트롤러가 4xx 로 돌려준다.
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String owner = pointClusterRouter.ownerOf(userId);
+        if (pointClusterRouter.self().equals(owner)) {
+            if (settle(userId, response)) chain.doFilter(request, response);
+        } else if (request.getHeader(PointClusterRouter.FORWARDED_HEADER) != null) {
+            unavailable(response, "노드 구성이 바뀌는 중입니다. 잠시 후 다시 시도해주세요.");
+        } else {
+            forward(owner, request, request.getInputStream().readAllBytes(), response);
+        }
+    }
+
+    /**
+     * 요청을 주인 노드별로 나눈다. 한 노드에 모두 있으면 그대로 처리/전달하고, 섞여 있으면 나눠 보낸 뒤 합친다.
+     */
+    private void batch(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        byte[] body = request.getInputStream().readAllBytes();
+        PointCommand[] commands;
+        try {
+            commands = objectMapper.readValue(body, PointCommand[].class);
+        } catch (IOException e) {
+            commands = null;
+        }
+        if (commands == null || Arrays.asList(commands).contains(null)) {
+            // 본문이 틀린 요청은 컨트롤러가 에러로 돌려준다.
+            chain.doFilter(new CachedBodyRequest(request, body), response);
+            return;
+        }
+
+        boolean forwarded = request.getHeader(PointClusterRouter.FORWARDED_HEADER) != null;
+        Map<String, List<Integer>> indexesByOwner = new LinkedHashMap<>();
+        for (int i = 0; i < commands.length; i++) {
+            indexesByOwner.computeIfAbsent(pointClusterRouter.ownerOf(commands[i].userId()), k -> new ArrayList<>()).add(i);
+        }
+        if (forwarded && (indexesByOwner.size() > 1 || !indexesByOwner.containsKey(pointClusterRouter.self()))) {
+            unavailable(response, "노드 구성이 바뀌는 중입니다. 잠시 후 다시 시도해주세요.");
+            return;
+        }
+        if (indexesByOwner.size() <= 1) {
+            String owner = indexesByOwner.isEmpty() ? pointClusterRouter.self() : indexesByOwner.keySet().iterator().next();
+            if (!pointClusterRouter.self().equals(owner)) {
+                forward(owner, request, body, response);
+                return;
+            }
+            for (PointCommand command : commands) {
+                if (!settle(command.userId(), response)) return;
+            }
+            chain.doFilter(new CachedBodyRequest(request, body), response);
+            return;
+        }
+
+        PointCommandResult[] results = new PointCommandResult[commands.length];
+        for (Map.Entry<String, List<Integer>> entry : indexesByOwner.entrySet()) {
+            List<Integer> indexes = entry.getValue();
+            List<PointCommand> ownerCommands = new ArrayList<>(indexes.size());
+            for (int index : indexes) ownerCommands.add(commands[index]);
+
+            List<PointCommandResult> ownerResults = applyOn(entry.getKey(), ownerCommands, request, response, chain);
+            for (int i = 0; i < indexes.size(); i++) results[indexes.get(i)] = ownerResults.get(i);
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(objectMapper.writeValueAsBytes(Arrays.asList(results)));
+    }
+
+    /**
+     * 한 노드 몫의 batch 를 처리한다. 그 노드가 처리하지 못했으면 그 몫의 요청을 모두 실패로 채운다.
+     * 노드 몫끼리는 유저가 겹치지 않으므로 한 노드의 실패가 다른 노드 몫의 결과를 바꾸지 않는다.
+     */
+    private List<PointCommandResult> applyOn(String owner, List<PointCommand> ownerCommands, HttpServletRequest request,
+                                             HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        byte[] ownerBody = objectMapper.writeValueAsBytes(ownerCommands);
+        int status;
+        byte[] ownerResponse;
+        if (pointClusterRouter.self().equals(owner)) {
+            try {
+                for (PointCommand command : ownerCommands) pointClusterRouter.settle(command.userId());
+            } catch (IOException e) {
+                log.warn("batch 의 유저 상태를 이전 노드에서 받아오지 못했습니다.", e);
+                return failAll(ownerCommands, "노드 구성이 바뀌는 중입니다. 잠시 후 다시 시도해주세요.");
+            }
+            ContentCachingResponseWrapper captured = new ContentCachingResponseWrapper(response);
+            chain.doFilter(new CachedBodyRequest(request, ownerBody), captured);
+            status = captured.getStatus();
+            ownerResponse = captured.getContentAsByteArray();
+        } else {
+            try {
+                HttpResponse<InputStream> remote = pointClusterRouter.forward(owner, request.getMethod(),
+                        request.getRequestURI(), headersOf(request), ownerBody);
+                status = remote.statusCode();
+                try (InputStream in = remote.body()) {
+                    ownerResponse = in.readAllBytes();
+                }
+            } catch (IOException e) {
+                // 보낸 뒤에 끊겼으면 그 노드에서는 반영되었을 수도 있다.
+                log.warn("batch 요청을 {} 로 넘기지 못했습니다.", owner, e);
+                return failAll(ownerCommands, "유저를 맡은 노드의 응답을 받지 못했습니다.");
+            }
+        }
+
+        if (status != HttpServletResponse.SC_OK) return failAll(ownerCommands, errorMessage(ownerResponse));
+        return Arrays.asList(objectMapper.readValue(ownerResponse, PointCommandResult[].class));
+    }
+
+    private static List<PointCommandResult> failAll(List<PointCommand> commands, String message) {
+        List<PointCommandResult> results = new ArrayList<>(commands.size());
+        for (PointCommand command : commands) results.add(PointCommandResult.fail(command, message));
+        return results;
+    }
+
+    private String errorMessage(byte[] errorResponse) {
+        try {
+            String message = objectMapper.readValue(errorResponse, ErrorResponse.class).message();
+            if (message != null) return message;
+        } catch (IOException e) {
+            // 에러 본문이 ErrorResponse 가 아니면 기본 문구로 채운다.
+        }
+        return "유저를 맡은 노드에서 처리하지 못했습니다.";
+    }
+
+    private void forward(String owner, HttpServletRequest request, byte[] body, HttpServletResponse response) throws IOException {
+        String pathAndQuery = request.getRequestURI() + (request.getQueryString() == null ? "" : "?" + request.getQueryString());
+        HttpResponse<InputStream> forwarded;
+        try {
+            forwarded = pointClusterRouter.forward(owner, request.getMethod(), pathAndQuery, headersOf(request), body.length == 0 ? null : body);
+        } catch (IOException e) {
+            log.warn("{} 요청을 {} 로 넘기지 못했습니다.", pathAndQuery, owner, e);
+            unavailable(response, "유저를 맡은 노드에 연결할 수 없습니다.");
+            return;
+        }
+
+        response.setStatus(forwarded.statusCode());
+        forwarded.headers().firstValue("Content-Type").ifPresent(response::setContentType);
+        try (InputStream in = forwarded.body()) {
+            in.transferTo(response.getOutputStream());
+        }
+    }
+
+    private boolean settle(long userId, HttpServletResponse response) throws IOException {
+        try {
+            pointClusterRouter.settle(userId);
+            return true;
+        } catch (IOException e) {
+            log.warn("유저 {} 의 상태를 이전 노드에서 받아오지 못했습니다.", userId, e);
+            unavailable(response, "노드 구성이 바뀌는 중입니다. 잠시 후 다시 시도해주세요.");
+            return false;
+        }
+    }
+
+    private void unavailable(HttpServletResponse response, String message) throws IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(objectMapper.writeValueAsBytes(new ErrorResponse("503", message)));
+    }
+
+    private static Map<String, String> headersOf(HttpServletRequest request) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (String name : FORWARDED_HEADERS) {
+            String value = request.getHeader(name);
+            if (value != null) headers.put(name, value);
+        }
+        return headers;
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    /**
+     * 이미 읽은 본문을 다시 읽을 수 있게 돌려주는 요청
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
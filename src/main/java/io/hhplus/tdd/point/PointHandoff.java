@@ -0,0 +1,13 @@
+package io.hhplus.tdd.point;
+
+import java.util.List;
+
+/**
+ * 노드 구성이 바뀌어 다른 노드로 넘기는 유저 한 명의 잔액과 전체 내역 (오래된 순)
+ */
+public record PointHandoff(
+        long userId,
+        long point,
+        List<PointHistory> histories
+) {
+}
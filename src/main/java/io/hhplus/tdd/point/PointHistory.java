@@ -1,10 +1,31 @@
 package io.hhplus.tdd.point;
 
+/**
+ * amount : 충전/사용한 포인트 (변동량), balance : 반영 직후 잔액
+ * 유저의 내역을 순서대로 더하면(충전 +, 사용 -) 잔액이 나오고, 매 내역의 balance 와 같아야 한다.
+ */
 public record PointHistory(
         long id,
         long userId,
         long amount,
         TransactionType type,
-        long updateMillis
+        long updateMillis,
+        long balance
 ) {
+
+    // 잔액을 모르는 PointHistoryTable 용. 잔액은 저장소가 내역을 더해서 채운다.
+    public PointHistory(long id, long userId, long amount, TransactionType type, long updateMillis) {
+        this(id, userId, amount, type, updateMillis, 0);
+    }
+
+    /**
+     * 잔액에 더해지는 값 (충전 +, 사용 -)
+     */
+    public long signedAmount() {
+        return type == TransactionType.CHARGE ? amount : -amount;
+    }
+
+    public PointHistory withBalance(long balance) {
+        return new PointHistory(id, userId, amount, type, updateMillis, balance);
+    }
 }
@@ -2,27 +2,145 @@ package io.hhplus.tdd.point;
 
 import io.hhplus.tdd.database.PointHistoryTable;
 import io.hhplus.tdd.database.UserPointTable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
 
-@Repository
+//PointHistoryTable 은 잔액을 담지 못하므로, 내역마다 직후 잔액(long 하나)만 유저별로 따로 쌓아 두고 조회할 때 table 의 내역에 붙인다.
+//- 내역은 table 에만 있고 조회도 table 에서 한다. (내역을 두 벌 들고 있지 않는다)
+//- table 의 유저별 조회는 전체를 훑는 selectAllByUserId 뿐이라 그 유저의 행 목록은 조회마다 만들어진다.
+//  잔액을 붙인 내역은 실제로 읽는 행만 만들므로, 페이지 조회는 페이지 크기만큼만 만든다.
+//PointHistoryTable 에는 전체 유저 조회가 없어서 내역을 넣은 유저 id 도 잔액 목록의 key 로 모은다.
+@Repository("pointHistoryStore")
+@ConditionalOnProperty(name = "point.history.store", havingValue = "table", matchIfMissing = true)
 public class PointHistoryImplRepository implements PointHistoryRepository {
 
 
     private PointHistoryTable pointHistoryTable;
+    private final ConcurrentMap<Long, UserBalances> users = new ConcurrentHashMap<>();
+
     public PointHistoryImplRepository(PointHistoryTable pointHistoryTable) {
         this.pointHistoryTable = pointHistoryTable;
     }
 
     @Override
-    public PointHistory insert(long userId, long amount, TransactionType type, long updateMillis) {
-        return pointHistoryTable.insert(userId, amount, type, updateMillis);
+    public PointHistory insert(long userId, long amount, TransactionType type, long updateMillis, long balance) {
+        UserBalances userBalances = users.computeIfAbsent(userId, k -> new UserBalances());
+        // table 의 id 발급과 잔액 append 를 같은 유저끼리 직렬화해야 n 번째 잔액이 그 유저의 n 번째 행과 짝이 맞는다.
+        // table 은 insert 중에 잠들므로 carrier thread 를 붙잡지 않는 ReentrantLock 을 쓴다.
+        userBalances.lock.lock();
+        try {
+            PointHistory pointHistory = pointHistoryTable.insert(userId, amount, type, updateMillis).withBalance(balance);
+            userBalances.append(balance);
+            return pointHistory;
+        } finally {
+            userBalances.lock.unlock();
+        }
+    }
+
+    @Override
+    public List<PointHistory> insertAll(long userId, List<PointCommand> commands, long[] balances, long updateMillis) {
+        UserBalances userBalances = users.computeIfAbsent(userId, k -> new UserBalances());
+        // table 에 먼저 들어간 행은 잔액이 붙기 전까지 조회에 보이지 않으므로, 잔액을 한 번에 붙여 전부 같이 보이게 한다.
+        // table 의 insert 는 실패하지 않아 table 에 행만 남는 경우는 없다.
+        userBalances.lock.lock();
+        try {
+            List<PointHistory> pointHistories = new ArrayList<>(commands.size());
+            for (int i = 0; i < commands.size(); i++) {
+                PointCommand command = commands.get(i);
+                pointHistories.add(pointHistoryTable.insert(userId, command.amount(), command.type(), updateMillis).withBalance(balances[i]));
+            }
+            userBalances.appendAll(balances, commands.size());
+            return pointHistories;
+        } finally {
+            userBalances.lock.unlock();
+        }
     }
 
     @Override
     public List<PointHistory> findAllByUserId(long userId) {
-        return pointHistoryTable.selectAllByUserId(userId);
+        UserBalances userBalances = users.get(userId);
+        if (userBalances == null) return List.of();
+        return userBalances.attachTo(pointHistoryTable.selectAllByUserId(userId));
+    }
+
+    @Override
+    public List<PointHistory> findAllByUserIdDesc(long userId) {
+        //table 은 insert 순서(= 유저별 시간 순서)로 쌓이므로 뒤집기만 한다.
+        return new ReversedListView<>(findAllByUserId(userId));
+    }
+
+    @Override
+    public List<PointHistory> findPageByUserIdDesc(long userId, Long beforeId, int limit) {
+        return PointHistoryPages.pageDesc(findAllByUserId(userId), beforeId, limit);
+    }
+
+    @Override
+    public long[] userIds() {
+        return users.keySet().stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static final class UserBalances {
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long[] values = new long[8];
+        private volatile int size;
+
+        // lock 안에서만 부른다. size 를 마지막에 써야 읽는 쪽이 채워진 값만 본다.
+        void append(long balance) {
+            long[] current = values;
+            if (size == current.length) values = current = Arrays.copyOf(current, current.length << 1);
+            current[size] = balance;
+            size = size + 1;
+        }
+
+        // lock 안에서만 부른다. size 를 한 번만 올려 n 건이 같이 보이게 한다.
+        void appendAll(long[] balances, int n) {
+            long[] current = values;
+            if (size + n > current.length) values = current = Arrays.copyOf(current, Math.max(current.length << 1, size + n));
+            System.arraycopy(balances, 0, current, size, n);
+            size = size + n;
+        }
+
+        /**
+         * table 의 행에 잔액을 붙이는 view. 읽는 행만 잔액을 붙여 새로 만든다.
+         * 한쪽만 먼저 쌓인 행은 빼고, 양쪽에 모두 있는 앞부분만 보여준다.
+         */
+        List<PointHistory> attachTo(List<PointHistory> rows) {
+            // size 를 먼저 읽어야 values 가 그 size 만큼의 값을 모두 담고 있다.
+            int n = Math.min(size, rows.size());
+            long[] snapshot = values;
+            return new BalancedRows(rows, snapshot, n);
+        }
+    }
+
+    private static final class BalancedRows extends AbstractList<PointHistory> implements RandomAccess {
+        private final List<PointHistory> rows;
+        private final long[] balances;
+        private final int size;
+
+        BalancedRows(List<PointHistory> rows, long[] balances, int size) {
+            this.rows = rows;
+            this.balances = balances;
+            this.size = size;
+        }
+
+        @Override
+        public PointHistory get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+            return rows.get(index).withBalance(balances[index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
     }
 }
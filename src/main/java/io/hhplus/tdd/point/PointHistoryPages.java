@@ -0,0 +1,34 @@
+package io.hhplus.tdd.point;
+
+import java.util.List;
+
+/**
+ * 유저별 내역(id 오름차순)에서 keyset 페이지를 잘라내는 도우미
+ */
+final class PointHistoryPages {
+
+    private PointHistoryPages() {
+    }
+
+    /**
+     * beforeId 보다 작은 id 를 최신순으로 최대 limit 건 돌려준다. beforeId 가 null 이면 가장 최신부터 자른다.
+     * 원본이 RandomAccess 면 이분 탐색 후 subList view 만 만들고 복사하지 않는다.
+     */
+    static List<PointHistory> pageDesc(List<PointHistory> ascending, Long beforeId, int limit) {
+        int end = beforeId == null ? ascending.size() : lowerBound(ascending, beforeId);
+        int start = Math.max(0, end - limit);
+        return new ReversedListView<>(ascending.subList(start, end));
+    }
+
+    // id 가 beforeId 이상인 첫 위치
+    private static int lowerBound(List<PointHistory> ascending, long beforeId) {
+        int low = 0;
+        int high = ascending.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ascending.get(mid).id() < beforeId) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
@@ -4,9 +4,22 @@ import java.util.List;
 
 public interface PointHistoryRepository {
 
-    PointHistory insert(long userId, long amount, TransactionType type, long updateMillis);
+    //amount 는 충전/사용한 포인트, balance 는 반영 직후 잔액
+    PointHistory insert(long userId, long amount, TransactionType type, long updateMillis, long balance);
+
+    //한 유저의 내역 여러 건을 순서대로 한 번에 남긴다. balances[i] 는 commands[i] 반영 직후 잔액
+    //전부 남기거나, 예외를 던지면 하나도 남기지 않는다. 조회하는 쪽에도 전부 보이거나 하나도 보이지 않는다.
+    List<PointHistory> insertAll(long userId, List<PointCommand> commands, long[] balances, long updateMillis);
 
     List<PointHistory> findAllByUserId(long userId);
 
+    //최신 내역이 먼저 오는 순서로 조회 (서비스에서 따로 정렬하지 않는다)
+    List<PointHistory> findAllByUserIdDesc(long userId);
+
+    //keyset 페이지 조회 : beforeId 보다 작은 id 를 최신순으로 limit 건 (beforeId 가 null 이면 가장 최신부터)
+    List<PointHistory> findPageByUserIdDesc(long userId, Long beforeId, int limit);
+
+    //내역이 한 건이라도 있는 유저 id (순서 없음, 정합성 검사용)
+    long[] userIds();
 
 }
@@ -2,25 +2,70 @@ package io.hhplus.tdd.point;
 
 
 import io.hhplus.tdd.database.UserPointTable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
 //interface 구현체
-@Repository
+// UserPointTable 은 version 을 모르므로 유저별 version 은 여기서 따로 관리한다.
+// - 저장은 유저별 slot 락 안에서 table 에 쓴 뒤 version 을 올린다.
+// - 조회는 version 을 먼저 읽고 잔액을 읽는다. 그 사이 저장이 끼어들면 version 이 낮게 읽혀 compareAndSave 가 실패할 뿐, 덮어쓰지는 않는다.
+@Repository("pointStore")
+@ConditionalOnProperty(name = "point.store", havingValue = "table", matchIfMissing = true)
 public class PointImplRepository implements PointRepository {
 
     private UserPointTable userPointTable;
+    private final ConcurrentMap<Long, Slot> slots = new ConcurrentHashMap<>();
+
     public PointImplRepository(UserPointTable userPointTable) {
         this.userPointTable = userPointTable;
     }
 
     @Override
     public UserPoint findById(long id) {
-        return userPointTable.selectById(id);
+        Slot slot = slots.get(id);
+        long version = slot == null ? 0 : slot.version;
+        UserPoint userPoint = userPointTable.selectById(id);
+        if (userPoint == null) return null;
+        return new UserPoint(userPoint.id(), userPoint.point(), userPoint.updateMillis(), version);
     }
 
     @Override
     public UserPoint save(long id, long amount) {
-        return userPointTable.insertOrUpdate(id,amount);
+        Slot slot = slots.computeIfAbsent(id, k -> new Slot());
+        slot.lock.lock();
+        try {
+            return write(slot, id, amount);
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    @Override
+    public UserPoint compareAndSave(long id, long expectedVersion, long amount) {
+        Slot slot = slots.computeIfAbsent(id, k -> new Slot());
+        slot.lock.lock();
+        try {
+            if (slot.version != expectedVersion) return null;
+            return write(slot, id, amount);
+        } finally {
+            slot.lock.unlock();
+        }
+    }
+
+    private UserPoint write(Slot slot, long id, long amount) {
+        UserPoint userPoint = userPointTable.insertOrUpdate(id, amount);
+        long version = ++slot.version;
+        return new UserPoint(userPoint.id(), userPoint.point(), userPoint.updateMillis(), version);
+    }
+
+    private static final class Slot {
+        // table 의 sleep 동안 잡고 있으므로 virtual thread 를 붙잡지 않게 synchronized 대신 ReentrantLock
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long version;
     }
 
 }
@@ -0,0 +1,270 @@
+package io.hhplus.tdd.point;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * 충전/사용 이벤트(PointCharged/PointUsed)를 유저별로 쌓는 append-only ledger (point.store=ledger)
+ * - ledger 가 원본이다. 잔액은 유저의 마지막 이벤트, 내역은 유저의 이벤트 목록 그 자체라서
+ *   충전/사용 한 번이 잔액 저장 + 내역 저장 두 번이 아니라 이벤트 append 한 번이다.
+ *   (LedgerPointRepository / LedgerPointHistoryRepository 가 이 둘을 기존 저장소 interface 로 보여준다)
+ * - 그 밖의 read model 은 PointProjection 으로 붙인다. 붙일 때 지금까지의 이벤트를 유저별로 나눠 병렬로 replay 하고,
+ *   이후 이벤트는 append 할 때 바로 반영한다.
+ * - 같은 유저의 append 는 유저 stream 을 잡고 하나씩, 다른 유저끼리는 서로 막지 않는다.
+ */
+@Component
+@ConditionalOnProperty(name = "point.store", havingValue = "ledger")
+public class PointLedger {
+
+    // expectedVersion 을 검사하지 않는 append
+    public static final long ANY_VERSION = -1;
+    // 한 task 가 순서대로 replay 하는 유저 수
+    private static final int THRESHOLD = 512;
+
+    private final ConcurrentMap<Long, EventStream> streams = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong(1);
+    private final List<Attached> attached = new CopyOnWriteArrayList<>();
+    private final ForkJoinPool pool;
+
+    public PointLedger() {
+        this(0);
+    }
+
+    public PointLedger(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Autowired
+    public PointLedger(@Value("${point.ledger.replay-parallelism:0}") int parallelism, ObjectProvider<PointProjection> projections) {
+        this(parallelism);
+        projections.orderedStream().forEach(this::attach);
+    }
+
+    /**
+     * 이벤트 한 건을 쌓는다. expectedVersion 이 ANY_VERSION 이 아니고 유저의 version 과 다르면 쌓지 않고 null 을 돌려준다.
+     */
+    public PointEvent append(long userId, long expectedVersion, TransactionType type, long amount, long balance, long updateMillis) {
+        EventStream stream = streamOf(userId);
+        synchronized (stream) {
+            if (expectedVersion != ANY_VERSION && stream.size != expectedVersion) return null;
+            return add(stream, userId, type, amount, balance, updateMillis);
+        }
+    }
+
+    /**
+     * 같은 유저의 이벤트 여러 건을 한 번에 쌓는다. 중간에 다른 이벤트가 끼지 않는다.
+     * commands[i] 반영 직후 잔액이 balances[i] 다.
+     */
+    public List<PointEvent> appendAll(long userId, long expectedVersion, List<PointCommand> commands, long[] balances, long updateMillis) {
+        EventStream stream = streamOf(userId);
+        synchronized (stream) {
+            if (expectedVersion != ANY_VERSION && stream.size != expectedVersion) return null;
+            List<PointEvent> events = new ArrayList<>(commands.size());
+            for (int i = 0; i < commands.size(); i++) {
+                PointCommand command = commands.get(i);
+                events.add(add(stream, userId, command.type(), command.amount(), balances[i], updateMillis));
+            }
+            return events;
+        }
+    }
+
+    /**
+     * 잔액을 balance 로 맞추는 이벤트를 쌓는다. (늘면 충전, 줄면 사용)
+     */
+    public PointEvent adjust(long userId, long expectedVersion, long balance, long updateMillis) {
+        EventStream stream = streamOf(userId);
+        synchronized (stream) {
+            if (expectedVersion != ANY_VERSION && stream.size != expectedVersion) return null;
+            PointEvent last = stream.last();
+            long delta = balance - (last == null ? 0 : last.balance());
+            return add(stream, userId, delta >= 0 ? TransactionType.CHARGE : TransactionType.USE, Math.abs(delta), balance, updateMillis);
+        }
+    }
+
+    /**
+     * 유저의 마지막 이벤트로 본 잔액. 이벤트가 없으면 0 잔액, version 0
+     */
+    public UserPoint balanceOf(long userId) {
+        EventStream stream = streams.get(userId);
+        PointEvent last = stream == null ? null : stream.last();
+        return last == null ? new UserPoint(userId, 0, System.currentTimeMillis(), 0) : last.toUserPoint();
+    }
+
+    /**
+     * 유저의 이벤트 (오래된 순). 부른 시점까지 쌓인 이벤트만 보인다.
+     */
+    public List<PointEvent> events(long userId) {
+        EventStream stream = streams.get(userId);
+        return stream == null ? List.of() : stream.view();
+    }
+
+    public long[] userIds() {
+        return streams.entrySet().stream()
+                .filter(entry -> entry.getValue().size > 0)
+                .mapToLong(entry -> entry.getKey())
+                .toArray();
+    }
+
+    /**
+     * 지금까지의 이벤트를 유저별로 나눠 병렬로 projection 에 넣는다. (이후 이벤트는 넣지 않는다)
+     */
+    public <P extends PointProjection> P replay(P projection) {
+        forEachUser(userId -> {
+            for (PointEvent event : events(userId)) projection.apply(event);
+        });
+        return projection;
+    }
+
+    /**
+     * projection 을 붙인다. 지금까지의 이벤트를 병렬로 replay 한 뒤 이후 이벤트를 append 때마다 넣는다.
+     * replay 중에 쌓이는 이벤트도 빠지거나 두 번 들어가지 않는다.
+     * - replay 는 유저 stream 을 잡고 그 유저의 이벤트를 모두 넣은 뒤 그 유저를 따라잡았다고 표시한다.
+     * - append 는 따라잡은 유저이거나 유저의 첫 이벤트일 때만 바로 넣는다. (아니면 곧 그 유저의 replay 가 넣는다)
+     */
+    public <P extends PointProjection> P attach(P projection) {
+        Attached entry = new Attached(projection);
+        attached.add(entry);
+        forEachUser(userId -> {
+            EventStream stream = streams.get(userId);
+            synchronized (stream) {
+                if (entry.caughtUp.contains(userId)) return;
+                for (PointEvent event : stream.view()) projection.apply(event);
+                entry.caughtUp.add(userId);
+            }
+        });
+        entry.live = true;
+        entry.caughtUp.clear();
+        return projection;
+    }
+
+    @PreDestroy
+    public void close() {
+        pool.shutdown();
+    }
+
+    private EventStream streamOf(long userId) {
+        return streams.computeIfAbsent(userId, k -> new EventStream());
+    }
+
+    // stream 을 잡은 채로 부른다. sequence 도 이 안에서 발급해야 유저별 내역 id 가 증가 순서를 지킨다.
+    private PointEvent add(EventStream stream, long userId, TransactionType type, long amount, long balance, long updateMillis) {
+        PointEvent event = PointEvent.of(type, sequence.getAndIncrement(), userId, stream.size + 1, amount, balance, updateMillis);
+        stream.add(event);
+        for (Attached entry : attached) entry.offer(event);
+        return event;
+    }
+
+    private void forEachUser(LongConsumer action) {
+        long[] userIds = userIds();
+        pool.invoke(new ReplayTask(userIds, 0, userIds.length, action));
+    }
+
+    private static final class Attached {
+        private final PointProjection projection;
+        private final Set<Long> caughtUp = ConcurrentHashMap.newKeySet();
+        // 처음 replay 가 끝나면 모든 유저를 따라잡은 것이다.
+        private volatile boolean live;
+
+        private Attached(PointProjection projection) {
+            this.projection = projection;
+        }
+
+        void offer(PointEvent event) {
+            if (!live) {
+                if (event.version() == 1) caughtUp.add(event.userId());
+                else if (!caughtUp.contains(event.userId())) return;
+            }
+            projection.apply(event);
+        }
+    }
+
+    private static final class ReplayTask extends RecursiveAction {
+        private final long[] userIds;
+        private final int from;
+        private final int to;
+        private final LongConsumer action;
+
+        private ReplayTask(long[] userIds, int from, int to, LongConsumer action) {
+            this.userIds = userIds;
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) action.accept(userIds[i]);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ReplayTask(userIds, from, mid, action), new ReplayTask(userIds, mid, to, action));
+        }
+    }
+
+    /**
+     * 한 유저의 이벤트. 고정 크기 chunk 를 이어붙여서 늘어날 때 기존 원소를 복사하지 않는다. (쓰기는 stream 을 잡고 한다)
+     */
+    private static final class EventStream {
+        private static final int CHUNK_SHIFT = 6;
+        private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+        private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+        private volatile PointEvent[][] chunks = new PointEvent[1][];
+        private volatile int size;
+
+        void add(PointEvent event) {
+            int index = size;
+            int chunk = index >>> CHUNK_SHIFT;
+            PointEvent[][] current = chunks;
+            if (chunk == current.length) {
+                PointEvent[][] grown = new PointEvent[current.length << 1][];
+                System.arraycopy(current, 0, grown, 0, current.length);
+                chunks = current = grown;
+            }
+            if (current[chunk] == null) current[chunk] = new PointEvent[CHUNK_SIZE];
+            current[chunk][index & CHUNK_MASK] = event;
+            // size 를 마지막에 써야 읽는 쪽이 채워진 원소만 본다.
+            size = index + 1;
+        }
+
+        PointEvent last() {
+            int n = size;
+            return n == 0 ? null : chunks[(n - 1) >>> CHUNK_SHIFT][(n - 1) & CHUNK_MASK];
+        }
+
+        List<PointEvent> view() {
+            // size 를 먼저 읽어야 chunks 가 그 size 만큼의 원소를 모두 담고 있다.
+            int n = size;
+            PointEvent[][] snapshot = chunks;
+            return new AbstractList<>() {
+                @Override
+                public PointEvent get(int index) {
+                    if (index < 0 || index >= n) throw new IndexOutOfBoundsException(index);
+                    return snapshot[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+                }
+
+                @Override
+                public int size() {
+                    return n;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package io.hhplus.tdd.point;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 포인트 기능의 지연 시간/분포 지표
+ * - point.operation : charge/use/search/readHistories 처리 시간 (op, outcome 태그)
+ *   mailbox coalesce 모드로 합쳐 반영한 충전/사용도 요청마다 charge/use 로 남긴다.
+ * - point.repository : 잔액/내역 저장소 호출 시간 (repository, method 태그)
+ * - point.history.size : 내역 조회 한 번에 돌려준 건수
+ * - 모든 Timer 는 시작할 때 태그까지 정해 만들어두고, 기록할 때는 nanoTime 차이만 넘긴다.
+ *   (요청마다 태그 조회나 Sample 객체를 만들지 않는다)
+ * - percentile histogram 을 내보내므로 p99 같은 값은 Prometheus 에서 여러 인스턴스를 합쳐 계산한다.
+ * - point.metrics.enabled=false 면 아무 것도 등록하지 않고, 저장소도 감싸지 않는다.
+ */
+@Component
+public class PointMetrics {
+
+    private static final Duration MIN_EXPECTED = Duration.ofNanos(1_000);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(10);
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+
+    final Operation charge;
+    final Operation use;
+    final Operation search;
+    final Operation readHistories;
+    private final DistributionSummary historySize;
+
+    @Autowired
+    public PointMetrics(MeterRegistry meterRegistry, @Value("${point.metrics.enabled:true}") boolean enabled) {
+        this.meterRegistry = enabled ? meterRegistry : new CompositeMeterRegistry();
+        this.enabled = enabled;
+        this.charge = new Operation("charge");
+        this.use = new Operation("use");
+        this.search = new Operation("search");
+        this.readHistories = new Operation("readHistories");
+        this.historySize = DistributionSummary.builder("point.history.size")
+                .description("내역 조회 한 번에 돌려준 건수")
+                .baseUnit("rows")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue((double) PointService.MAX_PAGE_SIZE * 100)
+                .register(this.meterRegistry);
+    }
+
+    public PointMetrics(MeterRegistry meterRegistry) {
+        this(meterRegistry, true);
+    }
+
+    /**
+     * 지표를 남기지 않는다. (테스트, 벤치마크용)
+     */
+    public static PointMetrics noop() {
+        return new PointMetrics(null, false);
+    }
+
+    PointRepository meter(PointRepository pointRepository) {
+        return enabled ? new MeteredPointRepository(pointRepository) : pointRepository;
+    }
+
+    PointHistoryRepository meter(PointHistoryRepository pointHistoryRepository) {
+        return enabled ? new MeteredPointHistoryRepository(pointHistoryRepository) : pointHistoryRepository;
+    }
+
+    List<PointHistory> recordHistorySize(List<PointHistory> pointHistories) {
+        if (pointHistories != null) historySize.record(pointHistories.size());
+        return pointHistories;
+    }
+
+    private Timer timer(String name, String description, String... tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(meterRegistry);
+    }
+
+    private static void record(Timer timer, long startedNanos) {
+        timer.record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 기능 하나의 성공/실패 Timer 쌍
+     */
+    final class Operation {
+        private final Timer success;
+        private final Timer error;
+
+        private Operation(String op) {
+            this.success = timer("point.operation", "포인트 기능 처리 시간", "op", op, "outcome", "success");
+            this.error = timer("point.operation", "포인트 기능 처리 시간", "op", op, "outcome", "error");
+        }
+
+        void record(long startedNanos, boolean failed) {
+            PointMetrics.record(failed ? error : success, startedNanos);
+        }
+    }
+
+    private final class MeteredPointRepository implements PointRepository {
+        private final PointRepository delegate;
+        private final Timer findById;
+        private final Timer save;
+        private final Timer compareAndSave;
+
+        private MeteredPointRepository(PointRepository delegate) {
+            this.delegate = delegate;
+            this.findById = timer("point.repository", "저장소 호출 시간", "repository", "point", "method", "findById");
+            this.save = timer("point.repository", "저장소 호출 시간", "repository", "point", "method", "save");
+            this.compareAndSave = timer("point.repository", "저장소 호출 시간", "repository", "point", "method", "compareAndSave");
+        }
+
+        @Override
+        public UserPoint findById(long id) {
+            long started = System.nanoTime();
+            try {
+                return delegate.findById(id);
+            } finally {
+                record(findById, started);
+            }
+        }
+
+        @Override
+        public UserPoint save(long id, long amount) {
+            long started = System.nanoTime();
+            try {
+                return delegate.save(id, amount);
+            } finally {
+                record(save, started);
+            }
+        }
+
+        @Override
+        public UserPoint compareAndSave(long id, long expectedVersion, long amount) {
+            long started = System.nanoTime();
+            try {
+                return delegate.compareAndSave(id, expectedVersion, amount);
+            } finally {
+                record(compareAndSave, started);
+            }
+        }
+    }
+
+    private final class MeteredPointHistoryRepository implements PointHistoryRepository {
+        private final PointHistoryRepository delegate;
+        private final Timer insert;
+        private final Timer insertAll;
+        private final Timer findAllByUserId;
+        private final Timer findAllByUserIdDesc;
+        private final Timer findPageByUserIdDesc;
+        private final Timer userIds;
+
+        private MeteredPointHistoryRepository(PointHistoryRepository delegate) {
+            this.delegate = delegate;
+            this.insert = timer("point.repository", "저장소 호출 시간", "repository", "history", "method", "insert");
+            this.insertAll = timer("point.repository", "저장소 호출 시간", "repository", "history", "method", "insertAll");
+            this.findAllByUserId = timer("point.repository", "저장소 호출 시간", "repository", "history", "method", "findAllByUserId");
+            this.findAllByUserIdDesc = timer("point.repository", "저장소 호출 시간", "repository", "history", "method", "findAllByUserIdDesc");
+            this.findPageByUserIdDesc = timer("point.repository", "저장소 호출 시간", "repository", "history", "method", "findPageByUserIdDesc");
+            this.userIds = timer("point.repository", "저장소 호출 시간", "repository", "history", "method", "userIds");
+        }
+
+        @Override
+        public PointHistory insert(long userId, long amount, TransactionType type, long updateMillis, long balance) {
+            long started = System.nanoTime();
+            try {
+                return delegate.insert(userId, amount, type, updateMillis, balance);
+            } finally {
+                record(insert, started);
+            }
+        }
+
+        @Override
+        public List<PointHistory> insertAll(long userId, List<PointCommand> commands, long[] balances, long updateMillis) {
+            long started = System.nanoTime();
+            try {
+                return delegate.insertAll(userId, commands, balances, updateMillis);
+            } finally {
+                record(insertAll, started);
+            }
+        }
+
+        @Override
+        public List<PointHistory> findAllByUserId(long userId) {
+            long started = System.nanoTime();
+            try {
+                return delegate.findAllByUserId(userId);
+            } finally {
+                record(findAllByUserId, started);
+            }
+        }
+
+        @Override
+        public List<PointHistory> findAllByUserIdDesc(long userId) {
+            long started = System.nanoTime();
+            try {
+                return delegate.findAllByUserIdDesc(userId);
+            } finally {
+                record(findAllByUserIdDesc, started);
+            }
+        }
+
+        @Override
+        public List<PointHistory> findPageByUserIdDesc(long userId, Long beforeId, int limit) {
+            long started = System.nanoTime();
+            try {
+                return delegate.findPageByUserIdDesc(userId, beforeId, limit);
+            } finally {
+                record(findPageByUserIdDesc, started);
+            }
+        }
+
+        @Override
+        public long[] userIds() {
+            long started = System.nanoTime();
+            try {
+                return delegate.userIds();
+            } finally {
+                record(userIds, started);
+            }
+        }
+    }
+}
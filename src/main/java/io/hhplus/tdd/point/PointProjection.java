@@ -0,0 +1,11 @@
+package io.hhplus.tdd.point;
+
+/**
+ * PointLedger 의 이벤트로 만드는 read model
+ * - 같은 유저의 이벤트는 순서대로 한 번씩만 온다. 다른 유저의 이벤트는 동시에 올 수 있으므로 유저끼리는 thread-safe 해야 한다.
+ * - apply 는 그 유저의 append 를 잡고 있는 동안 불리므로 막히는 일 없이 바로 끝나야 한다.
+ */
+public interface PointProjection {
+
+    void apply(PointEvent event);
+}
@@ -0,0 +1,182 @@
+package io.hhplus.tdd.point;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 내역으로 잔액을 다시 계산해 잔액 저장소와 맞춰본다.
+ * - 내역이 있는 유저 id 를 나눠 ForkJoinPool 에서 병렬로 검사한다.
+ *   유저마다 내역을 순서대로 더해(충전 +, 사용 -) 매 내역의 balance 와 같은지, 마지막 합이 저장된 잔액과 같은지 본다.
+ * - 검사 중에도 충전/사용이 계속되므로 내역 저장과 잔액 저장 사이에 읽은 유저는 잠깐 어긋나 보인다.
+ *   어긋난 유저만 모아 recheck-delay-millis 뒤에 한 번 더 검사하고, 그래도 어긋나면 불일치로 보고한다.
+ * - point.reconcile.interval-minutes 가 0 보다 크면 그 주기로 돈다. (0 이면 reconcile() 을 부를 때만)
+ */
+@Component
+public class PointReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(PointReconciler.class);
+
+    // 한 task 가 순서대로 검사하는 유저 수
+    private static final int THRESHOLD = 512;
+    // 보고서에 담는 불일치 수 (전체 수는 따로 센다)
+    static final int MAX_REPORTED = 1000;
+
+    private PointRepository pointRepository;
+    private PointHistoryRepository pointHistoryRepository;
+    private ForkJoinPool pool;
+    private long recheckDelayMillis;
+    private Thread worker;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    @Autowired
+    public PointReconciler(PointRepository pointRepository, PointHistoryRepository pointHistoryRepository,
+                           @Value("${point.reconcile.parallelism:0}") int parallelism,
+                           @Value("${point.reconcile.recheck-delay-millis:100}") long recheckDelayMillis,
+                           @Value("${point.reconcile.interval-minutes:0}") long intervalMinutes) {
+        this.pointRepository = pointRepository;
+        this.pointHistoryRepository = pointHistoryRepository;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.recheckDelayMillis = recheckDelayMillis;
+        if (intervalMinutes > 0) {
+            this.worker = new Thread(() -> reconcileLoop(intervalMinutes), "point-reconciler");
+            this.worker.setDaemon(true);
+            this.worker.start();
+        }
+    }
+
+    public PointReconciler(PointRepository pointRepository, PointHistoryRepository pointHistoryRepository, int parallelism) {
+        this(pointRepository, pointHistoryRepository, parallelism, 0, 0);
+    }
+
+    /**
+     * 내역이 있는 모든 유저를 검사한다.
+     */
+    public Report reconcile() throws InterruptedException {
+        long started = System.nanoTime();
+        long[] userIds = pointHistoryRepository.userIds();
+        Partial partial = pool.invoke(new CheckTask(userIds, 0, userIds.length));
+
+        if (!partial.suspects.isEmpty() && recheckDelayMillis > 0) TimeUnit.MILLISECONDS.sleep(recheckDelayMillis);
+        List<Mismatch> mismatches = new ArrayList<>();
+        long mismatchCount = 0;
+        for (Mismatch suspect : partial.suspects) {
+            Mismatch mismatch = verify(suspect.userId(), new Partial());
+            if (mismatch == null) continue;
+            mismatchCount++;
+            if (mismatches.size() < MAX_REPORTED) mismatches.add(mismatch);
+        }
+
+        Report report = new Report(userIds.length, partial.rows, mismatchCount, mismatches,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        log.info("잔액 정합성 검사 : users={}, rows={}, mismatches={}, {}ms", report.users(), report.rows(), report.mismatchCount(), report.elapsedMillis());
+        for (Mismatch mismatch : mismatches) log.warn("잔액 불일치 {}", mismatch);
+        return report;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        stopped.countDown();
+        if (worker != null) worker.join(TimeUnit.SECONDS.toMillis(10));
+        pool.shutdown();
+    }
+
+    /**
+     * 한 유저의 내역을 더해 검사한다. 어긋나면 불일치를, 맞으면 null 을 돌려준다.
+     * 내역을 먼저 읽고 잔액을 읽는다. (서비스는 내역 → 잔액 순으로 저장하므로, 그 사이에 반영된 요청은 잔액에만 보여 잠깐 어긋난다)
+     */
+    private Mismatch verify(long userId, Partial partial) {
+        List<PointHistory> pointHistories = pointHistoryRepository.findAllByUserId(userId);
+        partial.rows += pointHistories.size();
+        long balance = 0;
+        for (PointHistory pointHistory : pointHistories) {
+            balance += pointHistory.signedAmount();
+            if (pointHistory.balance() != balance) {
+                return new Mismatch(userId, balance, pointHistory.balance(), "내역 " + pointHistory.id() + " 의 잔액이 이전 내역의 합과 다릅니다.");
+            }
+        }
+
+        UserPoint userPoint = pointRepository.findById(userId);
+        long stored = userPoint == null ? 0 : userPoint.point();
+        if (stored != balance) return new Mismatch(userId, balance, stored, "저장된 잔액이 내역의 합과 다릅니다.");
+        return null;
+    }
+
+    private void reconcileLoop(long intervalMinutes) {
+        try {
+            while (!stopped.await(intervalMinutes, TimeUnit.MINUTES)) {
+                try {
+                    reconcile();
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    log.error("잔액 정합성 검사 실패", e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * historyBalance : 내역을 더한 잔액, storedBalance : 저장된 잔액 (내역끼리 어긋나면 그 내역의 balance)
+     */
+    public record Mismatch(long userId, long historyBalance, long storedBalance, String reason) {
+    }
+
+    /**
+     * mismatches 는 앞에서부터 MAX_REPORTED 건까지만 담는다.
+     */
+    public record Report(long users, long rows, long mismatchCount, List<Mismatch> mismatches, long elapsedMillis) {
+    }
+
+    private static final class Partial {
+        private long rows;
+        private final List<Mismatch> suspects = new ArrayList<>();
+
+        Partial merge(Partial other) {
+            rows += other.rows;
+            suspects.addAll(other.suspects);
+            return this;
+        }
+    }
+
+    private final class CheckTask extends RecursiveTask<Partial> {
+        private final long[] userIds;
+        private final int from;
+        private final int to;
+
+        CheckTask(long[] userIds, int from, int to) {
+            this.userIds = userIds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= THRESHOLD) {
+                Partial partial = new Partial();
+                for (int i = from; i < to; i++) {
+                    Mismatch mismatch = verify(userIds[i], partial);
+                    if (mismatch != null) partial.suspects.add(mismatch);
+                }
+                return partial;
+            }
+            int mid = (from + to) >>> 1;
+            CheckTask left = new CheckTask(userIds, from, mid);
+            left.fork();
+            Partial right = new CheckTask(userIds, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+}
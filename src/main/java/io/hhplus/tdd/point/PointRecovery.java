@@ -0,0 +1,102 @@
+package io.hhplus.tdd.point;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 시작할 때 내역 파일로부터 잔액을 다시 채운다. (point.history.store=mapped)
+ * - 내역마다 반영 직후 잔액(balance)을 담고 있으므로 유저별 마지막 내역이 곧 잔액이다.
+ * - 내역 저장소가 snapshot 을 읽었으면 잔액도 snapshot 에서 채우고, snapshot 이후 내역만 다시 읽는다.
+ * - 웹 서버가 요청을 받기 전에 끝나도록 빈 초기화(@PostConstruct) 단계에서 돈다.
+ * - 유저마다 pointRepository.save 를 한 번씩 부르므로 잔액 저장소는 메모리(point.store=atomic)여야 한다.
+ *   table 저장소는 save 마다 최대 300ms 잠들어 유저 100만 명이면 복구에 40시간 넘게 걸리므로 시작하지 않는다.
+ * - 걸린 시간은 point.recovery.time 으로 노출한다. (전체 기동 시간은 application.ready.time)
+ */
+@Component
+@ConditionalOnProperty(name = "point.history.store", havingValue = "mapped")
+public class PointRecovery {
+
+    private static final Logger log = LoggerFactory.getLogger(PointRecovery.class);
+
+    private PointRepository pointRepository;
+    private MappedPointHistoryRepository historyLog;
+    private PointSnapshotStore snapshots;
+
+    private long recoveredUsers;
+    private long snapshotRows;
+    private long tailRows;
+    private long recoveryMillis;
+
+    @Autowired
+    public PointRecovery(PointRepository pointRepository, MappedPointHistoryRepository historyLog, PointSnapshotStore snapshots,
+                         @Value("${point.store:table}") String store, MeterRegistry meterRegistry) {
+        this(pointRepository, historyLog, snapshots);
+        if (!"atomic".equals(store)) {
+            throw new IllegalArgumentException("point.history.store=mapped 는 잔액을 메모리에 다시 채우므로 point.store=atomic 과 함께 써야 합니다. : " + store);
+        }
+        TimeGauge.builder("point.recovery.time", this, TimeUnit.MILLISECONDS, PointRecovery::recoveryMillis)
+                .description("시작 시 잔액 복구에 걸린 시간")
+                .register(meterRegistry);
+        Gauge.builder("point.recovery.tail.rows", this, PointRecovery::tailRows)
+                .description("snapshot 이후라 다시 읽은 내역 수")
+                .register(meterRegistry);
+    }
+
+    public PointRecovery(PointRepository pointRepository, MappedPointHistoryRepository historyLog, PointSnapshotStore snapshots) {
+        this.pointRepository = pointRepository;
+        this.historyLog = historyLog;
+        this.snapshots = snapshots;
+    }
+
+    public PointRecovery(PointRepository pointRepository, MappedPointHistoryRepository historyLog) {
+        this(pointRepository, historyLog, null);
+    }
+
+    @PostConstruct
+    public void recover() {
+        long started = System.nanoTime();
+        long fromRow = historyLog.snapshotRows();
+        // 내역 저장소가 읽은 뒤 snapshot 이 바뀌었거나 깨졌으면 처음부터 다시 만든다.
+        if (fromRow > 0 && (snapshots == null || snapshots.load((userId, point, lastRow) -> pointRepository.save(userId, point)) != fromRow)) {
+            fromRow = 0;
+        }
+
+        Map<Long, Long> balances = new HashMap<>();
+        historyLog.replay(fromRow, pointHistory -> balances.put(pointHistory.userId(), pointHistory.balance()));
+        balances.forEach(pointRepository::save);
+
+        recoveredUsers = historyLog.userCount();
+        snapshotRows = fromRow;
+        tailRows = historyLog.rowCount() - fromRow;
+        recoveryMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        log.info("잔액 복구 : users={}, snapshotRows={}, tailRows={}, {}ms", recoveredUsers, snapshotRows, tailRows, recoveryMillis);
+    }
+
+    public long recoveredUsers() {
+        return recoveredUsers;
+    }
+
+    public long snapshotRows() {
+        return snapshotRows;
+    }
+
+    public long tailRows() {
+        return tailRows;
+    }
+
+    public long recoveryMillis() {
+        return recoveryMillis;
+    }
+}
@@ -6,4 +6,10 @@ public interface PointRepository {
     UserPoint findById(long id);
 
     UserPoint save(long id, long amount);
+
+    /**
+     * 저장된 version 이 expectedVersion 과 같을 때만 저장한다.
+     * 저장했으면 version 이 1 오른 결과를, 다른 요청이 먼저 저장해 version 이 다르면 null 을 리턴한다.
+     */
+    UserPoint compareAndSave(long id, long expectedVersion, long amount);
 }
@@ -1,60 +1,131 @@
 package io.hhplus.tdd.point;
 
 import io.hhplus.tdd.LockManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @Service
 public class PointService {
 
+    private static final Logger log = LoggerFactory.getLogger(PointService.class);
+
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_BATCH_SIZE = 10000;
+
     private PointRepository pointRepository;
     private PointHistoryRepository pointHistoryRepository;
+    private LockManager lockManager;
+    private Executor executor;
+    private PointConcurrencyPolicy concurrencyPolicy;
+    private IdempotencyCache idempotencyCache;
+    private PointMetrics metrics;
+    // point.store=ledger 일 때만 있다. 있으면 잔액 저장 + 내역 저장 대신 이벤트 한 건을 append 한다.
+    private PointLedger ledger;
+    // 유저별 누적 집계. 충전/사용이 반영된 직후 같이 바꾼다.
+    private final PointSummaries summaries = new PointSummaries();
 
+    /**
+     * PointLedger 빈은 point.store=ledger 일 때만 있고, 없으면 null 이다. 저장소가 다른 빈(캐시, 지표)으로 감싸여 있어도 ledger 모드를 놓치지 않도록 직접 받는다.
+     * 빈이 아닌 곳(PointServiceRouter, 테스트, 벤치마크)에서도 이 생성자를 쓴다. 뒤의 인자는 null 이면 기본값을 쓰고,
+     * ledger 를 넘기지 않으면 저장소가 LedgerPointRepository 일 때만 ledger 모드가 된다.
+     */
     @Autowired
-    public PointService(PointRepository pointRepository, PointHistoryRepository pointHistoryRepository) {
+    public PointService(PointRepository pointRepository, PointHistoryRepository pointHistoryRepository, LockManager lockManager,
+                        @Qualifier("pointExecutor") Executor executor, PointConcurrencyPolicy concurrencyPolicy,
+                        IdempotencyCache idempotencyCache, PointMetrics metrics, @Nullable PointLedger ledger) {
+        this.metrics = metrics != null ? metrics : PointMetrics.noop();
+        this.ledger = ledger != null ? ledger
+                : pointRepository instanceof LedgerPointRepository ledgerPointRepository ? ledgerPointRepository.ledger() : null;
+        this.pointRepository = this.metrics.meter(pointRepository);
+        this.pointHistoryRepository = this.metrics.meter(pointHistoryRepository);
+        this.lockManager = lockManager;
+        this.executor = executor;
+        this.concurrencyPolicy = concurrencyPolicy != null ? concurrencyPolicy : PointConcurrencyPolicy.pessimistic();
+        this.idempotencyCache = idempotencyCache;
+    }
 
-        this.pointRepository = pointRepository;
-        this.pointHistoryRepository = pointHistoryRepository;
+    public UserPoint charge(Long id, Long amount) throws Exception {
+        long started = System.nanoTime();
+        UserPoint userPoint = null;
+        try {
+            return userPoint = doCharge(id, amount);
+        } finally {
+            // 충전은 실패를 null 로 돌려준다.
+            metrics.charge.record(started, userPoint == null);
+        }
     }
 
     //case 추가 순서
-    public UserPoint charge(Long id, Long amount) throws Exception {
+    private UserPoint doCharge(Long id, Long amount) throws Exception {
         //case 2 : 0이하의 수 충전으로 인한 코드 추가
         if (amount < 0) throw new Exception("0이하의 수는 충전할 수 없습니다.");
+        if (concurrencyPolicy.isOptimistic()) return updateOptimistic(id, amount, TransactionType.CHARGE);
 
         UserPoint userPoint = null;
+        lockManager.lock(id);
         try {
-            LockManager.lock(id);
             //case 3 : 기존 충전 되어 있는 id에 대한 추가로직
             UserPoint prevUserPoint = pointRepository.findById(id);
-            if (prevUserPoint != null) amount += prevUserPoint.point();
+            long balance = amount;
+            if (prevUserPoint != null) balance += prevUserPoint.point();
 
             //case 1: 첫 충전으로 인한 코드 추가
-            userPoint = pointRepository.save(id, amount);
-            //통합테스트로 인해 history insert 추가
-            pointHistoryRepository.insert(userPoint.id(), userPoint.point(), TransactionType.CHARGE, userPoint.updateMillis());
+            //통합테스트로 인해 history insert 추가 (내역에는 충전한 포인트와 충전 후 잔액을 같이 남긴다)
+            userPoint = record(id, PointLedger.ANY_VERSION, TransactionType.CHARGE, amount, balance);
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
-            LockManager.unLock(id);
+            lockManager.unLock(id);
         }
         return userPoint;
     }
 
+    /**
+     * Idempotency-Key 가 붙은 충전. 같은 유저가 같은 키로 다시 보내면 다시 반영하지 않고 처음 결과를 돌려준다.
+     */
+    public UserPoint charge(long id, long amount, String idempotencyKey) throws Exception {
+        if (idempotencyKey == null || idempotencyCache == null) return charge(id, amount);
+        return idempotencyCache.execute(id, idempotencyKey, TransactionType.CHARGE, amount, () -> charge(id, amount));
+    }
+
     public UserPoint search(long id) {
-        return pointRepository.findById(id);
+        long started = System.nanoTime();
+        try {
+            return pointRepository.findById(id);
+        } finally {
+            metrics.search.record(started, false);
+        }
     }
 
-    public UserPoint use(long id, long amount) throws Exception{
+    public UserPoint use(long id, long amount) throws Exception {
+        long started = System.nanoTime();
+        UserPoint userPoint = null;
+        try {
+            return userPoint = doUse(id, amount);
+        } finally {
+            metrics.use.record(started, userPoint == null);
+        }
+    }
+
+    private UserPoint doUse(long id, long amount) throws Exception{
         //use unit case 2 : 음수 사용
         if (amount < 0) throw new Exception("0이하의 수는 사용할 수 없습니다.");
+        if (concurrencyPolicy.isOptimistic()) return updateOptimistic(id, amount, TransactionType.USE);
         UserPoint newUserPoint = null;
+        lockManager.lock(id);
         try {
-            LockManager.lock(id);
             UserPoint curPoint = pointRepository.findById(id);
             //use unit case 3 :충전한적 없는데 포인트 사용
 
@@ -63,32 +134,478 @@ public class PointService {
             if (curPoint.point() < amount) throw new Exception("잔여 포인트보다 많이 사용할 수 없습니다.");
 
             //use integration case 1 에서 추가
-            newUserPoint = pointRepository.save(id, curPoint.point() - amount);
-            pointHistoryRepository.insert(newUserPoint.id(), newUserPoint.point(), TransactionType.USE, newUserPoint.updateMillis());
+            newUserPoint = record(id, PointLedger.ANY_VERSION, TransactionType.USE, amount, curPoint.point() - amount);
         } catch (Exception e) {
           e.printStackTrace();
           throw e;
         } finally {
-            LockManager.unLock(id);
+            lockManager.unLock(id);
         }
         //use unit case 1 : 일반 사용
         return newUserPoint;
     }
 
+    /**
+     * Idempotency-Key 가 붙은 사용. 같은 유저가 같은 키로 다시 보내면 다시 반영하지 않고 처음 결과를 돌려준다.
+     */
+    public UserPoint use(long id, long amount, String idempotencyKey) throws Exception {
+        if (idempotencyKey == null || idempotencyCache == null) return use(id, amount);
+        return idempotencyCache.execute(id, idempotencyKey, TransactionType.USE, amount, () -> use(id, amount));
+    }
+
+    /**
+     * 낙관적 모드의 충전/사용. 락 없이 읽고 계산한 뒤, 읽은 version 그대로일 때만 저장한다.
+     * 다른 요청이 먼저 저장했으면 backoff 후 다시 읽어서 계산한다.
+     */
+    private UserPoint updateOptimistic(long id, long amount, TransactionType type) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            UserPoint curPoint = pointRepository.findById(id);
+            if (type == TransactionType.USE) {
+                if (curPoint == null) throw new Exception("충전된 포인트가 없습니다.");
+                if (curPoint.point() < amount) throw new Exception("잔여 포인트보다 많이 사용할 수 없습니다.");
+            }
+            long balance = curPoint == null ? 0 : curPoint.point();
+            long newPoint = type == TransactionType.CHARGE ? balance + amount : balance - amount;
+
+            UserPoint saved = recordInOrder(id, versionOf(curPoint), type, amount, newPoint);
+            if (saved != null) return saved;
+            concurrencyPolicy.backoff(attempt);
+        }
+    }
+
+    /**
+     * 낙관적 모드의 저장. 내역 저장과 compareAndSave 를 유저 락 안에서 한다.
+     * 락 밖에서 저장하면 compareAndSave 에 이긴 두 요청의 내역이 version 과 반대 순서로 쌓일 수 있는데,
+     * 복구(PointRecovery, snapshot)와 정합성 검사는 유저의 마지막 내역이 곧 잔액이라고 믿는다.
+     * ledger 모드도 락 안에서 append 한다. 집계 반영이 락 밖이면 rebuildSummary 가 이미 센 이벤트를 한 번 더 더할 수 있다.
+     * 조회와 계산은 락 밖에서 하므로 락은 저장하는 동안만 잡는다.
+     */
+    private UserPoint recordInOrder(long id, long expectedVersion, TransactionType type, long amount, long balance) {
+        lockManager.lock(id);
+        try {
+            return record(id, expectedVersion, type, amount, balance);
+        } finally {
+            lockManager.unLock(id);
+        }
+    }
+
+    /**
+     * 같은 유저에게 쌓인 충전/사용 요청을 한 번의 조회/저장으로 합쳐서 반영한다.
+     * - 요청은 순서대로 하나씩 검증하고, 실패한 요청은 잔액에 반영하지 않는다.
+     * - 내역은 요청마다 한 건씩 남기고, 각 요청은 자기 차례 직후의 잔액을 돌려받는다.
+     * - charge/use 지표도 요청마다 성공/실패로 남긴다. 처리 시간은 합쳐서 반영한 시간이다.
+     */
+    public List<PointCommandResult> applyCoalesced(long id, List<PointCommand> commands) {
+        long started = System.nanoTime();
+        List<PointCommandResult> results = apply(id, commands, false);
+        for (PointCommandResult result : results) {
+            PointMetrics.Operation operation = result.command().type() == TransactionType.CHARGE ? metrics.charge : metrics.use;
+            operation.record(started, !result.isSuccess());
+        }
+        return results;
+    }
+
+    /**
+     * 여러 유저의 요청을 유저별로 묶어, 유저끼리는 병렬로 반영한다.
+     * - 한 유저의 요청은 전부 반영되거나 전부 반영되지 않는다. (하나라도 실패하면 그 유저의 요청은 모두 실패)
+     *   내역을 한 번에 남긴 뒤에 잔액을 저장하므로, 내역 저장이 실패하면 잔액도 내역도 바뀌지 않는다. (write 참고)
+     * - 결과는 요청 순서와 같은 순서로 돌려준다.
+     */
+    public List<PointCommandResult> applyBatch(List<PointCommand> commands) throws Exception {
+        validateBatch(commands);
+        return applyBatchAsync(commands).join();
+    }
+
+    static void validateBatch(List<PointCommand> commands) throws Exception {
+        if (commands == null || commands.isEmpty()) throw new Exception("요청이 없습니다.");
+        if (commands.size() > MAX_BATCH_SIZE) throw new Exception("한 번에 " + MAX_BATCH_SIZE + "건까지 요청할 수 있습니다.");
+        for (PointCommand command : commands) {
+            if (command == null) throw new Exception("비어 있는 요청이 있습니다.");
+        }
+    }
+
+    /**
+     * applyBatch 에서 검증을 뺀 비동기 버전. 유저별 작업을 executor 에 넘기고 기다리지 않고 돌려준다.
+     * (PointServiceRouter 가 여러 shard 에 나눠 보낸 뒤 한 번에 기다릴 때 쓴다)
+     */
+    CompletableFuture<List<PointCommandResult>> applyBatchAsync(List<PointCommand> commands) {
+        Map<Long, List<Integer>> indexesByUser = new LinkedHashMap<>();
+        for (int i = 0; i < commands.size(); i++) {
+            indexesByUser.computeIfAbsent(commands.get(i).userId(), k -> new ArrayList<>()).add(i);
+        }
+
+        PointCommandResult[] results = new PointCommandResult[commands.size()];
+        List<CompletableFuture<Void>> futures = new ArrayList<>(indexesByUser.size());
+        for (Map.Entry<Long, List<Integer>> entry : indexesByUser.entrySet()) {
+            long id = entry.getKey();
+            List<Integer> indexes = entry.getValue();
+            futures.add(CompletableFuture.runAsync(() -> {
+                List<PointCommand> userCommands = new ArrayList<>(indexes.size());
+                for (int index : indexes) userCommands.add(commands.get(index));
+
+                List<PointCommandResult> userResults = apply(id, userCommands, true);
+                for (int i = 0; i < indexes.size(); i++) results[indexes.get(i)] = userResults.get(i);
+            }, executor));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(v -> Arrays.asList(results));
+    }
+
+    /**
+     * 비관적 모드는 유저 락 안에서 한 번 반영하고,
+     * 낙관적 모드는 락 없이 계산한 뒤 compareAndSave 가 충돌하면 다시 읽어서 처음부터 계산한다. (저장은 commitInOrder)
+     */
+    private List<PointCommandResult> apply(long id, List<PointCommand> commands, boolean allOrNothing) {
+        boolean optimistic = concurrencyPolicy.isOptimistic();
+        Plan plan = null;
+        if (!optimistic) lockManager.lock(id);
+        try {
+            for (int attempt = 0; ; attempt++) {
+                UserPoint curPoint = pointRepository.findById(id);
+                plan = plan(commands, curPoint, allOrNothing);
+                if (plan.applied == 0) return Arrays.asList(plan.results);
+                List<PointCommandResult> committed = optimistic
+                        ? commitInOrder(id, commands, plan, versionOf(curPoint))
+                        : commit(id, commands, plan, PointLedger.ANY_VERSION);
+                if (committed != null) return committed;
+                concurrencyPolicy.backoff(attempt);
+            }
+        } catch (Exception e) {
+            log.warn("유저 {} 의 요청 {} 건을 반영하지 못했습니다.", id, commands.size(), e);
+            PointCommandResult[] results = plan != null ? plan.results : new PointCommandResult[commands.size()];
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null) results[i] = PointCommandResult.fail(commands.get(i), e.getMessage());
+            }
+            return Arrays.asList(results);
+        } finally {
+            if (!optimistic) lockManager.unLock(id);
+        }
+    }
+
+    /**
+     * 요청을 순서대로 검증하며 요청마다 직후 잔액을 계산한다. 실패한 요청의 결과만 채워둔다.
+     */
+    static Plan plan(List<PointCommand> commands, UserPoint curPoint, boolean allOrNothing) {
+        Plan plan = new Plan(commands.size(), curPoint == null ? 0 : curPoint.point());
+        boolean failed = false;
+        for (int i = 0; i < commands.size(); i++) {
+            PointCommand command = commands.get(i);
+            String error = validate(command, plan.balance);
+            if (error != null) {
+                plan.results[i] = PointCommandResult.fail(command, error);
+                failed = true;
+                continue;
+            }
+            plan.balance += command.type() == TransactionType.CHARGE ? command.amount() : -command.amount();
+            plan.balances[i] = plan.balance;
+            plan.applied++;
+        }
+        if (failed && allOrNothing) {
+            for (int i = 0; i < commands.size(); i++) {
+                if (plan.results[i] == null) plan.results[i] = PointCommandResult.fail(commands.get(i), "같은 유저의 다른 요청이 실패하여 반영하지 않았습니다.");
+            }
+            plan.applied = 0;
+        }
+        return plan;
+    }
+
+    /**
+     * 낙관적 모드의 commit. recordInOrder 와 같은 이유로 내역 저장부터 compareAndSave 까지 유저 락 안에서 한다.
+     * 계산한 뒤 다른 요청이 먼저 저장했으면 null
+     */
+    private List<PointCommandResult> commitInOrder(long id, List<PointCommand> commands, Plan plan, long expectedVersion) {
+        lockManager.lock(id);
+        try {
+            return commit(id, commands, plan, expectedVersion);
+        } finally {
+            lockManager.unLock(id);
+        }
+    }
+
+    /**
+     * 반영할 요청을 한 번에 저장하고 결과를 채운다. version 이 달라 저장하지 못하면 null
+     */
+    private List<PointCommandResult> commit(long id, List<PointCommand> commands, Plan plan, long expectedVersion) {
+        if (ledger != null) return appendAll(id, expectedVersion, commands, plan) ? Arrays.asList(plan.results) : null;
+        UserPoint saved = write(id, expectedVersion, plan.applied(commands), plan.appliedBalances());
+        if (saved == null) return null;
+        for (int i = 0; i < commands.size(); i++) {
+            if (plan.results[i] != null) continue;
+            plan.results[i] = PointCommandResult.success(commands.get(i), new UserPoint(id, plan.balances[i], saved.updateMillis(), saved.version()));
+        }
+        return Arrays.asList(plan.results);
+    }
+
+    /**
+     * 잔액 저장과 내역 저장. ledger 모드면 이벤트 한 건 append 로 둘 다 반영된다.
+     * expectedVersion 이 ANY_VERSION 이 아니면 저장된 version 이 같을 때만 반영하고, 다르면 null 을 돌려준다.
+     */
+    private UserPoint record(long id, long expectedVersion, TransactionType type, long amount, long balance) {
+        if (ledger != null) {
+            PointEvent event = ledger.append(id, expectedVersion, type, amount, balance, System.currentTimeMillis());
+            if (event == null) return null;
+            summaries.add(id, type, amount, event.updateMillis());
+            return event.toUserPoint();
+        }
+        return write(id, expectedVersion, List.of(new PointCommand(id, amount, type)), new long[]{balance});
+    }
+
+    /**
+     * 내역을 한 번에 남긴 뒤 잔액을 저장한다. 유저 락 안에서만 부른다.
+     * - 내역 저장은 전부 남기거나 하나도 남기지 않으므로, 실패하면 잔액도 내역도 바뀌지 않은 채로 실패한다.
+     * - 잔액은 마지막에 저장하므로, 잔액이 바뀐 채로 실패를 돌려주는 일은 없다.
+     * - 내역을 남긴 뒤 잔액 저장이 실패하면 cancel 로 내역을 상쇄한다. (잔액은 그대로다)
+     * balances[i] 는 commands[i] 반영 직후 잔액이다. expectedVersion 이 ANY_VERSION 이 아니고 저장된 version 과 다르면 아무것도 남기지 않고 null
+     * 돌려주는 updateMillis 는 남긴 내역의 시각이다. (응답, 내역, 집계의 시각을 맞춘다)
+     */
+    private UserPoint write(long id, long expectedVersion, List<PointCommand> commands, long[] balances) {
+        // 같은 유저의 저장은 모두 유저 락 안에서 하므로 여기서 본 version 이 compareAndSave 까지 그대로다.
+        if (expectedVersion != PointLedger.ANY_VERSION && versionOf(pointRepository.findById(id)) != expectedVersion) return null;
+        long updateMillis = System.currentTimeMillis();
+        insertAll(id, commands, balances, updateMillis);
+
+        long balance = balances[commands.size() - 1];
+        UserPoint saved;
+        try {
+            saved = expectedVersion == PointLedger.ANY_VERSION
+                    ? pointRepository.save(id, balance)
+                    : pointRepository.compareAndSave(id, expectedVersion, balance);
+        } catch (RuntimeException e) {
+            cancel(id, commands, balances, updateMillis);
+            throw e;
+        }
+        if (saved == null) {
+            cancel(id, commands, balances, updateMillis);
+            return null;
+        }
+        addSummaries(summaries, id, commands, updateMillis);
+        return new UserPoint(id, saved.point(), updateMillis, saved.version());
+    }
+
+    /**
+     * 잔액을 저장하지 못해 남긴 내역을 상쇄한다. 내역은 지울 수 없으므로 뒤에서부터 반대 내역(충전 <-> 사용)을 한 번에 남긴다.
+     * 남긴 내역과 반대 내역 모두 집계에 더해, 내역에서 다시 만든 집계와 같게 둔다.
+     * 상쇄하지 못하면 내역만 남은 채로 로그를 남긴다. (정합성 검사로 찾는다)
+     */
+    private void cancel(long id, List<PointCommand> commands, long[] balances, long updateMillis) {
+        addSummaries(summaries, id, commands, updateMillis);
+        List<PointCommand> reverses = reverses(commands);
+        try {
+            insertAll(id, reverses, balancesBefore(commands, balances), updateMillis);
+            addSummaries(summaries, id, reverses, updateMillis);
+        } catch (RuntimeException e) {
+            log.error("유저 {} 의 내역 {} 건을 상쇄하지 못했습니다. 잔액은 바뀌지 않았습니다.", id, commands.size(), e);
+        }
+    }
+
+    // 한 건이면 insert 로 남긴다. (한 건은 그 자체로 전부 남거나 남지 않는다)
+    private void insertAll(long id, List<PointCommand> commands, long[] balances, long updateMillis) {
+        if (commands.size() == 1) {
+            pointHistoryRepository.insert(id, commands.get(0).amount(), commands.get(0).type(), updateMillis, balances[0]);
+        } else {
+            pointHistoryRepository.insertAll(id, commands, balances, updateMillis);
+        }
+    }
+
+    /**
+     * 요청을 뒤에서부터 반대 방향(충전 <-> 사용)으로 바꾼다.
+     */
+    static List<PointCommand> reverses(List<PointCommand> commands) {
+        List<PointCommand> reverses = new ArrayList<>(commands.size());
+        for (int i = commands.size() - 1; i >= 0; i--) {
+            PointCommand command = commands.get(i);
+            TransactionType reverse = command.type() == TransactionType.CHARGE ? TransactionType.USE : TransactionType.CHARGE;
+            reverses.add(new PointCommand(command.userId(), command.amount(), reverse));
+        }
+        return reverses;
+    }
+
+    /**
+     * reverses 의 반영 직후 잔액. 뒤에서부터 각 요청의 반영 직전 잔액이다.
+     */
+    static long[] balancesBefore(List<PointCommand> commands, long[] balances) {
+        int n = commands.size();
+        long[] before = new long[n];
+        for (int i = n - 1, r = 0; i >= 0; i--, r++) {
+            PointCommand command = commands.get(i);
+            before[r] = balances[i] - (command.type() == TransactionType.CHARGE ? command.amount() : -command.amount());
+        }
+        return before;
+    }
+
+    static void addSummaries(PointSummaries summaries, long id, List<PointCommand> commands, long updateMillis) {
+        for (PointCommand command : commands) summaries.add(id, command.type(), command.amount(), updateMillis);
+    }
+
+    /**
+     * ledger 모드의 commit. 반영할 요청을 한 번에 append 하고 결과를 채운다. version 이 달라 쌓지 못하면 false
+     */
+    private boolean appendAll(long id, long expectedVersion, List<PointCommand> commands, Plan plan) {
+        return appendAll(ledger, summaries, id, expectedVersion, commands, plan);
+    }
+
+    /**
+     * ReactivePointService 도 같은 방법으로 쌓는다. (잔액 저장 + 내역 저장 없이 이벤트 append 한 번)
+     */
+    static boolean appendAll(PointLedger ledger, PointSummaries summaries, long id, long expectedVersion, List<PointCommand> commands, Plan plan) {
+        List<PointEvent> events = ledger.appendAll(id, expectedVersion, plan.applied(commands), plan.appliedBalances(), System.currentTimeMillis());
+        if (events == null) return false;
+        for (PointEvent event : events) summaries.add(id, event.type(), event.amount(), event.updateMillis());
+        for (int i = 0, next = 0; i < commands.size(); i++) {
+            if (plan.results[i] == null) plan.results[i] = PointCommandResult.success(commands.get(i), events.get(next++).toUserPoint());
+        }
+        return true;
+    }
+
+    private static long versionOf(UserPoint userPoint) {
+        return userPoint == null ? 0 : userPoint.version();
+    }
+
+    static final class Plan {
+        final PointCommandResult[] results;
+        final long[] balances;
+        long balance;
+        int applied;
+
+        private Plan(int size, long balance) {
+            this.results = new PointCommandResult[size];
+            this.balances = new long[size];
+            this.balance = balance;
+        }
+
+        // 실패하지 않은(반영할) 요청만 순서대로
+        List<PointCommand> applied(List<PointCommand> commands) {
+            List<PointCommand> applied = new ArrayList<>(this.applied);
+            for (int i = 0; i < commands.size(); i++) {
+                if (results[i] == null) applied.add(commands.get(i));
+            }
+            return applied;
+        }
+
+        // applied 의 요청마다 반영 직후 잔액
+        long[] appliedBalances() {
+            long[] appliedBalances = new long[applied];
+            for (int i = 0, next = 0; i < results.length; i++) {
+                if (results[i] == null) appliedBalances[next++] = balances[i];
+            }
+            return appliedBalances;
+        }
+    }
+
+    private static String validate(PointCommand command, long balance) {
+        // 본문에 type 이 빠진 요청은 사용으로 처리하지 않고 그 요청만 실패시킨다.
+        if (command.type() == null) return "충전/사용 구분이 없습니다.";
+        if (command.type() == TransactionType.CHARGE) {
+            if (command.amount() < 0) return "0이하의 수는 충전할 수 없습니다.";
+            return null;
+        }
+        if (command.amount() < 0) return "0이하의 수는 사용할 수 없습니다.";
+        if (balance < command.amount()) return "잔여 포인트보다 많이 사용할 수 없습니다.";
+        return null;
+    }
+
+    /**
+     * 유저의 잔액과 전체 내역을 다른 노드로 넘기기 위해 읽는다. 진행 중인 충전/사용이 끝난 뒤의 상태를 읽도록 유저 락을 잡는다.
+     */
+    public PointHandoff export(long id) {
+        lockManager.lock(id);
+        try {
+            UserPoint userPoint = pointRepository.findById(id);
+            List<PointHistory> pointHistories = pointHistoryRepository.findAllByUserId(id);
+            return new PointHandoff(id, userPoint == null ? 0 : userPoint.point(), pointHistories == null ? List.of() : List.copyOf(pointHistories));
+        } finally {
+            lockManager.unLock(id);
+        }
+    }
+
+    /**
+     * 다른 노드에서 넘겨받은 유저의 잔액과 내역을 반영한다.
+     * - 이 노드에 남아 있는 내역은 예전에 이 노드가 맡았던 때의 것이라 넘겨받은 내역의 앞부분과 같다. 그 뒤만 이어 붙인다.
+     * - 넘겨받은 내역이 없거나(이전 노드가 이 유저를 처리한 적이 없음) 이 노드에 이미 모두 있으면 잔액을 덮어쓰지 않고 그대로 둔다.
+     *   이 노드의 내역이 더 길면(예전 주인의 오래된 상태를 받음) 이 노드가 더 최근이므로 역시 그대로 둔다.
+     */
+    public UserPoint restore(PointHandoff handoff) throws Exception {
+        long id = handoff.userId();
+        lockManager.lock(id);
+        try {
+            List<PointHistory> existing = pointHistoryRepository.findAllByUserId(id);
+            int have = existing == null ? 0 : existing.size();
+            if (have >= handoff.histories().size()) return pointRepository.findById(id);
+
+            // ledger 모드면 넘겨받은 내역을 이벤트로 쌓는 것만으로 잔액도 따라온다.
+            UserPoint userPoint = ledger != null ? null : pointRepository.save(id, handoff.point());
+            for (int i = have; i < handoff.histories().size(); i++) {
+                PointHistory pointHistory = handoff.histories().get(i);
+                pointHistoryRepository.insert(id, pointHistory.amount(), pointHistory.type(), pointHistory.updateMillis(), pointHistory.balance());
+                summaries.add(id, pointHistory.type(), pointHistory.amount(), pointHistory.updateMillis());
+            }
+            return userPoint != null ? userPoint : pointRepository.findById(id);
+        } finally {
+            lockManager.unLock(id);
+        }
+    }
+
+    /**
+     * 유저의 누적 충전/사용 합계와 건수, 처음/마지막 시각. 내역을 훑지 않고 유지 중인 집계를 그대로 돌려준다.
+     * 시작 후 처음 조회하는 유저면 그 유저의 내역에서 한 번 만든다.
+     */
+    public PointSummary summary(long id) {
+        PointSummary summary = summaries.get(id);
+        return summary != null ? summary : rebuildSummary(id);
+    }
+
+    /**
+     * 유저의 집계를 내역에서 다시 만든다. 진행 중인 충전/사용과 섞이지 않도록 유저 락을 잡는다.
+     * 집계를 바꾸는 저장(내역 저장 + 집계 반영)은 낙관적 모드에서도 유저 락 안에서 하므로, 트래픽 중에 불러도 빠지거나 두 번 세는 건이 없다.
+     */
+    public PointSummary rebuildSummary(long id) {
+        lockManager.lock(id);
+        try {
+            List<PointHistory> pointHistories = pointHistoryRepository.findAllByUserId(id);
+            PointSummary summary = PointSummary.of(id, pointHistories == null ? List.of() : pointHistories);
+            summaries.put(summary);
+            return summary;
+        } finally {
+            lockManager.unLock(id);
+        }
+    }
+
     public List<PointHistory> readHistories(long userId) throws Exception {
+        long started = System.nanoTime();
+        List<PointHistory> pointHistories = null;
+        try {
+            return pointHistories = metrics.recordHistorySize(doReadHistories(userId));
+        } finally {
+            metrics.readHistories.record(started, pointHistories == null);
+        }
+    }
+
+    private List<PointHistory> doReadHistories(long userId) throws Exception {
         List<PointHistory> pointHistories = null;
 
-        pointHistories = pointHistoryRepository.findAllByUserId(userId);
+        //case 3 : 저장소가 최신순 view 를 바로 돌려준다.
+        pointHistories = pointHistoryRepository.findAllByUserIdDesc(userId);
 
         //case 2
         if (pointHistories == null) throw new Exception("포인트 내역이 없습니다.");
 
-        //case 3
-        pointHistories = pointHistories.stream()
-                .sorted(Comparator.comparingLong(PointHistory::updateMillis).reversed())
-                .collect(Collectors.toList());
-
         // case1
         return pointHistories;
     }
+
+    /**
+     * keyset 페이지 조회. beforeId 는 이전 페이지 마지막 내역의 id (첫 페이지는 null)
+     */
+    public List<PointHistory> readHistories(long userId, Long beforeId, int limit) throws Exception {
+        long started = System.nanoTime();
+        List<PointHistory> pointHistories = null;
+        try {
+            if (limit < 1 || limit > MAX_PAGE_SIZE) throw new Exception("조회 건수는 1 이상 " + MAX_PAGE_SIZE + " 이하여야 합니다.");
+
+            pointHistories = pointHistoryRepository.findPageByUserIdDesc(userId, beforeId, limit);
+            if (pointHistories == null) throw new Exception("포인트 내역이 없습니다.");
+            return metrics.recordHistorySize(pointHistories);
+        } finally {
+            metrics.readHistories.record(started, pointHistories == null);
+        }
+    }
 }
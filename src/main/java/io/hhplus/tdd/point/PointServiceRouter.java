@@ -0,0 +1,114 @@
+package io.hhplus.tdd.point;
+
+import io.hhplus.tdd.LockManager;
+import io.hhplus.tdd.PointExecutorConfig;
+import io.hhplus.tdd.database.PointHistoryTable;
+import io.hhplus.tdd.database.UserPointTable;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 유저 id 의 hash 로 N 개의 shard 중 하나를 골라 요청을 보낸다. (point.shard.enabled=true)
+ * - shard 마다 잔액/내역 저장소, LockManager, executor, PointService 를 따로 가진다.
+ *   다른 shard 의 유저끼리는 map, 락 stripe, 내역 id 시퀀스 어느 것도 같이 쓰지 않는다.
+ * - 한 유저는 항상 같은 shard 로 가므로 유저 안의 순서/정합성은 단일 서비스와 같다.
+ * - 내역 id 는 shard 안에서만 증가한다. (같은 유저 안에서는 여전히 증가하므로 keyset 페이지 조회는 그대로 동작한다)
+ * - shard 의 저장소는 메모리 저장소만 쓴다. (table : shard 마다 UserPointTable/PointHistoryTable, atomic : AtomicPointRepository + IndexedPointHistoryRepository)
+ *   mapped 내역 파일, 복구, 정합성 검사는 shard 를 쓰지 않는 기본 PointService 에만 붙는다.
+ */
+@Component
+@ConditionalOnProperty(name = "point.shard.enabled", havingValue = "true")
+public class PointServiceRouter {
+
+    private final PointService[] shards;
+    private final ExecutorService[] executors;
+
+    @Autowired
+    public PointServiceRouter(@Value("${point.shard.count:0}") int shardCount,
+                              @Value("${point.shard.threads:1}") int threads,
+                              @Value("${point.shard.store:atomic}") String store,
+                              @Value("${point.lock.stripes:64}") int stripes,
+                              @Value("${spring.threads.virtual.enabled:false}") boolean virtual,
+                              PointConcurrencyPolicy concurrencyPolicy, IdempotencyCache idempotencyCache,
+                              PointMetrics metrics, MeterRegistry meterRegistry,
+                              @Value("${point.metrics.enabled:true}") boolean metricsEnabled) {
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        if (!"table".equals(store) && !"atomic".equals(store)) throw new IllegalArgumentException("지원하지 않는 shard 저장소입니다. : " + store);
+
+        this.shards = new PointService[count];
+        this.executors = new ExecutorService[count];
+        for (int i = 0; i < count; i++) {
+            executors[i] = PointExecutorConfig.newExecutor("point-shard-" + i + "-", Math.max(1, threads), virtual);
+            PointRepository pointRepository = "table".equals(store)
+                    ? new PointImplRepository(new UserPointTable())
+                    : new AtomicPointRepository();
+            PointHistoryRepository pointHistoryRepository = "table".equals(store)
+                    ? new PointHistoryImplRepository(new PointHistoryTable())
+                    : new IndexedPointHistoryRepository();
+            shards[i] = new PointService(pointRepository, pointHistoryRepository, new LockManager(stripes, meterRegistry, metricsEnabled), executors[i],
+                    concurrencyPolicy, idempotencyCache, metrics, null);
+        }
+    }
+
+    public PointServiceRouter(int shardCount, int threads, String store, PointConcurrencyPolicy concurrencyPolicy) {
+        this(shardCount, threads, store, 64, false, concurrencyPolicy, null, null, null, false);
+    }
+
+    /**
+     * 유저가 속한 shard 의 서비스
+     */
+    public PointService route(long userId) {
+        return shards[shardOf(userId)];
+    }
+
+    public int shardOf(long userId) {
+        long h = userId * 0x9E3779B97F4A7C15L;
+        return (int) ((h >>> 32) % shards.length);
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * 요청을 shard 별로 나눠 동시에 반영하고, 요청 순서대로 결과를 돌려준다.
+     * - 한 유저의 요청은 한 shard 로만 가므로 유저 단위 전부 반영/전부 실패는 그대로 지켜진다.
+     */
+    public List<PointCommandResult> applyBatch(List<PointCommand> commands) throws Exception {
+        PointService.validateBatch(commands);
+
+        List<List<Integer>> indexesByShard = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) indexesByShard.add(new ArrayList<>());
+        for (int i = 0; i < commands.size(); i++) indexesByShard.get(shardOf(commands.get(i).userId())).add(i);
+
+        PointCommandResult[] results = new PointCommandResult[commands.size()];
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int shard = 0; shard < shards.length; shard++) {
+            List<Integer> indexes = indexesByShard.get(shard);
+            if (indexes.isEmpty()) continue;
+            List<PointCommand> shardCommands = new ArrayList<>(indexes.size());
+            for (int index : indexes) shardCommands.add(commands.get(index));
+
+            futures.add(shards[shard].applyBatchAsync(shardCommands).thenAccept(shardResults -> {
+                for (int i = 0; i < indexes.size(); i++) results[indexes.get(i)] = shardResults.get(i);
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        return Arrays.asList(results);
+    }
+
+    @PreDestroy
+    public void close() {
+        for (ExecutorService executor : executors) executor.shutdown();
+    }
+}
@@ -0,0 +1,168 @@
+package io.hhplus.tdd.point;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * 유저별 잔액 snapshot 파일 (point.history.store=mapped)
+ * - header(magic, format, 반영한 내역 행 수, 유저 수) 뒤에 유저마다 (userId, 잔액, 마지막 내역 행 번호) 24 byte, 끝에 CRC32.
+ * - 임시 파일에 다 쓰고 fsync 한 뒤 rename 으로 바꿔치기하므로, 쓰다 죽어도 직전 snapshot 이 남는다.
+ * - 읽을 때 CRC 가 맞지 않으면 -1 을 돌려준다. 그 사이 넘긴 항목은 부른 쪽이 버려야 한다.
+ */
+@Component
+@ConditionalOnProperty(name = "point.history.store", havingValue = "mapped")
+public class PointSnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(PointSnapshotStore.class);
+
+    private static final int MAGIC = 0x504e5350;
+    private static final int FORMAT = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int ENTRY_SIZE = 24;
+    private static final int BUFFER_SIZE = ENTRY_SIZE * (1 << 15);
+
+    interface EntryConsumer {
+        void accept(long userId, long point, long lastRow);
+    }
+
+    interface EntrySource {
+        void forEach(EntryConsumer consumer);
+    }
+
+    private final Path path;
+
+    @Autowired
+    public PointSnapshotStore(@Value("${point.snapshot.path:./data/point-snapshot.bin}") String path) {
+        this(Path.of(path));
+    }
+
+    public PointSnapshotStore(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * rows 개의 내역까지 반영한 잔액을 snapshot 으로 남긴다.
+     * @return 쓴 유저 수
+     */
+    public long write(long rows, EntrySource source) {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            if (path.getParent() != null) Files.createDirectories(path.getParent());
+            long count;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.position(HEADER_SIZE);
+                Writer writer = new Writer(channel);
+                source.forEach(writer);
+                writer.flush();
+                count = writer.count;
+
+                // 유저 수는 다 쓴 뒤에 알 수 있으므로 header 는 마지막에 채운다.
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(FORMAT).putLong(rows).putLong(count).flip();
+                writer.crc.update(header.duplicate());
+                channel.write(header, 0);
+                ByteBuffer trailer = ByteBuffer.allocate(Long.BYTES).putLong(writer.crc.getValue()).flip();
+                channel.write(trailer, HEADER_SIZE + count * ENTRY_SIZE);
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException("snapshot 을 쓸 수 없습니다. : " + path, e);
+        }
+    }
+
+    /**
+     * snapshot 의 항목을 consumer 에 넘긴다.
+     * @return snapshot 이 반영한 내역 행 수, snapshot 이 없거나 깨졌으면 -1
+     */
+    public long load(EntryConsumer consumer) {
+        if (!Files.exists(path)) return -1;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (channel.read(header, 0) != HEADER_SIZE) return corrupted("header 가 잘렸습니다.");
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT) return corrupted("형식이 다릅니다.");
+            long rows = header.getLong();
+            long count = header.getLong();
+            if (count < 0 || channel.size() != HEADER_SIZE + count * ENTRY_SIZE + Long.BYTES) return corrupted("크기가 맞지 않습니다.");
+
+            CRC32 crc = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            long remaining = count * ENTRY_SIZE;
+            channel.position(HEADER_SIZE);
+            while (remaining > 0) {
+                buffer.clear().limit((int) Math.min(BUFFER_SIZE, remaining));
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) return corrupted("항목이 잘렸습니다.");
+                }
+                buffer.flip();
+                crc.update(buffer.duplicate());
+                while (buffer.hasRemaining()) consumer.accept(buffer.getLong(), buffer.getLong(), buffer.getLong());
+                remaining -= buffer.limit();
+            }
+            header.flip();
+            crc.update(header);
+
+            ByteBuffer trailer = ByteBuffer.allocate(Long.BYTES);
+            channel.read(trailer, HEADER_SIZE + count * ENTRY_SIZE);
+            if (trailer.flip().getLong() != crc.getValue()) return corrupted("CRC 가 맞지 않습니다.");
+            return rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException("snapshot 을 읽을 수 없습니다. : " + path, e);
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    private long corrupted(String reason) {
+        log.warn("snapshot 을 무시합니다. {} : {}", path, reason);
+        return -1;
+    }
+
+    private static final class Writer implements EntryConsumer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+        private long count;
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void accept(long userId, long point, long lastRow) {
+            if (buffer.remaining() < ENTRY_SIZE) flush();
+            buffer.putLong(userId).putLong(point).putLong(lastRow);
+            count++;
+        }
+
+        void flush() {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            try {
+                while (buffer.hasRemaining()) channel.write(buffer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer.clear();
+        }
+    }
+}
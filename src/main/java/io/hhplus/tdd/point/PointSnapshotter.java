@@ -0,0 +1,92 @@
+package io.hhplus.tdd.point;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 내역 파일을 주기적으로 snapshot 으로 접는다. (point.history.store=mapped)
+ * - 다 쓰인 기록까지 디스크에 내린 뒤, 그 시점의 유저별 (잔액, 마지막 행 번호) 를 snapshot 으로 쓴다.
+ * - 다음 시작 때는 snapshot 을 읽고 그 뒤에 쓰인 기록만 다시 읽는다.
+ *   시작 시간이 전체 내역 수가 아니라 유저 수 + 마지막 snapshot 이후 기록 수에 비례한다.
+ * - 내역 파일의 기록은 내역 조회에 그대로 쓰이므로 지우지 않는다.
+ * - 복구가 끝난 뒤에 돌기 시작하고, 종료할 때 한 번 더 남긴다.
+ */
+@Component
+@DependsOn("pointRecovery")
+@ConditionalOnProperty(name = "point.history.store", havingValue = "mapped")
+public class PointSnapshotter {
+
+    private static final Logger log = LoggerFactory.getLogger(PointSnapshotter.class);
+
+    private MappedPointHistoryRepository historyLog;
+    private PointSnapshotStore snapshots;
+    private Thread worker;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private long lastRows;
+    private volatile long lastSnapshotMillis;
+
+    @Autowired
+    public PointSnapshotter(MappedPointHistoryRepository historyLog, PointSnapshotStore snapshots,
+                            @Value("${point.snapshot.interval-seconds:60}") long intervalSeconds) {
+        this.historyLog = historyLog;
+        this.snapshots = snapshots;
+        this.lastRows = historyLog.snapshotRows();
+        if (intervalSeconds > 0) {
+            this.worker = new Thread(() -> snapshotLoop(intervalSeconds), "point-snapshotter");
+            this.worker.setDaemon(true);
+            this.worker.start();
+        }
+    }
+
+    /**
+     * 지금까지 다 쓰인 기록으로 snapshot 을 남긴다. 지난 snapshot 이후 기록이 없으면 건너뛴다.
+     * @return snapshot 이 반영한 기록 수
+     */
+    public synchronized long snapshot() {
+        long rows = historyLog.stableRowCount();
+        if (rows == lastRows) return rows;
+        // snapshot 이 가리키는 기록이 먼저 디스크에 있어야 한다.
+        historyLog.flush();
+        long started = System.nanoTime();
+        long users = snapshots.write(rows, consumer -> historyLog.forEachUserAt(rows, consumer));
+        lastRows = rows;
+        lastSnapshotMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        log.info("snapshot {} : rows={}, users={}, {}ms", snapshots.path(), rows, users, lastSnapshotMillis);
+        return rows;
+    }
+
+    public long lastSnapshotMillis() {
+        return lastSnapshotMillis;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        stopped.countDown();
+        if (worker != null) worker.join(TimeUnit.MINUTES.toMillis(1));
+        snapshot();
+    }
+
+    private void snapshotLoop(long intervalSeconds) {
+        try {
+            while (!stopped.await(intervalSeconds, TimeUnit.SECONDS)) {
+                try {
+                    snapshot();
+                } catch (Exception e) {
+                    log.error("snapshot 실패 {}", snapshots.path(), e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package io.hhplus.tdd.point;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 유저별 PointSummary. 충전/사용이 반영될 때마다 그 유저의 집계 하나만 O(1) 로 바꾼다.
+ * - PointService 가 하나씩 가진다. (샤드 모드면 샤드마다 자기 유저만)
+ * - 내역이 남는 쪽(저장소)이 원본이고, 이 값은 언제든 내역에서 다시 만들 수 있다.
+ * - 유저의 집계는 처음 조회할 때 내역에서 만든다. 아직 만들지 않은 유저의 반영은 건너뛴다. (그 내역은 만들 때 들어간다)
+ *   시작할 때 전체 내역을 훑지 않으므로 재시작이 내역 양에 묶이지 않는다.
+ */
+class PointSummaries {
+
+    private final ConcurrentMap<Long, PointSummary> summaries = new ConcurrentHashMap<>();
+
+    void add(long userId, TransactionType type, long amount, long updateMillis) {
+        summaries.computeIfPresent(userId, (k, summary) -> summary.plus(type, amount, updateMillis));
+    }
+
+    /**
+     * 아직 만들지 않은 유저면 null
+     */
+    PointSummary get(long userId) {
+        return summaries.get(userId);
+    }
+
+    void put(PointSummary summary) {
+        summaries.put(summary.userId(), summary);
+    }
+}
@@ -0,0 +1,46 @@
+package io.hhplus.tdd.point;
+
+/**
+ * 유저의 누적 집계 (GET /point/{id}/summary)
+ * firstActivityMillis, lastActivityMillis : 처음/마지막 충전·사용 시각 (내역이 없으면 0)
+ */
+public record PointSummary(
+        long userId,
+        long totalCharged,
+        long totalUsed,
+        long chargeCount,
+        long useCount,
+        long firstActivityMillis,
+        long lastActivityMillis
+) {
+
+    public static PointSummary empty(long userId) {
+        return new PointSummary(userId, 0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * 내역 한 건을 더한 집계. 내역이 시각 순서대로 들어오지 않아도 처음/마지막 시각은 맞는다.
+     */
+    public PointSummary plus(TransactionType type, long amount, long updateMillis) {
+        boolean charge = type == TransactionType.CHARGE;
+        boolean first = chargeCount + useCount == 0;
+        return new PointSummary(userId,
+                charge ? totalCharged + amount : totalCharged,
+                charge ? totalUsed : totalUsed + amount,
+                charge ? chargeCount + 1 : chargeCount,
+                charge ? useCount : useCount + 1,
+                first ? updateMillis : Math.min(firstActivityMillis, updateMillis),
+                first ? updateMillis : Math.max(lastActivityMillis, updateMillis));
+    }
+
+    /**
+     * 내역 전체를 처음부터 더한 집계 (rebuild 용)
+     */
+    public static PointSummary of(long userId, Iterable<PointHistory> pointHistories) {
+        PointSummary summary = empty(userId);
+        for (PointHistory pointHistory : pointHistories) {
+            summary = summary.plus(pointHistory.type(), pointHistory.amount(), pointHistory.updateMillis());
+        }
+        return summary;
+    }
+}
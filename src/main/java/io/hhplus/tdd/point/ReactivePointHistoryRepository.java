@@ -0,0 +1,21 @@
+package io.hhplus.tdd.point;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface ReactivePointHistoryRepository {
+
+    //amount 는 충전/사용한 포인트, balance 는 반영 직후 잔액
+    Mono<PointHistory> insert(long userId, long amount, TransactionType type, long updateMillis, long balance);
+
+    //한 유저의 내역 여러 건을 한 번에 남긴다. 전부 남기거나 하나도 남기지 않는다. (PointHistoryRepository.insertAll)
+    Mono<List<PointHistory>> insertAll(long userId, List<PointCommand> commands, long[] balances, long updateMillis);
+
+    //최신 내역이 먼저 오는 순서로 조회
+    Flux<PointHistory> findAllByUserIdDesc(long userId);
+
+    //keyset 페이지 조회 : beforeId 보다 작은 id 를 최신순으로 limit 건 (beforeId 가 null 이면 가장 최신부터)
+    Flux<PointHistory> findPageByUserIdDesc(long userId, Long beforeId, int limit);
+}
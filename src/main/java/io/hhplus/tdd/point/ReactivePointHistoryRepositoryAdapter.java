@@ -0,0 +1,57 @@
+package io.hhplus.tdd.point;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+/**
+ * PointHistoryRepository 를 ReactivePointHistoryRepository 로 감싼다.
+ * - 메모리 인덱스 저장소(indexed, columnar)는 구독한 스레드에서 그대로 호출한다.
+ * - 그 밖의 저장소(PointHistoryTable 의 sleep, mapped 의 fsync, write-behind 의 가득 찬 큐)는 blocking 용 scheduler 에서 호출한다.
+ */
+public class ReactivePointHistoryRepositoryAdapter implements ReactivePointHistoryRepository {
+
+    private final PointHistoryRepository delegate;
+    private final Scheduler scheduler;
+
+    public ReactivePointHistoryRepositoryAdapter(PointHistoryRepository delegate, boolean blocking) {
+        this(delegate, blocking ? Schedulers.boundedElastic() : Schedulers.immediate());
+    }
+
+    public ReactivePointHistoryRepositoryAdapter(PointHistoryRepository delegate, Scheduler scheduler) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+    }
+
+    public static boolean isBlocking(PointHistoryRepository pointHistoryRepository) {
+        return !(pointHistoryRepository instanceof IndexedPointHistoryRepository
+                || pointHistoryRepository instanceof ColumnarPointHistoryRepository);
+    }
+
+    @Override
+    public Mono<PointHistory> insert(long userId, long amount, TransactionType type, long updateMillis, long balance) {
+        return Mono.fromCallable(() -> delegate.insert(userId, amount, type, updateMillis, balance)).subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<List<PointHistory>> insertAll(long userId, List<PointCommand> commands, long[] balances, long updateMillis) {
+        return Mono.fromCallable(() -> delegate.insertAll(userId, commands, balances, updateMillis)).subscribeOn(scheduler);
+    }
+
+    @Override
+    public Flux<PointHistory> findAllByUserIdDesc(long userId) {
+        return Mono.fromCallable(() -> delegate.findAllByUserIdDesc(userId)).subscribeOn(scheduler).flatMapIterable(ReactivePointHistoryRepositoryAdapter::orEmpty);
+    }
+
+    @Override
+    public Flux<PointHistory> findPageByUserIdDesc(long userId, Long beforeId, int limit) {
+        return Mono.fromCallable(() -> delegate.findPageByUserIdDesc(userId, beforeId, limit)).subscribeOn(scheduler).flatMapIterable(ReactivePointHistoryRepositoryAdapter::orEmpty);
+    }
+
+    private static List<PointHistory> orEmpty(List<PointHistory> pointHistories) {
+        return pointHistories == null ? List.of() : pointHistories;
+    }
+}
@@ -0,0 +1,11 @@
+package io.hhplus.tdd.point;
+
+import reactor.core.publisher.Mono;
+
+public interface ReactivePointRepository {
+
+    //저장된 잔액이 없으면 비어 있는 Mono
+    Mono<UserPoint> findById(long id);
+
+    Mono<UserPoint> save(long id, long amount);
+}
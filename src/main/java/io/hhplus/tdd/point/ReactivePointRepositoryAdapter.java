@@ -0,0 +1,40 @@
+package io.hhplus.tdd.point;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * PointRepository 를 ReactivePointRepository 로 감싼다.
+ * - 메모리에서 바로 끝나는 저장소(AtomicPointRepository)는 구독한 스레드에서 그대로 호출한다.
+ * - 그 밖의 저장소(UserPointTable 은 호출마다 sleep 한다)는 blocking 용 scheduler 에서 호출해 event loop 를 막지 않는다.
+ *   (ReactivePointService 가 point.reactive.blocking-threads 크기로 만들어 넘긴다)
+ */
+public class ReactivePointRepositoryAdapter implements ReactivePointRepository {
+
+    private final PointRepository delegate;
+    private final Scheduler scheduler;
+
+    public ReactivePointRepositoryAdapter(PointRepository delegate, boolean blocking) {
+        this(delegate, blocking ? Schedulers.boundedElastic() : Schedulers.immediate());
+    }
+
+    public ReactivePointRepositoryAdapter(PointRepository delegate, Scheduler scheduler) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+    }
+
+    public static boolean isBlocking(PointRepository pointRepository) {
+        return !(pointRepository instanceof AtomicPointRepository);
+    }
+
+    @Override
+    public Mono<UserPoint> findById(long id) {
+        return Mono.fromCallable(() -> delegate.findById(id)).subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<UserPoint> save(long id, long amount) {
+        return Mono.fromCallable(() -> delegate.save(id, amount)).subscribeOn(scheduler);
+    }
+}
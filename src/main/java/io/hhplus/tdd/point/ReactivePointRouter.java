@@ -0,0 +1,125 @@
+package io.hhplus.tdd.point;
+
+import io.hhplus.tdd.ErrorResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * PointController 와 같은 경로를 WebFlux 함수형 라우터로 제공한다. (spring.main.web-application-type=reactive)
+ * - 요청마다 스레드를 잡지 않고 ReactivePointService 의 Mono/Flux 를 그대로 돌려준다.
+ * - Idempotency-Key 헤더, ?before=&limit= 페이지 조회, NDJSON 스트리밍도 같은 방식으로 받는다.
+ * - 에러는 ApiControllerAdvice 처럼 500 ErrorResponse 로 돌려준다. (경로/본문 형식 에러는 400)
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactivePointRouter {
+
+    //스트리밍 시 한 번에 읽어오는 내역 수
+    private static final int STREAM_PAGE_SIZE = 500;
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    private final ReactivePointService pointService;
+
+    public ReactivePointRouter(ReactivePointService pointService) {
+        this.pointService = pointService;
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> pointRoutes() {
+        return RouterFunctions.route()
+                .GET("/point/{id}/histories/stream", deferred(this::historyStream))
+                .GET("/point/{id}/histories", deferred(this::history))
+                .GET("/point/{id}/summary", deferred(this::summary))
+                .GET("/point/{id}", deferred(this::point))
+                .PATCH("/point/{id}/charge", deferred(this::charge))
+                .PATCH("/point/{id}/use", deferred(this::use))
+                .POST("/point/batch", deferred(this::batch))
+                .onError(Exception.class, ReactivePointRouter::error)
+                .build();
+    }
+
+    private Mono<ServerResponse> point(ServerRequest request) {
+        return pointService.search(id(request)).flatMap(ServerResponse.ok()::bodyValue);
+    }
+
+    private Mono<ServerResponse> summary(ServerRequest request) {
+        return pointService.summary(id(request)).flatMap(ServerResponse.ok()::bodyValue);
+    }
+
+    private Mono<ServerResponse> history(ServerRequest request) {
+        long id = id(request);
+        String limit = request.queryParam("limit").orElse(null);
+        Long before = request.queryParam("before").map(Long::parseLong).orElse(null);
+        if (limit == null && before == null) return ServerResponse.ok().body(pointService.readHistories(id), PointHistory.class);
+
+        int pageSize = limit == null ? PointController.DEFAULT_PAGE_SIZE : Integer.parseInt(limit);
+        return pointService.readHistories(id, before, pageSize).collectList().flatMap(ServerResponse.ok()::bodyValue);
+    }
+
+    private Mono<ServerResponse> historyStream(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(pointService.streamHistories(id(request), STREAM_PAGE_SIZE), PointHistory.class);
+    }
+
+    private Mono<ServerResponse> charge(ServerRequest request) {
+        long id = id(request);
+        String idempotencyKey = idempotencyKey(request);
+        return request.<Long>bodyToMono(Long.class)
+                .flatMap(amount -> pointService.charge(id, amount, idempotencyKey))
+                .flatMap(ServerResponse.ok()::bodyValue);
+    }
+
+    private Mono<ServerResponse> use(ServerRequest request) {
+        long id = id(request);
+        String idempotencyKey = idempotencyKey(request);
+        return request.<Long>bodyToMono(Long.class)
+                .flatMap(amount -> pointService.use(id, amount, idempotencyKey))
+                .flatMap(ServerResponse.ok()::bodyValue);
+    }
+
+    private Mono<ServerResponse> batch(ServerRequest request) {
+        return request.bodyToMono(new ParameterizedTypeReference<List<PointCommand>>() {})
+                .flatMap(pointService::applyBatch)
+                .flatMap(ServerResponse.ok()::bodyValue);
+    }
+
+    /**
+     * 경로 변수 파싱처럼 handler 가 바로 던지는 예외도 onError 로 가도록 구독할 때 실행한다.
+     */
+    private static HandlerFunction<ServerResponse> deferred(HandlerFunction<ServerResponse> handler) {
+        return request -> Mono.defer(() -> handler.handle(request));
+    }
+
+    private static long id(ServerRequest request) {
+        return Long.parseLong(request.pathVariable("id"));
+    }
+
+    private static String idempotencyKey(ServerRequest request) {
+        List<String> values = request.headers().header(IDEMPOTENCY_KEY);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    private static Mono<ServerResponse> error(Exception e, ServerRequest request) {
+        if (e instanceof NumberFormatException) {
+            return ServerResponse.badRequest().bodyValue(new ErrorResponse("400", "요청 형식이 잘못되었습니다."));
+        }
+        if (e instanceof ResponseStatusException responseStatus && responseStatus.getStatusCode().value() < 500) {
+            int status = responseStatus.getStatusCode().value();
+            return ServerResponse.status(status).bodyValue(new ErrorResponse(String.valueOf(status), "요청 형식이 잘못되었습니다."));
+        }
+        return ServerResponse.status(500).bodyValue(new ErrorResponse("500", "에러가 발생했습니다."));
+    }
+}
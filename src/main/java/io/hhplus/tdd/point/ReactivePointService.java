@@ -0,0 +1,292 @@
+package io.hhplus.tdd.point;
+
+import io.hhplus.tdd.UserSequencer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * PointService 의 non-blocking 버전 (spring.main.web-application-type=reactive 일 때 ReactivePointRouter 가 쓴다)
+ * - 같은 유저의 충전/사용/batch 는 UserSequencer 로 하나씩 실행한다. 락을 잡고 스레드를 재우지 않는다.
+ * - 검증과 에러 메시지는 PointService 와 같다. 실패는 null 이 아니라 에러 signal 로 돌려준다.
+ * - sleep/fsync 하는 저장소는 point.reactive.blocking-threads 개의 전용 스레드에서 부른다. Reactor 의 boundedElastic 은
+ *   CPU 코어 x 10 개가 상한이라, 호출마다 sleep 하는 table 저장소면 처리량이 그 스레드 수에 묶인다.
+ * - ledger 모드(point.store=ledger)면 PointService 처럼 잔액 저장 + 내역 저장 대신 이벤트를 한 번 append 한다. (메모리라 스레드를 옮기지 않는다)
+ * - PointService 와 유저 락을 나눠 쓰지 않으므로, 같은 저장소를 PointService 로 동시에 바꾸지 않는다. (reactive 모드에서는 /point 요청이 모두 여기로 온다)
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactivePointService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactivePointService.class);
+
+    private final ReactivePointRepository pointRepository;
+    private final ReactivePointHistoryRepository pointHistoryRepository;
+    private final UserSequencer sequencer = new UserSequencer(Schedulers.parallel());
+    private final IdempotencyCache idempotencyCache;
+    private final PointMetrics metrics;
+    private final PointSummaries summaries = new PointSummaries();
+    // point.store=ledger 일 때만 있다.
+    private final PointLedger ledger;
+    // @Autowired 생성자로 만들 때만 있다. 종료할 때 스레드를 정리한다.
+    private Scheduler blockingScheduler;
+
+    public ReactivePointService(ReactivePointRepository pointRepository, ReactivePointHistoryRepository pointHistoryRepository) {
+        this(pointRepository, pointHistoryRepository, null, null);
+    }
+
+    public ReactivePointService(ReactivePointRepository pointRepository, ReactivePointHistoryRepository pointHistoryRepository,
+                                IdempotencyCache idempotencyCache, PointMetrics metrics) {
+        this(pointRepository, pointHistoryRepository, idempotencyCache, metrics, (PointLedger) null);
+    }
+
+    public ReactivePointService(ReactivePointRepository pointRepository, ReactivePointHistoryRepository pointHistoryRepository,
+                                IdempotencyCache idempotencyCache, PointMetrics metrics, PointLedger ledger) {
+        this.pointRepository = pointRepository;
+        this.pointHistoryRepository = pointHistoryRepository;
+        this.idempotencyCache = idempotencyCache;
+        this.metrics = metrics != null ? metrics : PointMetrics.noop();
+        this.ledger = ledger;
+    }
+
+    @Autowired
+    public ReactivePointService(PointRepository pointRepository, PointHistoryRepository pointHistoryRepository,
+                                IdempotencyCache idempotencyCache, PointMetrics metrics, ObjectProvider<PointLedger> pointLedger,
+                                @Value("${point.reactive.blocking-threads:200}") int blockingThreads) {
+        this(pointRepository, pointHistoryRepository, idempotencyCache, metrics, pointLedger.getIfAvailable(),
+                Schedulers.newBoundedElastic(blockingThreads, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "point-blocking"));
+    }
+
+    private ReactivePointService(PointRepository pointRepository, PointHistoryRepository pointHistoryRepository,
+                                 IdempotencyCache idempotencyCache, PointMetrics metrics, PointLedger ledger, Scheduler blockingScheduler) {
+        this(new ReactivePointRepositoryAdapter(metrics.meter(pointRepository),
+                        ReactivePointRepositoryAdapter.isBlocking(pointRepository) ? blockingScheduler : Schedulers.immediate()),
+                new ReactivePointHistoryRepositoryAdapter(metrics.meter(pointHistoryRepository),
+                        ReactivePointHistoryRepositoryAdapter.isBlocking(pointHistoryRepository) ? blockingScheduler : Schedulers.immediate()),
+                idempotencyCache, metrics, ledger);
+        this.blockingScheduler = blockingScheduler;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (blockingScheduler != null) blockingScheduler.dispose();
+    }
+
+    public Mono<UserPoint> search(long id) {
+        return timed(metrics.search, pointRepository.findById(id));
+    }
+
+    public Mono<UserPoint> charge(long id, long amount) {
+        if (amount < 0) return timed(metrics.charge, Mono.error(new Exception("0이하의 수는 충전할 수 없습니다.")));
+        return timed(metrics.charge, sequencer.run(id, () -> pointRepository.findById(id)
+                .map(UserPoint::point)
+                .defaultIfEmpty(0L)
+                .flatMap(balance -> save(id, amount, TransactionType.CHARGE, balance + amount))));
+    }
+
+    public Mono<UserPoint> use(long id, long amount) {
+        if (amount < 0) return timed(metrics.use, Mono.error(new Exception("0이하의 수는 사용할 수 없습니다.")));
+        return timed(metrics.use, sequencer.run(id, () -> pointRepository.findById(id)
+                .switchIfEmpty(Mono.error(new Exception("충전된 포인트가 없습니다.")))
+                .flatMap(curPoint -> curPoint.point() < amount
+                        ? Mono.error(new Exception("잔여 포인트보다 많이 사용할 수 없습니다."))
+                        : save(id, amount, TransactionType.USE, curPoint.point() - amount))));
+    }
+
+    /**
+     * Idempotency-Key 가 붙은 충전/사용. 처음 요청의 결과를 스레드를 잡고 기다리지 않도록 IdempotencyCache.executeAsync 로 future 를 이어 붙인다.
+     */
+    public Mono<UserPoint> charge(long id, long amount, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyCache == null) return charge(id, amount);
+        return Mono.fromFuture(() -> idempotencyCache.executeAsync(id, idempotencyKey, TransactionType.CHARGE, amount, () -> charge(id, amount).toFuture()), true);
+    }
+
+    public Mono<UserPoint> use(long id, long amount, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyCache == null) return use(id, amount);
+        return Mono.fromFuture(() -> idempotencyCache.executeAsync(id, idempotencyKey, TransactionType.USE, amount, () -> use(id, amount).toFuture()), true);
+    }
+
+    /**
+     * 유지 중인 누적 집계 (PointService.summary 와 같음). 시작 후 처음 조회하는 유저면 내역에서 한 번 만든다.
+     */
+    public Mono<PointSummary> summary(long id) {
+        return Mono.defer(() -> {
+            PointSummary summary = summaries.get(id);
+            return summary != null ? Mono.just(summary) : rebuildSummary(id);
+        });
+    }
+
+    /**
+     * 유저의 집계를 내역에서 다시 만든다. 같은 유저의 충전/사용과는 UserSequencer 로 순서를 맞춘다.
+     */
+    public Mono<PointSummary> rebuildSummary(long id) {
+        return sequencer.run(id, () -> pointHistoryRepository.findAllByUserIdDesc(id)
+                .reduce(PointSummary.empty(id), (summary, pointHistory) -> summary.plus(pointHistory.type(), pointHistory.amount(), pointHistory.updateMillis()))
+                .doOnSuccess(summaries::put));
+    }
+
+    public Flux<PointHistory> readHistories(long userId) {
+        return pointHistoryRepository.findAllByUserIdDesc(userId);
+    }
+
+    /**
+     * keyset 페이지 조회. beforeId 는 이전 페이지 마지막 내역의 id (첫 페이지는 null)
+     */
+    public Flux<PointHistory> readHistories(long userId, Long beforeId, int limit) {
+        if (limit < 1 || limit > PointService.MAX_PAGE_SIZE) return Flux.error(new Exception("조회 건수는 1 이상 " + PointService.MAX_PAGE_SIZE + " 이하여야 합니다."));
+        return pointHistoryRepository.findPageByUserIdDesc(userId, beforeId, limit);
+    }
+
+    /**
+     * 전체 내역을 pageSize 건씩 읽어 최신순으로 흘려보낸다. 구독자가 앞 페이지를 다 가져간 뒤에 다음 페이지를 읽는다.
+     */
+    public Flux<PointHistory> streamHistories(long userId, int pageSize) {
+        return readPage(userId, null, pageSize)
+                .expand(page -> page.size() < pageSize ? Mono.empty() : readPage(userId, page.get(page.size() - 1).id(), pageSize))
+                .concatMap(Flux::fromIterable);
+    }
+
+    /**
+     * PointService.applyBatch 와 같다. 유저별로 묶어 유저끼리는 동시에, 한 유저의 요청은 전부 반영되거나 전부 반영되지 않는다.
+     */
+    public Mono<List<PointCommandResult>> applyBatch(List<PointCommand> commands) {
+        try {
+            PointService.validateBatch(commands);
+        } catch (Exception e) {
+            return Mono.error(e);
+        }
+
+        Map<Long, List<Integer>> indexesByUser = new LinkedHashMap<>();
+        for (int i = 0; i < commands.size(); i++) {
+            indexesByUser.computeIfAbsent(commands.get(i).userId(), k -> new ArrayList<>()).add(i);
+        }
+
+        PointCommandResult[] results = new PointCommandResult[commands.size()];
+        return Flux.fromIterable(indexesByUser.entrySet())
+                .flatMap(entry -> {
+                    long id = entry.getKey();
+                    List<Integer> indexes = entry.getValue();
+                    List<PointCommand> userCommands = new ArrayList<>(indexes.size());
+                    for (int index : indexes) userCommands.add(commands.get(index));
+
+                    return sequencer.run(id, () -> apply(id, userCommands)).doOnNext(userResults -> {
+                        for (int i = 0; i < indexes.size(); i++) results[indexes.get(i)] = userResults.get(i);
+                    });
+                })
+                .then(Mono.fromSupplier(() -> Arrays.asList(results)));
+    }
+
+    private Mono<List<PointCommandResult>> apply(long id, List<PointCommand> commands) {
+        PointService.Plan[] plan = new PointService.Plan[1];
+        return pointRepository.findById(id)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(found -> {
+                    UserPoint curPoint = found.orElse(null);
+                    PointService.Plan planned = PointService.plan(commands, curPoint, true);
+                    plan[0] = planned;
+                    if (planned.applied == 0) return Mono.just(Arrays.asList(planned.results));
+                    if (ledger != null) return Mono.fromCallable(() -> {
+                        // UserSequencer 가 유저별로 직렬화하므로 version 을 맞춰 볼 필요가 없다.
+                        PointService.appendAll(ledger, summaries, id, PointLedger.ANY_VERSION, commands, planned);
+                        return Arrays.asList(planned.results);
+                    });
+                    return commit(id, commands, planned);
+                })
+                .onErrorResume(e -> {
+                    log.warn("유저 {} 의 요청 {} 건을 반영하지 못했습니다.", id, commands.size(), e);
+                    PointCommandResult[] results = plan[0] != null ? plan[0].results : new PointCommandResult[commands.size()];
+                    for (int i = 0; i < results.length; i++) {
+                        if (results[i] == null) results[i] = PointCommandResult.fail(commands.get(i), e.getMessage());
+                    }
+                    return Mono.just(Arrays.asList(results));
+                });
+    }
+
+    /**
+     * 반영할 요청을 한 번에 저장하고 결과를 채운다. (PointService.commit 과 같다)
+     */
+    private Mono<List<PointCommandResult>> commit(long id, List<PointCommand> commands, PointService.Plan plan) {
+        return write(id, plan.applied(commands), plan.appliedBalances()).map(saved -> {
+            for (int i = 0; i < commands.size(); i++) {
+                if (plan.results[i] != null) continue;
+                plan.results[i] = PointCommandResult.success(commands.get(i), new UserPoint(id, plan.balances[i], saved.updateMillis(), saved.version()));
+            }
+            return Arrays.asList(plan.results);
+        });
+    }
+
+    private Mono<UserPoint> save(long id, long amount, TransactionType type, long balance) {
+        if (ledger != null) return Mono.fromCallable(() -> {
+            PointEvent event = ledger.append(id, PointLedger.ANY_VERSION, type, amount, balance, System.currentTimeMillis());
+            summaries.add(id, type, amount, event.updateMillis());
+            return event.toUserPoint();
+        });
+        return write(id, List.of(new PointCommand(id, amount, type)), new long[]{balance});
+    }
+
+    /**
+     * PointService.write 와 같다. 내역을 한 번에 남긴 뒤 잔액을 저장하고, 잔액 저장이 실패하면 남긴 내역을 상쇄한다.
+     * (UserSequencer 가 유저별로 직렬화하므로 version 은 맞춰 보지 않는다)
+     */
+    private Mono<UserPoint> write(long id, List<PointCommand> commands, long[] balances) {
+        return Mono.defer(() -> {
+            long updateMillis = System.currentTimeMillis();
+            return insertAll(id, commands, balances, updateMillis)
+                    .then(pointRepository.save(id, balances[balances.length - 1])
+                            .onErrorResume(e -> cancel(id, commands, balances, updateMillis).then(Mono.error(e))))
+                    .map(saved -> {
+                        PointService.addSummaries(summaries, id, commands, updateMillis);
+                        return new UserPoint(id, saved.point(), updateMillis, saved.version());
+                    });
+        });
+    }
+
+    /**
+     * PointService.cancel 과 같다. 남긴 내역을 뒤에서부터 반대 내역으로 한 번에 상쇄한다. (잔액은 저장되지 않았으므로 그대로다)
+     */
+    private Mono<Void> cancel(long id, List<PointCommand> commands, long[] balances, long updateMillis) {
+        PointService.addSummaries(summaries, id, commands, updateMillis);
+        List<PointCommand> reverses = PointService.reverses(commands);
+        return insertAll(id, reverses, PointService.balancesBefore(commands, balances), updateMillis)
+                .doOnSuccess(v -> PointService.addSummaries(summaries, id, reverses, updateMillis))
+                .onErrorResume(e -> {
+                    log.error("유저 {} 의 내역 {} 건을 상쇄하지 못했습니다. 잔액은 바뀌지 않았습니다.", id, commands.size(), e);
+                    return Mono.empty();
+                });
+    }
+
+    // 한 건이면 insert 로 남긴다. (PointService.insertAll 과 같다)
+    private Mono<Void> insertAll(long id, List<PointCommand> commands, long[] balances, long updateMillis) {
+        if (commands.size() == 1) return pointHistoryRepository.insert(id, commands.get(0).amount(), commands.get(0).type(), updateMillis, balances[0]).then();
+        return pointHistoryRepository.insertAll(id, commands, balances, updateMillis).then();
+    }
+
+    private Mono<List<PointHistory>> readPage(long userId, Long beforeId, int pageSize) {
+        return pointHistoryRepository.findPageByUserIdDesc(userId, beforeId, pageSize).collectList();
+    }
+
+    private static <T> Mono<T> timed(PointMetrics.Operation operation, Mono<T> mono) {
+        return Mono.defer(() -> {
+            long started = System.nanoTime();
+            return mono.doOnSuccess(value -> operation.record(started, false))
+                    .doOnError(e -> operation.record(started, true));
+        });
+    }
+}
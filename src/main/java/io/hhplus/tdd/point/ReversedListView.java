@@ -0,0 +1,27 @@
+package io.hhplus.tdd.point;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 원본 리스트를 복사하지 않고 뒤에서부터 읽는 view
+ */
+class ReversedListView<E> extends AbstractList<E> implements RandomAccess {
+
+    private final List<E> source;
+
+    ReversedListView(List<E> source) {
+        this.source = source;
+    }
+
+    @Override
+    public E get(int index) {
+        return source.get(source.size() - 1 - index);
+    }
+
+    @Override
+    public int size() {
+        return source.size();
+    }
+}
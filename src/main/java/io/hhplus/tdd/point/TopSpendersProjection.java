@@ -0,0 +1,48 @@
+package io.hhplus.tdd.point;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 유저별 누적 사용 포인트 read model (point.store=ledger)
+ * top(n) 은 부를 때마다 전체 유저를 한 번 훑어 상위 n 명만 heap 에 남긴다.
+ */
+@Component
+@ConditionalOnProperty(name = "point.store", havingValue = "ledger")
+public class TopSpendersProjection implements PointProjection {
+
+    private static final Comparator<Spender> BY_USED = Comparator.comparingLong(Spender::used).thenComparing(Spender::userId, Comparator.reverseOrder());
+
+    private final ConcurrentMap<Long, LongAdder> usedByUser = new ConcurrentHashMap<>();
+
+    @Override
+    public void apply(PointEvent event) {
+        if (event.type() != TransactionType.USE) return;
+        usedByUser.computeIfAbsent(event.userId(), k -> new LongAdder()).add(event.amount());
+    }
+
+    /**
+     * 누적 사용 포인트가 많은 순으로 n 명 (같으면 유저 id 가 작은 순)
+     */
+    public List<Spender> top(int n) {
+        PriorityQueue<Spender> heap = new PriorityQueue<>(BY_USED);
+        usedByUser.forEach((userId, used) -> {
+            heap.offer(new Spender(userId, used.sum()));
+            if (heap.size() > n) heap.poll();
+        });
+        List<Spender> spenders = new ArrayList<>(heap);
+        spenders.sort(BY_USED.reversed());
+        return spenders;
+    }
+
+    public record Spender(long userId, long used) {
+    }
+}
@@ -1,11 +1,19 @@
 package io.hhplus.tdd.point;
 
+/**
+ * version : 저장될 때마다 1씩 오르는 값 (저장된 적 없으면 0), 낙관적 모드의 compareAndSave 에 쓴다.
+ */
 public record UserPoint(
         long id,
         long point,
-        long updateMillis
+        long updateMillis,
+        long version
 ) {
 
+    public UserPoint(long id, long point, long updateMillis) {
+        this(id, point, updateMillis, 0);
+    }
+
     public static UserPoint empty(long id) {
         return new UserPoint(id, 0, System.currentTimeMillis());
     }
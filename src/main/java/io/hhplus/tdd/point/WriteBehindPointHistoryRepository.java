@@ -0,0 +1,412 @@
+package io.hhplus.tdd.point;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 내역 write-behind 저장소 (point.history.write-behind.enabled=true)
+ * - insert 는 bounded queue 에 넣고 바로 돌아온다. 아직 쓰지 않은 내역이 capacity 만큼이면 자리가 날 때까지 기다린다.
+ * - 유저 id 로 나눈 writers 개의 partition 마다 백그라운드 writer 가 batch 단위로 꺼내 "pointHistoryStore" 에 순서대로 쓴다.
+ *   기본 table 저장소는 insert 마다 평균 150ms 잠들어 writer 하나로는 초당 7건 정도가 한계라, 여러 writer 가 나눠 쓴다.
+ *   한 유저의 내역은 항상 같은 partition 으로 가므로 유저별 순서는 지켜진다.
+ * - 저장에 실패한 내역은 간격을 늘려가며 max-retries 번까지 다시 쓴다. 그동안 같은 partition 의 뒤 내역은 기다리고,
+ *   자리가 나지 않으면 insert 도 기다린다. (저장소가 돌아올 때까지 쓰는 쪽을 늦춘다)
+ *   그래도 실패하면 error 로그를 남기고 dead letter 로 옮긴 뒤 다음 내역으로 넘어간다. (한 건 때문에 partition 전체가 멈추지 않게 한다)
+ *   dead letter 는 최근 capacity 건까지 deadLetters() 로 볼 수 있고, 건수는 dead-lettered 지표로 센다.
+ * - 조회는 해당 유저의 대기중인 내역이 모두 써질 때까지 기다린 뒤 읽는다. (read-your-writes)
+ *   같은 partition 의 내역만 기다리고, read-timeout-millis 를 넘기거나 writer 가 멈춰 있으면 기다리지 않고 실패시킨다.
+ * - 종료 시 큐에 남은 내역을 모두 쓰고 멈춘다.
+ * - 대기 내역 수/대기 시간/저장·실패·dead letter 건수는 point.history.write-behind.* 지표로 노출한다.
+ */
+@Primary
+@Repository
+@ConditionalOnExpression("${point.history.write-behind.enabled:false} and '${point.store:table}' != 'ledger'")
+public class WriteBehindPointHistoryRepository implements PointHistoryRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindPointHistoryRepository.class);
+
+    private static final long RETRY_MIN_MILLIS = 10;
+    private static final long RETRY_MAX_MILLIS = 1000;
+    static final int DEFAULT_WRITERS = 32;
+    static final long DEFAULT_READ_TIMEOUT_MILLIS = 5000;
+    // 처음 시도 후 다시 시도하는 횟수. 간격이 1초까지 늘어나므로 기본값이면 15초 정도 버틴다.
+    static final int DEFAULT_MAX_RETRIES = 20;
+
+    private PointHistoryRepository delegate;
+    private Partition[] partitions;
+    private int capacity;
+    private int batchSize;
+    private long readTimeoutNanos;
+    private int maxRetries;
+    private volatile boolean running = true;
+
+    // 아직 쓰지 않은 내역 자리. insert 가 락 밖에서 받아 가고, writer 가 쓴 뒤에 돌려준다.
+    private Semaphore slots;
+
+    // 큐에 넣은 순서 = 발급한 seq 순서가 되도록 enqueue 를 직렬화한다. (자리를 받은 뒤라 큐에서 기다리지 않는다)
+    private final ReentrantLock enqueueLock = new ReentrantLock();
+    private long enqueuedSeq;
+
+    // 유저별로 아직 쓰지 않은 마지막 seq
+    private final ConcurrentMap<Long, Long> lastPendingSeq = new ConcurrentHashMap<>();
+
+    private final AtomicLong writtenCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong deadLetterCount = new AtomicLong();
+    // 끝내 쓰지 못한 내역. 최근 capacity 건만 남긴다.
+    private final Deque<PointHistory> deadLetters = new ConcurrentLinkedDeque<>();
+
+    @Autowired
+    public WriteBehindPointHistoryRepository(@Qualifier("pointHistoryStore") PointHistoryRepository delegate,
+                                             @Value("${point.history.write-behind.capacity:10000}") int capacity,
+                                             @Value("${point.history.write-behind.batch-size:256}") int batchSize,
+                                             @Value("${point.history.write-behind.writers:" + DEFAULT_WRITERS + "}") int writers,
+                                             @Value("${point.history.write-behind.read-timeout-millis:" + DEFAULT_READ_TIMEOUT_MILLIS + "}") long readTimeoutMillis,
+                                             @Value("${point.history.write-behind.max-retries:" + DEFAULT_MAX_RETRIES + "}") int maxRetries,
+                                             MeterRegistry meterRegistry) {
+        this(delegate, capacity, batchSize, writers, readTimeoutMillis, maxRetries);
+        Gauge.builder("point.history.write-behind.pending", this, WriteBehindPointHistoryRepository::pendingCount)
+                .description("아직 저장소에 쓰지 않은 내역 수")
+                .register(meterRegistry);
+        TimeGauge.builder("point.history.write-behind.lag", this, TimeUnit.MILLISECONDS, WriteBehindPointHistoryRepository::lagMillis)
+                .description("가장 오래 기다린 내역의 대기 시간")
+                .register(meterRegistry);
+        FunctionCounter.builder("point.history.write-behind.written", this, WriteBehindPointHistoryRepository::writtenCount)
+                .description("저장소에 쓴 내역 수")
+                .register(meterRegistry);
+        FunctionCounter.builder("point.history.write-behind.failed", this, WriteBehindPointHistoryRepository::failedCount)
+                .description("저장소 쓰기에 실패해 다시 시도한 횟수")
+                .register(meterRegistry);
+        FunctionCounter.builder("point.history.write-behind.dead-lettered", this, WriteBehindPointHistoryRepository::deadLetterCount)
+                .description("다시 시도해도 쓰지 못해 dead letter 로 옮긴 내역 수")
+                .register(meterRegistry);
+    }
+
+    public WriteBehindPointHistoryRepository(PointHistoryRepository delegate, int capacity, int batchSize) {
+        this(delegate, capacity, batchSize, DEFAULT_WRITERS, DEFAULT_READ_TIMEOUT_MILLIS);
+    }
+
+    public WriteBehindPointHistoryRepository(PointHistoryRepository delegate, int capacity, int batchSize, int writers, long readTimeoutMillis) {
+        this(delegate, capacity, batchSize, writers, readTimeoutMillis, DEFAULT_MAX_RETRIES);
+    }
+
+    public WriteBehindPointHistoryRepository(PointHistoryRepository delegate, int capacity, int batchSize, int writers, long readTimeoutMillis,
+                                             int maxRetries) {
+        if (writers < 1) throw new IllegalArgumentException("writer 는 1개 이상이어야 합니다.");
+        if (maxRetries < 0) throw new IllegalArgumentException("max-retries 는 0 이상이어야 합니다.");
+        this.delegate = delegate;
+        this.slots = new Semaphore(capacity);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.readTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(readTimeoutMillis);
+        this.maxRetries = maxRetries;
+        this.partitions = new Partition[writers];
+        for (int i = 0; i < writers; i++) partitions[i] = new Partition("point-history-writer-" + i);
+        for (Partition partition : partitions) partition.writer.start();
+    }
+
+    /**
+     * 내역 id 는 실제로 저장될 때 정해지므로, 돌려주는 내역의 id 는 0 이다.
+     */
+    @Override
+    public PointHistory insert(long userId, long amount, TransactionType type, long updateMillis, long balance) {
+        enqueue(userId, List.of(new PointCommand(userId, amount, type)), new long[]{balance}, updateMillis);
+        return new PointHistory(0, userId, amount, type, updateMillis, balance);
+    }
+
+    /**
+     * n 건을 큐의 한 칸으로 넣고, writer 는 저장소의 insertAll 한 번으로 쓴다. 돌려주는 내역의 id 는 0 이다.
+     */
+    @Override
+    public List<PointHistory> insertAll(long userId, List<PointCommand> commands, long[] balances, long updateMillis) {
+        enqueue(userId, List.copyOf(commands), Arrays.copyOf(balances, commands.size()), updateMillis);
+        PointHistory[] pointHistories = new PointHistory[commands.size()];
+        for (int i = 0; i < pointHistories.length; i++) {
+            PointCommand command = commands.get(i);
+            pointHistories[i] = new PointHistory(0, userId, command.amount(), command.type(), updateMillis, balances[i]);
+        }
+        return List.of(pointHistories);
+    }
+
+    @Override
+    public List<PointHistory> findAllByUserId(long userId) {
+        awaitUser(userId);
+        return delegate.findAllByUserId(userId);
+    }
+
+    @Override
+    public List<PointHistory> findAllByUserIdDesc(long userId) {
+        awaitUser(userId);
+        return delegate.findAllByUserIdDesc(userId);
+    }
+
+    @Override
+    public List<PointHistory> findPageByUserIdDesc(long userId, Long beforeId, int limit) {
+        awaitUser(userId);
+        return delegate.findPageByUserIdDesc(userId, beforeId, limit);
+    }
+
+    @Override
+    public long[] userIds() {
+        flush();
+        return delegate.userIds();
+    }
+
+    /**
+     * 호출 시점까지 들어온 내역이 모두 써질 때까지 기다린다. (read-timeout-millis 를 넘기면 실패)
+     */
+    public void flush() {
+        long[] targets = new long[partitions.length];
+        enqueueLock.lock();
+        try {
+            for (int i = 0; i < partitions.length; i++) targets[i] = partitions[i].enqueuedSeq;
+        } finally {
+            enqueueLock.unlock();
+        }
+        long deadline = System.nanoTime() + readTimeoutNanos;
+        for (int i = 0; i < partitions.length; i++) partitions[i].awaitWritten(targets[i], deadline);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        enqueueLock.lock();
+        try {
+            running = false;
+        } finally {
+            enqueueLock.unlock();
+        }
+        // writer 는 running 이 꺼져도 큐가 빌 때까지 계속 쓴다.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (Partition partition : partitions) {
+            partition.writer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+        if (Arrays.stream(partitions).anyMatch(partition -> partition.writer.isAlive())) {
+            log.error("종료 전에 내역 {} 건을 저장하지 못했습니다.", pendingCount());
+            for (Partition partition : partitions) partition.writer.interrupt();
+        }
+    }
+
+    /**
+     * 아직 쓰지 않은 내역 수 (저장에 실패해 다시 쓰는 중인 내역 포함)
+     */
+    public int pendingCount() {
+        return capacity - slots.availablePermits();
+    }
+
+    /**
+     * 가장 오래 기다린 내역의 대기 시간 (ms)
+     */
+    public long lagMillis() {
+        long now = System.nanoTime();
+        long lag = 0;
+        for (Partition partition : partitions) {
+            Pending oldest = partition.writing;
+            if (oldest == null) oldest = partition.queue.peek();
+            if (oldest != null) lag = Math.max(lag, now - oldest.enqueuedNanos());
+        }
+        return TimeUnit.NANOSECONDS.toMillis(lag);
+    }
+
+    public long writtenCount() {
+        return writtenCount.get();
+    }
+
+    public long failedCount() {
+        return failedCount.get();
+    }
+
+    public long deadLetterCount() {
+        return deadLetterCount.get();
+    }
+
+    /**
+     * 다시 시도해도 쓰지 못한 내역 (오래된 순, 최근 capacity 건까지). id 는 저장되지 않았으므로 0 이다.
+     */
+    public List<PointHistory> deadLetters() {
+        return List.copyOf(deadLetters);
+    }
+
+    // 건수만큼 자리를 받은 뒤 넣는다. 한 번에 capacity 를 넘는 건수는 자리가 날 수 없으므로 받지 않는다.
+    private void enqueue(long userId, List<PointCommand> commands, long[] balances, long updateMillis) {
+        int n = commands.size();
+        if (n > capacity) throw new IllegalArgumentException("한 번에 넣을 수 있는 내역은 " + capacity + " 건까지입니다.");
+        if (!running) throw new IllegalStateException("내역 저장소가 종료되었습니다.");
+        try {
+            slots.acquire(n);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("내역 저장 대기 중 인터럽트되었습니다.", e);
+        }
+
+        Partition partition = partitionOf(userId);
+        enqueueLock.lock();
+        try {
+            if (!running) {
+                slots.release(n);
+                throw new IllegalStateException("내역 저장소가 종료되었습니다.");
+            }
+            long seq = ++enqueuedSeq;
+            // writer 가 써서 지우기 전에 먼저 등록해야 조회가 이 내역을 기다린다.
+            lastPendingSeq.put(userId, seq);
+            partition.enqueuedSeq = seq;
+            // 자리를 받았으므로 큐에는 항상 들어간다.
+            partition.queue.add(new Pending(seq, userId, commands, balances, updateMillis, System.nanoTime()));
+        } finally {
+            enqueueLock.unlock();
+        }
+    }
+
+    private Partition partitionOf(long userId) {
+        return partitions[(Long.hashCode(userId) & 0x7fffffff) % partitions.length];
+    }
+
+    private void awaitUser(long userId) {
+        Long seq = lastPendingSeq.get(userId);
+        if (seq != null) partitionOf(userId).awaitWritten(seq, System.nanoTime() + readTimeoutNanos);
+    }
+
+    // 순서를 지키기 위해 다음 내역으로 넘어가지 않고 이 내역을 max-retries 번까지 다시 시도한다. 끝내 실패하면 dead letter 로 옮기고 false
+    private boolean writeWithRetry(Pending pending) throws InterruptedException {
+        long backoffMillis = RETRY_MIN_MILLIS;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                if (pending.commands().size() == 1) {
+                    PointCommand command = pending.commands().get(0);
+                    delegate.insert(pending.userId(), command.amount(), command.type(), pending.updateMillis(), pending.balances()[0]);
+                } else {
+                    delegate.insertAll(pending.userId(), pending.commands(), pending.balances(), pending.updateMillis());
+                }
+                return true;
+            } catch (Exception e) {
+                long failed = failedCount.incrementAndGet();
+                if (attempt >= maxRetries) {
+                    deadLetter(pending, e);
+                    return false;
+                }
+                log.warn("내역 저장 실패, {}ms 후 다시 시도 userId={}, commands={}, 누적 실패={}",
+                        backoffMillis, pending.userId(), pending.commands(), failed, e);
+            }
+            Thread.sleep(backoffMillis);
+            backoffMillis = Math.min(backoffMillis * 2, RETRY_MAX_MILLIS);
+        }
+    }
+
+    private void deadLetter(Pending pending, Exception e) {
+        log.error("내역 저장을 {} 번 다시 시도했지만 실패하여 dead letter 로 옮깁니다. userId={}, commands={}, balances={}, updateMillis={}",
+                maxRetries, pending.userId(), pending.commands(), Arrays.toString(pending.balances()), pending.updateMillis(), e);
+        for (int i = 0; i < pending.commands().size(); i++) {
+            PointCommand command = pending.commands().get(i);
+            deadLetters.addLast(new PointHistory(0, pending.userId(), command.amount(), command.type(), pending.updateMillis(), pending.balances()[i]));
+            if (deadLetterCount.incrementAndGet() > capacity) deadLetters.pollFirst();
+        }
+    }
+
+    /**
+     * 유저 id 로 나눈 큐 하나와 그 큐를 쓰는 writer. seq 는 전역이지만 한 partition 안에서는 증가 순서로 들어온다.
+     */
+    private final class Partition {
+        private final BlockingQueue<Pending> queue;
+        private final Thread writer;
+        // enqueueLock 안에서만 쓴다.
+        private long enqueuedSeq;
+        // writer 가 지금 쓰고 있는 내역 (큐에서 꺼냈지만 아직 저장되지 않음)
+        private volatile Pending writing;
+        private final AtomicLong writtenSeq = new AtomicLong();
+        private final ReentrantLock flushLock = new ReentrantLock();
+        private final Condition flushed = flushLock.newCondition();
+
+        Partition(String name) {
+            // 자리(slots)를 받은 내역만 넣으므로 전체 대기 내역은 capacity 를 넘지 않는다. partition 마다 capacity 만큼 잡아두지 않는다.
+            this.queue = new LinkedBlockingQueue<>();
+            this.writer = new Thread(this::drainLoop, name);
+            this.writer.setDaemon(true);
+        }
+
+        void awaitWritten(long seq, long deadlineNanos) {
+            if (writtenSeq.get() >= seq) return;
+            flushLock.lock();
+            try {
+                while (writtenSeq.get() < seq) {
+                    if (!writer.isAlive()) throw new IllegalStateException("내역 writer 가 멈춰 아직 쓰지 않은 내역을 읽을 수 없습니다.");
+                    long remaining = deadlineNanos - System.nanoTime();
+                    if (remaining <= 0) throw new IllegalStateException("내역 저장이 밀려 조회하지 못했습니다. 잠시 후 다시 시도해주세요.");
+                    // writer 가 죽었는지 다시 보도록 너무 길게 자지 않는다.
+                    flushed.awaitNanos(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(100)));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("내역 저장 대기 중 인터럽트되었습니다.", e);
+            } finally {
+                flushLock.unlock();
+            }
+        }
+
+        private void drainLoop() {
+            List<Pending> batch = new ArrayList<>(batchSize);
+            while (running || !queue.isEmpty()) {
+                try {
+                    Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) continue;
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    write(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        private void write(List<Pending> batch) throws InterruptedException {
+            if (batch.isEmpty()) return;
+            for (Pending pending : batch) {
+                writing = pending;
+                boolean written = writeWithRetry(pending);
+                writing = null;
+                if (written) writtenCount.addAndGet(pending.commands().size());
+                lastPendingSeq.remove(pending.userId(), pending.seq());
+                slots.release(pending.commands().size());
+                // 조회는 자기 내역까지만 기다리므로 batch 끝까지 기다리게 하지 않는다.
+                writtenSeq.set(pending.seq());
+                flushLock.lock();
+                try {
+                    flushed.signalAll();
+                } finally {
+                    flushLock.unlock();
+                }
+            }
+        }
+    }
+
+    // insertAll 로 들어온 여러 건은 한 칸에 담아 한 번에 쓴다. balances[i] 는 commands[i] 반영 직후 잔액
+    private record Pending(long seq, long userId, List<PointCommand> commands, long[] balances, long updateMillis, long enqueuedNanos) {
+    }
+}
@@ -0,0 +1,84 @@
+package io.hhplus.tdd;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsistentHashRingTest {
+
+    private static final int KEYS = 100_000;
+
+    /**
+     * ConsistentHashRing Test
+     * 1. key 가 노드에 고르게 나뉨
+     * 2. 노드가 추가되면 새 노드 몫만 옮겨짐
+     * 3. 노드가 빠지면 빠진 노드의 key 만 옮겨짐
+     * 4. 같은 구성이면 노드 순서와 상관없이 같은 주인
+     * */
+
+    @Test
+    void key_가_노드에_고르게_나뉨 () {
+        //given
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("http://a", "http://b", "http://c", "http://d"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+
+        //when
+        for (long key = 0; key < KEYS; key++) counts.merge(ring.ownerOf(key), 1, Integer::sum);
+
+        //then
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) assertTrue(count > KEYS / 4 * 0.8 && count < KEYS / 4 * 1.2, "노드별 key 수 " + count);
+    }
+
+    @Test
+    void 노드가_추가되면_새_노드_몫만_옮겨짐 () {
+        //given
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("http://a", "http://b", "http://c"), 128);
+        ConsistentHashRing next = ring.withNodes(List.of("http://a", "http://b", "http://c", "http://d"));
+
+        //when
+        long[] moved = ring.moved(next, keys());
+
+        //then
+        for (long key : moved) assertEquals("http://d", next.ownerOf(key));
+        assertTrue(moved.length > KEYS / 4 * 0.8 && moved.length < KEYS / 4 * 1.2, "옮겨진 key 수 " + moved.length);
+    }
+
+    @Test
+    void 노드가_빠지면_빠진_노드의_key_만_옮겨짐 () {
+        //given
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("http://a", "http://b", "http://c"), 128);
+        ConsistentHashRing next = ring.withNodes(List.of("http://a", "http://c"));
+
+        //when
+        long[] moved = ring.moved(next, keys());
+
+        //then
+        for (long key : moved) assertEquals("http://b", ring.ownerOf(key));
+        for (long key = 0; key < KEYS; key++) {
+            if (ring.ownerOf(key).equals("http://b")) continue;
+            assertEquals(ring.ownerOf(key), next.ownerOf(key));
+        }
+    }
+
+    @Test
+    void 같은_구성이면_노드_순서와_상관없이_같은_주인 () {
+        //given
+        ConsistentHashRing ring = new ConsistentHashRing(List.of("http://a", "http://b", "http://c"), 64);
+        ConsistentHashRing reordered = new ConsistentHashRing(List.of("http://c", "http://a", "http://b"), 64);
+
+        //when
+        //then
+        assertEquals(0, ring.moved(reordered, keys()).length);
+    }
+
+    private static long[] keys() {
+        long[] keys = new long[KEYS];
+        for (int i = 0; i < KEYS; i++) keys[i] = i;
+        return keys;
+    }
+}
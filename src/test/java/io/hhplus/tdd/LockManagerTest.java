@@ -0,0 +1,126 @@
+package io.hhplus.tdd;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LockManagerTest {
+
+    private LockManager lockManager = new LockManager(4);
+
+    /**
+     * LockManager Test
+     * 1. unLock 후 엔트리 제거
+     * 2. 다른 스레드가 잡고 있으면 tryLock timeout
+     * 3. 다른 key 는 서로 막지 않음
+     * 4. stripe 수는 2의 거듭제곱으로 올림
+     * 5. 락 대기 시간과 보유 시간을 따로 기록
+     * 6. 지표를 끄면 락 시간을 등록하지 않음
+     * */
+
+    @Test
+    void unLock_후_엔트리_제거 () {
+        //given
+        lockManager.lock(1L);
+        lockManager.lock(2L);
+
+        //when
+        lockManager.unLock(1L);
+        lockManager.unLock(2L);
+
+        //then
+        assertEquals(0, lockManager.activeKeys());
+    }
+
+    @Test
+    void 다른_스레드가_잡고_있으면_tryLock_timeout () throws Exception {
+        //given
+        lockManager.lock(1L);
+
+        //when
+        boolean locked = CompletableFuture.supplyAsync(() -> {
+            try {
+                return lockManager.tryLock(1L, 50, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return true;
+            }
+        }).join();
+
+        //then
+        assertFalse(locked);
+        lockManager.unLock(1L);
+        assertEquals(0, lockManager.activeKeys());
+    }
+
+    @Test
+    void 다른_key_는_서로_막지_않음 () throws Exception {
+        //given
+        lockManager.lock(1L);
+
+        //when
+        boolean locked = CompletableFuture.supplyAsync(() -> {
+            try {
+                boolean result = lockManager.tryLock(2L, 50, TimeUnit.MILLISECONDS);
+                if (result) lockManager.unLock(2L);
+                return result;
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }).join();
+
+        //then
+        assertTrue(locked);
+        lockManager.unLock(1L);
+    }
+
+    @Test
+    void stripe_수는_2의_거듭제곱으로_올림 () {
+        assertEquals(8, new LockManager(5).stripeCount());
+        assertThrows(IllegalArgumentException.class, () -> new LockManager(0));
+    }
+
+    @Test
+    void 락_대기_시간과_보유_시간을_따로_기록 () throws Exception {
+        //given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        LockManager meteredLockManager = new LockManager(4, meterRegistry);
+        meteredLockManager.lock(1L);
+        CompletableFuture<Void> waiter = CompletableFuture.runAsync(() -> {
+            meteredLockManager.lock(1L);
+            meteredLockManager.unLock(1L);
+        });
+
+        //when
+        TimeUnit.MILLISECONDS.sleep(50);
+        meteredLockManager.lock(1L);
+        meteredLockManager.unLock(1L);
+        meteredLockManager.unLock(1L);
+        waiter.join();
+
+        //then
+        // 재진입은 대기로 세지만 보유는 처음 잡은 때부터 한 번만 센다.
+        assertEquals(3, meterRegistry.get("point.lock.wait").timer().count());
+        assertEquals(2, meterRegistry.get("point.lock.hold").timer().count());
+        assertTrue(meterRegistry.get("point.lock.wait").timer().totalTime(TimeUnit.MILLISECONDS) >= 40);
+        assertTrue(meterRegistry.get("point.lock.hold").timer().totalTime(TimeUnit.MILLISECONDS) >= 40);
+    }
+
+    @Test
+    void 지표를_끄면_락_시간을_등록하지_않음 () {
+        //given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        LockManager unmeteredLockManager = new LockManager(4, meterRegistry, false);
+
+        //when
+        unmeteredLockManager.lock(1L);
+        unmeteredLockManager.unLock(1L);
+
+        //then
+        assertNull(meterRegistry.find("point.lock.wait").timer());
+        assertNull(meterRegistry.find("point.lock.hold").timer());
+    }
+}
@@ -0,0 +1,50 @@
+package io.hhplus.tdd;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PointExecutorConfigTest {
+
+    /**
+     * Executor Test
+     * 1. virtual 모드는 런타임이 지원하면 virtual thread, 아니면 platform thread 로 실행
+     * 2. platform 모드는 daemon thread pool
+     * */
+
+    @Test
+    void virtual_모드는_지원하면_virtual_thread_로_실행 () throws Exception {
+        //given
+        ExecutorService executor = PointExecutorConfig.newExecutor("test-", 2, true);
+
+        //when
+        boolean virtual = executor.submit(() -> isVirtual(Thread.currentThread())).get(1, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        //then
+        assertEquals(PointExecutorConfig.isVirtualThreadSupported(), virtual);
+    }
+
+    @Test
+    void platform_모드는_daemon_thread_pool () throws Exception {
+        //given
+        ExecutorService executor = PointExecutorConfig.newExecutor("test-", 2, false);
+
+        //when
+        Thread thread = executor.submit(Thread::currentThread).get(1, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        //then
+        assertTrue(thread.isDaemon());
+        assertTrue(thread.getName().startsWith("test-"));
+        assertFalse(isVirtual(thread));
+    }
+
+    private boolean isVirtual(Thread thread) throws Exception {
+        if (!PointExecutorConfig.isVirtualThreadSupported()) return false;
+        return (boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+}
@@ -0,0 +1,96 @@
+package io.hhplus.tdd;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserMailboxExecutorTest {
+
+    private ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Mailbox Test
+     * 1. 같은 유저 메시지는 순서대로 하나씩 처리
+     * 2. mailbox 가 가득 차면 거절
+     * 3. 처리가 끝나면 mailbox 제거
+     * */
+
+    @Test
+    void 같은_유저_메시지는_순서대로_처리 () {
+        //given
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        UserMailboxExecutor<Integer, Integer> mailbox = new UserMailboxExecutor<>(executor, 1000, 8, (userId, batch) -> {
+            for (UserMailboxExecutor.Envelope<Integer, Integer> envelope : batch) {
+                handled.add(envelope.message());
+                envelope.future().complete(envelope.message());
+            }
+        });
+
+        //when
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) futures.add(mailbox.submit(1L, i));
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        //then
+        for (int i = 0; i < 100; i++) assertEquals(i, handled.get(i));
+        assertEquals(0, mailbox.queueDepth());
+    }
+
+    @Test
+    void mailbox_가_가득_차면_거절 () throws Exception {
+        //given
+        CountDownLatch release = new CountDownLatch(1);
+        UserMailboxExecutor<Integer, Integer> mailbox = new UserMailboxExecutor<>(executor, 2, 1, (userId, batch) -> {
+            release.await(5, TimeUnit.SECONDS);
+            batch.forEach(envelope -> envelope.future().complete(envelope.message()));
+        });
+        CompletableFuture<Integer> first = mailbox.submit(1L, 1);
+        CompletableFuture<Integer> second = mailbox.submit(1L, 2);
+
+        //when
+        CompletableFuture<Integer> third = mailbox.submit(1L, 3);
+        CompletableFuture<Integer> otherUser = mailbox.submit(2L, 4);
+
+        //then
+        CompletionException exception = assertThrows(CompletionException.class, third::join);
+        assertInstanceOf(RejectedExecutionException.class, exception.getCause());
+        assertEquals(1, mailbox.rejectedCount());
+
+        release.countDown();
+        assertEquals(1, first.join());
+        assertEquals(2, second.join());
+        assertEquals(4, otherUser.join());
+    }
+
+    @Test
+    void 처리가_끝나면_mailbox_제거 () throws Exception {
+        //given
+        UserMailboxExecutor<Integer, Integer> mailbox = new UserMailboxExecutor<>(executor, 10, 10, (userId, batch) ->
+                batch.forEach(envelope -> envelope.future().complete(envelope.message())));
+
+        //when
+        for (long userId = 0; userId < 50; userId++) mailbox.submit(userId, 1).join();
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+
+        //then
+        assertEquals(0, mailbox.activeMailboxes());
+    }
+}
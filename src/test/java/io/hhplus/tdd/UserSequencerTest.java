@@ -0,0 +1,98 @@
+package io.hhplus.tdd;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserSequencerTest {
+
+    /**
+     * UserSequencer Test
+     * 1. 같은 유저의 작업은 앞 작업이 끝난 뒤 시작, 다른 유저는 기다리지 않음
+     * 2. 취소된 작업도 앞 작업이 끝날 때까지 다음 작업의 차례를 막음
+     * 3. 실행 중에 취소된 작업은 끝까지 실행되고, 끝난 뒤에 다음 작업이 시작
+     * 4. 끝난 유저는 map 에서 제거
+     * */
+
+    private final UserSequencer userSequencer = new UserSequencer(Schedulers.parallel());
+
+    @Test
+    void 같은_유저의_작업은_앞_작업이_끝난_뒤_시작 () throws Exception {
+        //given
+        CompletableFuture<Integer> gate = new CompletableFuture<>();
+        AtomicInteger started = new AtomicInteger();
+        CompletableFuture<Integer> first = userSequencer.run(1L, () -> Mono.fromFuture(gate, true)).toFuture();
+
+        //when
+        CompletableFuture<Integer> second = userSequencer.run(1L, () -> Mono.fromSupplier(started::incrementAndGet)).toFuture();
+        CompletableFuture<Integer> other = userSequencer.run(2L, () -> Mono.just(7)).toFuture();
+
+        //then
+        assertEquals(7, (int) other.get(1, TimeUnit.SECONDS));
+        assertEquals(0, started.get());
+        assertFalse(second.isDone());
+
+        gate.complete(5);
+        assertEquals(5, (int) first.get(1, TimeUnit.SECONDS));
+        assertEquals(1, (int) second.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void 취소된_작업도_앞_작업이_끝날_때까지_다음_차례를_막음 () throws Exception {
+        //given
+        CompletableFuture<Integer> gate = new CompletableFuture<>();
+        userSequencer.run(1L, () -> Mono.fromFuture(gate, true)).toFuture();
+        CompletableFuture<Integer> cancelled = userSequencer.run(1L, () -> Mono.just(1)).toFuture();
+
+        //when
+        cancelled.cancel(true);
+        CompletableFuture<Integer> third = userSequencer.run(1L, () -> Mono.just(3)).toFuture();
+
+        //then
+        Thread.sleep(100);
+        assertFalse(third.isDone());
+        gate.complete(5);
+        assertEquals(3, (int) third.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void 실행_중에_취소된_작업은_끝까지_실행되고_끝난_뒤에_다음_작업이_시작 () throws Exception {
+        //given
+        CompletableFuture<Integer> gate = new CompletableFuture<>();
+        AtomicInteger finished = new AtomicInteger();
+        CompletableFuture<Integer> cancelled = userSequencer.run(1L, () -> Mono.fromFuture(gate, true)
+                .doOnNext(value -> finished.incrementAndGet())).toFuture();
+
+        //when
+        cancelled.cancel(true);
+        CompletableFuture<Integer> next = userSequencer.run(1L, () -> Mono.fromSupplier(finished::get)).toFuture();
+
+        //then
+        Thread.sleep(100);
+        assertFalse(next.isDone());
+        gate.complete(5);
+        assertEquals(1, (int) next.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void 끝난_유저는_map_에서_제거 () throws Exception {
+        //given
+        for (long userId = 0; userId < 100; userId++) {
+            long id = userId;
+            userSequencer.run(id, () -> Mono.just(id)).toFuture().get(1, TimeUnit.SECONDS);
+        }
+
+        //when
+        long deadline = System.currentTimeMillis() + 1000;
+        while (userSequencer.activeUsers() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+
+        //then
+        assertEquals(0, userSequencer.activeUsers());
+    }
+}
@@ -0,0 +1,144 @@
+package io.hhplus.tdd.point;
+
+import io.hhplus.tdd.LockManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AtomicPointRepositoryTest {
+
+    private AtomicPointRepository pointRepository = new AtomicPointRepository(16);
+
+    /**
+     * Atomic Store Test
+     * 1. 저장한 적 없는 유저는 0
+     * 2. version 이 다르면 compareAndSave 실패
+     * 3. 확장 중에도 잔액 유지
+     * 4. 동시 CAS 증가에서 누락 없음
+     * 5. 음수 잔액은 저장하지 않음
+     * 6. 잔액이 줄어도 version 은 오름
+     * 7. 캐시를 앞에 둬도 충전 → 사용 → 충전 잔액이 맞음
+     * */
+
+    @Test
+    void 저장한_적_없는_유저는_0 () {
+        //given
+        long userId = 1;
+
+        //when
+        UserPoint userPoint = pointRepository.findById(userId);
+
+        //then
+        assertEquals(userId, userPoint.id());
+        assertEquals(0, userPoint.point());
+        assertEquals(0, userPoint.version());
+    }
+
+    @Test
+    void version_이_다르면_compareAndSave_실패 () {
+        //given
+        long userId = 1;
+        UserPoint saved = pointRepository.save(userId, 100);
+
+        //when
+        UserPoint conflict = pointRepository.compareAndSave(userId, 0, 200);
+        UserPoint updated = pointRepository.compareAndSave(userId, saved.version(), 200);
+
+        //then
+        assertEquals(1, saved.version());
+        assertNull(conflict);
+        assertEquals(200, updated.point());
+        assertEquals(2, updated.version());
+        assertEquals(updated, pointRepository.findById(userId));
+    }
+
+    @Test
+    void 확장_중에도_잔액_유지 () {
+        //given
+        int users = 10_000;
+
+        //when
+        for (long userId = 0; userId < users; userId++) pointRepository.save(userId, userId * 10);
+
+        //then
+        assertEquals(users, pointRepository.size());
+        for (long userId = 0; userId < users; userId++) {
+            assertEquals(userId * 10, pointRepository.findById(userId).point());
+        }
+    }
+
+    @Test
+    void 동시_CAS_증가에서_누락_없음 () {
+        //given
+        int threads = 8;
+        int increments = 10_000;
+        int users = 1_000;
+
+        //when
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < increments; i++) {
+                    long userId = i % users;
+                    while (true) {
+                        UserPoint cur = pointRepository.findById(userId);
+                        if (pointRepository.compareAndSave(userId, cur.version(), cur.point() + 1) != null) break;
+                    }
+                }
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        //then
+        for (long userId = 0; userId < users; userId++) {
+            assertEquals((long) threads * increments / users, pointRepository.findById(userId).point());
+        }
+    }
+
+    @Test
+    void 음수_잔액은_저장하지_않음 () {
+        //given
+        long userId = 1;
+
+        //when
+        //then
+        assertThrows(IllegalArgumentException.class, () -> pointRepository.save(userId, -1));
+    }
+
+    @Test
+    void 잔액이_줄어도_version_은_오름 () {
+        //given
+        long userId = 1;
+        UserPoint charged = pointRepository.save(userId, 1000);
+
+        //when
+        UserPoint used = pointRepository.compareAndSave(userId, charged.version(), 700);
+        UserPoint sameBalance = pointRepository.save(userId, 1000);
+
+        //then
+        assertTrue(used.version() > charged.version());
+        assertTrue(sameBalance.version() > used.version());
+        assertNull(pointRepository.compareAndSave(userId, charged.version(), 0));
+    }
+
+    @Test
+    void 캐시를_앞에_둬도_충전_사용_충전_잔액이_맞음 () throws Exception {
+        //given
+        PointService pointService = new PointService(new CachingPointRepository(pointRepository, 16), new IndexedPointHistoryRepository(),
+                new LockManager(), Runnable::run, null, null, null, null);
+
+        //when
+        pointService.charge(1L, 1000L);
+        pointService.use(1L, 300L);
+        UserPoint userPoint = pointService.charge(1L, 100L);
+
+        //then
+        assertEquals(800, userPoint.point());
+        assertEquals(800, pointService.search(1L).point());
+        assertEquals(800, pointRepository.findById(1L).point());
+    }
+}
@@ -0,0 +1,124 @@
+package io.hhplus.tdd.point;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CachingPointRepositoryTest {
+
+    @Mock
+    PointRepository delegate;
+
+    CachingPointRepository pointRepository;
+
+    @BeforeEach
+    void setUp() {
+        pointRepository = new CachingPointRepository(delegate, 16);
+    }
+
+    /**
+     * Cache Test
+     * 1. 두번째 조회부터 캐시 hit
+     * 2. save 결과로 캐시 갱신
+     * 3. 최대 크기를 넘으면 evict
+     * 4. compareAndSave 가 충돌하면 캐시에서 제거
+     * 5. hit / miss / evict 횟수를 지표로 내보냄
+     * */
+
+    @Test
+    void 두번째_조회부터_캐시_hit () {
+        //given
+        long userId = 1;
+        when(delegate.findById(userId)).thenReturn(new UserPoint(userId, 100, System.currentTimeMillis()));
+
+        //when
+        pointRepository.findById(userId);
+        UserPoint userPoint = pointRepository.findById(userId);
+
+        //then
+        assertEquals(100, userPoint.point());
+        verify(delegate, times(1)).findById(userId);
+        assertEquals(1, pointRepository.hitCount());
+        assertEquals(1, pointRepository.missCount());
+    }
+
+    @Test
+    void save_결과로_캐시_갱신 () {
+        //given
+        long userId = 1;
+        when(delegate.save(userId, 500)).thenReturn(new UserPoint(userId, 500, System.currentTimeMillis()));
+
+        //when
+        pointRepository.save(userId, 500);
+        UserPoint userPoint = pointRepository.findById(userId);
+
+        //then
+        assertEquals(500, userPoint.point());
+        verify(delegate, times(0)).findById(userId);
+    }
+
+    @Test
+    void 최대_크기를_넘으면_evict () {
+        //given
+        //when
+        for (long userId = 0; userId < 100; userId++) {
+            when(delegate.save(userId, 1)).thenReturn(new UserPoint(userId, 1, System.currentTimeMillis()));
+            pointRepository.save(userId, 1);
+        }
+
+        //then
+        assertTrue(pointRepository.size() <= 16);
+        assertTrue(pointRepository.evictionCount() > 0);
+    }
+
+    @Test
+    void compareAndSave_가_충돌하면_캐시에서_제거 () {
+        //given
+        long userId = 1;
+        when(delegate.save(userId, 100)).thenReturn(new UserPoint(userId, 100, System.currentTimeMillis(), 1));
+        when(delegate.compareAndSave(userId, 1, 200)).thenReturn(null);
+        when(delegate.findById(userId)).thenReturn(new UserPoint(userId, 300, System.currentTimeMillis(), 2));
+        pointRepository.save(userId, 100);
+
+        //when
+        UserPoint conflict = pointRepository.compareAndSave(userId, 1, 200);
+        UserPoint userPoint = pointRepository.findById(userId);
+
+        //then
+        assertNull(conflict);
+        assertEquals(300, userPoint.point());
+        assertEquals(2, userPoint.version());
+    }
+
+    @Test
+    void hit_miss_evict_횟수를_지표로_내보냄 () {
+        //given
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CachingPointRepository metered = new CachingPointRepository(delegate, 16, meterRegistry);
+        when(delegate.findById(1L)).thenReturn(new UserPoint(1L, 100, System.currentTimeMillis()));
+
+        //when
+        metered.findById(1L);
+        metered.findById(1L);
+        for (long userId = 0; userId < 100; userId++) {
+            when(delegate.save(userId, 1)).thenReturn(new UserPoint(userId, 1, System.currentTimeMillis()));
+            metered.save(userId, 1);
+        }
+
+        //then
+        assertEquals(1, meterRegistry.get("point.cache.hits").functionCounter().count());
+        assertEquals(1, meterRegistry.get("point.cache.misses").functionCounter().count());
+        assertEquals(metered.evictionCount(), meterRegistry.get("point.cache.evictions").functionCounter().count());
+        assertTrue(metered.evictionCount() > 0);
+    }
+}
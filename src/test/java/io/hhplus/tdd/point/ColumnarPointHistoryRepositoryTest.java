@@ -0,0 +1,139 @@
+package io.hhplus.tdd.point;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarPointHistoryRepositoryTest {
+
+    private ColumnarPointHistoryRepository pointHistoryRepository = new ColumnarPointHistoryRepository();
+
+    /**
+     * Columnar History Test
+     * 1. 유저별 내역만 컬럼 값 그대로 조회
+     * 2. 내역 없는 유저
+     * 3. chunk 를 넘어가도 유저별 순서 유지
+     * 4. 동시 append 에서 id 중복/누락 없음
+     * 5. 최신순 페이지 조회
+     * 6. 유저가 섞여도 페이지를 이어 읽으면 전체 내역과 같음
+     * */
+
+    @Test
+    void 유저별_내역만_컬럼_값_그대로_조회 () {
+        //given
+        for (int i = 0; i < 100; i++) {
+            pointHistoryRepository.insert(i % 2, i, i % 4 == 1 ? TransactionType.USE : TransactionType.CHARGE, 1000 + i, i);
+        }
+
+        //when
+        List<PointHistory> histories = pointHistoryRepository.findAllByUserId(1);
+
+        //then
+        assertEquals(50, histories.size());
+        PointHistory first = histories.get(0);
+        assertEquals(2, first.id());
+        assertEquals(1, first.userId());
+        assertEquals(1, first.amount());
+        assertEquals(TransactionType.USE, first.type());
+        assertEquals(1001, first.updateMillis());
+        assertEquals(TransactionType.CHARGE, histories.get(1).type());
+    }
+
+    @Test
+    void 내역_없는_유저 () {
+        assertTrue(pointHistoryRepository.findAllByUserId(1).isEmpty());
+    }
+
+    @Test
+    void chunk_를_넘어가도_유저별_순서_유지 () {
+        //given
+        int rows = 50_000;
+        for (int i = 0; i < rows; i++) {
+            pointHistoryRepository.insert(i % 3, i, TransactionType.CHARGE, i, i);
+        }
+
+        //when
+        List<PointHistory> histories = pointHistoryRepository.findAllByUserId(2);
+
+        //then
+        assertEquals(rows, pointHistoryRepository.rowCount());
+        assertEquals(rows / 3, histories.size());
+        for (int i = 0; i < histories.size(); i++) {
+            assertEquals(i * 3L + 2, histories.get(i).amount());
+        }
+    }
+
+    @Test
+    void 동시_append_에서_id_중복_누락_없음 () {
+        //given
+        int threads = 8;
+        int rowsPerThread = 1000;
+
+        //when
+        CompletableFuture<?>[] futures = new CompletableFuture[threads];
+        for (int t = 0; t < threads; t++) {
+            long userId = t % 2;
+            futures[t] = CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < rowsPerThread; i++) {
+                    pointHistoryRepository.insert(userId, 1, TransactionType.CHARGE, System.currentTimeMillis(), 1);
+                }
+            });
+        }
+        CompletableFuture.allOf(futures).join();
+
+        //then
+        List<PointHistory> user0 = pointHistoryRepository.findAllByUserId(0);
+        List<PointHistory> user1 = pointHistoryRepository.findAllByUserId(1);
+        assertEquals(threads / 2 * rowsPerThread, user0.size());
+        assertEquals(threads / 2 * rowsPerThread, user1.size());
+        assertEquals(threads * rowsPerThread, user0.stream().mapToLong(PointHistory::id)
+                .distinct().count() + user1.stream().mapToLong(PointHistory::id).distinct().count());
+        for (int i = 1; i < user0.size(); i++) {
+            assertTrue(user0.get(i - 1).id() < user0.get(i).id());
+        }
+    }
+
+    @Test
+    void 최신순_페이지_조회 () {
+        //given
+        for (int i = 1; i <= 10; i++) {
+            pointHistoryRepository.insert(1, i, TransactionType.CHARGE, i, i);
+        }
+
+        //when
+        List<PointHistory> page = pointHistoryRepository.findPageByUserIdDesc(1, 8L, 3);
+
+        //then
+        assertEquals(3, page.size());
+        assertEquals(7, page.get(0).id());
+        assertEquals(5, page.get(2).id());
+    }
+
+    @Test
+    void 유저가_섞여도_페이지를_이어_읽으면_전체와_같음 () {
+        //given
+        for (int i = 0; i < 1000; i++) {
+            pointHistoryRepository.insert(i % 3, i, TransactionType.CHARGE, i, i);
+        }
+        List<PointHistory> expected = pointHistoryRepository.findAllByUserIdDesc(1);
+
+        //when
+        List<PointHistory> pages = new ArrayList<>();
+        List<PointHistory> page = pointHistoryRepository.findPageByUserIdDesc(1, null, 7);
+        while (!page.isEmpty()) {
+            pages.addAll(page);
+            page = pointHistoryRepository.findPageByUserIdDesc(1, page.get(page.size() - 1).id(), 7);
+        }
+        // 다른 유저의 id 를 cursor 로 줘도 그보다 작은 id 부터
+        List<PointHistory> fromOtherCursor = pointHistoryRepository.findPageByUserIdDesc(1, 501L, 2);
+
+        //then
+        assertEquals(expected, pages);
+        assertEquals(List.of(500L, 497L), fromOtherCursor.stream().map(PointHistory::id).toList());
+        assertEquals(List.of(), pointHistoryRepository.findPageByUserIdDesc(1, 1L, 5));
+    }
+}
@@ -0,0 +1,143 @@
+package io.hhplus.tdd.point;
+
+import io.hhplus.tdd.LockManager;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyCacheTest {
+
+    /**
+     * Idempotency Test
+     * 1. 같은 키로 다시 충전하면 한 번만 반영
+     * 2. 같은 키로 금액이 다른 요청은 실패
+     * 3. 실패한 요청은 보관하지 않고 다시 실행
+     * 4. 크기를 넘으면 오래된 키부터 지움
+     * 5. ttl 이 지난 키는 다시 실행
+     * 6. 같은 키로 동시에 요청하면 한 번만 실행
+     * */
+
+    private final AtomicPointRepository pointRepository = new AtomicPointRepository();
+    private final IndexedPointHistoryRepository pointHistoryRepository = new IndexedPointHistoryRepository();
+
+    @Test
+    void 같은_키로_다시_충전하면_한_번만_반영 () throws Exception {
+        //given
+        IdempotencyCache idempotencyCache = new IdempotencyCache(1000, Duration.ofHours(1));
+        PointService pointService = new PointService(pointRepository, pointHistoryRepository, new LockManager(), Runnable::run, null, idempotencyCache, null, null);
+        UserPoint first = pointService.charge(1L, 1000L, "k1");
+
+        //when
+        UserPoint second = pointService.charge(1L, 1000L, "k1");
+        UserPoint otherKey = pointService.charge(1L, 1000L, "k2");
+
+        //then
+        assertEquals(first, second);
+        assertEquals(1000, second.point());
+        assertEquals(2000, otherKey.point());
+        assertEquals(2, pointHistoryRepository.findAllByUserId(1).size());
+        assertEquals(1, idempotencyCache.replayCount());
+    }
+
+    @Test
+    void 같은_키로_금액이_다른_요청은_실패 () throws Exception {
+        //given
+        IdempotencyCache idempotencyCache = new IdempotencyCache(1000, Duration.ofHours(1));
+        PointService pointService = new PointService(pointRepository, pointHistoryRepository, new LockManager(), Runnable::run, null, idempotencyCache, null, null);
+        pointService.charge(1L, 1000L, "k1");
+
+        //when
+        Exception differentAmount = assertThrows(Exception.class, () -> pointService.charge(1L, 500L, "k1"));
+        Exception differentType = assertThrows(Exception.class, () -> pointService.use(1L, 1000L, "k1"));
+
+        //then
+        assertEquals("같은 Idempotency-Key 로 다른 요청을 보낼 수 없습니다.", differentAmount.getMessage());
+        assertEquals("같은 Idempotency-Key 로 다른 요청을 보낼 수 없습니다.", differentType.getMessage());
+        assertEquals(1000, pointRepository.findById(1).point());
+    }
+
+    @Test
+    void 실패한_요청은_보관하지_않고_다시_실행 () throws Exception {
+        //given
+        IdempotencyCache idempotencyCache = new IdempotencyCache(1000, Duration.ofHours(1));
+        PointService pointService = new PointService(pointRepository, pointHistoryRepository, new LockManager(), Runnable::run, null, idempotencyCache, null, null);
+        assertThrows(Exception.class, () -> pointService.use(1L, 500L, "k1"));
+        pointService.charge(1L, 1000L);
+
+        //when
+        UserPoint userPoint = pointService.use(1L, 500L, "k1");
+
+        //then
+        assertEquals(500, userPoint.point());
+        assertEquals(0, idempotencyCache.replayCount());
+    }
+
+    @Test
+    void 크기를_넘으면_오래된_키부터_지움 () throws Exception {
+        //given
+        IdempotencyCache idempotencyCache = new IdempotencyCache(16, Duration.ofHours(1));
+        AtomicInteger calls = new AtomicInteger();
+
+        //when
+        for (int i = 0; i < 1000; i++) {
+            idempotencyCache.execute(i, "k", TransactionType.CHARGE, 100, () -> new UserPoint(1, calls.incrementAndGet(), 0));
+        }
+
+        //then
+        assertTrue(idempotencyCache.size() <= 16);
+        assertEquals(1000, calls.get());
+    }
+
+    @Test
+    void ttl_이_지난_키는_다시_실행 () throws Exception {
+        //given
+        IdempotencyCache idempotencyCache = new IdempotencyCache(1000, Duration.ofMillis(50));
+        AtomicInteger calls = new AtomicInteger();
+        idempotencyCache.execute(1, "k1", TransactionType.CHARGE, 100, () -> new UserPoint(1, calls.incrementAndGet(), 0));
+        idempotencyCache.execute(1, "k1", TransactionType.CHARGE, 100, () -> new UserPoint(1, calls.incrementAndGet(), 0));
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        //when
+        UserPoint userPoint = idempotencyCache.execute(1, "k1", TransactionType.CHARGE, 100, () -> new UserPoint(1, calls.incrementAndGet(), 0));
+
+        //then
+        assertEquals(2, userPoint.point());
+        assertEquals(1, idempotencyCache.replayCount());
+    }
+
+    @Test
+    void 같은_키로_동시에_요청하면_한_번만_실행 () throws Exception {
+        //given
+        IdempotencyCache idempotencyCache = new IdempotencyCache(1000, Duration.ofHours(1));
+        PointService pointService = new PointService(pointRepository, pointHistoryRepository, new LockManager(), Runnable::run, null, idempotencyCache, null, null);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<UserPoint>> futures = new ArrayList<>();
+
+        //when
+        for (int i = 0; i < 32; i++) {
+            futures.add(executorService.submit(() -> {
+                start.await();
+                return pointService.charge(1L, 1000L, "k1");
+            }));
+        }
+        start.countDown();
+        for (Future<UserPoint> future : futures) assertEquals(1000, future.get().point());
+        executorService.shutdown();
+
+        //then
+        assertEquals(1000, pointRepository.findById(1).point());
+        assertEquals(1, pointHistoryRepository.findAllByUserId(1).size());
+        assertEquals(31, idempotencyCache.replayCount());
+    }
+}
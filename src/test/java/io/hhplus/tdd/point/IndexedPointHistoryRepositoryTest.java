@@ -0,0 +1,88 @@
+package io.hhplus.tdd.point;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexedPointHistoryRepositoryTest {
+
+    private IndexedPointHistoryRepository pointHistoryRepository = new IndexedPointHistoryRepository();
+
+    /**
+     * Indexed History Test
+     * 1. 유저별 내역만 조회
+     * 2. 내역 없는 유저
+     * 3. 동시 append 에서 id 중복/누락 없음
+     * 4. 최신순 조회
+     * */
+
+    @Test
+    void 유저별_내역만_조회 () {
+        //given
+        for (int i = 0; i < 100; i++) {
+            pointHistoryRepository.insert(i % 2, i, TransactionType.CHARGE, i, i);
+        }
+
+        //when
+        List<PointHistory> histories = pointHistoryRepository.findAllByUserId(1);
+
+        //then
+        assertEquals(50, histories.size());
+        assertTrue(histories.stream().allMatch(history -> history.userId() == 1));
+        for (int i = 1; i < histories.size(); i++) {
+            assertTrue(histories.get(i - 1).id() < histories.get(i).id());
+        }
+    }
+
+    @Test
+    void 내역_없는_유저 () {
+        assertTrue(pointHistoryRepository.findAllByUserId(1).isEmpty());
+    }
+
+    @Test
+    void 동시_append_에서_id_중복_누락_없음 () {
+        //given
+        int threads = 8;
+        int rowsPerThread = 1000;
+
+        //when
+        CompletableFuture<?>[] futures = new CompletableFuture[threads];
+        for (int t = 0; t < threads; t++) {
+            long userId = t % 2;
+            futures[t] = CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < rowsPerThread; i++) {
+                    pointHistoryRepository.insert(userId, 1, TransactionType.CHARGE, System.currentTimeMillis(), 1);
+                }
+            });
+        }
+        CompletableFuture.allOf(futures).join();
+
+        //then
+        List<PointHistory> user0 = pointHistoryRepository.findAllByUserId(0);
+        List<PointHistory> user1 = pointHistoryRepository.findAllByUserId(1);
+        assertEquals(threads / 2 * rowsPerThread, user0.size());
+        assertEquals(threads / 2 * rowsPerThread, user1.size());
+        assertEquals(threads * rowsPerThread, user0.stream().mapToLong(PointHistory::id)
+                .distinct().count() + user1.stream().mapToLong(PointHistory::id).distinct().count());
+    }
+
+    @Test
+    void 최신순_조회 () {
+        //given
+        pointHistoryRepository.insert(1, 1000, TransactionType.CHARGE, 1, 1000);
+        pointHistoryRepository.insert(1, 300, TransactionType.USE, 2, 700);
+        pointHistoryRepository.insert(1, 500, TransactionType.CHARGE, 3, 1200);
+
+        //when
+        List<PointHistory> histories = pointHistoryRepository.findAllByUserIdDesc(1);
+
+        //then
+        assertEquals(3, histories.size());
+        assertEquals(3, histories.get(0).updateMillis());
+        assertEquals(2, histories.get(1).updateMillis());
+        assertEquals(1, histories.get(2).updateMillis());
+    }
+}
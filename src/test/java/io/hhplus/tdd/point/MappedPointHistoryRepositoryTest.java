@@ -0,0 +1,193 @@
+package io.hhplus.tdd.point;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedPointHistoryRepositoryTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Mapped History Test
+     * 1. 재시작 후 내역 유지
+     * 2. 깨진 기록은 건너뛰고 유저별 내역을 다시 이음
+     * 3. 재시작 후 잔액 복구
+     * 4. 종료 후 insert 는 실패
+     * 5. group commit 으로 동시에 쓴 내역이 재시작 후 모두 유지
+     * 6. 유저가 섞여도 페이지를 이어 읽으면 전체 내역과 같음
+     * 7. 형식이 다른 파일은 덮어쓰지 않고 시작하지 않음
+     * */
+
+    @Test
+    void 재시작_후_내역_유지 () throws Exception {
+        //given
+        Path path = dir.resolve("history.log");
+        MappedPointHistoryRepository pointHistoryRepository = open(path, MappedPointHistoryRepository.FsyncPolicy.ALWAYS);
+        for (int i = 0; i < 100; i++) {
+            pointHistoryRepository.insert(i % 2, i, TransactionType.CHARGE, i, i);
+        }
+        pointHistoryRepository.close();
+
+        //when
+        MappedPointHistoryRepository reopened = open(path, MappedPointHistoryRepository.FsyncPolicy.OS);
+        List<PointHistory> histories = reopened.findAllByUserIdDesc(1);
+        PointHistory next = reopened.insert(1, 1000, TransactionType.USE, 100, 0);
+        reopened.close();
+
+        //then
+        assertEquals(50, histories.size());
+        assertEquals(100, histories.get(0).id());
+        assertEquals(99, histories.get(0).amount());
+        assertEquals(99, histories.get(0).balance());
+        assertEquals(101, next.id());
+    }
+
+    @Test
+    void 깨진_기록은_건너뛰고_유저별_내역을_다시_이음 () throws Exception {
+        //given
+        Path path = dir.resolve("history.log");
+        MappedPointHistoryRepository pointHistoryRepository = open(path, MappedPointHistoryRepository.FsyncPolicy.ALWAYS);
+        for (int i = 0; i < 10; i++) {
+            pointHistoryRepository.insert(1, i, TransactionType.CHARGE, i, i);
+        }
+        pointHistoryRepository.close();
+        // 6번째 기록(id 6)의 amount 를 망가뜨린다.
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(MappedPointHistoryRepository.HEADER_SIZE + MappedPointHistoryRepository.RECORD_SIZE * 5L + 8);
+            file.writeLong(12345);
+        }
+
+        //when
+        MappedPointHistoryRepository reopened = open(path, MappedPointHistoryRepository.FsyncPolicy.OS);
+        List<PointHistory> histories = reopened.findAllByUserId(1);
+        List<PointHistory> page = reopened.findPageByUserIdDesc(1, 8L, 3);
+        reopened.close();
+
+        //then
+        assertEquals(1, reopened.skippedRows());
+        assertEquals(9, histories.size());
+        assertEquals(List.of(7L, 5L, 4L), page.stream().map(PointHistory::id).toList());
+    }
+
+    @Test
+    void 재시작_후_잔액_복구 () throws Exception {
+        //given
+        Path path = dir.resolve("history.log");
+        MappedPointHistoryRepository pointHistoryRepository = open(path, MappedPointHistoryRepository.FsyncPolicy.ALWAYS);
+        pointHistoryRepository.insert(1, 1000, TransactionType.CHARGE, 1, 1000);
+        pointHistoryRepository.insert(2, 500, TransactionType.CHARGE, 2, 500);
+        pointHistoryRepository.insert(1, 300, TransactionType.USE, 3, 700);
+        pointHistoryRepository.close();
+
+        //when
+        MappedPointHistoryRepository reopened = open(path, MappedPointHistoryRepository.FsyncPolicy.OS);
+        AtomicPointRepository pointRepository = new AtomicPointRepository();
+        PointRecovery pointRecovery = new PointRecovery(pointRepository, reopened);
+        pointRecovery.recover();
+        reopened.close();
+
+        //then
+        assertEquals(2, pointRecovery.recoveredUsers());
+        assertEquals(700, pointRepository.findById(1).point());
+        assertEquals(500, pointRepository.findById(2).point());
+    }
+
+    @Test
+    void 종료_후_insert_는_실패 () throws Exception {
+        //given
+        MappedPointHistoryRepository pointHistoryRepository = open(dir.resolve("history.log"), MappedPointHistoryRepository.FsyncPolicy.INTERVAL);
+        pointHistoryRepository.close();
+
+        //when
+        //then
+        assertThrows(IllegalStateException.class, () -> pointHistoryRepository.insert(1, 100, TransactionType.CHARGE, 1, 100));
+    }
+
+    @Test
+    void group_commit_으로_동시에_쓴_내역이_재시작_후_모두_유지 () throws Exception {
+        //given
+        Path path = dir.resolve("history.log");
+        MappedPointHistoryRepository pointHistoryRepository = open(path, MappedPointHistoryRepository.FsyncPolicy.GROUP);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<PointHistory>> futures = new ArrayList<>();
+
+        //when
+        for (int i = 0; i < 200; i++) {
+            long userId = i % 8;
+            futures.add(executor.submit(() -> pointHistoryRepository.insert(userId, 10, TransactionType.CHARGE, 1, 10)));
+        }
+        for (Future<PointHistory> future : futures) future.get();
+        executor.shutdown();
+        double averageGroupSize = pointHistoryRepository.averageGroupSize();
+        pointHistoryRepository.close();
+        MappedPointHistoryRepository reopened = open(path, MappedPointHistoryRepository.FsyncPolicy.OS);
+
+        //then
+        assertTrue(averageGroupSize >= 1);
+        assertEquals(200, reopened.rowCount());
+        for (long userId = 0; userId < 8; userId++) {
+            assertEquals(25, reopened.findAllByUserId(userId).size());
+        }
+        reopened.close();
+    }
+
+    @Test
+    void 유저가_섞여도_페이지를_이어_읽으면_전체와_같음 () throws Exception {
+        //given
+        Path path = dir.resolve("history.log");
+        MappedPointHistoryRepository pointHistoryRepository = open(path, MappedPointHistoryRepository.FsyncPolicy.OS);
+        for (int i = 0; i < 1000; i++) {
+            pointHistoryRepository.insert(i % 3, i, TransactionType.CHARGE, i, i);
+        }
+        List<PointHistory> expected = new ArrayList<>(pointHistoryRepository.findAllByUserIdDesc(1));
+
+        //when
+        List<PointHistory> pages = new ArrayList<>();
+        List<PointHistory> page = pointHistoryRepository.findPageByUserIdDesc(1, null, 7);
+        while (!page.isEmpty()) {
+            pages.addAll(page);
+            page = pointHistoryRepository.findPageByUserIdDesc(1, page.get(page.size() - 1).id(), 7);
+        }
+        // 다른 유저의 id 를 cursor 로 줘도 그보다 작은 id 부터
+        List<PointHistory> fromOtherCursor = pointHistoryRepository.findPageByUserIdDesc(1, 501L, 2);
+        pointHistoryRepository.close();
+
+        //then
+        assertEquals(expected, pages);
+        assertEquals(List.of(500L, 497L), fromOtherCursor.stream().map(PointHistory::id).toList());
+    }
+
+    @Test
+    void 형식이_다른_파일은_덮어쓰지_않고_시작하지_않음 () throws Exception {
+        //given
+        // header 없이 예전 40 byte 기록으로 시작하는 파일
+        Path path = dir.resolve("history.log");
+        byte[] oldRecord = new byte[40];
+        oldRecord[0] = 1;
+        oldRecord[36] = 7;
+        Files.write(path, oldRecord);
+
+        //when
+        //then
+        assertThrows(IllegalStateException.class, () -> open(path, MappedPointHistoryRepository.FsyncPolicy.OS));
+        assertArrayEquals(oldRecord, Arrays.copyOf(Files.readAllBytes(path), 40));
+    }
+
+    // 작은 region 으로 열어 region 을 넘어가는 경우도 같이 확인한다.
+    private MappedPointHistoryRepository open(Path path, MappedPointHistoryRepository.FsyncPolicy fsyncPolicy) {
+        return new MappedPointHistoryRepository(path, MappedPointHistoryRepository.RECORD_SIZE * 16L, fsyncPolicy, 5);
+    }
+}
@@ -0,0 +1,241 @@
+package io.hhplus.tdd.point;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.hhplus.tdd.ConsistentHashRing;
+import io.hhplus.tdd.LockManager;
+import io.hhplus.tdd.TddApplication;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PointClusterIntegrationTest {
+
+    /**
+     * Cluster Test (localhost 포트마다 Spring context 하나씩 띄운다)
+     * 1. 어느 노드로 요청해도 같은 잔액
+     * 2. 유저의 상태는 주인 노드 한 곳에만 쌓임
+     * 3. 여러 노드의 유저가 섞인 batch 도 요청 순서대로 결과를 돌려줌
+     * 4. 노드가 추가되면 옮겨진 유저의 잔액과 내역을 새 주인이 이어받음
+     * 5. 섞인 batch 에서 한 노드가 죽어 있으면 그 노드 몫만 실패로 돌려줌
+     * 6. 이어 붙일 내역이 없는 handoff 는 잔액을 덮어쓰지 않음
+     * 7. 구성이 연달아 바뀌어 바로 전 주인이 상태를 받지 못했어도 잔액과 내역을 이어받음
+     * */
+
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @AfterEach
+    void tearDown() {
+        contexts.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void 어느_노드로_요청해도_같은_잔액 () throws Exception {
+        //given
+        List<String> nodes = start(2, 2);
+        for (long userId = 1; userId <= 20; userId++) {
+            assertEquals(200, send("PATCH", nodes.get(0), "/point/" + userId + "/charge", "1000").statusCode());
+        }
+
+        //when
+        //then
+        for (long userId = 1; userId <= 20; userId++) {
+            assertEquals(200, send("PATCH", nodes.get(1), "/point/" + userId + "/use", "300").statusCode());
+            for (String node : nodes) assertEquals(700, point(node, userId));
+        }
+    }
+
+    @Test
+    void 유저의_상태는_주인_노드_한_곳에만_쌓임 () throws Exception {
+        //given
+        List<String> nodes = start(2, 2);
+        ConsistentHashRing ring = new ConsistentHashRing(nodes, 128);
+        long userId = 1;
+        int owner = nodes.indexOf(ring.ownerOf(userId));
+
+        //when
+        send("PATCH", nodes.get(1 - owner), "/point/" + userId + "/charge", "1000");
+
+        //then
+        assertEquals(1000, pointService(owner).search(userId).point());
+        assertEquals(1, pointService(owner).readHistories(userId).size());
+        assertEquals(0, pointService(1 - owner).search(userId).point());
+        assertEquals(0, pointService(1 - owner).readHistories(userId).size());
+    }
+
+    @Test
+    void 여러_노드의_유저가_섞인_batch_도_요청_순서대로_결과를_돌려줌 () throws Exception {
+        //given
+        List<String> nodes = start(2, 2);
+        List<PointCommand> commands = new ArrayList<>();
+        for (long userId = 1; userId <= 10; userId++) commands.add(PointCommand.charge(userId, 100 * userId));
+
+        //when
+        HttpResponse<String> response = send("POST", nodes.get(0), "/point/batch", objectMapper.writeValueAsString(commands));
+        PointCommandResult[] results = objectMapper.readValue(response.body(), PointCommandResult[].class);
+
+        //then
+        assertEquals(200, response.statusCode());
+        for (int i = 0; i < commands.size(); i++) {
+            assertEquals(i + 1, results[i].command().userId());
+            assertEquals(100 * (i + 1), results[i].userPoint().point());
+        }
+    }
+
+    @Test
+    void 노드가_추가되면_옮겨진_유저의_잔액과_내역을_새_주인이_이어받음 () throws Exception {
+        //given
+        List<String> nodes = start(3, 2);
+        List<String> before = nodes.subList(0, 2);
+        for (long userId = 1; userId <= 50; userId++) {
+            send("PATCH", nodes.get(0), "/point/" + userId + "/charge", "1000");
+            send("PATCH", nodes.get(0), "/point/" + userId + "/use", "100");
+        }
+
+        //when
+        for (String node : nodes) {
+            assertEquals(200, send("PUT", node, "/cluster/members", objectMapper.writeValueAsString(nodes)).statusCode());
+        }
+
+        //then
+        ConsistentHashRing ring = new ConsistentHashRing(before, 128).withNodes(nodes);
+        int moved = 0;
+        for (long userId = 1; userId <= 50; userId++) {
+            assertEquals(900, point(nodes.get(1), userId));
+            String histories = send("GET", nodes.get(0), "/point/" + userId + "/histories", null).body();
+            assertEquals(2, objectMapper.readValue(histories, PointHistory[].class).length);
+            if (ring.ownerOf(userId).equals(nodes.get(2))) moved++;
+        }
+        assertTrue(moved > 0);
+        assertEquals(200, send("PATCH", nodes.get(2), "/point/1/charge", "100").statusCode());
+        assertEquals(1000, point(nodes.get(0), 1));
+    }
+
+    @Test
+    void 섞인_batch_에서_한_노드가_죽어_있으면_그_노드_몫만_실패 () throws Exception {
+        //given
+        List<String> nodes = start(2, 2);
+        ConsistentHashRing ring = new ConsistentHashRing(nodes, 128);
+        List<PointCommand> commands = new ArrayList<>();
+        for (long userId = 1; userId <= 10; userId++) commands.add(PointCommand.charge(userId, 100 * userId));
+        contexts.get(1).close();
+
+        //when
+        HttpResponse<String> response = send("POST", nodes.get(0), "/point/batch", objectMapper.writeValueAsString(commands));
+        PointCommandResult[] results = objectMapper.readValue(response.body(), PointCommandResult[].class);
+
+        //then
+        assertEquals(200, response.statusCode());
+        for (int i = 0; i < commands.size(); i++) {
+            long userId = i + 1;
+            boolean alive = ring.ownerOf(userId).equals(nodes.get(0));
+            assertEquals(alive, results[i].isSuccess());
+            assertEquals(alive ? 100 * userId : 0, pointService(0).search(userId).point());
+        }
+    }
+
+    @Test
+    void 이어_붙일_내역이_없는_handoff_는_잔액을_덮어쓰지_않음 () throws Exception {
+        //given
+        PointService pointService = new PointService(new AtomicPointRepository(), new IndexedPointHistoryRepository(), new LockManager(), Runnable::run, null, null, null, null);
+        pointService.charge(1L, 1000L);
+        List<PointHistory> histories = pointService.export(1L).histories();
+
+        //when
+        UserPoint fromEmpty = pointService.restore(new PointHandoff(1L, 0, List.of()));
+        UserPoint fromSame = pointService.restore(new PointHandoff(1L, 0, histories));
+
+        //then
+        assertEquals(1000, fromEmpty.point());
+        assertEquals(1000, fromSame.point());
+        assertEquals(1000, pointService.search(1L).point());
+        assertEquals(1, pointService.readHistories(1L).size());
+    }
+
+    @Test
+    void 구성이_연달아_바뀌어도_잔액과_내역을_이어받음 () throws Exception {
+        //given
+        // A,B → A,B,C → A,B,C,D 에서 A → C → D 로 옮겨지는 유저
+        List<String> nodes = start(4, 2);
+        List<String> second = nodes.subList(0, 3);
+        ConsistentHashRing first = new ConsistentHashRing(nodes.subList(0, 2), 128);
+        long userId = 1;
+        while (!first.ownerOf(userId).equals(nodes.get(0))
+                || !first.withNodes(second).ownerOf(userId).equals(nodes.get(2))
+                || !first.withNodes(nodes).ownerOf(userId).equals(nodes.get(3))) userId++;
+        send("PATCH", nodes.get(0), "/point/" + userId + "/charge", "1000");
+
+        //when
+        // C, D 가 두 번의 변경을 먼저 받아, A 의 push 가 C 에 닿을 때 C 는 이미 주인이 아니다.
+        for (List<String> members : List.of(second, nodes)) {
+            for (String node : nodes.subList(2, 4)) {
+                assertEquals(200, send("PUT", node, "/cluster/members", objectMapper.writeValueAsString(members)).statusCode());
+            }
+        }
+        for (List<String> members : List.of(second, nodes)) {
+            for (String node : nodes.subList(0, 2)) {
+                assertEquals(200, send("PUT", node, "/cluster/members", objectMapper.writeValueAsString(members)).statusCode());
+            }
+        }
+
+        //then
+        assertEquals(1000, point(nodes.get(3), userId));
+        assertEquals(1000, point(nodes.get(0), userId));
+        assertEquals(1, pointService(3).readHistories(userId).size());
+        assertEquals(0, pointService(2).readHistories(userId).size());
+    }
+
+    /**
+     * count 개의 노드를 띄운다. 처음 구성원은 앞의 members 개다. (나머지는 구성원 변경으로 들어온다)
+     */
+    private List<String> start(int count, int members) throws IOException {
+        List<String> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) nodes.add("http://localhost:" + freePort());
+        for (String node : nodes) {
+            // properties() 는 기본값이라 application.yml 에 밀리므로 실행 인자로 넘긴다.
+            contexts.add(new SpringApplicationBuilder(TddApplication.class)
+                    .run("--server.port=" + node.substring(node.lastIndexOf(':') + 1),
+                            "--point.store=atomic",
+                            "--point.history.store=indexed",
+                            "--point.cluster.enabled=true",
+                            "--point.cluster.self=" + node,
+                            "--point.cluster.nodes=" + String.join(",", nodes.subList(0, members))));
+        }
+        return nodes;
+    }
+
+    private PointService pointService(int node) {
+        return contexts.get(node).getBean(PointService.class);
+    }
+
+    private long point(String node, long userId) throws Exception {
+        return objectMapper.readValue(send("GET", node, "/point/" + userId, null).body(), UserPoint.class).point();
+    }
+
+    private HttpResponse<String> send(String method, String node, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(node + path))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.hhplus.tdd.point;
+
+import io.hhplus.tdd.LockManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PointCommandQueueTest {
+
+    /**
+     * Command Queue Test
+     * 1. 같은 유저의 충전/사용이 들어온 순서대로 반영되고 결과가 future 로 옴
+     * 2. coalesce 모드는 한 번에 반영하고 요청마다 내역을 남김, 실패한 요청만 예외
+     * 3. shard 모드면 유저의 shard 에 반영
+     * */
+
+    private final PointService pointService = new PointService(new AtomicPointRepository(), new IndexedPointHistoryRepository(),
+            new LockManager(), Runnable::run, null, null, null, null);
+    private final List<PointCommandQueue> queues = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        queues.forEach(PointCommandQueue::shutdown);
+    }
+
+    @Test
+    void 같은_유저_요청이_순서대로_반영 () throws Exception {
+        //given
+        PointCommandQueue queue = queue(pointService, null, false);
+
+        //when
+        CompletableFuture<UserPoint> charged = queue.charge(1L, 1000L);
+        CompletableFuture<UserPoint> used = queue.use(1L, 300L);
+        CompletableFuture<UserPoint> overUsed = queue.use(1L, 5000L);
+
+        //then
+        assertEquals(1000, charged.join().point());
+        assertEquals(700, used.join().point());
+        CompletionException exception = assertThrows(CompletionException.class, overUsed::join);
+        assertEquals("잔여 포인트보다 많이 사용할 수 없습니다.", exception.getCause().getMessage());
+        assertEquals(700, pointService.search(1L).point());
+    }
+
+    @Test
+    void coalesce_모드도_요청마다_내역을_남김 () throws Exception {
+        //given
+        PointCommandQueue queue = queue(pointService, null, true);
+        pointService.charge(1L, 100L);
+        List<CompletableFuture<UserPoint>> futures = new ArrayList<>();
+
+        //when
+        for (int i = 0; i < 500; i++) futures.add(i % 2 == 0 ? queue.charge(1L, 10L) : queue.use(1L, 7L));
+        CompletableFuture<UserPoint> overUsed = queue.use(1L, 1_000_000L);
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        //then
+        assertThrows(CompletionException.class, overUsed::join);
+        assertEquals(100 + 250 * 3, pointService.search(1L).point());
+        assertEquals(501, pointService.readHistories(1L).size());
+    }
+
+    @Test
+    void shard_모드면_유저의_shard_에_반영 () throws Exception {
+        //given
+        PointServiceRouter router = new PointServiceRouter(4, 1, "atomic", PointConcurrencyPolicy.pessimistic());
+        PointCommandQueue queue = queue(pointService, router, false);
+
+        //when
+        for (long userId = 0; userId < 20; userId++) queue.charge(userId, 100L + userId).join();
+
+        //then
+        for (long userId = 0; userId < 20; userId++) {
+            assertEquals(100 + userId, router.route(userId).search(userId).point());
+            assertEquals(0, pointService.search(userId).point());
+        }
+        router.close();
+    }
+
+    private PointCommandQueue queue(PointService pointService, PointServiceRouter router, boolean coalesce) {
+        PointCommandQueue queue = new PointCommandQueue(pointService, router, 4, 1000, 64, coalesce, false);
+        queues.add(queue);
+        return queue;
+    }
+}
@@ -1,10 +1,17 @@
 package io.hhplus.tdd.point;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.hhplus.tdd.LockManager;
 import io.hhplus.tdd.database.PointHistoryTable;
 import io.hhplus.tdd.database.UserPointTable;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -18,8 +25,8 @@ public class PointControllerIntegrationTest {
         PointRepository pointRepository = new PointImplRepository(userPointTable);
         PointHistoryTable pointHistoryTable = new PointHistoryTable();
         PointHistoryRepository pointHistoryRepository = new PointHistoryImplRepository(pointHistoryTable);
-        PointService pointService = new PointService(pointRepository, pointHistoryRepository);
-        this.pointController = new PointController(pointService);
+        PointService pointService = new PointService(pointRepository, pointHistoryRepository, new LockManager(), Executors.newFixedThreadPool(4), null, null, null, null);
+        this.pointController = new PointController(pointService, new ObjectMapper());
     }
 
     /**
@@ -46,6 +53,7 @@ public class PointControllerIntegrationTest {
      * 1. 일반 내역 조회
      * 2. 조회 내역 없을 때
      * 3. 시간 역순서대로 표기
+     * 4. 페이지 조회, limit 없이 before 만 오면 기본 크기 페이지
      * */
 
     @Test
@@ -103,12 +111,52 @@ public class PointControllerIntegrationTest {
     }
 
 
+    @Test
+    void 내역_페이지_조회 () throws Exception {
+        //given
+        long userId = 1;
+        pointController.charge(userId, 1000);
+        pointController.use(userId, 300);
+        pointController.charge(userId, 500);
+
+        //when
+        List<PointHistory> firstPage = pointController.historyPage(userId, null, 2);
+        List<PointHistory> secondPage = pointController.historyPage(userId, firstPage.get(1).id(), 2);
+
+        //then
+        assertEquals(2, firstPage.size());
+        assertEquals(TransactionType.CHARGE, firstPage.get(0).type());
+        assertEquals(TransactionType.USE, firstPage.get(1).type());
+        assertEquals(1, secondPage.size());
+        assertTrue(secondPage.get(0).id() < firstPage.get(1).id());
+    }
+
+    @Test
+    void limit_없이_before_만_오면_기본_크기_페이지 () throws Exception {
+        //given
+        long userId = 1;
+        pointController.charge(userId, 1000);
+        pointController.use(userId, 300);
+        pointController.charge(userId, 500);
+        long latestId = pointController.history(userId).get(0).id();
+
+        //when
+        List<PointHistory> page = pointController.historyPage(userId, latestId);
+
+        //then
+        assertEquals(2, page.size());
+        assertEquals(TransactionType.USE, page.get(0).type());
+        assertTrue(page.get(0).id() < latestId);
+    }
+
+
     /**
      * Charge Test
      * 1. 처음 충전
      * 2. 음수 충전
      * 3. 기존 id에 충전
      * 4. 동시에 여러건의 포인트 충전, 이용 요청 못함
+     * 5. mailbox 를 쓰면 음수 충전/사용은 mailbox 에 넣기 전에 실패
      * */
 
     @Test
@@ -153,7 +201,7 @@ public class PointControllerIntegrationTest {
         pointController.charge(userId, amount1);
 
         //when
-        UserPoint userPoint = pointController.charge(userId, amount2);
+        UserPoint userPoint = pointController.charge(userId, amount2).join();
 
         //then
         assertEquals(userId, userPoint.id());
@@ -161,6 +209,35 @@ public class PointControllerIntegrationTest {
 
     }
 
+    @Test
+    void mailbox_를_쓰면_음수_충전_사용은_mailbox_에_넣기_전에_실패 () throws Exception {
+        //given
+        PointService pointService = new PointService(new AtomicPointRepository(), new IndexedPointHistoryRepository(), new LockManager(), Runnable::run, null, null, null, null);
+        List<PointCommand> submitted = new CopyOnWriteArrayList<>();
+        PointCommandQueue pointCommandQueue = new PointCommandQueue(pointService, null, 1, 100, 16, false, false) {
+            @Override
+            public CompletableFuture<UserPoint> submit(PointCommand command) {
+                submitted.add(command);
+                return super.submit(command);
+            }
+        };
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("pointCommandQueue", pointCommandQueue));
+        PointController controller = new PointController(pointService, new ObjectMapper(),
+                beanFactory.getBeanProvider(PointServiceRouter.class), beanFactory.getBeanProvider(PointCommandQueue.class));
+
+        //when
+        Throwable chargeException = assertThrows(Exception.class, () -> controller.charge(1L, -1000));
+        Throwable useException = assertThrows(Exception.class, () -> controller.use(1L, -300));
+        UserPoint userPoint = controller.charge(1L, 1000).join();
+        pointCommandQueue.shutdown();
+
+        //then
+        assertEquals("0이하의 수는 충전할 수 없습니다.", chargeException.getMessage());
+        assertEquals("0이하의 수는 사용할 수 없습니다.", useException.getMessage());
+        assertEquals(List.of(PointCommand.charge(1L, 1000)), submitted);
+        assertEquals(1000, userPoint.point());
+    }
+
 
     /**
      * Use Test
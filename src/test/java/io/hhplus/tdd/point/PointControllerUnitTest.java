@@ -17,11 +17,20 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(PointController.class)
@@ -151,12 +160,52 @@ public class PointControllerUnitTest {
     }
 
 
+    @Test
+    void 내역_페이지_조회 () throws Exception{
+        //given
+        long userId = 1;
+        PointHistory history = new PointHistory(5, userId, 300, TransactionType.USE, System.currentTimeMillis());
+        when(pointService.readHistories(userId, 10L, 1)).thenReturn(List.of(history));
+
+        //when
+        //then
+        mvc.perform(get("/point/" + userId + "/histories").param("before", "10").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", Matchers.hasSize(1)))
+                .andExpect(jsonPath("$[0].id", Matchers.is(5)));
+    }
+
+    @Test
+    void 내역_스트리밍_조회 () throws Exception{
+        //given
+        long userId = 1;
+        PointHistory history1 = new PointHistory(2, userId, 300, TransactionType.USE, System.currentTimeMillis());
+        PointHistory history2 = new PointHistory(1, userId, 1000, TransactionType.CHARGE, System.currentTimeMillis());
+        when(pointService.readHistories(eq(userId), isNull(), anyInt())).thenReturn(List.of(history1, history2));
+
+        //when
+        MvcResult result = mvc.perform(get("/point/" + userId + "/histories/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        String body = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(2, JsonPath.parse(lines[0]).read("$.id", Long.class));
+        assertEquals(1, JsonPath.parse(lines[1]).read("$.id", Long.class));
+    }
+
+
     /**
      * Charge Test
      * 1. 처음 충전
      * 2. 음수 충전
      * 3. 기존 id에 충전
      * 4. 동시에 여러건의 포인트 충전, 이용 요청
+     * 5. Idempotency-Key 를 붙여 충전
      * */
 
     @Test
@@ -169,10 +218,14 @@ public class PointControllerUnitTest {
         when(pointService.charge(anyLong(),anyLong())).thenReturn(new UserPoint(userId, amount, System.currentTimeMillis()));
 
         //when
-        //then
-        mvc.perform(patch("/point/"+ userId + "/charge")
+        MvcResult result = mvc.perform(patch("/point/"+ userId + "/charge")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(String.valueOf(amount)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(userId))
                 .andExpect(jsonPath("$.point").value(amount));
@@ -204,16 +257,38 @@ public class PointControllerUnitTest {
         when(pointService.charge(anyLong(),anyLong())).thenReturn(new UserPoint(userId, amount1 + amount2, System.currentTimeMillis()));
 
         //when
-        //then
-        mvc.perform(patch("/point/"+ userId + "/charge")
+        MvcResult result = mvc.perform(patch("/point/"+ userId + "/charge")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(String.valueOf(amount2)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(userId))
                 .andExpect(jsonPath("$.point").value(amount1+amount2));
 
     }
 
+    @Test
+    void Idempotency_Key_를_붙여_충전 () throws Exception {
+        //given
+        long userId = 1;
+        long amount = 1000;
+        when(pointService.charge(userId, amount, "k1")).thenReturn(new UserPoint(userId, amount, System.currentTimeMillis()));
+
+        //when
+        //then
+        mvc.perform(patch("/point/"+ userId + "/charge")
+                        .header("Idempotency-Key", "k1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(String.valueOf(amount)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.point").value(amount));
+        verify(pointService, never()).charge(anyLong(), anyLong());
+    }
+
 
     /**
      * Use Test
@@ -232,10 +307,14 @@ public class PointControllerUnitTest {
         when(pointService.use(anyLong(),anyLong())).thenReturn(new UserPoint(userId, amount-usePoint, System.currentTimeMillis()));
 
         //when
-        //then
-        mvc.perform(patch("/point/"+ userId + "/use")
+        MvcResult result = mvc.perform(patch("/point/"+ userId + "/use")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(String.valueOf(usePoint)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        //then
+        mvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(userId))
                 .andExpect(jsonPath("$.point").value(amount-usePoint));
@@ -274,4 +353,30 @@ public class PointControllerUnitTest {
                         .content(String.valueOf(usePoint)))
                 .andExpect(status().is5xxServerError());
     }
+
+
+    /**
+     * Batch Test
+     * 1. 건별 결과를 요청 순서대로 응답
+     * */
+    @Test
+    void 건별_결과를_요청_순서대로_응답 () throws Exception {
+        //given
+        PointCommand charge = PointCommand.charge(1, 1000);
+        PointCommand use = PointCommand.use(2, 500);
+        when(pointService.applyBatch(any())).thenReturn(List.of(
+                PointCommandResult.success(charge, new UserPoint(1, 1000, System.currentTimeMillis())),
+                PointCommandResult.fail(use, "잔여 포인트보다 많이 사용할 수 없습니다.")
+        ));
+
+        //when
+        //then
+        mvc.perform(post("/point/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"userId\":1,\"amount\":1000,\"type\":\"CHARGE\"},{\"userId\":2,\"amount\":500,\"type\":\"USE\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", Matchers.hasSize(2)))
+                .andExpect(jsonPath("$[0].userPoint.point").value(1000))
+                .andExpect(jsonPath("$[1].message").value("잔여 포인트보다 많이 사용할 수 없습니다."));
+    }
 }
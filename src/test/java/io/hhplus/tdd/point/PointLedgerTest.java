@@ -0,0 +1,200 @@
+package io.hhplus.tdd.point;
+
+import io.hhplus.tdd.LockManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PointLedgerTest {
+
+    /**
+     * Ledger Test
+     * 1. 충전/사용 한 번에 이벤트 한 건이 쌓이고 잔액/내역 projection 이 따라옴
+     * 2. expectedVersion 이 다르면 쌓지 않음 (낙관적 모드도 잔액이 맞음)
+     * 3. batch 는 반영한 요청마다 이벤트 한 건, 실패한 유저는 이벤트 없음
+     * 4. projection 을 붙이면 지금까지의 이벤트를 replay 하고 이후 이벤트도 반영
+     * 5. append 가 계속되는 중에 붙여도 이벤트가 빠지거나 두 번 들어가지 않음
+     * 6. 날짜별 합계와 상위 사용자 read model
+     * 7. 저장소가 다른 저장소(지표)로 감싸여 있어도 ledger 를 받으면 충전/사용마다 이벤트 한 건
+     * */
+
+    private final PointLedger pointLedger = new PointLedger(2);
+    private final PointService pointService = pointService(PointConcurrencyPolicy.pessimistic());
+
+    @AfterEach
+    void tearDown() {
+        pointLedger.close();
+    }
+
+    @Test
+    void 충전_사용_한_번에_이벤트_한_건 () throws Exception {
+        //given
+        pointService.charge(1L, 1000L);
+
+        //when
+        UserPoint userPoint = pointService.use(1L, 300L);
+
+        //then
+        List<PointEvent> events = pointLedger.events(1L);
+        assertEquals(2, events.size());
+        assertInstanceOf(PointEvent.PointCharged.class, events.get(0));
+        assertInstanceOf(PointEvent.PointUsed.class, events.get(1));
+        assertEquals(700, userPoint.point());
+        assertEquals(2, userPoint.version());
+        assertEquals(700, pointService.search(1L).point());
+        List<PointHistory> pointHistories = pointService.readHistories(1L);
+        assertEquals(List.of(events.get(1).toHistory(), events.get(0).toHistory()), pointHistories);
+    }
+
+    @Test
+    void expectedVersion_이_다르면_쌓지_않음 () throws Exception {
+        //given
+        pointLedger.append(1L, 0, TransactionType.CHARGE, 100, 100, 0);
+
+        //when
+        PointEvent stale = pointLedger.append(1L, 0, TransactionType.CHARGE, 100, 100, 0);
+        PointService optimistic = pointService(PointConcurrencyPolicy.optimistic(1000, 0));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    optimistic.charge(1L, 10L);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        executor.shutdown();
+
+        //then
+        assertNull(stale);
+        assertEquals(1100, pointLedger.balanceOf(1L).point());
+        assertEquals(101, pointLedger.events(1L).size());
+    }
+
+    @Test
+    void batch_는_반영한_요청마다_이벤트_한_건 () throws Exception {
+        //given
+        List<PointCommand> commands = List.of(
+                PointCommand.charge(1L, 100L),
+                PointCommand.charge(2L, 100L),
+                PointCommand.use(1L, 30L),
+                PointCommand.use(2L, 500L));
+
+        //when
+        List<PointCommandResult> results = pointService.applyBatch(commands);
+
+        //then
+        assertEquals(70, results.get(2).userPoint().point());
+        assertFalse(results.get(3).isSuccess());
+        assertEquals(2, pointLedger.events(1L).size());
+        assertEquals(0, pointLedger.events(2L).size());
+        assertEquals(70, pointService.search(1L).point());
+    }
+
+    @Test
+    void projection_을_붙이면_replay_후_이후_이벤트도_반영 () throws Exception {
+        //given
+        for (long userId = 1; userId <= 1000; userId++) {
+            pointService.charge(userId, 100L);
+            pointService.use(userId, userId % 50);
+        }
+
+        //when
+        TopSpendersProjection topSpenders = pointLedger.attach(new TopSpendersProjection());
+        pointService.use(7L, 90L);
+
+        //then
+        List<TopSpendersProjection.Spender> top = topSpenders.top(3);
+        assertEquals(new TopSpendersProjection.Spender(7L, 97), top.get(0));
+        assertEquals(new TopSpendersProjection.Spender(49L, 49), top.get(1));
+        assertEquals(new TopSpendersProjection.Spender(99L, 49), top.get(2));
+    }
+
+    @Test
+    void append_중에_붙여도_이벤트가_빠지거나_두_번_들어가지_않음 () throws Exception {
+        //given
+        for (long userId = 0; userId < 2000; userId++) pointService.charge(userId, 1L);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (long userId = offset; userId < 4000; userId += 4) {
+                    try {
+                        pointService.charge(userId, 1L);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }, executor));
+        }
+
+        //when
+        DailyTotalsProjection dailyTotals = pointLedger.attach(new DailyTotalsProjection(ZoneOffset.UTC));
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        executor.shutdown();
+
+        //then
+        long charged = 0;
+        for (long userId : pointLedger.userIds()) charged += pointLedger.balanceOf(userId).point();
+        assertEquals(6000, charged);
+        assertEquals(charged, dailyTotals.totalOf(LocalDate.now(ZoneOffset.UTC)).charged()
+                + dailyTotals.totalOf(LocalDate.now(ZoneOffset.UTC).minusDays(1)).charged());
+    }
+
+    @Test
+    void 날짜별_합계와_상위_사용자 () {
+        //given
+        long day = 86_400_000L;
+        pointLedger.append(1L, PointLedger.ANY_VERSION, TransactionType.CHARGE, 500, 500, 0);
+        pointLedger.append(1L, PointLedger.ANY_VERSION, TransactionType.USE, 200, 300, 10);
+        pointLedger.append(2L, PointLedger.ANY_VERSION, TransactionType.CHARGE, 400, 400, day);
+        pointLedger.append(2L, PointLedger.ANY_VERSION, TransactionType.USE, 300, 100, day + 10);
+
+        //when
+        DailyTotalsProjection dailyTotals = pointLedger.replay(new DailyTotalsProjection(ZoneOffset.UTC));
+        TopSpendersProjection topSpenders = pointLedger.replay(new TopSpendersProjection());
+
+        //then
+        assertEquals(new DailyTotalsProjection.DailyTotal(LocalDate.of(1970, 1, 1), 500, 200), dailyTotals.totalOf(LocalDate.of(1970, 1, 1)));
+        assertEquals(new DailyTotalsProjection.DailyTotal(LocalDate.of(1970, 1, 2), 400, 300), dailyTotals.totalOf(LocalDate.of(1970, 1, 2)));
+        assertEquals(List.of(new TopSpendersProjection.Spender(2L, 300), new TopSpendersProjection.Spender(1L, 200)), topSpenders.top(5));
+    }
+
+    @Test
+    void 저장소가_감싸여_있어도_이벤트_한_건 () throws Exception {
+        //given
+        PointRepository metered = new PointMetrics(new SimpleMeterRegistry()).meter(new LedgerPointRepository(pointLedger));
+        PointService wrappedService = new PointService(metered,
+                new LedgerPointHistoryRepository(pointLedger), new LockManager(), Runnable::run, PointConcurrencyPolicy.pessimistic(),
+                null, null, pointLedger);
+
+        //when
+        wrappedService.charge(1L, 1000L);
+        wrappedService.use(1L, 300L);
+        wrappedService.applyBatch(List.of(PointCommand.charge(1L, 50L), PointCommand.use(1L, 20L)));
+
+        //then
+        assertEquals(4, pointLedger.events(1L).size());
+        assertEquals(730, pointLedger.balanceOf(1L).point());
+        assertEquals(4, wrappedService.readHistories(1L).size());
+    }
+
+    private PointService pointService(PointConcurrencyPolicy concurrencyPolicy) {
+        return new PointService(new LedgerPointRepository(pointLedger), new LedgerPointHistoryRepository(pointLedger),
+                new LockManager(), Runnable::run, concurrencyPolicy, null, null, null);
+    }
+}
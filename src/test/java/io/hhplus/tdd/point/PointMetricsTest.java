@@ -0,0 +1,108 @@
+package io.hhplus.tdd.point;
+
+import io.hhplus.tdd.LockManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PointMetricsTest {
+
+    /**
+     * Metrics Test
+     * 1. 기능별로 성공과 실패를 나눠 기록
+     * 2. 저장소 호출과 내역 조회 건수를 기록
+     * 3. 꺼져 있으면 저장소를 감싸지 않음
+     * 4. 합쳐서 반영한 충전/사용도 요청마다 기록
+     * */
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicPointRepository pointRepository = new AtomicPointRepository();
+    private final IndexedPointHistoryRepository pointHistoryRepository = new IndexedPointHistoryRepository();
+    private final PointService pointService = new PointService(pointRepository, pointHistoryRepository, new LockManager(), Runnable::run,
+            null, null, new PointMetrics(meterRegistry), null);
+
+    @Test
+    void 기능별로_성공과_실패를_나눠_기록 () throws Exception {
+        //given
+        pointService.charge(1L, 1000L);
+        assertThrows(Exception.class, () -> pointService.charge(1L, -1L));
+
+        //when
+        pointService.use(1L, 300L);
+        assertThrows(Exception.class, () -> pointService.use(1L, 5000L));
+        pointService.search(1L);
+
+        //then
+        assertEquals(1, operation("charge", "success").count());
+        assertEquals(1, operation("charge", "error").count());
+        assertEquals(1, operation("use", "success").count());
+        assertEquals(1, operation("use", "error").count());
+        assertEquals(1, operation("search", "success").count());
+        assertTrue(operation("use", "success").totalTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    void 저장소_호출과_내역_조회_건수를_기록 () throws Exception {
+        //given
+        pointService.charge(1L, 1000L);
+        pointService.use(1L, 300L);
+        pointService.charge(1L, 50L);
+
+        //when
+        pointService.readHistories(1L);
+        pointService.readHistories(1L, null, 2);
+
+        //then
+        assertEquals(3, repository("point", "findById").count());
+        assertEquals(3, repository("point", "save").count());
+        assertEquals(3, repository("history", "insert").count());
+        assertEquals(1, repository("history", "findPageByUserIdDesc").count());
+        assertEquals(2, operation("readHistories", "success").count());
+        assertEquals(2, meterRegistry.get("point.history.size").summary().count());
+        assertEquals(5, meterRegistry.get("point.history.size").summary().totalAmount());
+    }
+
+    @Test
+    void 꺼져_있으면_저장소를_감싸지_않음 () {
+        //given
+        PointMetrics pointMetrics = PointMetrics.noop();
+
+        //when
+        //then
+        assertSame(pointRepository, pointMetrics.meter(pointRepository));
+        assertSame(pointHistoryRepository, pointMetrics.meter(pointHistoryRepository));
+    }
+
+    @Test
+    void 합쳐서_반영한_충전_사용도_요청마다_기록 () {
+        //given
+        List<PointCommand> commands = List.of(
+                PointCommand.charge(1L, 1000L),
+                PointCommand.use(1L, 300L),
+                PointCommand.use(1L, 5000L),
+                PointCommand.charge(1L, -1L));
+
+        //when
+        pointService.applyCoalesced(1L, commands);
+
+        //then
+        assertEquals(1, operation("charge", "success").count());
+        assertEquals(1, operation("charge", "error").count());
+        assertEquals(1, operation("use", "success").count());
+        assertEquals(1, operation("use", "error").count());
+    }
+
+    private Timer operation(String op, String outcome) {
+        return meterRegistry.get("point.operation").tag("op", op).tag("outcome", outcome).timer();
+    }
+
+    private Timer repository(String repository, String method) {
+        return meterRegistry.get("point.repository").tag("repository", repository).tag("method", method).timer();
+    }
+}
@@ -0,0 +1,84 @@
+package io.hhplus.tdd.point;
+
+import io.hhplus.tdd.LockManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PointReconcilerTest {
+
+    /**
+     * Reconcile Test
+     * 1. 내역과 잔액이 맞으면 불일치 없음
+     * 2. 저장된 잔액이 내역의 합과 다르면 불일치 보고
+     * 3. 내역의 잔액이 이전 내역의 합과 다르면 불일치 보고
+     * */
+
+    private final AtomicPointRepository pointRepository = new AtomicPointRepository();
+    private final IndexedPointHistoryRepository pointHistoryRepository = new IndexedPointHistoryRepository();
+    private final PointService pointService = new PointService(pointRepository, pointHistoryRepository, new LockManager(), Runnable::run, null, null, null, null);
+
+    @Test
+    void 내역과_잔액이_맞으면_불일치_없음 () throws Exception {
+        //given
+        for (long userId = 0; userId < 2000; userId++) {
+            pointService.charge(userId, 1000L);
+            pointService.use(userId, 300);
+            pointService.charge(userId, 50L);
+        }
+        PointReconciler pointReconciler = new PointReconciler(pointRepository, pointHistoryRepository, 4);
+
+        //when
+        PointReconciler.Report report = pointReconciler.reconcile();
+        pointReconciler.close();
+        List<PointHistory> histories = pointHistoryRepository.findAllByUserId(7);
+
+        //then
+        assertEquals(2000, report.users());
+        assertEquals(6000, report.rows());
+        assertEquals(0, report.mismatchCount());
+        assertEquals(300, histories.get(1).amount());
+        assertEquals(700, histories.get(1).balance());
+        assertEquals(750, pointRepository.findById(7).point());
+    }
+
+    @Test
+    void 저장된_잔액이_내역의_합과_다르면_불일치_보고 () throws Exception {
+        //given
+        pointService.charge(1L, 1000L);
+        pointService.charge(2L, 500L);
+        pointRepository.save(2, 999);
+        PointReconciler pointReconciler = new PointReconciler(pointRepository, pointHistoryRepository, 2);
+
+        //when
+        PointReconciler.Report report = pointReconciler.reconcile();
+        pointReconciler.close();
+
+        //then
+        assertEquals(1, report.mismatchCount());
+        PointReconciler.Mismatch mismatch = report.mismatches().get(0);
+        assertEquals(2, mismatch.userId());
+        assertEquals(500, mismatch.historyBalance());
+        assertEquals(999, mismatch.storedBalance());
+    }
+
+    @Test
+    void 내역의_잔액이_이전_내역의_합과_다르면_불일치_보고 () throws Exception {
+        //given
+        pointHistoryRepository.insert(1, 1000, TransactionType.CHARGE, 1, 1000);
+        pointHistoryRepository.insert(1, 300, TransactionType.USE, 2, 600);
+        pointRepository.save(1, 600);
+        PointReconciler pointReconciler = new PointReconciler(pointRepository, pointHistoryRepository, 2);
+
+        //when
+        PointReconciler.Report report = pointReconciler.reconcile();
+        pointReconciler.close();
+
+        //then
+        assertEquals(1, report.mismatchCount());
+        assertEquals(700, report.mismatches().get(0).historyBalance());
+        assertEquals(600, report.mismatches().get(0).storedBalance());
+    }
+}
@@ -1,17 +1,29 @@
 package io.hhplus.tdd.point;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.hhplus.tdd.LockManager;
 import io.hhplus.tdd.database.PointHistoryTable;
 import io.hhplus.tdd.database.UserPointTable;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class PointServiceIntegrationTest {
 
+    @TempDir
+    Path dir;
+
     private PointService pointService;
     private PointRepository pointRepository;
     private PointHistoryRepository pointHistoryRepository;
@@ -21,7 +33,7 @@ public class PointServiceIntegrationTest {
         this.pointRepository = new PointImplRepository(userPointTable);
         PointHistoryTable pointHistoryTable = new PointHistoryTable();
         this.pointHistoryRepository = new PointHistoryImplRepository(pointHistoryTable);
-        this.pointService = new PointService(pointRepository, pointHistoryRepository);
+        this.pointService = new PointService(pointRepository, pointHistoryRepository, new LockManager(), Executors.newFixedThreadPool(4), null, null, null, null);
     }
 
 
@@ -295,6 +307,263 @@ public class PointServiceIntegrationTest {
         assertThat(userPoint.point()).isEqualTo(100000 - 10000 + 4000 - 100);
     }
 
+    /**
+     * Coalesce Test
+     * 1. 여러 요청을 한 번에 반영, 요청마다 직후 잔액과 내역
+     * */
+    @Test
+    void 여러_요청을_한번에_반영 () throws Exception {
+        //given
+        long userId = 1;
+        List<PointCommand> commands = List.of(
+                PointCommand.charge(userId, 1000),
+                PointCommand.use(userId, 300),
+                PointCommand.use(userId, 5000),
+                PointCommand.charge(userId, 200)
+        );
+
+        //when
+        List<PointCommandResult> results = pointService.applyCoalesced(userId, commands);
+
+        //then
+        assertEquals(1000, results.get(0).userPoint().point());
+        assertEquals(700, results.get(1).userPoint().point());
+        assertFalse(results.get(2).isSuccess());
+        assertEquals("잔여 포인트보다 많이 사용할 수 없습니다.", results.get(2).message());
+        assertEquals(900, results.get(3).userPoint().point());
+
+        assertEquals(900, pointService.search(userId).point());
+        assertEquals(3, pointService.readHistories(userId).size());
+    }
+
+
+    /**
+     * Batch Test
+     * 1. 유저별로 전부 반영되거나 전부 실패
+     * 2. 내역 저장이 실패하면 그 유저의 잔액도 내역도 바뀌지 않음
+     * 3. 잔액 저장이 실패하면 남긴 내역을 상쇄하고 잔액은 그대로
+     * 4. type 이 빠진 요청은 사용으로 처리하지 않고 그 유저의 요청만 실패, 빈 요청은 batch 전체를 거절
+     * */
+    @Test
+    void 유저별로_전부_반영되거나_전부_실패 () throws Exception {
+        //given
+        pointService.charge(2L, 100L);
+        List<PointCommand> commands = List.of(
+                PointCommand.charge(1, 1000),
+                PointCommand.use(2, 50),
+                PointCommand.use(1, 300),
+                PointCommand.use(2, 100)
+        );
+
+        //when
+        List<PointCommandResult> results = pointService.applyBatch(commands);
+
+        //then
+        assertEquals(1000, results.get(0).userPoint().point());
+        assertEquals(700, results.get(2).userPoint().point());
+        assertFalse(results.get(1).isSuccess());
+        assertFalse(results.get(3).isSuccess());
+        assertEquals("잔여 포인트보다 많이 사용할 수 없습니다.", results.get(3).message());
+
+        assertEquals(700, pointService.search(1).point());
+        assertEquals(100, pointService.search(2).point());
+    }
+
+
+    @Test
+    void 내역_저장이_실패하면_잔액도_내역도_바뀌지_않음 () throws Exception {
+        //given
+        // 유저 1 의 여러 건 저장에 실패하는 저장소 (한 건도 남기지 않고 실패한다)
+        IndexedPointHistoryRepository failingHistories = new IndexedPointHistoryRepository() {
+            @Override
+            public List<PointHistory> insertAll(long userId, List<PointCommand> commands, long[] balances, long updateMillis) {
+                if (userId == 1 && commands.size() > 1) throw new IllegalStateException("내역 저장소 장애");
+                return super.insertAll(userId, commands, balances, updateMillis);
+            }
+        };
+        PointService service = new PointService(new AtomicPointRepository(), failingHistories, new LockManager(), Runnable::run, null, null, null, null);
+        service.charge(1L, 500L);
+        List<PointCommand> commands = List.of(
+                PointCommand.charge(1, 1000),
+                PointCommand.use(1, 200),
+                PointCommand.charge(2, 100)
+        );
+
+        //when
+        List<PointCommandResult> results = service.applyBatch(commands);
+
+        //then
+        assertFalse(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(2).isSuccess());
+        assertEquals(500, service.search(1).point());
+        assertEquals(100, service.search(2).point());
+
+        // 실패한 요청은 내역에도 집계에도 남지 않는다.
+        List<PointHistory> histories = failingHistories.findAllByUserId(1);
+        assertEquals(1, histories.size());
+        assertEquals(500, histories.get(0).balance());
+        assertEquals(service.rebuildSummary(1), service.summary(1));
+        assertEquals(1, service.summary(1).chargeCount());
+    }
+
+    @Test
+    void 잔액_저장이_실패하면_남긴_내역을_상쇄하고_잔액은_그대로 () throws Exception {
+        //given
+        // 유저 1 의 두 번째 잔액 저장부터 실패하는 저장소
+        AtomicPointRepository failingPoints = new AtomicPointRepository() {
+            @Override
+            public UserPoint save(long id, long amount) {
+                if (id == 1 && findById(id).point() > 0) throw new IllegalStateException("잔액 저장소 장애");
+                return super.save(id, amount);
+            }
+        };
+        IndexedPointHistoryRepository pointHistories = new IndexedPointHistoryRepository();
+        PointService service = new PointService(failingPoints, pointHistories, new LockManager(), Runnable::run, null, null, null, null);
+        service.charge(1L, 500L);
+
+        //when
+        List<PointCommandResult> results = service.applyBatch(List.of(PointCommand.charge(1, 1000), PointCommand.use(1, 200)));
+
+        //then
+        assertFalse(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals(500, service.search(1).point());
+
+        // 남긴 두 건은 뒤에서부터 반대 내역(충전 200, 사용 1000)으로 상쇄되어 내역의 마지막 잔액이 저장된 잔액과 같다.
+        List<PointHistory> histories = pointHistories.findAllByUserId(1);
+        assertEquals(5, histories.size());
+        assertEquals(List.of(500L, 1500L, 1300L, 1500L, 500L), histories.stream().map(PointHistory::balance).toList());
+        assertEquals(0, new PointReconciler(failingPoints, pointHistories, 1).reconcile().mismatchCount());
+        assertEquals(service.rebuildSummary(1), service.summary(1));
+    }
+
+    @Test
+    void type_이_빠진_요청은_그_유저의_요청만_실패 () throws Exception {
+        //given
+        // 내역의 type 을 ordinal 로 저장하는 저장소라 type 이 null 인 내역은 남길 수 없다.
+        ColumnarPointHistoryRepository columnarHistories = new ColumnarPointHistoryRepository();
+        PointService service = new PointService(new AtomicPointRepository(), columnarHistories, new LockManager(), Runnable::run, null, null, null, null);
+        service.charge(1L, 500L);
+        List<PointCommand> commands = List.of(new ObjectMapper().readValue(
+                "[{\"userId\":1,\"amount\":100},{\"userId\":1,\"amount\":50,\"type\":\"CHARGE\"},{\"userId\":2,\"amount\":100,\"type\":\"CHARGE\"}]",
+                PointCommand[].class));
+
+        //when
+        List<PointCommandResult> results = service.applyBatch(commands);
+
+        //then
+        assertEquals("충전/사용 구분이 없습니다.", results.get(0).message());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(2).isSuccess());
+        assertEquals(500, service.search(1).point());
+        assertEquals(1, columnarHistories.findAllByUserId(1).size());
+        Exception exception = assertThrows(Exception.class, () -> service.applyBatch(Arrays.asList(PointCommand.charge(1, 10), null)));
+        assertEquals("비어 있는 요청이 있습니다.", exception.getMessage());
+    }
+
+    /**
+     * Optimistic Test
+     * 1. version 이 다르면 저장하지 않음
+     * 2. 낙관적 모드에서 동시에 충전/사용해도 모두 반영
+     * 3. 낙관적 모드에서 동시에 반영한 뒤 재시작해도 잔액이 같음
+     * */
+    @Test
+    void version_이_다르면_저장하지_않음 () {
+        //given
+        long userId = 1;
+        UserPoint saved = pointRepository.save(userId, 100);
+
+        //when
+        UserPoint conflict = pointRepository.compareAndSave(userId, saved.version() - 1, 500);
+        UserPoint updated = pointRepository.compareAndSave(userId, saved.version(), 500);
+
+        //then
+        assertNull(conflict);
+        assertEquals(500, updated.point());
+        assertEquals(saved.version() + 1, updated.version());
+        assertEquals(updated.version(), pointRepository.findById(userId).version());
+    }
+
+    @Test
+    void 낙관적_모드에서_동시에_충전_사용해도_모두_반영 () throws Exception {
+        //given
+        PointService optimisticService = new PointService(pointRepository, pointHistoryRepository, new LockManager(),
+                Executors.newFixedThreadPool(4), PointConcurrencyPolicy.optimistic(100, 1), null, null, null);
+        optimisticService.charge(1L, 100000L);
+
+        //when
+        CompletableFuture.allOf(
+                CompletableFuture.runAsync(() -> {
+                    try {
+                        optimisticService.use(1L, 10000L);
+                    } catch (Exception e) {
+
+                    }
+                }),
+                CompletableFuture.runAsync(() -> {
+                    try {
+                        optimisticService.charge(1L, 4000L);
+                    } catch (Exception e) {
+
+                    }
+                }),
+                CompletableFuture.runAsync(() -> {
+                    try {
+                        optimisticService.use(1L, 100L);
+                    } catch (Exception e) {
+
+                    }
+                })
+        ).join();
+
+        //then
+        assertThat(optimisticService.search(1).point()).isEqualTo(100000 - 10000 + 4000 - 100);
+        assertEquals(4, optimisticService.readHistories(1).size());
+    }
+
+
+    @Test
+    void 낙관적_모드에서_동시에_반영한_뒤_재시작해도_잔액이_같음 () throws Exception {
+        //given
+        // 내역 파일에서 유저별 마지막 내역으로 잔액을 복구하는 구성 (store=atomic, history.store=mapped)
+        Path path = dir.resolve("history.log");
+        AtomicPointRepository balances = new AtomicPointRepository();
+        MappedPointHistoryRepository histories = new MappedPointHistoryRepository(path, MappedPointHistoryRepository.RECORD_SIZE * 1024L,
+                MappedPointHistoryRepository.FsyncPolicy.OS, 5);
+        PointService optimisticService = new PointService(balances, histories, new LockManager(), Runnable::run,
+                PointConcurrencyPolicy.optimistic(1000, 0), null, null, null);
+        optimisticService.charge(1L, 100000L);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            int n = i;
+            futures.add(executorService.submit(() -> {
+                if (n % 3 == 0) return optimisticService.applyCoalesced(1L, List.of(PointCommand.charge(1, 5), PointCommand.use(1, 2)));
+                return n % 3 == 1 ? optimisticService.charge(1L, 7L) : optimisticService.use(1L, 3L);
+            }));
+        }
+        for (Future<?> future : futures) future.get();
+        executorService.shutdown();
+        long live = optimisticService.search(1).point();
+        histories.close();
+
+        //when
+        MappedPointHistoryRepository reopened = new MappedPointHistoryRepository(path, MappedPointHistoryRepository.RECORD_SIZE * 1024L,
+                MappedPointHistoryRepository.FsyncPolicy.OS, 5);
+        AtomicPointRepository recovered = new AtomicPointRepository();
+        new PointRecovery(recovered, reopened).recover();
+        PointReconciler pointReconciler = new PointReconciler(recovered, reopened, 1);
+        PointReconciler.Report report = pointReconciler.reconcile();
+        pointReconciler.close();
+        reopened.close();
+
+        //then
+        assertEquals(100000 + 134 * 3 + 133 * 7 - 133 * 3, live);
+        assertEquals(live, recovered.findById(1).point());
+        assertEquals(0, report.mismatchCount());
+    }
+
 
     private boolean isAfterTime(long time1, long time2) {
         if (time1 < time2) return false;
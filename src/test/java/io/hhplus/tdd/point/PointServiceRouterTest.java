@@ -0,0 +1,101 @@
+package io.hhplus.tdd.point;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PointServiceRouterTest {
+
+    /**
+     * Shard Test
+     * 1. 같은 유저는 항상 같은 shard 로 보냄
+     * 2. 유저가 여러 shard 에 고르게 퍼짐
+     * 3. shard 끼리는 잔액과 내역을 나눠 가짐
+     * 4. 여러 shard 에 걸친 batch 도 요청 순서대로 결과를 돌려줌
+     * */
+
+    private final PointServiceRouter pointServiceRouter = new PointServiceRouter(8, 1, "atomic", PointConcurrencyPolicy.pessimistic());
+
+    @AfterEach
+    void tearDown() {
+        pointServiceRouter.close();
+    }
+
+    @Test
+    void 같은_유저는_항상_같은_shard_로_보냄 () throws Exception {
+        //given
+        pointServiceRouter.route(7L).charge(7L, 1000L);
+
+        //when
+        UserPoint userPoint = pointServiceRouter.route(7L).use(7L, 300L);
+
+        //then
+        assertSame(pointServiceRouter.route(7L), pointServiceRouter.route(7L));
+        assertEquals(700, userPoint.point());
+        assertEquals(2, pointServiceRouter.route(7L).readHistories(7L).size());
+    }
+
+    @Test
+    void 유저가_여러_shard_에_고르게_퍼짐 () {
+        //given
+        int[] counts = new int[pointServiceRouter.shardCount()];
+
+        //when
+        for (long userId = 0; userId < 80_000; userId++) counts[pointServiceRouter.shardOf(userId)]++;
+
+        //then
+        for (int count : counts) assertTrue(count > 9_000 && count < 11_000, "shard 별 유저 수 " + count);
+    }
+
+    @Test
+    void shard_끼리는_잔액과_내역을_나눠_가짐 () throws Exception {
+        //given
+        long userId = 1;
+        long otherUserId = 2;
+        while (pointServiceRouter.shardOf(otherUserId) == pointServiceRouter.shardOf(userId)) otherUserId++;
+        pointServiceRouter.route(userId).charge(userId, 1000L);
+
+        //when
+        UserPoint other = pointServiceRouter.route(otherUserId).search(userId);
+
+        //then
+        assertNotSame(pointServiceRouter.route(userId), pointServiceRouter.route(otherUserId));
+        assertEquals(0, other.point());
+        assertEquals(1000, pointServiceRouter.route(userId).search(userId).point());
+    }
+
+    @Test
+    void 여러_shard_에_걸친_batch_도_요청_순서대로_결과를_돌려줌 () throws Exception {
+        //given
+        List<PointCommand> commands = new ArrayList<>();
+        for (long userId = 0; userId < 32; userId++) commands.add(PointCommand.charge(userId, 100 + userId));
+        commands.add(PointCommand.use(3L, 10_000L));
+        commands.add(PointCommand.use(5L, 5L));
+
+        //when
+        List<PointCommandResult> results = pointServiceRouter.applyBatch(commands);
+
+        //then
+        assertEquals(commands.size(), results.size());
+        Set<Integer> usedShards = new HashSet<>();
+        for (int i = 0; i < 32; i++) {
+            usedShards.add(pointServiceRouter.shardOf(i));
+            assertEquals(i, results.get(i).command().userId());
+            if (i == 3) continue;
+            assertTrue(results.get(i).isSuccess());
+        }
+        // 유저 3 은 사용이 실패해서 충전도 반영하지 않는다.
+        assertFalse(results.get(3).isSuccess());
+        assertFalse(results.get(32).isSuccess());
+        assertTrue(results.get(33).isSuccess());
+        assertEquals(0, pointServiceRouter.route(3L).search(3L).point());
+        assertEquals(100, pointServiceRouter.route(5L).search(5L).point());
+        assertTrue(usedShards.size() > 1);
+    }
+}
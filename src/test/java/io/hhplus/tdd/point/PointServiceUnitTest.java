@@ -1,13 +1,16 @@
 package io.hhplus.tdd.point;
 
+import io.hhplus.tdd.LockManager;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
@@ -22,10 +25,19 @@ public class PointServiceUnitTest {
     PointRepository pointRepository;
     @Mock
     PointHistoryRepository pointHistoryRepository;
+    @Spy
+    LockManager lockManager = new LockManager();
+    @Mock
+    Executor executor;
 
-    @InjectMocks
     PointService pointService;
 
+    // 뒤의 인자(정책, 멱등 캐시, 지표, ledger)는 null 로 기본값을 쓰도록 직접 만든다.
+    @BeforeEach
+    void setUp() {
+        pointService = new PointService(pointRepository, pointHistoryRepository, lockManager, executor, null, null, null, null);
+    }
+
 
     /**
      * Charge Unit Test
@@ -219,7 +231,7 @@ public class PointServiceUnitTest {
         List<PointHistory> expectedHistories = new ArrayList<>();
         PointHistory pointHistory = new PointHistory(1, userId, 100, TransactionType.CHARGE, System.currentTimeMillis());
         expectedHistories.add(pointHistory);
-        when(pointHistoryRepository.findAllByUserId(anyLong())).thenReturn(expectedHistories);
+        when(pointHistoryRepository.findAllByUserIdDesc(anyLong())).thenReturn(expectedHistories);
 
         //when
         List<PointHistory> pointHistories = pointService.readHistories(userId);
@@ -236,7 +248,7 @@ public class PointServiceUnitTest {
     void 이력이_없을_때() throws Exception{
         //given
         long userId = 1;
-        when(pointHistoryRepository.findAllByUserId(anyLong())).thenReturn(null);
+        when(pointHistoryRepository.findAllByUserIdDesc(anyLong())).thenReturn(null);
 
         //when
         Throwable exception = assertThrows(Exception.class, () -> {
@@ -258,11 +270,12 @@ public class PointServiceUnitTest {
         List<PointHistory> expectedHistories = new ArrayList<>();
         PointHistory chargeHistory = new PointHistory(1, userId, amount, TransactionType.CHARGE, System.currentTimeMillis());
         PointHistory useHistory = new PointHistory(2, userId, 300, TransactionType.USE, System.currentTimeMillis() + (1000 * 60));
-        expectedHistories.add(chargeHistory);
+        // 저장소가 최신순으로 돌려주고, 서비스는 그 순서를 그대로 유지한다.
         expectedHistories.add(useHistory);
+        expectedHistories.add(chargeHistory);
 
         //when
-        when(pointHistoryRepository.findAllByUserId(anyLong())).thenReturn(expectedHistories);
+        when(pointHistoryRepository.findAllByUserIdDesc(anyLong())).thenReturn(expectedHistories);
         List<PointHistory> pointHistories = pointService.readHistories(userId);
 
         //then
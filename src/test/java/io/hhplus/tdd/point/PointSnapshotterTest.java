@@ -0,0 +1,158 @@
+package io.hhplus.tdd.point;
+
+import io.hhplus.tdd.LockManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PointSnapshotterTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Snapshot Test
+     * 1. snapshot 후 재시작하면 snapshot 이후 내역만 다시 읽음
+     * 2. 새 내역이 없으면 snapshot 을 다시 쓰지 않음
+     * 3. 깨진 snapshot 은 무시하고 전체 내역으로 복구
+     * 4. 같은 유저에 동시에 쓰는 중에 snapshot 을 떠도 복구한 잔액이 같음
+     * */
+
+    @Test
+    void snapshot_후_재시작하면_snapshot_이후_내역만_다시_읽음 () throws Exception {
+        //given
+        PointSnapshotStore snapshots = new PointSnapshotStore(dir.resolve("snapshot.bin"));
+        MappedPointHistoryRepository pointHistoryRepository = open(snapshots);
+        pointHistoryRepository.insert(1, 1000, TransactionType.CHARGE, 1, 1000);
+        pointHistoryRepository.insert(2, 500, TransactionType.CHARGE, 2, 500);
+        pointHistoryRepository.insert(1, 300, TransactionType.USE, 3, 700);
+        PointSnapshotter pointSnapshotter = new PointSnapshotter(pointHistoryRepository, snapshots, 0);
+        long snapshotRows = pointSnapshotter.snapshot();
+        pointHistoryRepository.insert(1, 200, TransactionType.CHARGE, 4, 900);
+        pointHistoryRepository.insert(3, 100, TransactionType.CHARGE, 5, 100);
+        pointHistoryRepository.close();
+
+        //when
+        MappedPointHistoryRepository reopened = open(snapshots);
+        AtomicPointRepository pointRepository = new AtomicPointRepository();
+        PointRecovery pointRecovery = new PointRecovery(pointRepository, reopened, snapshots);
+        pointRecovery.recover();
+        List<PointHistory> histories = reopened.findAllByUserId(1);
+        reopened.close();
+
+        //then
+        assertEquals(3, snapshotRows);
+        assertEquals(3, reopened.snapshotRows());
+        assertEquals(2, pointRecovery.tailRows());
+        assertEquals(3, pointRecovery.recoveredUsers());
+        assertEquals(900, pointRepository.findById(1).point());
+        assertEquals(500, pointRepository.findById(2).point());
+        assertEquals(100, pointRepository.findById(3).point());
+        assertEquals(List.of(1L, 3L, 4L), histories.stream().map(PointHistory::id).toList());
+    }
+
+    @Test
+    void 새_내역이_없으면_snapshot_을_다시_쓰지_않음 () throws Exception {
+        //given
+        PointSnapshotStore snapshots = new PointSnapshotStore(dir.resolve("snapshot.bin"));
+        MappedPointHistoryRepository pointHistoryRepository = open(snapshots);
+        pointHistoryRepository.insert(1, 1000, TransactionType.CHARGE, 1, 1000);
+        PointSnapshotter pointSnapshotter = new PointSnapshotter(pointHistoryRepository, snapshots, 0);
+        pointSnapshotter.snapshot();
+        Files.delete(snapshots.path());
+
+        //when
+        pointSnapshotter.snapshot();
+        pointHistoryRepository.close();
+
+        //then
+        assertFalse(Files.exists(snapshots.path()));
+    }
+
+    @Test
+    void 깨진_snapshot_은_무시하고_전체_내역으로_복구 () throws Exception {
+        //given
+        PointSnapshotStore snapshots = new PointSnapshotStore(dir.resolve("snapshot.bin"));
+        MappedPointHistoryRepository pointHistoryRepository = open(snapshots);
+        pointHistoryRepository.insert(1, 1000, TransactionType.CHARGE, 1, 1000);
+        pointHistoryRepository.insert(2, 500, TransactionType.CHARGE, 2, 500);
+        new PointSnapshotter(pointHistoryRepository, snapshots, 0).snapshot();
+        pointHistoryRepository.close();
+        byte[] bytes = Files.readAllBytes(snapshots.path());
+        bytes[30] ^= 1;
+        Files.write(snapshots.path(), bytes);
+
+        //when
+        MappedPointHistoryRepository reopened = open(snapshots);
+        AtomicPointRepository pointRepository = new AtomicPointRepository();
+        PointRecovery pointRecovery = new PointRecovery(pointRepository, reopened, snapshots);
+        pointRecovery.recover();
+        reopened.close();
+
+        //then
+        assertEquals(0, reopened.snapshotRows());
+        assertEquals(2, pointRecovery.tailRows());
+        assertEquals(1000, pointRepository.findById(1).point());
+        assertEquals(500, pointRepository.findById(2).point());
+    }
+
+    @Test
+    void 같은_유저에_동시에_쓰는_중에_snapshot_을_떠도_복구한_잔액이_같음 () throws Exception {
+        //given
+        // 낙관적 모드라 같은 유저의 저장이 여러 스레드에서 엇갈린다. 복구는 유저별 마지막 내역을 잔액으로 쓴다.
+        PointSnapshotStore snapshots = new PointSnapshotStore(dir.resolve("snapshot.bin"));
+        MappedPointHistoryRepository pointHistoryRepository = open(snapshots);
+        AtomicPointRepository pointRepository = new AtomicPointRepository();
+        PointService pointService = new PointService(pointRepository, pointHistoryRepository, new LockManager(), Runnable::run,
+                PointConcurrencyPolicy.optimistic(1000, 0), null, null, null);
+        PointSnapshotter pointSnapshotter = new PointSnapshotter(pointHistoryRepository, snapshots, 0);
+        pointService.charge(1L, 10000L);
+        pointService.charge(2L, 10000L);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            long userId = i % 2 + 1;
+            boolean charge = i % 3 != 0;
+            futures.add(executorService.submit(() -> charge ? pointService.charge(userId, 3L) : pointService.use(userId, 5L)));
+            if (i % 100 == 50) futures.add(executorService.submit(pointSnapshotter::snapshot));
+        }
+        for (Future<?> future : futures) future.get();
+        executorService.shutdown();
+        long live1 = pointService.search(1).point();
+        long live2 = pointService.search(2).point();
+        pointHistoryRepository.close();
+
+        //when
+        MappedPointHistoryRepository reopened = open(snapshots);
+        AtomicPointRepository recovered = new AtomicPointRepository();
+        PointRecovery pointRecovery = new PointRecovery(recovered, reopened, snapshots);
+        pointRecovery.recover();
+        List<PointHistory> histories1 = reopened.findAllByUserId(1);
+        reopened.close();
+
+        //then
+        assertTrue(reopened.snapshotRows() > 0);
+        assertEquals(live1, recovered.findById(1).point());
+        assertEquals(live2, recovered.findById(2).point());
+        // 내역이 version 순서대로 쌓였으면 매 내역의 잔액은 이전 잔액에 그 내역을 더한 값이다.
+        long balance = 0;
+        for (PointHistory pointHistory : histories1) {
+            balance += pointHistory.signedAmount();
+            assertEquals(balance, pointHistory.balance());
+        }
+    }
+
+    private MappedPointHistoryRepository open(PointSnapshotStore snapshots) {
+        return new MappedPointHistoryRepository(dir.resolve("history.log"), MappedPointHistoryRepository.RECORD_SIZE * 16L,
+                MappedPointHistoryRepository.FsyncPolicy.OS, 5, 256, 0, snapshots);
+    }
+}
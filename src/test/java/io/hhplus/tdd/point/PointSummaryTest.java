@@ -0,0 +1,217 @@
+package io.hhplus.tdd.point;
+
+import io.hhplus.tdd.LockManager;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PointSummaryTest {
+
+    /**
+     * Summary Test
+     * 1. 충전/사용마다 합계, 건수, 처음/마지막 시각이 바뀜 (내역이 없으면 0)
+     * 2. 실패한 사용과 batch 에서 반영하지 않은 유저의 요청은 집계에 들어가지 않음
+     * 3. 동시에 충전/사용해도 건수와 합계가 빠지지 않음 (비관적/낙관적)
+     * 4. 재시작 후 처음 조회할 때 내역에서 만든 집계가 유지 중인 집계와 같음 (그 전후의 반영도 한 번씩만 들어감)
+     * 5. ledger 모드도 같은 집계
+     * 6. 낙관적 모드로 충전/사용하는 중에 집계를 다시 만들어도 빠지거나 두 번 세는 건이 없음 (ledger 모드 포함)
+     * */
+
+    private final PointRepository pointRepository = new AtomicPointRepository();
+    private final PointHistoryRepository pointHistoryRepository = new IndexedPointHistoryRepository();
+    private final PointService pointService = new PointService(pointRepository, pointHistoryRepository, new LockManager(), Runnable::run, null, null, null, null);
+
+    @Test
+    void 충전_사용마다_집계가_바뀜 () throws Exception {
+        //given
+        PointSummary empty = pointService.summary(1L);
+
+        //when
+        UserPoint charged = pointService.charge(1L, 1000L);
+        pointService.use(1L, 300L);
+        UserPoint used = pointService.use(1L, 200L);
+
+        //then
+        assertEquals(PointSummary.empty(1L), empty);
+        PointSummary summary = pointService.summary(1L);
+        assertEquals(1000, summary.totalCharged());
+        assertEquals(500, summary.totalUsed());
+        assertEquals(1, summary.chargeCount());
+        assertEquals(2, summary.useCount());
+        assertEquals(charged.updateMillis(), summary.firstActivityMillis());
+        assertEquals(used.updateMillis(), summary.lastActivityMillis());
+    }
+
+    @Test
+    void 반영하지_않은_요청은_집계에_들어가지_않음 () throws Exception {
+        //given
+        pointService.charge(1L, 100L);
+
+        //when
+        assertThrows(Exception.class, () -> pointService.use(1L, 500L));
+        pointService.applyBatch(List.of(
+                PointCommand.use(1L, 30L),
+                PointCommand.charge(2L, 100L),
+                PointCommand.use(2L, 1000L),
+                PointCommand.charge(3L, 100L),
+                PointCommand.use(3L, 30L)));
+
+        //then
+        PointSummary summary = pointService.summary(1L);
+        assertEquals(new PointSummary(1L, 100, 30, 1, 1, summary.firstActivityMillis(), summary.lastActivityMillis()), summary);
+        assertEquals(PointSummary.empty(2L), pointService.summary(2L));
+        assertEquals(100, pointService.summary(3L).totalCharged());
+        assertEquals(30, pointService.summary(3L).totalUsed());
+    }
+
+    @Test
+    void 동시에_충전_사용해도_빠지지_않음 () throws Exception {
+        for (PointConcurrencyPolicy concurrencyPolicy : List.of(PointConcurrencyPolicy.pessimistic(), PointConcurrencyPolicy.optimistic(1000, 0))) {
+            //given
+            PointService service = new PointService(new AtomicPointRepository(), new IndexedPointHistoryRepository(), new LockManager(), Runnable::run, concurrencyPolicy, null, null, null);
+            service.charge(1L, 100_000L);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+            //when
+            for (int i = 0; i < 400; i++) {
+                boolean charge = i % 2 == 0;
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        if (charge) service.charge(1L, 10L);
+                        else service.use(1L, 7L);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            executor.shutdown();
+
+            //then
+            PointSummary summary = service.summary(1L);
+            assertEquals(201, summary.chargeCount());
+            assertEquals(200, summary.useCount());
+            assertEquals(100_000 + 200 * 10, summary.totalCharged());
+            assertEquals(200 * 7, summary.totalUsed());
+            assertEquals(service.search(1L).point(), summary.totalCharged() - summary.totalUsed());
+        }
+    }
+
+    @Test
+    void 재시작_후_처음_조회할_때_내역에서_만든_집계가_같음 () throws Exception {
+        //given
+        for (long userId = 1; userId <= 50; userId++) {
+            assertEquals(PointSummary.empty(userId), pointService.summary(userId));
+            pointService.charge(userId, 100L * userId);
+            pointService.use(userId, userId);
+            pointService.applyBatch(List.of(PointCommand.charge(userId, 5L), PointCommand.use(userId, 3L)));
+        }
+
+        //when
+        // 재시작한 것처럼 같은 저장소로 새 PointService 를 만든다. 처음 조회 전에 반영된 충전도 내역에서 한 번만 세어야 한다.
+        PointService restarted = new PointService(pointRepository, pointHistoryRepository, new LockManager(), Runnable::run, null, null, null, null);
+        restarted.charge(7L, 10L);
+        restarted.summary(7L);
+        restarted.use(7L, 4L);
+
+        //then
+        PointSummary summary = restarted.summary(7L);
+        assertEquals(3, summary.chargeCount());
+        assertEquals(3, summary.useCount());
+        assertEquals(700 + 5 + 10, summary.totalCharged());
+        assertEquals(pointService.rebuildSummary(7L), summary);
+        for (long userId = 1; userId <= 50; userId++) {
+            if (userId == 7) continue;
+            assertEquals(pointService.summary(userId), restarted.summary(userId));
+            assertEquals(pointService.summary(userId), pointService.rebuildSummary(userId));
+        }
+    }
+
+    @Test
+    void ledger_모드도_같은_집계 () throws Exception {
+        //given
+        PointLedger pointLedger = new PointLedger(2);
+        PointService ledgerService = new PointService(new LedgerPointRepository(pointLedger), new LedgerPointHistoryRepository(pointLedger),
+                new LockManager(), Runnable::run, null, null, null, null);
+
+        //when
+        ledgerService.charge(1L, 1000L);
+        ledgerService.use(1L, 100L);
+        ledgerService.applyBatch(List.of(PointCommand.charge(1L, 50L), PointCommand.use(1L, 20L)));
+        ledgerService.applyBatch(List.of(PointCommand.charge(1L, 10L), PointCommand.use(1L, 5000L)));
+
+        //then
+        PointSummary summary = ledgerService.summary(1L);
+        assertEquals(1050, summary.totalCharged());
+        assertEquals(120, summary.totalUsed());
+        assertEquals(2, summary.chargeCount());
+        assertEquals(2, summary.useCount());
+        assertEquals(summary, ledgerService.rebuildSummary(1L));
+        pointLedger.close();
+    }
+
+    @Test
+    void 낙관적_모드로_반영하는_중에_집계를_다시_만들어도_어긋나지_않음 () throws Exception {
+        // 집계를 다시 만드는 중이나 이벤트를 쌓은 뒤 집계에 더하기 전을 늘려, 그 사이에 반영된 건이 빠지거나 두 번 세어지면 드러나게 한다.
+        PointLedger pointLedger = new PointLedger(2);
+        pointLedger.attach(event -> pause());
+        List<PointService> services = List.of(
+                new PointService(new AtomicPointRepository(), new IndexedPointHistoryRepository() {
+                    @Override
+                    public List<PointHistory> findAllByUserId(long userId) {
+                        List<PointHistory> pointHistories = super.findAllByUserId(userId);
+                        pause();
+                        return pointHistories;
+                    }
+                }, new LockManager(), Runnable::run, PointConcurrencyPolicy.optimistic(1000, 0), null, null, null),
+                new PointService(new LedgerPointRepository(pointLedger), new LedgerPointHistoryRepository(pointLedger), new LockManager(), Runnable::run,
+                        PointConcurrencyPolicy.optimistic(1000, 0), null, null, null));
+        for (PointService service : services) {
+            //given
+            service.charge(1L, 100_000L);
+            service.summary(1L);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+            //when
+            for (int i = 0; i < 400; i++) {
+                int n = i;
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        if (n % 10 == 0) service.rebuildSummary(1L);
+                        else if (n % 10 == 5) service.applyCoalesced(1L, List.of(PointCommand.charge(1L, 10L), PointCommand.use(1L, 7L)));
+                        else if (n % 2 == 0) service.charge(1L, 10L);
+                        else service.use(1L, 7L);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            executor.shutdown();
+
+            //then
+            PointSummary summary = service.summary(1L);
+            assertEquals(1 + 160 + 40, summary.chargeCount());
+            assertEquals(160 + 40, summary.useCount());
+            assertEquals(service.search(1L).point(), summary.totalCharged() - summary.totalUsed());
+            assertEquals(service.rebuildSummary(1L), summary);
+        }
+        pointLedger.close();
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package io.hhplus.tdd.point;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReactivePointServiceTest {
+
+    /**
+     * Reactive Service Test (메모리 저장소라 구독한 스레드에서 바로 실행된다)
+     * 1. 충전 후 사용하면 잔액과 최신순 내역이 남음
+     * 2. 잔여 포인트보다 많이 사용하면 에러 signal
+     * 3. 같은 유저 동시 충전도 하나씩 반영되어 잔액이 맞음
+     * 4. batch 는 실패한 유저의 요청만 전부 반영하지 않음
+     * 5. 스트리밍은 페이지를 넘어 전체 내역을 최신순으로 돌려줌
+     * 6. ledger 모드는 충전/사용/batch 에서 반영한 요청마다 이벤트 한 건
+     * 7. 재시작 후 처음 조회할 때 내역에서 집계를 만듦
+     * 8. batch 에서 내역 저장이 실패하면 그 유저의 잔액도 내역도 바뀌지 않음
+     * 9. 같은 Idempotency-Key 로 다시 충전하면 스레드를 잡지 않고 한 번만 반영
+     * */
+
+    private final ReactivePointService reactivePointService = new ReactivePointService(
+            new ReactivePointRepositoryAdapter(new AtomicPointRepository(), false),
+            new ReactivePointHistoryRepositoryAdapter(new IndexedPointHistoryRepository(), false));
+
+    @Test
+    void 충전_후_사용하면_잔액과_최신순_내역이_남음 () {
+        //given
+        reactivePointService.charge(1L, 1000L).block();
+
+        //when
+        UserPoint userPoint = reactivePointService.use(1L, 300L).block();
+        List<PointHistory> pointHistories = reactivePointService.readHistories(1L).collectList().block();
+
+        //then
+        assertEquals(700, userPoint.point());
+        assertEquals(700, reactivePointService.search(1L).block().point());
+        assertEquals(2, pointHistories.size());
+        assertEquals(TransactionType.USE, pointHistories.get(0).type());
+        assertEquals(700, pointHistories.get(0).balance());
+    }
+
+    @Test
+    void 잔여_포인트보다_많이_사용하면_에러 () {
+        //given
+        reactivePointService.charge(1L, 100L).block();
+
+        //when
+        //then
+        Exception exception = assertThrows(Exception.class, () -> reactivePointService.use(1L, 300L).block());
+        assertTrue(exception.getMessage().contains("잔여 포인트보다 많이 사용할 수 없습니다."));
+        assertEquals(100, reactivePointService.search(1L).block().point());
+        assertEquals(1, reactivePointService.readHistories(1L).collectList().block().size());
+    }
+
+    @Test
+    void 같은_유저_동시_충전도_하나씩_반영 () {
+        //given
+        int count = 1000;
+
+        //when
+        Flux.range(0, count)
+                .flatMap(i -> reactivePointService.charge(1L, 10L).subscribeOn(Schedulers.parallel()))
+                .blockLast();
+
+        //then
+        assertEquals(10L * count, reactivePointService.search(1L).block().point());
+        assertEquals(count, reactivePointService.readHistories(1L).collectList().block().size());
+    }
+
+    @Test
+    void batch_는_실패한_유저의_요청만_전부_반영하지_않음 () {
+        //given
+        List<PointCommand> commands = List.of(
+                PointCommand.charge(1L, 100L),
+                PointCommand.charge(2L, 100L),
+                PointCommand.use(1L, 30L),
+                PointCommand.use(2L, 500L));
+
+        //when
+        List<PointCommandResult> results = reactivePointService.applyBatch(commands).block();
+
+        //then
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(70, results.get(2).userPoint().point());
+        assertFalse(results.get(1).isSuccess());
+        assertFalse(results.get(3).isSuccess());
+        assertEquals(70, reactivePointService.search(1L).block().point());
+        assertEquals(0, reactivePointService.search(2L).block().point());
+        assertEquals(0, reactivePointService.readHistories(2L).collectList().block().size());
+    }
+
+    @Test
+    void 스트리밍은_페이지를_넘어_전체_내역을_최신순으로_돌려줌 () {
+        //given
+        for (int i = 1; i <= 25; i++) reactivePointService.charge(1L, i).block();
+
+        //when
+        List<PointHistory> pointHistories = reactivePointService.streamHistories(1L, 10).collectList().block();
+
+        //then
+        assertEquals(25, pointHistories.size());
+        for (int i = 0; i < pointHistories.size(); i++) assertEquals(25 - i, pointHistories.get(i).amount());
+    }
+
+    @Test
+    void ledger_모드는_요청마다_이벤트_한_건 () {
+        //given
+        PointLedger pointLedger = new PointLedger(2);
+        ReactivePointService ledgerService = new ReactivePointService(
+                new ReactivePointRepositoryAdapter(new LedgerPointRepository(pointLedger), false),
+                new ReactivePointHistoryRepositoryAdapter(new LedgerPointHistoryRepository(pointLedger), false),
+                null, null, pointLedger);
+
+        //when
+        ledgerService.charge(1L, 1000L).block();
+        UserPoint userPoint = ledgerService.use(1L, 300L).block();
+        List<PointCommandResult> results = ledgerService.applyBatch(List.of(
+                PointCommand.charge(1L, 50L), PointCommand.use(1L, 20L), PointCommand.use(2L, 10L))).block();
+
+        //then
+        assertEquals(700, userPoint.point());
+        assertEquals(4, pointLedger.events(1L).size());
+        assertEquals(730, results.get(1).userPoint().point());
+        assertFalse(results.get(2).isSuccess());
+        assertEquals(0, pointLedger.events(2L).size());
+        assertEquals(730, ledgerService.search(1L).block().point());
+        assertEquals(4, ledgerService.readHistories(1L).collectList().block().size());
+        assertEquals(2, ledgerService.summary(1L).block().useCount());
+        pointLedger.close();
+    }
+
+    @Test
+    void 재시작_후_처음_조회할_때_내역에서_집계를_만듦 () {
+        //given
+        ReactivePointRepositoryAdapter pointRepository = new ReactivePointRepositoryAdapter(new AtomicPointRepository(), false);
+        ReactivePointHistoryRepositoryAdapter pointHistoryRepository = new ReactivePointHistoryRepositoryAdapter(new IndexedPointHistoryRepository(), false);
+        ReactivePointService before = new ReactivePointService(pointRepository, pointHistoryRepository);
+        before.charge(1L, 1000L).block();
+        before.use(1L, 300L).block();
+
+        //when
+        ReactivePointService restarted = new ReactivePointService(pointRepository, pointHistoryRepository);
+        restarted.charge(1L, 50L).block();
+        PointSummary first = restarted.summary(1L).block();
+        restarted.use(1L, 20L).block();
+
+        //then
+        assertEquals(2, first.chargeCount());
+        assertEquals(1050, first.totalCharged());
+        PointSummary summary = restarted.summary(1L).block();
+        assertEquals(new PointSummary(1L, 1050, 320, 2, 2, summary.firstActivityMillis(), summary.lastActivityMillis()), summary);
+    }
+
+    @Test
+    void batch_에서_내역_저장이_실패하면_잔액도_내역도_바뀌지_않음 () {
+        //given
+        // 유저 1 의 여러 건 저장에 실패하는 저장소 (한 건도 남기지 않고 실패한다)
+        IndexedPointHistoryRepository failingHistories = new IndexedPointHistoryRepository() {
+            @Override
+            public List<PointHistory> insertAll(long userId, List<PointCommand> commands, long[] balances, long updateMillis) {
+                if (userId == 1 && commands.size() > 1) throw new IllegalStateException("내역 저장소 장애");
+                return super.insertAll(userId, commands, balances, updateMillis);
+            }
+        };
+        ReactivePointService service = new ReactivePointService(
+                new ReactivePointRepositoryAdapter(new AtomicPointRepository(), false),
+                new ReactivePointHistoryRepositoryAdapter(failingHistories, false));
+        service.charge(1L, 500L).block();
+
+        //when
+        List<PointCommandResult> results = service.applyBatch(List.of(
+                PointCommand.charge(1, 1000), PointCommand.use(1, 200), PointCommand.charge(2, 100))).block();
+
+        //then
+        assertFalse(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(2).isSuccess());
+        assertEquals(500, service.search(1L).block().point());
+        assertEquals(100, service.search(2L).block().point());
+
+        // 실패한 요청은 내역에도 집계에도 남지 않는다.
+        List<PointHistory> histories = failingHistories.findAllByUserId(1);
+        assertEquals(1, histories.size());
+        assertEquals(500, histories.get(0).balance());
+        assertEquals(service.rebuildSummary(1L).block(), service.summary(1L).block());
+    }
+
+    @Test
+    void 같은_Idempotency_Key_로_다시_충전하면_한_번만_반영 () {
+        //given
+        IdempotencyCache idempotencyCache = new IdempotencyCache(1000, Duration.ofHours(1));
+        ReactivePointService service = new ReactivePointService(
+                new ReactivePointRepositoryAdapter(new AtomicPointRepository(), false),
+                new ReactivePointHistoryRepositoryAdapter(new IndexedPointHistoryRepository(), false),
+                idempotencyCache, null);
+        UserPoint first = service.charge(1L, 1000L, "k1").block();
+
+        //when
+        UserPoint second = service.charge(1L, 1000L, "k1").block();
+        Exception differentAmount = assertThrows(Exception.class, () -> service.charge(1L, 500L, "k1").block());
+
+        //then
+        assertEquals(first, second);
+        assertEquals(1000, service.search(1L).block().point());
+        assertEquals(1, service.readHistories(1L).collectList().block().size());
+        assertEquals(1, idempotencyCache.replayCount());
+        assertTrue(differentAmount.getMessage().contains("같은 Idempotency-Key 로 다른 요청을 보낼 수 없습니다."));
+    }
+}
@@ -0,0 +1,193 @@
+package io.hhplus.tdd.point;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteBehindPointHistoryRepositoryTest {
+
+    private IndexedPointHistoryRepository store = new IndexedPointHistoryRepository();
+    private WriteBehindPointHistoryRepository pointHistoryRepository = new WriteBehindPointHistoryRepository(store, 100, 16);
+
+    @AfterEach
+    void tearDown() throws Exception {
+        pointHistoryRepository.shutdown();
+    }
+
+    /**
+     * Write-behind Test
+     * 1. insert 직후 조회해도 내역이 보임 (read-your-writes)
+     * 2. 종료 시 남은 내역을 모두 저장
+     * 3. 종료 후 insert 는 실패
+     * 4. 저장에 실패한 내역은 버리지 않고 다시 써서 순서대로 남음
+     * 5. 다른 유저의 내역이 밀려 있어도 조회는 기다리지 않음
+     * 6. 자기 내역이 read-timeout 안에 써지지 않으면 조회 실패
+     * 7. max-retries 번 다시 써도 실패한 내역은 dead letter 로 옮기고 다음 내역을 씀
+     * */
+
+    @Test
+    void insert_직후_조회해도_내역이_보임 () {
+        //given
+        long userId = 1;
+        for (int i = 0; i < 500; i++) {
+            pointHistoryRepository.insert(userId, i, TransactionType.CHARGE, i, i);
+        }
+
+        //when
+        List<PointHistory> histories = pointHistoryRepository.findAllByUserIdDesc(userId);
+
+        //then
+        assertEquals(500, histories.size());
+        assertEquals(499, histories.get(0).amount());
+    }
+
+    @Test
+    void 종료_시_남은_내역을_모두_저장 () throws Exception {
+        //given
+        for (int i = 0; i < 300; i++) {
+            pointHistoryRepository.insert(i % 3, i, TransactionType.USE, i, i);
+        }
+
+        //when
+        pointHistoryRepository.shutdown();
+
+        //then
+        assertEquals(0, pointHistoryRepository.pendingCount());
+        assertEquals(300, pointHistoryRepository.writtenCount());
+        assertEquals(100, store.findAllByUserId(0).size());
+    }
+
+    @Test
+    void 종료_후_insert_는_실패 () throws Exception {
+        //given
+        pointHistoryRepository.shutdown();
+
+        //when
+        //then
+        assertThrows(IllegalStateException.class, () -> pointHistoryRepository.insert(1, 100, TransactionType.CHARGE, 1, 100));
+    }
+
+    @Test
+    void 저장에_실패한_내역은_다시_써서_순서대로_남음 () throws Exception {
+        //given
+        AtomicInteger failures = new AtomicInteger(3);
+        IndexedPointHistoryRepository flakyStore = new IndexedPointHistoryRepository() {
+            @Override
+            public PointHistory insert(long userId, long amount, TransactionType type, long updateMillis, long balance) {
+                if (amount == 5 && failures.getAndDecrement() > 0) throw new IllegalStateException("저장소 장애");
+                return super.insert(userId, amount, type, updateMillis, balance);
+            }
+        };
+        WriteBehindPointHistoryRepository repository = new WriteBehindPointHistoryRepository(flakyStore, 4, 2);
+
+        //when
+        for (int i = 0; i < 20; i++) {
+            repository.insert(1L, i, TransactionType.CHARGE, i, i);
+        }
+        List<PointHistory> histories = repository.findAllByUserId(1L);
+        repository.shutdown();
+
+        //then
+        assertEquals(20, histories.size());
+        for (int i = 0; i < 20; i++) assertEquals(i, histories.get(i).amount());
+        assertEquals(3, repository.failedCount());
+        assertEquals(20, repository.writtenCount());
+        assertEquals(0, repository.pendingCount());
+    }
+
+    @Test
+    void 다른_유저의_내역이_밀려_있어도_조회는_기다리지_않음 () throws Exception {
+        //given
+        // 유저 2 의 내역 저장은 gate 가 열릴 때까지 멈춘다. (writer 4개면 유저 1, 2 는 다른 partition)
+        CountDownLatch gate = new CountDownLatch(1);
+        IndexedPointHistoryRepository slowStore = new IndexedPointHistoryRepository() {
+            @Override
+            public PointHistory insert(long userId, long amount, TransactionType type, long updateMillis, long balance) {
+                if (userId == 2) {
+                    try {
+                        gate.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.insert(userId, amount, type, updateMillis, balance);
+            }
+        };
+        WriteBehindPointHistoryRepository repository = new WriteBehindPointHistoryRepository(slowStore, 100, 16, 4, 5000);
+        for (int i = 0; i < 10; i++) repository.insert(2L, i, TransactionType.CHARGE, i, i);
+
+        //when
+        repository.insert(1L, 100, TransactionType.CHARGE, 1, 100);
+        long started = System.nanoTime();
+        List<PointHistory> histories = repository.findAllByUserId(1L);
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        gate.countDown();
+        repository.shutdown();
+
+        //then
+        assertEquals(1, histories.size());
+        assertTrue(waitedMillis < 1000);
+        assertEquals(10, slowStore.findAllByUserId(2L).size());
+    }
+
+    @Test
+    void 자기_내역이_read_timeout_안에_써지지_않으면_조회_실패 () throws Exception {
+        //given
+        CountDownLatch gate = new CountDownLatch(1);
+        IndexedPointHistoryRepository stuckStore = new IndexedPointHistoryRepository() {
+            @Override
+            public PointHistory insert(long userId, long amount, TransactionType type, long updateMillis, long balance) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.insert(userId, amount, type, updateMillis, balance);
+            }
+        };
+        WriteBehindPointHistoryRepository repository = new WriteBehindPointHistoryRepository(stuckStore, 100, 16, 4, 100);
+        repository.insert(1L, 100, TransactionType.CHARGE, 1, 100);
+
+        //when
+        //then
+        assertThrows(IllegalStateException.class, () -> repository.findAllByUserId(1L));
+        gate.countDown();
+        repository.shutdown();
+        assertEquals(1, repository.findAllByUserId(1L).size());
+    }
+
+    @Test
+    void 다시_써도_실패한_내역은_dead_letter_로_옮기고_다음_내역을_씀 () throws Exception {
+        //given
+        IndexedPointHistoryRepository brokenStore = new IndexedPointHistoryRepository() {
+            @Override
+            public PointHistory insert(long userId, long amount, TransactionType type, long updateMillis, long balance) {
+                if (amount == 5) throw new IllegalStateException("저장할 수 없는 내역");
+                return super.insert(userId, amount, type, updateMillis, balance);
+            }
+        };
+        WriteBehindPointHistoryRepository repository = new WriteBehindPointHistoryRepository(brokenStore, 4, 2, 4, 5000, 2);
+
+        //when
+        for (int i = 0; i < 10; i++) {
+            repository.insert(1L, i, TransactionType.CHARGE, i, i);
+        }
+        List<PointHistory> histories = repository.findAllByUserId(1L);
+        repository.shutdown();
+
+        //then
+        assertEquals(9, histories.size());
+        for (int i = 0; i < 9; i++) assertEquals(i < 5 ? i : i + 1, histories.get(i).amount());
+        assertEquals(3, repository.failedCount());
+        assertEquals(9, repository.writtenCount());
+        assertEquals(1, repository.deadLetterCount());
+        assertEquals(List.of(new PointHistory(0, 1L, 5, TransactionType.CHARGE, 5, 5)), repository.deadLetters());
+        assertEquals(0, repository.pendingCount());
+    }
+}